@@ -41,7 +41,8 @@ class BackupClient extends Client<TheBackupInterface> implements TheBackupInterf
     public Response<Void> fullBackup( StoreWriter storeWriter )
     {
         return sendRequest( BackupRequestType.FULL_BACKUP, SlaveContext.EMPTY,
-                Protocol.EMPTY_SERIALIZER, new Protocol.FileStreamsDeserializer( storeWriter ) );
+                new Protocol.FileStreamsRequestSerializer( storeWriter ),
+                new Protocol.FileStreamsDeserializer( storeWriter ) );
     }
     
     public Response<Void> incrementalBackup( SlaveContext context )
@@ -63,7 +64,7 @@ class BackupClient extends Client<TheBackupInterface> implements TheBackupInterf
             public Response<Void> callMaster( TheBackupInterface master, SlaveContext context,
                     ChannelBuffer input, ChannelBuffer target )
             {
-                return master.fullBackup( new ToNetworkStoreWriter( target ) );
+                return master.fullBackup( new ToNetworkStoreWriter( target, input ) );
             }
         }, Protocol.VOID_SERIALIZER ),
         INCREMENTAL_BACKUP( new MasterCaller<TheBackupInterface, Void>()
@@ -24,15 +24,17 @@ import org.neo4j.backup.BackupClient.BackupRequestType;
 import org.neo4j.com.RequestType;
 import org.neo4j.com.Server;
 import org.neo4j.com.SlaveContext;
+import org.neo4j.com.TransactionCompression;
 
 class BackupServer extends Server<TheBackupInterface, Object>
 {
     private final BackupRequestType[] contexts = BackupRequestType.values();
     static int DEFAULT_PORT = DEFAULT_BACKUP_PORT;
     
-    public BackupServer( TheBackupInterface realMaster, int port, String storeDir )
+    public BackupServer( TheBackupInterface realMaster, int port, String storeDir,
+            TransactionCompression txCompression )
     {
-        super( realMaster, port, storeDir );
+        super( realMaster, port, storeDir, DEFAULT_MAX_NUMBER_OF_CONCURRENT_TRANSACTIONS, txCompression );
     }
 
     @Override
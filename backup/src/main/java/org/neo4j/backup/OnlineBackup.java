@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.neo4j.com.ComException;
 import org.neo4j.com.MasterUtil;
 import org.neo4j.com.MasterUtil.TxHandler;
 import org.neo4j.com.Response;
@@ -42,6 +43,8 @@ import org.neo4j.kernel.impl.util.StringLogger;
 
 public class OnlineBackup
 {
+    private static final int FULL_BACKUP_ATTEMPTS = 3;
+    
     private final String hostNameOrIp;
     private final int port;
     private final Map<String, Long> lastCommittedTxs = new TreeMap<String, Long>();
@@ -73,7 +76,7 @@ public class OnlineBackup
         BackupClient client = new BackupClient( hostNameOrIp, port, new NotYetExistingGraphDatabase( targetDirectory ) );
         try
         {
-            Response<Void> response = client.fullBackup( new ToFileStoreWriter( targetDirectory ) );
+            Response<Void> response = fullBackup( client, new ToFileStoreWriter( targetDirectory ) );
             GraphDatabaseService targetDb = startTemporaryDb( targetDirectory );
             try
             {
@@ -93,6 +96,28 @@ public class OnlineBackup
         return this;
     }
     
+    /**
+     * A copy which is interrupted, f.ex. by a dropped connection, continues
+     * from where it stopped a couple of times before giving up.
+     */
+    private Response<Void> fullBackup( BackupClient client, ToFileStoreWriter writer )
+    {
+        for ( int attempt = 1;; attempt++ )
+        {
+            try
+            {
+                return client.fullBackup( writer );
+            }
+            catch ( ComException e )
+            {
+                if ( attempt == FULL_BACKUP_ATTEMPTS )
+                {
+                    throw e;
+                }
+            }
+        }
+    }
+    
     private boolean directoryContainsDb( String targetDirectory )
     {
         return new File( targetDirectory, "neostore" ).exists();
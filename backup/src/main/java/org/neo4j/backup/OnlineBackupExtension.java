@@ -25,6 +25,7 @@ import static org.neo4j.kernel.Config.parseMapFromConfigValue;
 
 import java.util.Map;
 
+import org.neo4j.com.TransactionCompression;
 import org.neo4j.helpers.Service;
 import org.neo4j.kernel.KernelData;
 import org.neo4j.kernel.KernelExtension;
@@ -57,7 +58,8 @@ public class OnlineBackupExtension extends KernelExtension<BackupServer>
         {
             TheBackupInterface backup = new BackupImpl( kernel.graphDatabase() );
             BackupServer server = new BackupServer( backup, port.intValue(),
-                    (String) kernel.getConfig().getParams().get( "store_dir" ) );
+                    (String) kernel.getConfig().getParams().get( "store_dir" ),
+                    TransactionCompression.fromConfig( kernel.getConfig().getParams() ) );
             return server;
         }
         return null;
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.IOException;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.kernel.Config;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Looking up a batch of random nodes and one property of each, one node at
+ * a time with <CODE>getNodeById</CODE> compared to all at once with
+ * <CODE>getNodesById</CODE>. Without a cache every lookup goes to the store.
+ */
+@State( Scope.Benchmark )
+public class BatchLookupBenchmark
+{
+    @Param( { "soft", "none" } )
+    public String cacheType;
+
+    @Param( "100000" )
+    public int nodeCount;
+
+    @Param( "1000" )
+    public int batchSize;
+
+    private BenchmarkGraph graph;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( stringMap( Config.CACHE_TYPE, cacheType ),
+                nodeCount, 0, false );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    private long[] randomIds( ThreadRandom random )
+    {
+        long[] ids = new long[batchSize];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            ids[i] = graph.randomNodeId( random.random );
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public int getNodeById( ThreadRandom random )
+    {
+        GraphDatabaseService graphDb = graph.graphDb();
+        int sum = 0;
+        for ( long id : randomIds( random ) )
+        {
+            sum += graphDb.getNodeById( id ).getProperty( BenchmarkGraph.NAME ).hashCode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getNodesById( ThreadRandom random )
+    {
+        EmbeddedGraphDatabase graphDb = (EmbeddedGraphDatabase) graph.graphDb();
+        int sum = 0;
+        for ( Node node : graphDb.getNodesById( randomIds( random ), BenchmarkGraph.NAME ) )
+        {
+            sum += node.getProperty( BenchmarkGraph.NAME ).hashCode();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+
+/**
+ * A throw-away database in a temporary directory, populated with a random
+ * graph that all benchmarks share the shape of. Every node has a
+ * {@link #NAME} property ("n" + index) and {@link #NUMBER} property (index)
+ * and <CODE>relationshipsPerNode</CODE> outgoing relationships to random
+ * nodes, alternating between {@link #KNOWS} and {@link #LIKES}.
+ */
+public class BenchmarkGraph
+{
+    public static final RelationshipType KNOWS = DynamicRelationshipType.withName( "KNOWS" );
+    public static final RelationshipType LIKES = DynamicRelationshipType.withName( "LIKES" );
+    public static final String NAME = "name";
+    public static final String NUMBER = "number";
+    public static final String INDEX_NAME = "nodes";
+
+    private static final int NODES_PER_TX = 10000;
+
+    private final File storeDir;
+    private final GraphDatabaseService graphDb;
+    private final long[] nodeIds;
+
+    /**
+     * @param config configuration for the database, f.ex. cache type.
+     * @param nodeCount the number of nodes to create.
+     * @param relationshipsPerNode the number of outgoing relationships to
+     * create from each node.
+     * @param indexNames whether or not to add each node to the
+     * {@link #INDEX_NAME} index with its {@link #NAME}.
+     */
+    public BenchmarkGraph( Map<String,String> config, int nodeCount,
+            int relationshipsPerNode, boolean indexNames ) throws IOException
+    {
+        this.storeDir = File.createTempFile( "neo4j-benchmark", "db" );
+        if ( !storeDir.delete() || !storeDir.mkdirs() )
+        {
+            throw new IOException( "Couldn't create " + storeDir );
+        }
+        Map<String,String> fullConfig = new HashMap<String,String>();
+        // let the object caches hold the whole graph unless told otherwise
+        fullConfig.put( "max_node_cache_size", "" + ( nodeCount + 1 ) );
+        fullConfig.put( "max_relationship_cache_size",
+                "" + ( nodeCount * relationshipsPerNode + 1 ) );
+        fullConfig.putAll( config );
+        this.graphDb = new EmbeddedGraphDatabase( storeDir.getAbsolutePath(), fullConfig );
+        this.nodeIds = new long[nodeCount];
+        createNodes( indexNames );
+        createRelationships( relationshipsPerNode );
+    }
+
+    private void createNodes( boolean indexNames )
+    {
+        Index<Node> index = indexNames ? graphDb.index().forNodes( INDEX_NAME ) : null;
+        for ( int start = 0; start < nodeIds.length; start += NODES_PER_TX )
+        {
+            Transaction tx = graphDb.beginTx();
+            try
+            {
+                for ( int i = start; i < Math.min( nodeIds.length, start + NODES_PER_TX ); i++ )
+                {
+                    Node node = graphDb.createNode();
+                    node.setProperty( NAME, "n" + i );
+                    node.setProperty( NUMBER, i );
+                    if ( index != null )
+                    {
+                        index.add( node, NAME, "n" + i );
+                    }
+                    nodeIds[i] = node.getId();
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+    }
+
+    private void createRelationships( int relationshipsPerNode )
+    {
+        Random random = new Random( 1234 );
+        for ( int start = 0; start < nodeIds.length; start += NODES_PER_TX )
+        {
+            Transaction tx = graphDb.beginTx();
+            try
+            {
+                for ( int i = start; i < Math.min( nodeIds.length, start + NODES_PER_TX ); i++ )
+                {
+                    Node node = graphDb.getNodeById( nodeIds[i] );
+                    for ( int r = 0; r < relationshipsPerNode; r++ )
+                    {
+                        long otherId = randomNodeId( random );
+                        while ( otherId == nodeIds[i] )
+                        {
+                            // loops aren't allowed, draw again
+                            otherId = randomNodeId( random );
+                        }
+                        Node other = graphDb.getNodeById( otherId );
+                        node.createRelationshipTo( other, r % 2 == 0 ? KNOWS : LIKES );
+                    }
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+    }
+
+    public GraphDatabaseService graphDb()
+    {
+        return graphDb;
+    }
+
+    public int nodeCount()
+    {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return the id of the node with {@link #NUMBER} <CODE>index</CODE>.
+     */
+    public long nodeId( int index )
+    {
+        return nodeIds[index];
+    }
+
+    public long randomNodeId( Random random )
+    {
+        return nodeIds[random.nextInt( nodeIds.length )];
+    }
+
+    public Node randomNode( Random random )
+    {
+        return graphDb.getNodeById( randomNodeId( random ) );
+    }
+
+    public void shutdown()
+    {
+        graphDb.shutdown();
+        deleteRecursively( storeDir );
+    }
+
+    private static void deleteRecursively( File file )
+    {
+        File[] children = file.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                deleteRecursively( child );
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.impl.centrality.BetweennessCentrality;
+import org.neo4j.graphalgo.impl.centrality.ParallellCentralityCalculation;
+import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPath;
+import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPathDijkstra;
+import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPathFactory;
+import org.neo4j.graphalgo.impl.util.DoubleAdder;
+import org.neo4j.graphalgo.impl.util.DoubleComparator;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Betweenness centrality of all nodes of a random graph through
+ * <CODE>ParallellCentralityCalculation</CODE>, on one or several threads.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+public class CentralityBenchmark
+{
+    @Param( "1000" )
+    public int nodeCount;
+
+    @Param( "3" )
+    public int relationshipsPerNode;
+
+    @Param( { "1", "2", "4" } )
+    public int parallelism;
+
+    private BenchmarkGraph graph;
+    private Set<Node> nodeSet;
+    private SingleSourceShortestPathFactory<Double> factory;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), nodeCount,
+                relationshipsPerNode, false );
+        nodeSet = new HashSet<Node>();
+        for ( Node node : graph.graphDb().getAllNodes() )
+        {
+            nodeSet.add( node );
+        }
+        factory = new SingleSourceShortestPathFactory<Double>()
+        {
+            public SingleSourceShortestPath<Double> newSingleSourceShortestPath()
+            {
+                return new SingleSourceShortestPathDijkstra<Double>( 0.0, null,
+                        CommonEvaluators.doubleCostEvaluator( "cost", 1.0 ),
+                        new DoubleAdder(), new DoubleComparator(), Direction.BOTH,
+                        BenchmarkGraph.KNOWS, BenchmarkGraph.LIKES );
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public double betweenness()
+    {
+        ParallellCentralityCalculation<Double> calculation =
+                new ParallellCentralityCalculation<Double>( factory, nodeSet );
+        calculation.setParallelism( parallelism );
+        BetweennessCentrality<Double> betweenness = new BetweennessCentrality<Double>(
+                factory.newSingleSourceShortestPath(), nodeSet );
+        calculation.addCalculation( betweenness );
+        calculation.calculate();
+        return betweenness.getCentrality( graph.randomNode( new Random( 1 ) ) );
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.IOException;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.kernel.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Commit throughput of small transactions. A transaction touching only the
+ * graph is a one phase commit in the <CODE>XaLogicalLog</CODE> of the
+ * store, one that also touches an index is a two phase commit which also
+ * writes to the <CODE>TxLog</CODE>. Run with several threads (<CODE>-t</CODE>)
+ * to see the effect of group commit.
+ */
+@State( Scope.Benchmark )
+public class CommitBenchmark
+{
+    @Param( { "false", "true" } )
+    public String groupCommit;
+
+    private BenchmarkGraph graph;
+    private Index<Node> index;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( stringMap( Config.GROUP_COMMIT, groupCommit ),
+                1000, 0, true );
+        index = graph.graphDb().index().forNodes( BenchmarkGraph.INDEX_NAME );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public long createNode()
+    {
+        Transaction tx = graph.graphDb().beginTx();
+        try
+        {
+            Node node = graph.graphDb().createNode();
+            tx.success();
+            return node.getId();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public long createIndexedNode()
+    {
+        Transaction tx = graph.graphDb().beginTx();
+        try
+        {
+            Node node = graph.graphDb().createNode();
+            index.add( node, BenchmarkGraph.NAME, "created" );
+            tx.success();
+            return node.getId();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+}
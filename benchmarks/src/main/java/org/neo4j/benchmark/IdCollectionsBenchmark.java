@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+import org.neo4j.graphalgo.CostEvaluator;
+import org.neo4j.graphalgo.EstimateEvaluator;
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipExpander;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.TraversalDescription;
+import org.neo4j.kernel.Traversal;
+import org.neo4j.kernel.Uniqueness;
+import org.neo4j.kernel.impl.util.RelIdArray;
+import org.neo4j.kernel.impl.util.RelIdArray.RelIdIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The code paths that keep ids in the primitive long collections, meant to
+ * be run with <CODE>-prof gc</CODE> to see the allocated bytes per
+ * operation: traversals with {@link Uniqueness#NODE_GLOBAL} and
+ * {@link Uniqueness#RELATIONSHIP_GLOBAL}, iterating a {@link RelIdArray}
+ * and merging one with {@link RelIdArray#from(RelIdArray, RelIdArray, RelIdArray)}
+ * when some ids are removed, and the <CODE>shortestPath</CODE> and
+ * <CODE>aStar</CODE> finders. The graph queries all go through the same
+ * fixed list of random start and end nodes.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+public class IdCollectionsBenchmark
+{
+    @Param( "20000" )
+    public int nodeCount;
+
+    @Param( "5" )
+    public int relationshipsPerNode;
+
+    @Param( "3" )
+    public int depth;
+
+    @Param( "1000" )
+    public int relIdCount;
+
+    private static final int QUERIES = 256;
+    // above the range of boxed longs that Long.valueOf caches
+    private static final long FIRST_REL_ID = 1000000;
+
+    private BenchmarkGraph graph;
+    private final Node[] starts = new Node[QUERIES];
+    private final Node[] ends = new Node[QUERIES];
+    private int nextQuery;
+    private TraversalDescription nodeGlobal;
+    private TraversalDescription relationshipGlobal;
+    private PathFinder<Path> shortestPath;
+    private PathFinder<WeightedPath> aStar;
+    private RelIdArray relIds;
+    private RelIdArray addedRelIds;
+    private RelIdArray removedRelIds;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), nodeCount,
+                relationshipsPerNode, false );
+        Random random = new Random( 1234 );
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            starts[i] = graph.randomNode( random );
+            ends[i] = graph.randomNode( random );
+        }
+        nodeGlobal = Traversal.description().breadthFirst()
+                .uniqueness( Uniqueness.NODE_GLOBAL )
+                .evaluator( Evaluators.toDepth( depth ) );
+        relationshipGlobal = Traversal.description().depthFirst()
+                .uniqueness( Uniqueness.RELATIONSHIP_GLOBAL )
+                .evaluator( Evaluators.toDepth( depth ) );
+        RelationshipExpander expander = Traversal.expanderForAllTypes( Direction.BOTH );
+        shortestPath = GraphAlgoFactory.shortestPath( expander, 10 );
+        // every relationship costs the same and nothing is known about where
+        // the end node is, so this is as much bookkeeping as aStar gets
+        aStar = GraphAlgoFactory.aStar( expander, new CostEvaluator<Double>()
+        {
+            public Double getCost( Relationship relationship, Direction direction )
+            {
+                return 1.0;
+            }
+        }, new EstimateEvaluator<Double>()
+        {
+            public Double getCost( Node node, Node goal )
+            {
+                return 0.0;
+            }
+        } );
+
+        relIds = new RelIdArray();
+        addedRelIds = new RelIdArray();
+        removedRelIds = new RelIdArray();
+        for ( int i = 0; i < relIdCount; i++ )
+        {
+            relIds.add( FIRST_REL_ID + i );
+            addedRelIds.add( FIRST_REL_ID + relIdCount + i );
+            if ( i % 10 == 0 )
+            {
+                removedRelIds.add( FIRST_REL_ID + i );
+                removedRelIds.add( FIRST_REL_ID + relIdCount + i );
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public int nodeGlobalTraversal()
+    {
+        return count( nodeGlobal );
+    }
+
+    @Benchmark
+    public int relationshipGlobalTraversal()
+    {
+        return count( relationshipGlobal );
+    }
+
+    private int count( TraversalDescription description )
+    {
+        int count = 0;
+        for ( Path path : description.traverse( starts[nextQuery++ % QUERIES] ) )
+        {
+            count += path.length();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long relIdArrayIteration()
+    {
+        long sum = 0;
+        for ( RelIdIterator iterator = relIds.iterator(); iterator.hasNext(); )
+        {
+            sum += iterator.next();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int relIdArrayFromWithRemovals()
+    {
+        return RelIdArray.from( relIds, addedRelIds, removedRelIds ).length();
+    }
+
+    @Benchmark
+    public int shortestPath()
+    {
+        int query = nextQuery++ % QUERIES;
+        Path path = shortestPath.findSinglePath( starts[query], ends[query] );
+        return path != null ? path.length() : -1;
+    }
+
+    @Benchmark
+    public double aStar()
+    {
+        int query = nextQuery++ % QUERIES;
+        WeightedPath path = aStar.findSinglePath( starts[query], ends[query] );
+        return path != null ? path.weight() : -1;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.transaction.SystemException;
+import javax.transaction.TransactionManager;
+
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.AbstractGraphDatabase;
+import org.neo4j.kernel.Config;
+import org.neo4j.kernel.impl.transaction.LockManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Acquiring and releasing locks in <CODE>LockManager</CODE> from several
+ * threads, over a varying number of resources. With one resource every
+ * thread contends for the same lock.
+ */
+@State( Scope.Benchmark )
+@Threads( 4 )
+public class LockManagerBenchmark
+{
+    @Param( { "1", "64", "4096" } )
+    public int resourceCount;
+
+    private BenchmarkGraph graph;
+    private LockManager lockManager;
+    private TransactionManager txManager;
+    private Object[] resources;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), 1, 0, false );
+        Config config = ( (AbstractGraphDatabase) graph.graphDb() ).getConfig();
+        lockManager = config.getLockManager();
+        txManager = config.getTxModule().getTxManager();
+        resources = new Object[resourceCount];
+        for ( int i = 0; i < resources.length; i++ )
+        {
+            resources[i] = new Object();
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    /**
+     * Locks are owned by transactions, so each benchmark thread runs inside
+     * a transaction of its own.
+     */
+    @State( Scope.Thread )
+    public static class ThreadTransaction
+    {
+        private Transaction tx;
+        private javax.transaction.Transaction jtaTx;
+
+        @Setup
+        public void begin( LockManagerBenchmark benchmark ) throws SystemException
+        {
+            tx = benchmark.graph.graphDb().beginTx();
+            jtaTx = benchmark.txManager.getTransaction();
+        }
+
+        @TearDown
+        public void finish()
+        {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public void writeLock( ThreadRandom random, ThreadTransaction tx )
+    {
+        Object resource = resources[random.random.nextInt( resources.length )];
+        lockManager.getWriteLock( resource );
+        lockManager.releaseWriteLock( resource, tx.jtaTx );
+    }
+
+    @Benchmark
+    public void readLock( ThreadRandom random, ThreadTransaction tx )
+    {
+        Object resource = resources[random.random.nextInt( resources.length )];
+        lockManager.getReadLock( resource );
+        lockManager.releaseReadLock( resource, tx.jtaTx );
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.graphdb.index.IndexHits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Exact lookups and prefix queries in a Lucene node index, i.e.
+ * <CODE>LuceneIndex.get</CODE> and <CODE>LuceneIndex.query</CODE>.
+ */
+@State( Scope.Benchmark )
+public class LuceneIndexBenchmark
+{
+    @Param( "100000" )
+    public int nodeCount;
+
+    private BenchmarkGraph graph;
+    private Index<Node> index;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), nodeCount,
+                0, true );
+        index = graph.graphDb().index().forNodes( BenchmarkGraph.INDEX_NAME );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public int get( ThreadRandom random )
+    {
+        return count( index.get( BenchmarkGraph.NAME,
+                "n" + random.random.nextInt( graph.nodeCount() ) ) );
+    }
+
+    @Benchmark
+    public int prefixQuery( ThreadRandom random )
+    {
+        // about a hundred hits for the default node count
+        return count( index.query( BenchmarkGraph.NAME,
+                "n" + random.random.nextInt( graph.nodeCount() / 1000 ) + "???" ) );
+    }
+
+    private static int count( IndexHits<Node> hits )
+    {
+        try
+        {
+            int count = 0;
+            while ( hits.hasNext() )
+            {
+                count += hits.next().getId() >= 0 ? 1 : 0;
+            }
+            return count;
+        }
+        finally
+        {
+            hits.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.IOException;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.kernel.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Random node lookups by id, i.e. <CODE>NodeManager.getNodeById</CODE>, for
+ * each cache type.
+ */
+@State( Scope.Benchmark )
+public class NodeLookupBenchmark
+{
+    @Param( { "soft", "weak", "strong", "clock", "none" } )
+    public String cacheType;
+
+    @Param( "100000" )
+    public int nodeCount;
+
+    private BenchmarkGraph graph;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( stringMap( Config.CACHE_TYPE, cacheType ),
+                nodeCount, 0, false );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public Node getNodeById( ThreadRandom random )
+    {
+        return graph.randomNode( random.random );
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.CostEvaluator;
+import org.neo4j.graphalgo.EstimateEvaluator;
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipExpander;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.Traversal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cheapest path queries between random nodes of a road like grid, where
+ * every node is connected to its neighbours in both directions at a cost of
+ * the distance between them times a random factor from 1 to 1.5, comparing
+ * the one sided Dijkstra and A* finders with the bidirectional ones. All of
+ * them go through the same fixed list of random queries.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+public class PathFinderBenchmark
+{
+    private static final String X = "x";
+    private static final String Y = "y";
+    private static final String COST = "cost";
+
+    @Param( "100" )
+    public int width;
+
+    private static final int QUERIES = 256;
+
+    private BenchmarkGraph graph;
+    private final Node[] starts = new Node[QUERIES];
+    private final Node[] ends = new Node[QUERIES];
+    private int nextQuery;
+    private PathFinder<WeightedPath> dijkstra;
+    private PathFinder<WeightedPath> bidirectionalDijkstra;
+    private PathFinder<WeightedPath> aStar;
+    private PathFinder<WeightedPath> bidirectionalAStar;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), width * width,
+                0, false );
+        Random random = new Random( 1234 );
+        createGrid( graph.graphDb(), random );
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            starts[i] = graph.randomNode( random );
+            ends[i] = graph.randomNode( random );
+        }
+        RelationshipExpander expander = Traversal.expanderForTypes( BenchmarkGraph.KNOWS,
+                Direction.OUTGOING );
+        CostEvaluator<Double> cost = CommonEvaluators.doubleCostEvaluator( COST );
+        EstimateEvaluator<Double> distance = new EstimateEvaluator<Double>()
+        {
+            public Double getCost( Node node, Node goal )
+            {
+                double dx = (Double) node.getProperty( X ) - (Double) goal.getProperty( X );
+                double dy = (Double) node.getProperty( Y ) - (Double) goal.getProperty( Y );
+                return Math.sqrt( dx * dx + dy * dy );
+            }
+        };
+        dijkstra = GraphAlgoFactory.dijkstra( expander, cost );
+        bidirectionalDijkstra = GraphAlgoFactory.bidirectionalDijkstra( expander, cost );
+        aStar = GraphAlgoFactory.aStar( expander, cost, distance );
+        bidirectionalAStar = GraphAlgoFactory.bidirectionalAStar( expander, cost, distance );
+    }
+
+    private void createGrid( GraphDatabaseService graphDb, Random random )
+    {
+        for ( int row = 0; row < width; row++ )
+        {
+            Transaction tx = graphDb.beginTx();
+            try
+            {
+                for ( int column = 0; column < width; column++ )
+                {
+                    Node node = graphDb.getNodeById( graph.nodeId( row * width + column ) );
+                    node.setProperty( X, (double) column );
+                    node.setProperty( Y, (double) row );
+                    if ( column > 0 )
+                    {
+                        connect( node, graphDb.getNodeById( graph.nodeId( row * width
+                                + column - 1 ) ), random );
+                    }
+                    if ( row > 0 )
+                    {
+                        connect( node, graphDb.getNodeById( graph.nodeId( ( row - 1 )
+                                * width + column ) ), random );
+                    }
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+    }
+
+    private void connect( Node node, Node other, Random random )
+    {
+        node.createRelationshipTo( other, BenchmarkGraph.KNOWS ).setProperty( COST,
+                1 + random.nextDouble() / 2 );
+        other.createRelationshipTo( node, BenchmarkGraph.KNOWS ).setProperty( COST,
+                1 + random.nextDouble() / 2 );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public double dijkstra()
+    {
+        return weight( dijkstra );
+    }
+
+    @Benchmark
+    public double bidirectionalDijkstra()
+    {
+        return weight( bidirectionalDijkstra );
+    }
+
+    @Benchmark
+    public double aStar()
+    {
+        return weight( aStar );
+    }
+
+    @Benchmark
+    public double bidirectionalAStar()
+    {
+        return weight( bidirectionalAStar );
+    }
+
+    private double weight( PathFinder<WeightedPath> finder )
+    {
+        int query = nextQuery++ % QUERIES;
+        WeightedPath path = finder.findSinglePath( starts[query], ends[query] );
+        return path != null ? path.weight() : -1;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Store reads outside of a transaction, with and without another thread
+ * holding a transaction with write state. While no transaction has write
+ * state the reads don't have to look up the transaction of the reading
+ * thread. The object cache is turned off so that every read goes to
+ * <CODE>PersistenceManager</CODE>.
+ */
+@State( Scope.Benchmark )
+public class ReadPathBenchmark
+{
+    @Param( { "false", "true" } )
+    public boolean openWriteTx;
+
+    @Param( "100000" )
+    public int nodeCount;
+
+    private BenchmarkGraph graph;
+    private CountDownLatch writerStarted;
+    private CountDownLatch finishWriter;
+    private Thread writer;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException
+    {
+        graph = new BenchmarkGraph( stringMap( Config.CACHE_TYPE, "none" ),
+                nodeCount, 0, false );
+        if ( openWriteTx )
+        {
+            writerStarted = new CountDownLatch( 1 );
+            finishWriter = new CountDownLatch( 1 );
+            writer = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Transaction tx = graph.graphDb().beginTx();
+                    try
+                    {
+                        graph.graphDb().createNode();
+                        writerStarted.countDown();
+                        finishWriter.await();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally
+                    {
+                        tx.finish();
+                    }
+                }
+            };
+            writer.start();
+            writerStarted.await();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        if ( writer != null )
+        {
+            finishWriter.countDown();
+            writer.join();
+        }
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public Object getIntProperty( ThreadRandom random )
+    {
+        return graph.randomNode( random.random ).getProperty( BenchmarkGraph.NUMBER );
+    }
+}
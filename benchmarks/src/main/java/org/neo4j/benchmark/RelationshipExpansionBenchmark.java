@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.IOException;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.kernel.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Iterates the relationships of random nodes, i.e.
+ * <CODE>NodeImpl.getRelationships</CODE>. With cache type "none" every
+ * expansion loads the relationship chain from the store.
+ */
+@State( Scope.Benchmark )
+public class RelationshipExpansionBenchmark
+{
+    @Param( { "soft", "none" } )
+    public String cacheType;
+
+    @Param( "20000" )
+    public int nodeCount;
+
+    @Param( "10" )
+    public int relationshipsPerNode;
+
+    private BenchmarkGraph graph;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( stringMap( Config.CACHE_TYPE, cacheType ),
+                nodeCount, relationshipsPerNode, false );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public int allRelationships( ThreadRandom random )
+    {
+        int count = 0;
+        for ( Relationship rel : graph.randomNode( random.random ).getRelationships() )
+        {
+            count += rel.getId() > 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int relationshipsOfTypeAndDirection( ThreadRandom random )
+    {
+        int count = 0;
+        for ( Relationship rel : graph.randomNode( random.random ).getRelationships(
+                BenchmarkGraph.KNOWS, Direction.OUTGOING ) )
+        {
+            count += rel.getId() > 0 ? 1 : 0;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.RelationshipExpander;
+import org.neo4j.kernel.Traversal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * All shortest paths between random nodes of a random graph, expanding the
+ * levels on the calling thread (parallelism 1) or on a pool of threads.
+ * All runs go through the same fixed list of random queries.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+public class ShortestPathBenchmark
+{
+    @Param( "20000" )
+    public int nodeCount;
+
+    @Param( "10" )
+    public int relationshipsPerNode;
+
+    @Param( { "1", "2", "4" } )
+    public int parallelism;
+
+    private static final int QUERIES = 256;
+
+    private BenchmarkGraph graph;
+    private ExecutorService executor;
+    private final Node[] starts = new Node[QUERIES];
+    private final Node[] ends = new Node[QUERIES];
+    private int nextQuery;
+    private PathFinder<Path> finder;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), nodeCount,
+                relationshipsPerNode, false );
+        Random random = new Random( 1234 );
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            starts[i] = graph.randomNode( random );
+            ends[i] = graph.randomNode( random );
+        }
+        RelationshipExpander expander = Traversal.expanderForAllTypes( Direction.BOTH );
+        if ( parallelism > 1 )
+        {
+            executor = Executors.newFixedThreadPool( parallelism );
+            finder = GraphAlgoFactory.shortestPath( expander, 10, executor, parallelism );
+        }
+        else
+        {
+            finder = GraphAlgoFactory.shortestPath( expander, 10 );
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if ( executor != null )
+        {
+            executor.shutdown();
+        }
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public int allShortestPaths()
+    {
+        int query = nextQuery++ % QUERIES;
+        int count = 0;
+        for ( Path path : finder.findAllPaths( starts[query], ends[query] ) )
+        {
+            count += path.length();
+        }
+        return count;
+    }
+}
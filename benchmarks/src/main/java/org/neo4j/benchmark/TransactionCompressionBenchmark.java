@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.neo4j.com.TransactionCompression;
+import org.neo4j.com.TxExtractor;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.AbstractGraphDatabase;
+import org.neo4j.kernel.Config;
+import org.neo4j.kernel.impl.transaction.xaframework.InMemoryLogBuffer;
+import org.neo4j.kernel.impl.transaction.xaframework.LogBuffer;
+import org.neo4j.kernel.impl.transaction.xaframework.XaDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of writing and reading the transactions of a pull update with each
+ * {@link TransactionCompression}. The transactions are small ones, each
+ * creating a few connected nodes with properties, as taken from the
+ * logical log. The compression ratio is printed when set up.
+ */
+@State( Scope.Benchmark )
+public class TransactionCompressionBenchmark
+{
+    private static final int TRANSACTIONS = 1000;
+    
+    @Param( { "NONE", "DEFLATE" } )
+    public String compression;
+    
+    @Param( { "10" } )
+    public int nodesPerTransaction;
+
+    private TransactionCompression codec;
+    private final List<TxExtractor> transactions = new ArrayList<TxExtractor>();
+    private final ChannelBuffer writeBuffer = ChannelBuffers.dynamicBuffer();
+    private ChannelBuffer written;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate( 4096 );
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        codec = TransactionCompression.valueOf( compression );
+        BenchmarkGraph graph = new BenchmarkGraph( stringMap( Config.KEEP_LOGICAL_LOGS, "true" ),
+                1000, 0, false );
+        try
+        {
+            XaDataSource dataSource = ((AbstractGraphDatabase) graph.graphDb()).getConfig()
+                    .getTxModule().getXaDataSourceManager().getXaDataSource(
+                            Config.DEFAULT_DATA_SOURCE_NAME );
+            long firstTx = dataSource.getLastCommittedTxId() + 1;
+            for ( int i = 0; i < TRANSACTIONS; i++ )
+            {
+                createNodes( graph, i );
+            }
+            long rawSize = 0;
+            for ( long txId = firstTx; txId <= dataSource.getLastCommittedTxId(); txId++ )
+            {
+                InMemoryLogBuffer tx = new InMemoryLogBuffer();
+                dataSource.getCommittedTransaction( txId, tx );
+                byte[] bytes = readFully( tx );
+                rawSize += bytes.length;
+                transactions.add( extractorFor( bytes ) );
+            }
+            int writtenSize = writeAll();
+            System.out.println( String.format( "%s: %d transactions, %d bytes raw, %d bytes written (%.2f)",
+                    codec, transactions.size(), rawSize, writtenSize, (double) writtenSize / rawSize ) );
+            written = ChannelBuffers.copiedBuffer( writeBuffer );
+        }
+        finally
+        {
+            graph.shutdown();
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        transactions.clear();
+    }
+
+    @Benchmark
+    public int write() throws IOException
+    {
+        return writeAll();
+    }
+
+    @Benchmark
+    public int read() throws IOException
+    {
+        ChannelBuffer source = written.duplicate();
+        int bytesRead = 0;
+        while ( source.readable() )
+        {
+            bytesRead += readFully( TransactionCompression.read( source, codec.writesCodecIds() ) ).length;
+        }
+        return bytesRead;
+    }
+
+    private int writeAll() throws IOException
+    {
+        writeBuffer.clear();
+        for ( TxExtractor tx : transactions )
+        {
+            codec.write( tx, writeBuffer );
+        }
+        return writeBuffer.writerIndex();
+    }
+    
+    private void createNodes( BenchmarkGraph graph, int round )
+    {
+        Transaction tx = graph.graphDb().beginTx();
+        try
+        {
+            Node previous = null;
+            for ( int i = 0; i < nodesPerTransaction; i++ )
+            {
+                Node node = graph.graphDb().createNode();
+                node.setProperty( BenchmarkGraph.NAME, "node " + round + "-" + i );
+                node.setProperty( BenchmarkGraph.NUMBER, round * nodesPerTransaction + i );
+                if ( previous != null )
+                {
+                    previous.createRelationshipTo( node, BenchmarkGraph.KNOWS );
+                }
+                previous = node;
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    private byte[] readFully( ReadableByteChannel channel ) throws IOException
+    {
+        ChannelBuffer result = ChannelBuffers.dynamicBuffer();
+        readBuffer.clear();
+        while ( channel.read( readBuffer ) >= 0 )
+        {
+            readBuffer.flip();
+            result.writeBytes( readBuffer );
+            readBuffer.clear();
+        }
+        channel.close();
+        byte[] bytes = new byte[result.readableBytes()];
+        result.readBytes( bytes );
+        return bytes;
+    }
+
+    private static TxExtractor extractorFor( final byte[] bytes )
+    {
+        return new TxExtractor()
+        {
+            @Override
+            public void extract( LogBuffer buffer )
+            {
+                try
+                {
+                    buffer.put( bytes );
+                }
+                catch ( IOException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+
+            @Override
+            public ReadableByteChannel extract()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
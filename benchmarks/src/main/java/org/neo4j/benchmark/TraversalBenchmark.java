@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.TraversalDescription;
+import org.neo4j.kernel.Traversal;
+import org.neo4j.kernel.Uniqueness;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Traversals from random start nodes using the traversal framework, i.e.
+ * <CODE>TraversalDescriptionImpl</CODE>.
+ */
+@State( Scope.Benchmark )
+public class TraversalBenchmark
+{
+    @Param( "20000" )
+    public int nodeCount;
+
+    @Param( "5" )
+    public int relationshipsPerNode;
+
+    @Param( "3" )
+    public int depth;
+
+    private BenchmarkGraph graph;
+    private TraversalDescription breadthFirstNodeGlobal;
+    private TraversalDescription depthFirstRelationshipGlobal;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        graph = new BenchmarkGraph( Collections.<String,String>emptyMap(), nodeCount,
+                relationshipsPerNode, false );
+        breadthFirstNodeGlobal = Traversal.description().breadthFirst()
+                .relationships( BenchmarkGraph.KNOWS, Direction.OUTGOING )
+                .relationships( BenchmarkGraph.LIKES, Direction.OUTGOING )
+                .uniqueness( Uniqueness.NODE_GLOBAL )
+                .evaluator( Evaluators.toDepth( depth ) );
+        depthFirstRelationshipGlobal = Traversal.description().depthFirst()
+                .uniqueness( Uniqueness.RELATIONSHIP_GLOBAL )
+                .evaluator( Evaluators.toDepth( depth ) );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graph.shutdown();
+    }
+
+    @Benchmark
+    public int breadthFirstNodeGlobal( ThreadRandom random )
+    {
+        return count( breadthFirstNodeGlobal, random );
+    }
+
+    @Benchmark
+    public int breadthFirstNodeGlobalNodes( ThreadRandom random )
+    {
+        int count = 0;
+        for ( Node node : breadthFirstNodeGlobal.traverse(
+                graph.randomNode( random.random ) ).nodes() )
+        {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int depthFirstRelationshipGlobal( ThreadRandom random )
+    {
+        return count( depthFirstRelationshipGlobal, random );
+    }
+
+    private int count( TraversalDescription description, ThreadRandom random )
+    {
+        int count = 0;
+        for ( Path path : description.traverse( graph.randomNode( random.random ) ) )
+        {
+            count += path.length();
+        }
+        return count;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ScatteringByteChannel;
 import java.nio.charset.Charset;
@@ -33,6 +34,9 @@ import org.jboss.netty.buffer.ChannelBufferFactory;
 import org.jboss.netty.buffer.ChannelBufferIndexFinder;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.DefaultFileRegion;
 
 public class ChunkingChannelBuffer implements ChannelBuffer
 {
@@ -495,6 +499,41 @@ public class ChunkingChannelBuffer implements ChannelBuffer
         channel.write( buffer );
     }
 
+    /**
+     * Sends {@code count} bytes of {@code file} from {@code position} and on
+     * after what has been written so far. The bytes are sent as chunks of
+     * their own which go straight from the file to the socket, see
+     * {@link FileChunk}. The file is closed when they have been sent.
+     */
+    public void transferFrom( final FileChannel file, long position, long count ) throws IOException
+    {
+        if ( count == 0 )
+        {
+            file.close();
+            return;
+        }
+
+        setContinuation( CONTINUATION_MORE );
+        writeCurrentChunk();
+        ChannelFuture lastWrite = null;
+        while ( count > 0 )
+        {
+            long chunkSize = Math.min( count, capacity-1/*continuation header*/ );
+            lastWrite = channel.write( new FileChunk( new DefaultFileRegion( file, position, chunkSize ) ) );
+            position += chunkSize;
+            count -= chunkSize;
+        }
+        lastWrite.addListener( new ChannelFutureListener()
+        {
+            public void operationComplete( ChannelFuture future ) throws Exception
+            {
+                file.close();
+            }
+        } );
+        buffer = ChannelBuffers.dynamicBuffer();
+        addRoomForContinuationHeader();
+    }
+
     public void done()
     {
         if ( writable() )
@@ -583,7 +622,7 @@ public class ChunkingChannelBuffer implements ChannelBuffer
 
     public void writeBytes( ByteBuffer src )
     {
-        sendChunkIfNeeded( src.limit() );
+        sendChunkIfNeeded( src.remaining() );
         buffer.writeBytes( src );
     }
 
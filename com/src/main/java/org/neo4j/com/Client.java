@@ -278,7 +278,10 @@ public abstract class Client<M> implements ChannelPipelineFactory
 
     protected static TransactionStream readTransactionStreams( final ChannelBuffer buffer )
     {
-        final String[] datasources = readTransactionStreamHeader( buffer );
+        short header = buffer.readUnsignedByte();
+        final boolean codecIds = (header & TransactionCompression.CODEC_IDS_FLAG) != 0;
+        final String[] datasources = readTransactionStreamHeader( buffer,
+                header & ~TransactionCompression.CODEC_IDS_FLAG );
         if ( datasources.length == 1 )
         {
             return TransactionStream.EMPTY;
@@ -289,11 +292,12 @@ public abstract class Client<M> implements ChannelPipelineFactory
             @Override
             protected Triplet<String, Long, TxExtractor> fetchNextOrNull()
             {
-                makeSureNextTransactionIsFullyFetched( buffer );
+                makeSureNextTransactionIsFullyFetched( buffer, codecIds );
                 String datasource = datasources[buffer.readUnsignedByte()];
                 if ( datasource == null ) return null;
                 long txId = buffer.readLong();
-                TxExtractor extractor = TxExtractor.create( new BlockLogReader( buffer ) );
+                TxExtractor extractor = TxExtractor.create(
+                        TransactionCompression.read( buffer, codecIds ) );
                 return Triplet.of( datasource, txId, extractor );
             }
 
@@ -305,9 +309,9 @@ public abstract class Client<M> implements ChannelPipelineFactory
         };
     }
 
-    protected static String[] readTransactionStreamHeader( ChannelBuffer buffer )
+    protected static String[] readTransactionStreamHeader( ChannelBuffer buffer,
+            int numberOfDataSources )
     {
-        short numberOfDataSources = buffer.readUnsignedByte();
         final String[] datasources = new String[numberOfDataSources + 1];
         datasources[0] = null; // identifier for "no more transactions"
         for ( int i = 1; i < datasources.length; i++ )
@@ -317,7 +321,8 @@ public abstract class Client<M> implements ChannelPipelineFactory
         return datasources;
     }
 
-    private static void makeSureNextTransactionIsFullyFetched( ChannelBuffer buffer )
+    private static void makeSureNextTransactionIsFullyFetched( ChannelBuffer buffer,
+            boolean codecIds )
     {
         buffer.markReaderIndex();
         try
@@ -325,6 +330,10 @@ public abstract class Client<M> implements ChannelPipelineFactory
             if ( buffer.readUnsignedByte() > 0 /* datasource id */ )
             {
                 buffer.skipBytes( 8 ); // tx id
+                if ( codecIds )
+                {
+                    buffer.skipBytes( 1 ); // compression
+                }
                 int blockSize = 0;
                 while ( (blockSize = buffer.readUnsignedByte()) == 0 )
                 {
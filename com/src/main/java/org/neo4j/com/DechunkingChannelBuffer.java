@@ -558,7 +558,7 @@ public class DechunkingChannelBuffer implements ChannelBuffer
 
     public void readBytes( ByteBuffer dst )
     {
-        readNextChunkIfNeeded( dst.limit() );
+        readNextChunkIfNeeded( dst.remaining() );
         buffer.readBytes( dst );
     }
 
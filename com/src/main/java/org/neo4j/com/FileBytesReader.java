@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+/**
+ * Reads the bytes of a file, which are sent as they are after its size,
+ * see {@link ToNetworkStoreWriter}.
+ */
+public class FileBytesReader implements ReadableByteChannel
+{
+    private final ChannelBuffer source;
+    private long bytesLeft;
+
+    public FileBytesReader( ChannelBuffer source, long length )
+    {
+        this.source = source;
+        this.bytesLeft = length;
+    }
+
+    public boolean isOpen()
+    {
+        return true;
+    }
+
+    public void close() throws IOException
+    {
+        // Leaves the reader index of the source after the file even if
+        // it wasn't completely read
+        while ( bytesLeft > 0 )
+        {
+            int bytesToSkip = (int) Math.min( bytesLeft, Protocol.MAX_FRAME_LENGTH );
+            source.skipBytes( bytesToSkip );
+            bytesLeft -= bytesToSkip;
+        }
+    }
+
+    public int read( ByteBuffer dst ) throws IOException
+    {
+        if ( bytesLeft == 0 )
+        {
+            return -1;
+        }
+        int bytesToRead = (int) Math.min( dst.remaining(), bytesLeft );
+        int limit = dst.limit();
+        dst.limit( dst.position() + bytesToRead );
+        source.readBytes( dst );
+        dst.limit( limit );
+        bytesLeft -= bytesToRead;
+        return bytesToRead;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.FileRegion;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelDownstreamHandler;
+
+/**
+ * A part of a file which {@link ChunkingChannelBuffer} sends as a chunk. The
+ * bytes never go through a buffer, {@link Encoder} writes the frame length
+ * and the continuation header and lets the region be transferred from the
+ * file to the socket.
+ */
+class FileChunk
+{
+    private final FileRegion region;
+
+    FileChunk( FileRegion region )
+    {
+        this.region = region;
+    }
+
+    /**
+     * Must come after the {@link org.jboss.netty.handler.codec.frame.LengthFieldPrepender}
+     * downstream, i.e. before it in the pipeline, since the header it writes is
+     * the length field of the frame.
+     */
+    static class Encoder extends SimpleChannelDownstreamHandler
+    {
+        @Override
+        public void writeRequested( ChannelHandlerContext ctx, MessageEvent e ) throws Exception
+        {
+            if ( !( e.getMessage() instanceof FileChunk ) )
+            {
+                super.writeRequested( ctx, e );
+                return;
+            }
+
+            FileRegion region = ((FileChunk) e.getMessage()).region;
+            ChannelBuffer header = ChannelBuffers.buffer( 5 );
+            header.writeInt( 1 + (int) region.getCount() );
+            header.writeByte( ChunkingChannelBuffer.CONTINUATION_MORE );
+            Channels.write( ctx, Channels.future( e.getChannel() ), header );
+            Channels.write( ctx, e.getFuture(), region );
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -96,6 +97,16 @@ public class MasterUtil
             }
         }
         SlaveContext context = new SlaveContext( -1, -1, appliedTransactions );
+        StoreCopyProgress resume = writer.progress();
+        if ( resume != null && canResumeFrom( dsManager, resume.context() ) )
+        {
+            context = resume.context();
+        }
+        else
+        {
+            resume = null;
+        }
+        writer.begin( context );
         
         ByteBuffer temporaryBuffer = ByteBuffer.allocateDirect( 1024*1024 );
         for ( XaDataSource ds : sources )
@@ -107,16 +118,12 @@ public class MasterUtil
                 {
                     for ( File storefile : files )
                     {
-                        FileInputStream stream = new FileInputStream( storefile );
-                        try
-                        {
-                            writer.write( relativePath( baseDir, storefile ), stream.getChannel(), temporaryBuffer,
-                                    storefile.length() > 0 );
-                        }
-                        finally
-                        {
-                            stream.close();
-                        }
+                        String path = relativePath( baseDir, storefile );
+                        FileChannel channel = new FileInputStream( storefile ).getChannel();
+                        long size = channel.size();
+                        long offset = resume != null ? Math.min( resume.offset( path ), size ) : 0;
+                        // The writer closes the channel when it's done with it
+                        writer.write( path, channel, size, offset, temporaryBuffer );
                     }
                 }
                 finally
@@ -133,6 +140,45 @@ public class MasterUtil
         return context;
     }
     
+    /**
+     * The files of an interrupted copy can be completed only if all
+     * transactions after its context can still be sent, since they're
+     * applied on top of the files.
+     */
+    private static boolean canResumeFrom( XaDataSourceManager dsManager, SlaveContext context )
+    {
+        if ( context == null ||
+             context.lastAppliedTransactions().length != dsManager.getAllRegisteredDataSources().size() )
+        {
+            return false;
+        }
+        for ( Pair<String, Long> txEntry : context.lastAppliedTransactions() )
+        {
+            XaDataSource dataSource = dsManager.getXaDataSource( txEntry.first() );
+            if ( dataSource == null || txEntry.other() > dataSource.getLastCommittedTxId() )
+            {
+                return false;
+            }
+            if ( txEntry.other() < dataSource.getLastCommittedTxId() )
+            {
+                try
+                {
+                    dataSource.getMasterForCommittedTx( txEntry.other() + 1 );
+                }
+                catch ( IOException e )
+                {
+                    return false;
+                }
+                catch ( RuntimeException e )
+                {
+                    // Its log is gone
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
     public static <T> Response<T> packResponse( GraphDatabaseService graphDb,
             SlaveContext context, T response, Predicate<Long> filter )
     {
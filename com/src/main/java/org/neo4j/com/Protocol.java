@@ -33,6 +33,13 @@ public abstract class Protocol
     private static final int MEGA = 1024 * 1024;
     public static final int MAX_FRAME_LENGTH = 16*MEGA;
 
+    /**
+     * Sent instead of the length of the first path in a stream of files which
+     * have their sizes and offsets, instead of blocks, in front of the bytes.
+     * No path is that long.
+     */
+    static final int FILES_WITH_SIZES = 0xFFFF;
+
     public static final ObjectSerializer<Integer> INTEGER_SERIALIZER = new ObjectSerializer<Integer>()
     {
         @SuppressWarnings( "boxing" )
@@ -87,22 +94,60 @@ public abstract class Protocol
         // NOTICE: this assumes a "smart" ChannelBuffer that continues to next chunk
         public Void read( ChannelBuffer buffer, ByteBuffer temporaryBuffer ) throws IOException
         {
-            int pathLength;
-            while ( 0 != ( pathLength = buffer.readUnsignedShort() ) )
+            int pathLength = buffer.readUnsignedShort();
+            if ( pathLength == FILES_WITH_SIZES )
+            {
+                writer.begin( StoreCopyProgress.readContext( buffer ) );
+                while ( 0 != ( pathLength = buffer.readUnsignedShort() ) )
+                {
+                    String path = readString( buffer, pathLength );
+                    long size = buffer.readLong();
+                    long offset = buffer.readLong();
+                    writer.write( path, new FileBytesReader( buffer, size - offset ), size, offset,
+                            temporaryBuffer );
+                }
+            }
+            else
             {
-                String path = readString( buffer, pathLength );
-                boolean hasData = buffer.readByte() == 1;
-                writer.write( path, hasData ? new BlockLogReader( buffer ) : null, temporaryBuffer, hasData );
+                // A server which sends files as blocks, without sizes
+                for ( ; pathLength != 0; pathLength = buffer.readUnsignedShort() )
+                {
+                    String path = readString( buffer, pathLength );
+                    boolean hasData = buffer.readByte() == 1;
+                    writer.write( path, hasData ? new BlockLogReader( buffer ) : new FileBytesReader( buffer, 0 ),
+                            StoreWriter.SIZE_UNKNOWN, 0, temporaryBuffer );
+                }
             }
             writer.done();
             return null;
         }
+    }
+    
+    /**
+     * Requests the store files, telling the server how far an earlier,
+     * interrupted, copy into {@code writer} has come.
+     */
+    public static class FileStreamsRequestSerializer implements Serializer
+    {
+        private final StoreWriter writer;
+
+        public FileStreamsRequestSerializer( StoreWriter writer )
+        {
+            this.writer = writer;
+        }
+
+        public void write( ChannelBuffer buffer, ByteBuffer readBuffer ) throws IOException
+        {
+            StoreCopyProgress progress = writer.progress();
+            ( progress != null ? progress : new StoreCopyProgress() ).write( buffer );
+        }
     };
     
     public static void addLengthFieldPipes( ChannelPipeline pipeline )
     {
         pipeline.addLast( "frameDecoder",
                 new LengthFieldBasedFrameDecoder( MAX_FRAME_LENGTH+4, 0, 4, 0, 4 ) );
+        pipeline.addLast( "fileChunkEncoder", new FileChunk.Encoder() );
         pipeline.addLast( "frameEncoder", new LengthFieldPrepender( 4 ) );
     }
 
@@ -79,6 +79,7 @@ public abstract class Server<M, R> extends Protocol implements ChannelPipelineFa
     private final StringLogger msgLog;
     private final Map<Channel, PartialRequest> partialRequests =
             Collections.synchronizedMap( new HashMap<Channel, PartialRequest>() );
+    private final TransactionCompression txCompression;
 
     public Server( M realMaster, final int port, String storeDir )
     {
@@ -86,8 +87,15 @@ public abstract class Server<M, R> extends Protocol implements ChannelPipelineFa
     }
     
     public Server( M realMaster, final int port, String storeDir, int maxNumberOfConcurrentTransactions )
+    {
+        this( realMaster, port, storeDir, maxNumberOfConcurrentTransactions, TransactionCompression.NONE );
+    }
+    
+    public Server( M realMaster, final int port, String storeDir, int maxNumberOfConcurrentTransactions,
+            TransactionCompression txCompression )
     {
         this.realMaster = realMaster;
+        this.txCompression = txCompression;
         this.msgLog = StringLogger.getLogger( storeDir );
         executor = Executors.newCachedThreadPool();
         channelFactory = new NioServerSocketChannelFactory(
@@ -218,7 +226,7 @@ public abstract class Server<M, R> extends Protocol implements ChannelPipelineFa
                 {
                     type.getObjectSerializer().write( response.response(), targetBuffer );
                     writeStoreId( response.getStoreId(), targetBuffer );
-                    writeTransactionStreams( response.transactions(), targetBuffer, targetByteBuffer );
+                    writeTransactionStreams( response.transactions(), targetBuffer, targetByteBuffer, txCompression );
                     targetBuffer.done();
                     responseWritten( type, channel, context );
                 }
@@ -244,7 +252,8 @@ public abstract class Server<M, R> extends Protocol implements ChannelPipelineFa
     }
     
     private static <T> void writeTransactionStreams( TransactionStream txStream,
-            ChannelBuffer buffer, ByteBuffer readBuffer ) throws IOException
+            ChannelBuffer buffer, ByteBuffer readBuffer, TransactionCompression txCompression )
+            throws IOException
     {
         if ( !txStream.hasNext() )
         {
@@ -253,8 +262,9 @@ public abstract class Server<M, R> extends Protocol implements ChannelPipelineFa
         }
         
         String[] datasources = txStream.dataSourceNames();
-        assert datasources.length <= 255 : "too many data sources";
-        buffer.writeByte( datasources.length );
+        assert datasources.length < TransactionCompression.CODEC_IDS_FLAG : "too many data sources";
+        buffer.writeByte( txCompression.writesCodecIds() ?
+                datasources.length | TransactionCompression.CODEC_IDS_FLAG : datasources.length );
         Map<String, Integer> datasourceId = new HashMap<String, Integer>();
         for ( int i = 0; i < datasources.length; i++ )
         {
@@ -266,9 +276,7 @@ public abstract class Server<M, R> extends Protocol implements ChannelPipelineFa
         {
             buffer.writeByte( datasourceId.get( tx.first() ) );
             buffer.writeLong( tx.second() );
-            BlockLogBuffer blockBuffer = new BlockLogBuffer( buffer );
-            tx.third().extract( blockBuffer );
-            blockBuffer.done();
+            txCompression.write( tx.third(), buffer );
         }
         buffer.writeByte( 0/*no more transactions*/);
     }
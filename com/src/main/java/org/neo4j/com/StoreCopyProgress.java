@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com;
+
+import static org.neo4j.com.Protocol.readString;
+import static org.neo4j.com.Protocol.writeString;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.neo4j.helpers.Pair;
+
+/**
+ * How far a copy of a store has come: the transactions which the copied files
+ * are at least as new as and how many bytes of each file have been received.
+ * An interrupted copy can be resumed from here as long as the transactions
+ * after the context are still around, since they are applied on top of the
+ * files afterwards and the bytes received back then may be older than the
+ * files are now.
+ */
+public class StoreCopyProgress
+{
+    private SlaveContext context;
+    private final Map<String, Long> received = new HashMap<String, Long>();
+
+    /**
+     * @return the transactions which the files received so far are at least
+     * as new as, or <CODE>null</CODE> if no copy has started.
+     */
+    public SlaveContext context()
+    {
+        return context;
+    }
+
+    public long offset( String path )
+    {
+        Long bytes = received.get( path );
+        return bytes != null ? bytes : 0;
+    }
+
+    public void begin( SlaveContext context )
+    {
+        this.context = context;
+    }
+
+    public void received( String path, long bytes )
+    {
+        received.put( path, bytes );
+    }
+
+    public void write( ChannelBuffer buffer )
+    {
+        writeContext( context != null ? context : SlaveContext.EMPTY, buffer );
+        buffer.writeInt( context != null ? received.size() : 0 );
+        if ( context != null )
+        {
+            for ( Map.Entry<String, Long> file : received.entrySet() )
+            {
+                writeString( buffer, file.getKey() );
+                buffer.writeLong( file.getValue() );
+            }
+        }
+    }
+
+    public static StoreCopyProgress read( ChannelBuffer buffer )
+    {
+        StoreCopyProgress progress = new StoreCopyProgress();
+        SlaveContext context = readContext( buffer );
+        if ( context.lastAppliedTransactions().length > 0 )
+        {
+            progress.begin( context );
+        }
+        int files = buffer.readInt();
+        for ( int i = 0; i < files; i++ )
+        {
+            progress.received( readString( buffer ), buffer.readLong() );
+        }
+        return progress;
+    }
+
+    static void writeContext( SlaveContext context, ChannelBuffer buffer )
+    {
+        Pair<String, Long>[] txs = context.lastAppliedTransactions();
+        buffer.writeByte( txs.length );
+        for ( Pair<String, Long> tx : txs )
+        {
+            writeString( buffer, tx.first() );
+            buffer.writeLong( tx.other() );
+        }
+    }
+
+    static SlaveContext readContext( ChannelBuffer buffer )
+    {
+        int txsSize = buffer.readByte();
+        @SuppressWarnings( "unchecked" )
+        Pair<String, Long>[] txs = new Pair[txsSize];
+        for ( int i = 0; i < txsSize; i++ )
+        {
+            txs[i] = Pair.of( readString( buffer ), buffer.readLong() );
+        }
+        return new SlaveContext( -1, -1, txs );
+    }
+}
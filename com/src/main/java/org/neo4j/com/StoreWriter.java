@@ -25,11 +25,33 @@ import java.nio.channels.ReadableByteChannel;
 
 public interface StoreWriter
 {
-    // "hasData" is an effect of the block format not supporting a zero length block
-    // whereas a neostore file may actually be 0 bytes we'll have to keep track
-    // of that special case.
-    void write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer, boolean hasData )
-            throws IOException;
+    /**
+     * Size of files received from servers which don't send sizes, which
+     * means that they are read until there's no more data.
+     */
+    long SIZE_UNKNOWN = -1;
+
+    /**
+     * @return how far an earlier, interrupted, copy has come so that the
+     * files can be sent from where it stopped, or <CODE>null</CODE> if
+     * they have to be sent from the start and without sizes.
+     */
+    StoreCopyProgress progress();
+
+    /**
+     * Called before the first file with the transactions which the files
+     * are at least as new as.
+     */
+    void begin( SlaveContext context );
+
+    /**
+     * Writes the file at {@code path}, which is {@code size} bytes big, from
+     * {@code offset} and on. {@code data} is owned by the writer from now on
+     * and is closed by it when its bytes have been written, which may be
+     * after this method returns.
+     */
+    void write( String path, ReadableByteChannel data, long size, long offset,
+            ByteBuffer temporaryBuffer ) throws IOException;
 
     void done();
 }
@@ -29,14 +29,25 @@ import java.nio.channels.ReadableByteChannel;
 public class ToFileStoreWriter implements StoreWriter
 {
     private final File basePath;
+    private final StoreCopyProgress progress = new StoreCopyProgress();
 
     public ToFileStoreWriter( String graphDbStoreDir )
     {
         this.basePath = new File( graphDbStoreDir );
     }
 
-    public void write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer,
-            boolean hasData ) throws IOException
+    public StoreCopyProgress progress()
+    {
+        return progress;
+    }
+
+    public void begin( SlaveContext context )
+    {
+        progress.begin( context );
+    }
+
+    public void write( String path, ReadableByteChannel data, long size, long offset,
+            ByteBuffer temporaryBuffer ) throws IOException
     {
         try
         {
@@ -47,15 +58,27 @@ public class ToFileStoreWriter implements StoreWriter
             {
                 file.getParentFile().mkdirs();
                 randomAccessFile = new RandomAccessFile( file, "rw" );
-                if ( hasData )
+                if ( size != SIZE_UNKNOWN )
+                {
+                    // Allocates the whole file up front, which also cuts off
+                    // the tail of an earlier, bigger, copy of it
+                    randomAccessFile.setLength( size );
+                }
+                FileChannel channel = randomAccessFile.getChannel();
+                long position = offset;
+                while ( data.read( temporaryBuffer ) >= 0 )
                 {
-                    FileChannel channel = randomAccessFile.getChannel();
-                    while ( data.read( temporaryBuffer ) >= 0 )
+                    temporaryBuffer.flip();
+                    while ( temporaryBuffer.hasRemaining() )
                     {
-                        temporaryBuffer.flip();
-                        channel.write( temporaryBuffer );
-                        temporaryBuffer.clear();
+                        position += channel.write( temporaryBuffer, position );
                     }
+                    temporaryBuffer.clear();
+                    progress.received( path, position );
+                }
+                if ( size == SIZE_UNKNOWN )
+                {
+                    channel.truncate( position );
                 }
             }
             finally
@@ -64,6 +87,7 @@ public class ToFileStoreWriter implements StoreWriter
                 {
                     randomAccessFile.close();
                 }
+                data.close();
             }
         }
         catch ( Throwable t )
@@ -21,6 +21,7 @@ package org.neo4j.com;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -28,20 +29,74 @@ import org.jboss.netty.buffer.ChannelBuffer;
 public class ToNetworkStoreWriter implements StoreWriter
 {
     private final ChannelBuffer targetBuffer;
+    private final StoreCopyProgress progress;
 
-    public ToNetworkStoreWriter( ChannelBuffer targetBuffer )
+    /**
+     * @param request the request for the store files. Clients which can't
+     * read the sizes and offsets of files send no request at all and get the
+     * files as blocks instead.
+     */
+    public ToNetworkStoreWriter( ChannelBuffer targetBuffer, ChannelBuffer request )
     {
         this.targetBuffer = targetBuffer;
+        this.progress = request.readable() ? StoreCopyProgress.read( request ) : null;
     }
-    
-    public void write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer,
-            boolean hasData ) throws IOException
+
+    public StoreCopyProgress progress()
+    {
+        return progress;
+    }
+
+    public void begin( SlaveContext context )
+    {
+        if ( progress != null )
+        {
+            targetBuffer.writeShort( Protocol.FILES_WITH_SIZES );
+            StoreCopyProgress.writeContext( context, targetBuffer );
+        }
+    }
+
+    public void write( String path, ReadableByteChannel data, long size, long offset,
+            ByteBuffer temporaryBuffer ) throws IOException
+    {
+        boolean handedOver = false;
+        try
+        {
+            char[] chars = path.toCharArray();
+            targetBuffer.writeShort( chars.length );
+            Protocol.writeChars( targetBuffer, chars );
+            if ( progress == null )
+            {
+                writeBlocks( data, size > 0 );
+            }
+            else
+            {
+                targetBuffer.writeLong( size );
+                targetBuffer.writeLong( offset );
+                if ( data instanceof FileChannel && targetBuffer instanceof ChunkingChannelBuffer )
+                {
+                    // Straight from the file to the socket, it's closed when sent
+                    ((ChunkingChannelBuffer) targetBuffer).transferFrom( (FileChannel) data, offset, size - offset );
+                    handedOver = true;
+                }
+                else
+                {
+                    writeBytes( data, size - offset, offset, temporaryBuffer );
+                }
+            }
+        }
+        finally
+        {
+            if ( !handedOver )
+            {
+                data.close();
+            }
+        }
+    }
+
+    private void writeBlocks( ReadableByteChannel data, boolean hasData ) throws IOException
     {
-        char[] chars = path.toCharArray();
-        targetBuffer.writeShort( chars.length );
-        Protocol.writeChars( targetBuffer, chars );
         targetBuffer.writeByte( hasData ? 1 : 0 );
-        // TODO Make use of temporaryBuffer?
         BlockLogBuffer buffer = new BlockLogBuffer( targetBuffer );
         if ( hasData )
         {
@@ -50,6 +105,27 @@ public class ToNetworkStoreWriter implements StoreWriter
         }
     }
 
+    private void writeBytes( ReadableByteChannel data, long count, long offset, ByteBuffer temporaryBuffer )
+            throws IOException
+    {
+        if ( data instanceof FileChannel )
+        {
+            ((FileChannel) data).position( offset );
+        }
+        while ( count > 0 )
+        {
+            temporaryBuffer.clear();
+            temporaryBuffer.limit( (int) Math.min( temporaryBuffer.capacity(), count ) );
+            if ( data.read( temporaryBuffer ) < 0 )
+            {
+                throw new IOException( "Expected " + count + " more bytes" );
+            }
+            temporaryBuffer.flip();
+            count -= temporaryBuffer.remaining();
+            targetBuffer.writeBytes( temporaryBuffer );
+        }
+    }
+
     public void done()
     {
         targetBuffer.writeShort( 0 );
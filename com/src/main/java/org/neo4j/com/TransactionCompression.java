@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.neo4j.kernel.impl.transaction.xaframework.InMemoryLogBuffer;
+
+/**
+ * How transactions in a {@link TransactionStream} are encoded on the wire.
+ * With {@link #NONE} transactions are written in blocks the way they always
+ * were, so clients which don't know about compression can still read them.
+ * A server configured with a codec flags the stream with
+ * {@link #CODEC_IDS_FLAG} and precedes every transaction with the id of the
+ * codec it was written with, so that it may fall back to {@link #NONE} for
+ * transactions which don't get any smaller and a client can read whatever
+ * it gets. Such streams can only be read by clients of this version or
+ * later.
+ */
+public enum TransactionCompression
+{
+    /**
+     * Transactions are sent as they are found in the logical log.
+     */
+    NONE( (byte) 0 )
+    {
+        @Override
+        byte[] compress( byte[] data )
+        {
+            return data;
+        }
+
+        @Override
+        ReadableByteChannel decompress( ReadableByteChannel data )
+        {
+            return data;
+        }
+    },
+    
+    /**
+     * Transactions are deflated with the fastest compression level, trading
+     * some compression ratio for little CPU spent on the master.
+     */
+    DEFLATE( (byte) 1 )
+    {
+        @Override
+        byte[] compress( byte[] data )
+        {
+            // Setting up a deflater costs more than compressing a small
+            // transaction, so every writing thread keeps one around
+            Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            deflater.setInput( data );
+            deflater.finish();
+            ByteArrayOutputStream result = new ByteArrayOutputStream( data.length / 2 );
+            byte[] chunk = new byte[4096];
+            while ( !deflater.finished() )
+            {
+                result.write( chunk, 0, deflater.deflate( chunk ) );
+            }
+            return result.toByteArray();
+        }
+
+        @Override
+        ReadableByteChannel decompress( ReadableByteChannel data )
+        {
+            final Inflater inflater = new Inflater();
+            return Channels.newChannel( new InflaterInputStream( Channels.newInputStream( data ),
+                    inflater, 4096 )
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        inflater.end();
+                    }
+                }
+            } );
+        }
+    };
+    
+    public static final String CONFIG_KEY = "transaction_stream_compression";
+    
+    /**
+     * Set in the data source count heading a transaction stream whose
+     * transactions are preceded by codec ids.
+     */
+    public static final int CODEC_IDS_FLAG = 0x80;
+    
+    /**
+     * Transactions smaller than this fit in one block anyway and aren't
+     * worth compressing.
+     */
+    static final int MIN_COMPRESSED_SIZE = BlockLogBuffer.MAX_SIZE;
+    
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>()
+    {
+        @Override
+        protected Deflater initialValue()
+        {
+            return new Deflater( Deflater.BEST_SPEED );
+        }
+    };
+
+    private final byte id;
+
+    private TransactionCompression( byte id )
+    {
+        this.id = id;
+    }
+    
+    public byte id()
+    {
+        return id;
+    }
+
+    abstract byte[] compress( byte[] data );
+    
+    /**
+     * @return whether transactions written with this codec are preceded by
+     *         codec ids, see {@link #CODEC_IDS_FLAG}
+     */
+    public boolean writesCodecIds()
+    {
+        return this != NONE;
+    }
+
+    abstract ReadableByteChannel decompress( ReadableByteChannel data );
+    
+    /**
+     * Writes the transaction in blocks, preceded by the id of the codec used
+     * unless this is {@link #NONE}. Transactions which are small, or which
+     * wouldn't get any smaller, are written with {@link #NONE}.
+     */
+    public void write( TxExtractor tx, ChannelBuffer target ) throws IOException
+    {
+        if ( !writesCodecIds() )
+        {
+            BlockLogBuffer blockBuffer = new BlockLogBuffer( target );
+            tx.extract( blockBuffer );
+            blockBuffer.done();
+            return;
+        }
+        
+        byte[] data = extract( tx );
+        TransactionCompression codec = NONE;
+        if ( data.length >= MIN_COMPRESSED_SIZE )
+        {
+            byte[] compressed = compress( data );
+            if ( compressed.length < data.length )
+            {
+                codec = this;
+                data = compressed;
+            }
+        }
+        target.writeByte( codec.id );
+        BlockLogBuffer blockBuffer = new BlockLogBuffer( target );
+        blockBuffer.put( data );
+        blockBuffer.done();
+    }
+    
+    /**
+     * Returns a channel with the (decompressed) data of the next transaction
+     * in {@code source}, reading its codec id first if {@code codecIds} is
+     * set.
+     */
+    public static ReadableByteChannel read( ChannelBuffer source, boolean codecIds )
+    {
+        if ( !codecIds )
+        {
+            return new BlockLogReader( source );
+        }
+        return forId( source.readByte() ).decompress( new BlockLogReader( source ) );
+    }
+    
+    private static byte[] extract( TxExtractor tx ) throws IOException
+    {
+        InMemoryLogBuffer extracted = new InMemoryLogBuffer();
+        tx.extract( extracted );
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        ByteBuffer chunk = ByteBuffer.allocate( 4096 );
+        while ( extracted.read( chunk ) >= 0 )
+        {
+            result.write( chunk.array(), 0, chunk.position() );
+            chunk.clear();
+        }
+        return result.toByteArray();
+    }
+
+    public static TransactionCompression forId( byte id )
+    {
+        for ( TransactionCompression compression : values() )
+        {
+            if ( compression.id == id )
+            {
+                return compression;
+            }
+        }
+        throw new ComException( "Unknown transaction compression " + id );
+    }
+    
+    public static TransactionCompression fromConfig( Map<Object, Object> params )
+    {
+        Object value = params.get( CONFIG_KEY );
+        if ( value == null )
+        {
+            return NONE;
+        }
+        try
+        {
+            return valueOf( value.toString().trim().toUpperCase() );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new IllegalArgumentException( "Invalid value '" + value + "' for " + CONFIG_KEY
+                    + ", expected one of " + Arrays.toString( values() ) );
+        }
+    }
+}
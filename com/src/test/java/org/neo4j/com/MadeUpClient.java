@@ -71,6 +71,20 @@ public class MadeUpClient extends Client<MadeUpCommunicationInterface> implement
         } );
     }
     
+    @Override
+    public Response<Void> copyFile( final String path, final StoreWriter writer )
+    {
+        return sendRequest( DumbRequestType.COPY_FILE, SlaveContext.EMPTY, new Serializer()
+        {
+            @Override
+            public void write( ChannelBuffer buffer, ByteBuffer readBuffer ) throws IOException
+            {
+                Protocol.writeString( buffer, path );
+                new Protocol.FileStreamsRequestSerializer( writer ).write( buffer, readBuffer );
+            }
+        }, new Protocol.FileStreamsDeserializer( writer ) );
+    }
+    
     @Override
     protected StoreId getMyStoreId()
     {
@@ -100,6 +114,17 @@ public class MadeUpClient extends Client<MadeUpCommunicationInterface> implement
                 int dataSize = input.readInt();
                 return master.streamSomeData( new ToChannelBufferWriter( target ), dataSize );
             }
+        }, Protocol.VOID_SERIALIZER ),
+        
+        COPY_FILE( new MasterCaller<MadeUpCommunicationInterface, Void>()
+        {
+            @Override
+            public Response<Void> callMaster( MadeUpCommunicationInterface master,
+                    SlaveContext context, ChannelBuffer input, ChannelBuffer target )
+            {
+                String path = Protocol.readString( input );
+                return master.copyFile( path, new ToNetworkStoreWriter( target, input ) );
+            }
         }, Protocol.VOID_SERIALIZER );
         
         private final MasterCaller masterCaller;
@@ -24,4 +24,6 @@ public interface MadeUpCommunicationInterface
     Response<Integer> multiply( int value1, int value2 );
     
     Response<Void> streamSomeData( MadeUpWriter writer, int dataSize );
+    
+    Response<Void> copyFile( String path, StoreWriter writer );
 }
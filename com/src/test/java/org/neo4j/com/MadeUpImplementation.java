@@ -19,6 +19,13 @@
  */
 package org.neo4j.com;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.neo4j.helpers.Pair;
 import org.neo4j.kernel.impl.nioneo.store.StoreId;
 
 public class MadeUpImplementation implements MadeUpCommunicationInterface
@@ -45,6 +52,27 @@ public class MadeUpImplementation implements MadeUpCommunicationInterface
         return new Response<Void>( null, storeIdToRespondWith, TransactionStream.EMPTY );
     }
     
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public Response<Void> copyFile( String path, StoreWriter writer )
+    {
+        File file = new File( path );
+        StoreCopyProgress progress = writer.progress();
+        long offset = progress != null && progress.context() != null ? progress.offset( file.getName() ) : 0;
+        writer.begin( new SlaveContext( -1, -1, new Pair[] { Pair.of( "nioneodb", 10L ) } ) );
+        try
+        {
+            FileChannel channel = new FileInputStream( file ).getChannel();
+            writer.write( file.getName(), channel, channel.size(), offset, ByteBuffer.allocateDirect( 1024 ) );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+        writer.done();
+        return new Response<Void>( null, storeIdToRespondWith, TransactionStream.EMPTY );
+    }
+    
     public boolean gotCalled()
     {
         return this.gotCalled;
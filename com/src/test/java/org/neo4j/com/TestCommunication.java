@@ -20,13 +20,25 @@
 package org.neo4j.com;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Before;
 import org.junit.Test;
+import org.neo4j.helpers.Pair;
 import org.neo4j.kernel.impl.nioneo.store.StoreId;
 
 public class TestCommunication
@@ -132,4 +144,138 @@ public class TestCommunication
         client.shutdown();
         server.shutdown();
     }
+    
+    @Test
+    public void clientCanCopyFileWhichIsSentStraightFromTheFile() throws Exception
+    {
+        // Bigger than two frames
+        int size = 2*Protocol.MAX_FRAME_LENGTH + 7;
+        File source = writeFile( new File( PATH, "source" ), size, 0 );
+        File targetDir = emptyDirectory( "copy" );
+        MadeUpImplementation serverImplementation = new MadeUpImplementation( storeIdToUse );
+        MadeUpServer server = new MadeUpServer( serverImplementation, PORT );
+        MadeUpClient client = new MadeUpClient( PORT, storeIdToUse );
+        
+        client.copyFile( source.getAbsolutePath(), new ToFileStoreWriter( targetDir.getPath() ) );
+        
+        assertFileContents( new File( targetDir, "source" ), size, 0, 0 );
+        client.shutdown();
+        server.shutdown();
+    }
+    
+    @Test
+    public void fileCopyContinuesFromWhereAnEarlierCopyStopped() throws Exception
+    {
+        int size = 3*1024*1024;
+        File source = writeFile( new File( PATH, "resumed" ), size, 0 );
+        File targetDir = emptyDirectory( "resumed-copy" );
+        // An earlier copy got the first megabyte, of what the file looked like back then
+        int received = 1024*1024;
+        writeFile( new File( targetDir, "resumed" ), received, 1 );
+        ToFileStoreWriter writer = new ToFileStoreWriter( targetDir.getPath() );
+        writer.begin( someContext() );
+        writer.progress().received( "resumed", received );
+        MadeUpImplementation serverImplementation = new MadeUpImplementation( storeIdToUse );
+        MadeUpServer server = new MadeUpServer( serverImplementation, PORT );
+        MadeUpClient client = new MadeUpClient( PORT, storeIdToUse );
+        
+        client.copyFile( source.getAbsolutePath(), writer );
+        
+        assertFileContents( new File( targetDir, "resumed" ), size, received, 1 );
+        assertEquals( size, writer.progress().offset( "resumed" ) );
+        client.shutdown();
+        server.shutdown();
+    }
+    
+    @Test
+    public void clientsWhichDontSendProgressGetFilesAsBlocks() throws Exception
+    {
+        int size = 100000;
+        File source = writeFile( new File( PATH, "blocks" ), size, 0 );
+        File targetDir = emptyDirectory( "blocks-copy" );
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        StoreWriter networkWriter = new ToNetworkStoreWriter( buffer, ChannelBuffers.EMPTY_BUFFER );
+        assertNull( networkWriter.progress() );
+        
+        networkWriter.begin( someContext() );
+        networkWriter.write( "blocks", new FileInputStream( source ).getChannel(), size, 0,
+                ByteBuffer.allocate( 1000 ) );
+        networkWriter.write( "empty", new FileInputStream( source ).getChannel(), 0, 0,
+                ByteBuffer.allocate( 1000 ) );
+        networkWriter.done();
+        new Protocol.FileStreamsDeserializer( new ToFileStoreWriter( targetDir.getPath() ) ).read(
+                buffer, ByteBuffer.allocate( 1000 ) );
+        
+        assertFileContents( new File( targetDir, "blocks" ), size, 0, 0 );
+        assertEquals( 0, new File( targetDir, "empty" ).length() );
+        assertEquals( 0, buffer.readableBytes() );
+    }
+    
+    @SuppressWarnings( "unchecked" )
+    private SlaveContext someContext()
+    {
+        return new SlaveContext( -1, -1, new Pair[] { Pair.of( "nioneodb", 10L ) } );
+    }
+    
+    private File emptyDirectory( String name )
+    {
+        File directory = new File( PATH, name );
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        directory.mkdirs();
+        return directory;
+    }
+    
+    private static byte valueAt( int index, int seed )
+    {
+        return (byte) ( ( index + seed ) % 10 );
+    }
+    
+    private File writeFile( File file, int size, int seed ) throws IOException
+    {
+        OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) );
+        try
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                out.write( valueAt( i, seed ) );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+    
+    /**
+     * Asserts that the first {@code prefix} bytes of {@code file} are written
+     * with {@code prefixSeed} and the rest like the source files, seed 0.
+     */
+    private void assertFileContents( File file, int size, int prefix, int prefixSeed ) throws IOException
+    {
+        assertEquals( size, file.length() );
+        InputStream in = new BufferedInputStream( new FileInputStream( file ) );
+        try
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                int expected = valueAt( i, i < prefix ? prefixSeed : 0 );
+                if ( expected != in.read() )
+                {
+                    fail( "Unexpected byte at " + i + " in " + file );
+                }
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
 }
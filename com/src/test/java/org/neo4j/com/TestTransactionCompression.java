@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+import org.neo4j.kernel.impl.transaction.xaframework.LogBuffer;
+
+public class TestTransactionCompression
+{
+    @Test
+    public void canReadWhatWasWrittenWithEveryCodec() throws Exception
+    {
+        for ( TransactionCompression compression : TransactionCompression.values() )
+        {
+            for ( int size : new int[] { 1, 255, 256, 1000, 100000 } )
+            {
+                byte[] data = repetitiveData( size );
+                ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+                compression.write( extractorFor( data ), buffer );
+                buffer.writeByte( 123 );
+                
+                assertArrayEquals( data, readFully( TransactionCompression.read( buffer,
+                        compression.writesCodecIds() ) ) );
+                assertEquals( 123, buffer.readByte() );
+            }
+        }
+    }
+    
+    @Test
+    public void compressesBigRepetitiveTransactions() throws Exception
+    {
+        byte[] data = repetitiveData( 10000 );
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        TransactionCompression.DEFLATE.write( extractorFor( data ), buffer );
+        
+        assertEquals( TransactionCompression.DEFLATE.id(), buffer.getByte( 0 ) );
+        assertTrue( buffer.readableBytes() < data.length / 2 );
+    }
+    
+    @Test
+    public void fallsBackToNoCompressionWhenItDoesntPayOff() throws Exception
+    {
+        byte[] small = repetitiveData( 100 );
+        byte[] random = new byte[10000];
+        new Random( 1234 ).nextBytes( random );
+        for ( byte[] data : new byte[][] { small, random } )
+        {
+            ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+            TransactionCompression.DEFLATE.write( extractorFor( data ), buffer );
+            
+            assertEquals( TransactionCompression.NONE.id(), buffer.getByte( 0 ) );
+            assertArrayEquals( data, readFully( TransactionCompression.read( buffer, true ) ) );
+        }
+    }
+    
+    @Test
+    public void noneWritesTransactionsWithoutCodecIds() throws Exception
+    {
+        // the framing of older versions, which don't know about codecs
+        byte[] data = repetitiveData( 1000 );
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        TransactionCompression.NONE.write( extractorFor( data ), buffer );
+        ChannelBuffer blocks = ChannelBuffers.dynamicBuffer();
+        BlockLogBuffer blockBuffer = new BlockLogBuffer( blocks );
+        blockBuffer.put( data );
+        blockBuffer.done();
+        
+        assertEquals( blocks, buffer );
+        assertArrayEquals( data, readFully( new BlockLogReader( buffer ) ) );
+    }
+    
+    @Test
+    public void readsCodecFromConfig() throws Exception
+    {
+        assertEquals( TransactionCompression.NONE, TransactionCompression.fromConfig(
+                new HashMap<Object, Object>() ) );
+        Map<Object, Object> config = new HashMap<Object, Object>();
+        config.put( TransactionCompression.CONFIG_KEY, "deflate" );
+        assertEquals( TransactionCompression.DEFLATE, TransactionCompression.fromConfig( config ) );
+    }
+
+    private byte[] repetitiveData( int size )
+    {
+        byte[] data = new byte[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            data[i] = (byte) ( i % 17 == 0 ? i : i % 5 );
+        }
+        return data;
+    }
+
+    private TxExtractor extractorFor( final byte[] data )
+    {
+        return new TxExtractor()
+        {
+            @Override
+            public void extract( LogBuffer buffer )
+            {
+                try
+                {
+                    buffer.put( data );
+                }
+                catch ( IOException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+
+            @Override
+            public ReadableByteChannel extract()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    private byte[] readFully( ReadableByteChannel channel ) throws IOException
+    {
+        ByteBuffer chunk = ByteBuffer.allocate( 1000 );
+        ChannelBuffer result = ChannelBuffers.dynamicBuffer();
+        while ( channel.read( chunk ) >= 0 )
+        {
+            chunk.flip();
+            result.writeBytes( chunk );
+            chunk.clear();
+        }
+        channel.close();
+        byte[] bytes = new byte[result.readableBytes()];
+        result.readBytes( bytes );
+        return bytes;
+    }
+}
@@ -19,9 +19,13 @@
  */
 package org.neo4j.graphalgo;
 
+import java.util.concurrent.ExecutorService;
+
 import org.neo4j.graphalgo.impl.path.AStar;
 import org.neo4j.graphalgo.impl.path.AllPaths;
 import org.neo4j.graphalgo.impl.path.AllSimplePaths;
+import org.neo4j.graphalgo.impl.path.BidirectionalAStar;
+import org.neo4j.graphalgo.impl.path.BidirectionalDijkstra;
 import org.neo4j.graphalgo.impl.path.Dijkstra;
 import org.neo4j.graphalgo.impl.path.ShortestPath;
 import org.neo4j.graphalgo.impl.util.DoubleEvaluator;
@@ -90,6 +94,28 @@ public abstract class GraphAlgoFactory
         return new ShortestPath( maxDepth, expander );
     }
 
+    /**
+     * Returns an algorithm which can find all shortest paths (that is paths
+     * with as short {@link Path#length()} as possible) between two nodes,
+     * expanding the nodes of each level on several threads. It finds the
+     * same paths as {@link #shortestPath(RelationshipExpander, int)}.
+     * 
+     * @see ShortestPath
+     * @param expander the {@link RelationshipExpander} to use for expanding
+     *            {@link Relationship}s for each {@link Node}. It must be safe
+     *            to call from several threads at once.
+     * @param maxDepth the max {@link Path#length()} returned paths are allowed
+     *            to have.
+     * @param executor the {@link ExecutorService} to expand nodes on.
+     * @param parallelism the number of tasks to expand each batch of nodes in.
+     * @return an algorithm which finds shortest paths between two nodes.
+     */
+    public static PathFinder<Path> shortestPath( RelationshipExpander expander, int maxDepth,
+            ExecutorService executor, int parallelism )
+    {
+        return new ShortestPath( maxDepth, expander, false, executor, parallelism );
+    }
+
     /**
      * Returns an algorithm which can find simple all paths of a certain length
      * between two nodes. These returned paths cannot contain loops (i.e. a node
@@ -106,6 +132,28 @@ public abstract class GraphAlgoFactory
     {
         return new ShortestPath( length, expander, true );
     }
+
+    /**
+     * Returns an algorithm which can find simple all paths of a certain length
+     * between two nodes, expanding the nodes of each level on several threads.
+     * It finds the same paths as
+     * {@link #pathsWithLength(RelationshipExpander, int)}.
+     * 
+     * @see ShortestPath
+     * @param expander the {@link RelationshipExpander} to use for expanding
+     * {@link Relationship}s for each {@link Node}. It must be safe to call
+     * from several threads at once.
+     * @param length the {@link Path#length()} returned paths will have, if any
+     * paths were found.
+     * @param executor the {@link ExecutorService} to expand nodes on.
+     * @param parallelism the number of tasks to expand each batch of nodes in.
+     * @return an algorithm which finds paths of a certain length between two nodes.
+     */
+    public static PathFinder<Path> pathsWithLength( RelationshipExpander expander, int length,
+            ExecutorService executor, int parallelism )
+    {
+        return new ShortestPath( length, expander, true, executor, parallelism );
+    }
     
     /**
      * Returns an {@link PathFinder} which uses the A* algorithm to find the
@@ -178,4 +226,72 @@ public abstract class GraphAlgoFactory
     {
         return dijkstra( expander, new DoubleEvaluator( relationshipPropertyRepresentingCost ) );
     }
+
+    /**
+     * Returns a {@link PathFinder} which, like
+     * {@link #dijkstra(RelationshipExpander, CostEvaluator)}, finds the
+     * cheapest path between two nodes, but searches from both of them at the
+     * same time. This usually visits far fewer nodes on big graphs, but only
+     * one path is ever returned, also when there are several equally cheap
+     * ones. The search from the end node uses
+     * {@link RelationshipExpander#reversed()}.
+     * 
+     * @see BidirectionalDijkstra
+     * @param expander the {@link RelationshipExpander} to use for expanding
+     * {@link Relationship}s for each {@link Node}.
+     * @param costEvaluator evaluator that can return the cost represented
+     * by each relationship the algorithm traverses, never negative.
+     * @return an algorithm which finds the cheapest path between two nodes
+     * using a bidirectional Dijkstra algorithm.
+     */
+    public static PathFinder<WeightedPath> bidirectionalDijkstra(
+            RelationshipExpander expander, CostEvaluator<Double> costEvaluator )
+    {
+        return new BidirectionalDijkstra( expander, costEvaluator );
+    }
+
+    /**
+     * See {@link #bidirectionalDijkstra(RelationshipExpander, CostEvaluator)}.
+     * 
+     * Uses a cost evaluator which uses the supplied property key to
+     * represent the cost (values of type <bold>double</bold>).
+     * 
+     * @param expander the {@link RelationshipExpander} to use for expanding
+     * {@link Relationship}s for each {@link Node}.
+     * @param relationshipPropertyRepresentingCost the property to represent cost
+     * on each relationship the algorithm traverses.
+     * @return an algorithm which finds the cheapest path between two nodes
+     * using a bidirectional Dijkstra algorithm.
+     */
+    public static PathFinder<WeightedPath> bidirectionalDijkstra(
+            RelationshipExpander expander, String relationshipPropertyRepresentingCost )
+    {
+        return bidirectionalDijkstra( expander,
+                new DoubleEvaluator( relationshipPropertyRepresentingCost ) );
+    }
+
+    /**
+     * Returns a {@link PathFinder} which, like
+     * {@link #aStar(RelationshipExpander, CostEvaluator, EstimateEvaluator)},
+     * finds the cheapest path between two nodes guided by estimates of the
+     * remaining cost, but searches from both of them at the same time. The
+     * estimates must be consistent (see {@link BidirectionalAStar}),
+     * otherwise a path which isn't the cheapest may be returned.
+     * 
+     * @see BidirectionalAStar
+     * @param expander the {@link RelationshipExpander} to use for expanding
+     * {@link Relationship}s for each {@link Node}.
+     * @param lengthEvaluator evaluator that can return the cost represented
+     * by each relationship the algorithm traverses.
+     * @param estimateEvaluator evaluator that returns an (optimistic)
+     * estimation of the cost to get from a node to another.
+     * @return an algorithm which finds the cheapest path between two nodes
+     * using a bidirectional A* algorithm.
+     */
+    public static PathFinder<WeightedPath> bidirectionalAStar(
+            RelationshipExpander expander, CostEvaluator<Double> lengthEvaluator,
+            EstimateEvaluator<Double> estimateEvaluator )
+    {
+        return new BidirectionalAStar( expander, lengthEvaluator, estimateEvaluator );
+    }
 }
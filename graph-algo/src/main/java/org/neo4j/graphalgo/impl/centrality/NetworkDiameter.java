@@ -90,4 +90,14 @@ public class NetworkDiameter<ShortestPathCostType> extends
         calculate();
         return diameter;
     }
+
+    /**
+     * The network diameter is kept outside of the node centralities, so it can't
+     * be merged from several threads.
+     */
+    @Override
+    boolean canComputePartialCentralities()
+    {
+        return false;
+    }
 }
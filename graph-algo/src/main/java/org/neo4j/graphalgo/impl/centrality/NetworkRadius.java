@@ -88,4 +88,14 @@ public class NetworkRadius<ShortestPathCostType> extends
         calculate();
         return radius;
     }
+
+    /**
+     * The network radius is kept outside of the node centralities, so it can't
+     * be merged from several threads.
+     */
+    @Override
+    boolean canComputePartialCentralities()
+    {
+        return false;
+    }
 }
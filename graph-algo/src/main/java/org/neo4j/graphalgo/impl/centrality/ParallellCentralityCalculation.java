@@ -19,11 +19,20 @@
  */
 package org.neo4j.graphalgo.impl.centrality;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPath;
+import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPathFactory;
 import org.neo4j.graphdb.Node;
 
 /**
@@ -33,9 +42,22 @@ import org.neo4j.graphdb.Node;
  * instead of re-running it for each centrality measure. We do it by collecting
  * a number of {@link ShortestPathBasedCentrality} and then running the
  * {@link SingleSourceShortestPath} for every node.
+ * <p>
+ * When created with a {@link SingleSourceShortestPathFactory} the start nodes
+ * can also be processed on several threads, see
+ * {@link #setParallelism(int)}. Every thread then has its own
+ * {@link SingleSourceShortestPath} and its own partial centrality values,
+ * which are merged into the centrality measures at the end. This works for
+ * measures such as {@link BetweennessCentrality}, {@link StressCentrality},
+ * {@link ClosenessCentrality} and {@link Eccentricity}, where the
+ * computations for different start nodes are independent of each other, but
+ * not for {@link NetworkDiameter} and {@link NetworkRadius}. A calculation
+ * including any of those runs on one thread whatever the parallelism is.
+ * Since the threads read the graph outside of any transaction, only
+ * committed data is seen.
  * @complexity The sum of the complexities of the centrality measures to
  *             compute, except that all the n*A terms implode into one single
- *             n*A term.
+ *             n*A term. On p threads that is divided by up to p.
  * @author Patrik Larsson
  * @param <ShortestPathCostType>
  *            The datatype used by the underlying
@@ -48,6 +70,8 @@ public class ParallellCentralityCalculation<ShortestPathCostType>
     protected Set<Node> nodeSet;
     List<ShortestPathBasedCentrality<?,ShortestPathCostType>> calculations = new LinkedList<ShortestPathBasedCentrality<?,ShortestPathCostType>>();
     protected boolean doneCalculation = false;
+    protected SingleSourceShortestPathFactory<ShortestPathCostType> singleSourceShortestPathFactory;
+    protected int parallelism = 1;
 
     /**
      * Default constructor.
@@ -66,6 +90,57 @@ public class ParallellCentralityCalculation<ShortestPathCostType>
         this.nodeSet = nodeSet;
     }
 
+    /**
+     * Creates a calculation that uses as many threads as there are available
+     * processors, see {@link #setParallelism(int)}.
+     * @param singleSourceShortestPathFactory
+     *            Creates the underlying singleSourceShortestPath for every
+     *            thread.
+     * @param nodeSet
+     *            A set containing the nodes for which centrality values should
+     *            be computed.
+     */
+    public ParallellCentralityCalculation(
+        SingleSourceShortestPathFactory<ShortestPathCostType> singleSourceShortestPathFactory,
+        Set<Node> nodeSet )
+    {
+        this( singleSourceShortestPathFactory.newSingleSourceShortestPath(),
+            nodeSet );
+        this.singleSourceShortestPathFactory = singleSourceShortestPathFactory;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of threads to process the start nodes on. Anything but
+     * 1 requires this to be created with a
+     * {@link SingleSourceShortestPathFactory}. Measures that can't be computed
+     * on several threads make the calculation run on one anyway.
+     * @param parallelism
+     *            The number of threads to use.
+     */
+    public void setParallelism( int parallelism )
+    {
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "Parallelism must be at least 1, not "
+                + parallelism );
+        }
+        if ( parallelism > 1 && singleSourceShortestPathFactory == null )
+        {
+            throw new IllegalStateException(
+                "Running on several threads requires a SingleSourceShortestPathFactory" );
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the number of threads the start nodes are processed on.
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
     /**
      * This adds a centrality measure to be included in the calculation.
      * @param shortestPathBasedCentrality
@@ -95,18 +170,125 @@ public class ParallellCentralityCalculation<ShortestPathCostType>
             return;
         }
         doneCalculation = true;
+        if ( parallelism > 1 && nodeSet.size() > 1
+            && canComputePartialCentralities() )
+        {
+            calculateInParallel();
+            return;
+        }
         // For all nodes...
         for ( Node startNode : nodeSet )
         {
-            // Prepare the singleSourceShortestPath
-            singleSourceShortestPath.reset();
-            singleSourceShortestPath.setStartNode( startNode );
-            // Process
-            for ( ShortestPathBasedCentrality<?,ShortestPathCostType> calculation : calculations )
+            process( startNode, singleSourceShortestPath );
+        }
+    }
+
+    private boolean canComputePartialCentralities()
+    {
+        for ( ShortestPathBasedCentrality<?,ShortestPathCostType> calculation : calculations )
+        {
+            if ( !calculation.canComputePartialCentralities() )
             {
-                calculation.processShortestPaths( startNode,
-                    singleSourceShortestPath );
+                return false;
             }
         }
+        return true;
+    }
+
+    private void process( Node startNode,
+        SingleSourceShortestPath<ShortestPathCostType> singleSourceShortestPath )
+    {
+        // Prepare the singleSourceShortestPath
+        singleSourceShortestPath.reset();
+        singleSourceShortestPath.setStartNode( startNode );
+        // Process
+        for ( ShortestPathBasedCentrality<?,ShortestPathCostType> calculation : calculations )
+        {
+            calculation.processShortestPaths( startNode,
+                singleSourceShortestPath );
+        }
+    }
+
+    /**
+     * Lets every thread take the next unprocessed start node until there are
+     * none left, so that threads which happen to get cheap nodes don't end up
+     * idle, and merges the partial centralities of the threads when they are
+     * all done.
+     */
+    private void calculateInParallel()
+    {
+        final Node[] startNodes = nodeSet.toArray( new Node[nodeSet.size()] );
+        final AtomicInteger nextStartNode = new AtomicInteger();
+        int threads = Math.min( parallelism, startNodes.length );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<List<Map<Node,?>>>> partials = new ArrayList<Future<List<Map<Node,?>>>>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                partials.add( executor.submit( new Callable<List<Map<Node,?>>>()
+                {
+                    public List<Map<Node,?>> call()
+                    {
+                        SingleSourceShortestPath<ShortestPathCostType> threadSingleSourceShortestPath = singleSourceShortestPathFactory.newSingleSourceShortestPath();
+                        List<Map<Node,?>> threadCentralities = new ArrayList<Map<Node,?>>();
+                        try
+                        {
+                            for ( ShortestPathBasedCentrality<?,ShortestPathCostType> calculation : calculations )
+                            {
+                                threadCentralities.add( calculation.startPartialCentralities() );
+                            }
+                            for ( int index = nextStartNode.getAndIncrement(); index < startNodes.length; index = nextStartNode.getAndIncrement() )
+                            {
+                                process( startNodes[index],
+                                    threadSingleSourceShortestPath );
+                            }
+                        }
+                        finally
+                        {
+                            for ( ShortestPathBasedCentrality<?,ShortestPathCostType> calculation : calculations )
+                            {
+                                calculation.endPartialCentralities();
+                            }
+                        }
+                        return threadCentralities;
+                    }
+                } ) );
+            }
+            for ( Future<List<Map<Node,?>>> partial : partials )
+            {
+                List<Map<Node,?>> threadCentralities = partial.get();
+                int i = 0;
+                for ( ShortestPathBasedCentrality<?,ShortestPathCostType> calculation : calculations )
+                {
+                    merge( calculation, threadCentralities.get( i++ ) );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException( e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <CentralityType> void merge(
+        ShortestPathBasedCentrality<CentralityType,?> calculation,
+        Map<Node,?> partial )
+    {
+        calculation.mergePartialCentralities( (Map<Node,CentralityType>) partial );
     }
 }
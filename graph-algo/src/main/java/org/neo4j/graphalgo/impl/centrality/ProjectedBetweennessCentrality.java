@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.centrality;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.neo4j.graphalgo.impl.shortestpath.ProjectedShortestPaths;
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+
+/**
+ * Betweenness centrality, as in {@link BetweennessCentrality}, computed over
+ * a {@link GraphProjection} with {@link ProjectedShortestPaths}. Path counts
+ * and dependencies are kept in arrays indexed by node number instead of maps
+ * keyed by node.
+ * @complexity O(n * m) for unweighted projections and O(n * (n + m) *
+ *             log(n)) for weighted ones.
+ */
+public class ProjectedBetweennessCentrality
+{
+    protected final GraphProjection graph;
+    protected final int[] sources;
+    protected double[] centralities;
+    protected boolean doneCalculation = false;
+
+    /**
+     * Computes the centrality of every node of the projection, using all of
+     * them as sources.
+     * @param graph
+     *            The projection to compute the centrality over.
+     */
+    public ProjectedBetweennessCentrality( GraphProjection graph )
+    {
+        this( graph, allNodes( graph ) );
+    }
+
+    /**
+     * @param graph
+     *            The projection to compute the centrality over.
+     * @param nodeSet
+     *            The nodes to use as sources of shortest paths, as for
+     *            {@link BetweennessCentrality}. Nodes which aren't in the
+     *            projection are ignored.
+     */
+    public ProjectedBetweennessCentrality( GraphProjection graph,
+        Set<Node> nodeSet )
+    {
+        this( graph, indexesOf( graph, nodeSet ) );
+    }
+
+    protected ProjectedBetweennessCentrality( GraphProjection graph,
+        int[] sources )
+    {
+        this.graph = graph;
+        this.sources = sources;
+    }
+
+    /**
+     * The calculation is normally only done once, this resets it so it can be
+     * run again.
+     */
+    public void reset()
+    {
+        doneCalculation = false;
+    }
+
+    /**
+     * @return the centrality of a node, or null if it isn't in the projection.
+     */
+    public Double getCentrality( Node node )
+    {
+        calculate();
+        int index = graph.indexOf( node );
+        return index == -1 ? null : centralities[index];
+    }
+
+    /**
+     * Runs the calculation. This should not need to be called explicitly, since
+     * all attempts to retrieve any kind of result should automatically call
+     * this.
+     */
+    public void calculate()
+    {
+        if ( doneCalculation )
+        {
+            return;
+        }
+        doneCalculation = true;
+        centralities = new double[graph.nodeCount()];
+        ProjectedShortestPaths paths = new ProjectedShortestPaths( graph );
+        double[] dependencies = new double[graph.nodeCount()];
+        for ( int source : sources )
+        {
+            paths.calculate( source );
+            addDependencies( paths, dependencies, centralities );
+        }
+    }
+
+    /**
+     * Adds the dependencies of the source of the given paths on every other
+     * node to their centralities (Brandes' accumulation). Nodes are visited
+     * in the reverse order they were reached in, so that the dependencies of
+     * all nodes further away are known when a node is visited.
+     * @param paths
+     *            Shortest paths calculated from a source.
+     * @param dependencies
+     *            Scratch space with room for every node.
+     * @param centralities
+     *            The centralities to add to.
+     */
+    protected static void addDependencies( ProjectedShortestPaths paths,
+        double[] dependencies, double[] centralities )
+    {
+        GraphProjection graph = paths.getGraph();
+        double factor = graph.getDirection() == Direction.BOTH ? 0.5 : 1.0;
+        int source = paths.getSource();
+        for ( int i = paths.getReachedCount() - 1; i >= 0; i-- )
+        {
+            int node = paths.getReached( i );
+            double pathCount = paths.getPathCount( node );
+            double dependency = 0;
+            for ( int edge = graph.firstEdge( node ), end = graph.firstEdge( node + 1 ); edge < end; edge++ )
+            {
+                if ( paths.isShortestPathEdge( node, edge ) )
+                {
+                    int target = graph.target( edge );
+                    dependency += pathCount / paths.getPathCount( target )
+                        * ( 1 + dependencies[target] );
+                }
+            }
+            dependencies[node] = dependency;
+            if ( node != source )
+            {
+                centralities[node] += dependency * factor;
+            }
+        }
+    }
+
+    static int[] allNodes( GraphProjection graph )
+    {
+        int[] nodes = new int[graph.nodeCount()];
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            nodes[i] = i;
+        }
+        return nodes;
+    }
+
+    static int[] indexesOf( GraphProjection graph, Set<Node> nodeSet )
+    {
+        int[] nodes = new int[nodeSet.size()];
+        int count = 0;
+        for ( Node node : nodeSet )
+        {
+            int index = graph.indexOf( node );
+            if ( index != -1 )
+            {
+                nodes[count++] = index;
+            }
+        }
+        return count == nodes.length ? nodes : Arrays.copyOf( nodes, count );
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.centrality;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.neo4j.graphalgo.impl.shortestpath.ProjectedShortestPaths;
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphdb.Node;
+
+/**
+ * Closeness centrality, as in {@link ClosenessCentrality}, computed over a
+ * {@link GraphProjection} with {@link ProjectedShortestPaths}. The closeness
+ * of a node is one divided by the sum of its distances to the nodes of the
+ * node set it can reach, or 0 if it can't reach any other of them.
+ * @complexity O(m) for unweighted projections and O((n + m) * log(n)) for
+ *             weighted ones, for every node the closeness is computed for.
+ */
+public class ProjectedClosenessCentrality
+{
+    protected final GraphProjection graph;
+    protected final int[] nodes;
+    protected final boolean[] inNodeSet;
+    protected double[] centralities;
+    private ProjectedShortestPaths paths;
+
+    /**
+     * Computes the closeness of every node of the projection to all others.
+     * @param graph
+     *            The projection to compute the centrality over.
+     */
+    public ProjectedClosenessCentrality( GraphProjection graph )
+    {
+        this( graph, ProjectedBetweennessCentrality.allNodes( graph ) );
+    }
+
+    /**
+     * @param graph
+     *            The projection to compute the centrality over.
+     * @param nodeSet
+     *            The nodes to compute the closeness of, and to sum the
+     *            distances to. Nodes which aren't in the projection are
+     *            ignored.
+     */
+    public ProjectedClosenessCentrality( GraphProjection graph,
+        Set<Node> nodeSet )
+    {
+        this( graph, ProjectedBetweennessCentrality.indexesOf( graph, nodeSet ) );
+    }
+
+    protected ProjectedClosenessCentrality( GraphProjection graph, int[] nodes )
+    {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.inNodeSet = new boolean[graph.nodeCount()];
+        for ( int node : nodes )
+        {
+            inNodeSet[node] = true;
+        }
+        reset();
+    }
+
+    /**
+     * Forgets all computed values.
+     */
+    public void reset()
+    {
+        centralities = new double[graph.nodeCount()];
+        Arrays.fill( centralities, Double.NaN );
+    }
+
+    /**
+     * Computes the closeness of a node if it hasn't been computed already.
+     * Since it is independent of the closeness of other nodes it is only
+     * computed for the nodes asked for.
+     * @return the closeness of a node, or null if it isn't in the node set.
+     */
+    public Double getCentrality( Node node )
+    {
+        int index = graph.indexOf( node );
+        if ( index == -1 || !inNodeSet[index] )
+        {
+            return null;
+        }
+        return centrality( index );
+    }
+
+    /**
+     * Computes the closeness of all nodes in the node set.
+     */
+    public void calculate()
+    {
+        for ( int node : nodes )
+        {
+            centrality( node );
+        }
+    }
+
+    private double centrality( int node )
+    {
+        if ( Double.isNaN( centralities[node] ) )
+        {
+            if ( paths == null )
+            {
+                paths = new ProjectedShortestPaths( graph );
+            }
+            centralities[node] = closeness( paths, node, inNodeSet );
+        }
+        return centralities[node];
+    }
+
+    protected static double closeness( ProjectedShortestPaths paths, int node,
+        boolean[] inNodeSet )
+    {
+        paths.calculate( node );
+        double sum = 0;
+        for ( int i = 0; i < paths.getReachedCount(); i++ )
+        {
+            int target = paths.getReached( i );
+            if ( inNodeSet[target] )
+            {
+                sum += paths.getDistance( target );
+            }
+        }
+        return sum == 0 ? 0 : 1 / sum;
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.centrality;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphdb.Node;
+
+/**
+ * Eigenvector centrality with the "power method", as in
+ * {@link EigenvectorCentralityPower}, computed over a {@link GraphProjection}.
+ * The vector is a double[] indexed by node number and every iteration is one
+ * pass over the edge arrays, where the weight of an edge plays the part of
+ * the {@link org.neo4j.graphalgo.CostEvaluator} cost. Unlike
+ * {@link EigenvectorCentralityPower}, nodes which nothing points to get the
+ * value 0 rather than null.
+ * @complexity O(i(n + m)) when i iterations are done.
+ */
+public class ProjectedEigenvectorCentrality implements EigenvectorCentrality
+{
+    protected final GraphProjection graph;
+    protected double precision = 0.001;
+    protected boolean doneCalculation = false;
+    protected double[] values;
+    protected int totalIterations = 0;
+    private int maxIterations = Integer.MAX_VALUE;
+
+    /**
+     * @param graph
+     *            The projection to compute the centrality over.
+     * @param precision
+     *            Precision factor (ex. 0.01 for 1% error). Note that this is
+     *            not the error from the correct values, but the amount of
+     *            change tolerated in one iteration.
+     */
+    public ProjectedEigenvectorCentrality( GraphProjection graph,
+        double precision )
+    {
+        this.graph = graph;
+        this.precision = precision;
+    }
+
+    /**
+     * @return the centrality of a node, or null if it isn't in the projection.
+     */
+    public Double getCentrality( Node node )
+    {
+        calculate();
+        int index = graph.indexOf( node );
+        return index == -1 ? null : values[index];
+    }
+
+    public void reset()
+    {
+        doneCalculation = false;
+    }
+
+    public void calculate()
+    {
+        if ( doneCalculation )
+        {
+            return;
+        }
+        doneCalculation = true;
+        totalIterations = 0;
+        values = new double[graph.nodeCount()];
+        Random random = new Random( System.currentTimeMillis() );
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = random.nextDouble();
+        }
+        normalize( values );
+        runIterations( maxIterations );
+    }
+
+    /**
+     * Runs iterations until enough precision has been reached, or the given
+     * number of iterations have been run. See
+     * {@link EigenvectorCentralityPower#runIterations(int)}.
+     * @return the number of iterations performed.
+     */
+    public int runIterations( int maxNrIterations )
+    {
+        if ( maxNrIterations <= 0 || values.length == 0 )
+        {
+            return 0;
+        }
+        int localIterations = 0;
+        double[] newValues = new double[values.length];
+        while ( true )
+        {
+            ++localIterations;
+            ++totalIterations;
+            // "matrix multiplication"
+            for ( int node = 0; node < values.length; node++ )
+            {
+                double value = values[node];
+                for ( int edge = graph.firstEdge( node ), end = graph.firstEdge( node + 1 ); edge < end; edge++ )
+                {
+                    newValues[graph.target( edge )] += value * graph.weight( edge );
+                }
+            }
+            normalize( newValues );
+            boolean done = timeToStop( values, newValues );
+            double[] oldValues = values;
+            values = newValues;
+            newValues = oldValues;
+            if ( done || localIterations >= maxNrIterations )
+            {
+                break;
+            }
+            Arrays.fill( newValues, 0 );
+        }
+        // If the first value is negative (possibly the whole vector), negate
+        // the whole vector
+        if ( values[0] < 0 )
+        {
+            for ( int i = 0; i < values.length; i++ )
+            {
+                values[i] = -values[i];
+            }
+        }
+        return localIterations;
+    }
+
+    private boolean timeToStop( double[] oldValues, double[] newValues )
+    {
+        for ( int i = 0; i < oldValues.length; i++ )
+        {
+            if ( oldValues[i] == 0.0 )
+            {
+                if ( Math.abs( newValues[i] ) > precision )
+                {
+                    return false;
+                }
+                continue;
+            }
+            double factor = Math.abs( newValues[i] / oldValues[i] );
+            if ( factor - precision > 1.0 || factor + precision < 1.0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void normalize( double[] vector )
+    {
+        double sum = 0;
+        for ( double d : vector )
+        {
+            sum += d * d;
+        }
+        sum = Math.sqrt( sum );
+        if ( sum > 0.0 )
+        {
+            for ( int i = 0; i < vector.length; i++ )
+            {
+                vector[i] /= sum;
+            }
+        }
+    }
+
+    /**
+     * @return the number of iterations made.
+     */
+    public int getTotalIterations()
+    {
+        return totalIterations;
+    }
+
+    /**
+     * @return the maxIterations
+     */
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    }
+
+    /**
+     * Limit the maximum number of iterations to run. Per default,
+     * the maximum iterations are set to Integer.MAX_VALUE, which should
+     * be limited to 50-100 normally.
+     * @param maxIterations
+     *            the maxIterations to set
+     */
+    public void setMaxIterations( int maxIterations )
+    {
+        this.maxIterations = maxIterations;
+    }
+}
@@ -57,6 +57,12 @@ public abstract class ShortestPathBasedCentrality<CentralityType,ShortestPathCos
      * addCentralityToNode.
      */
     protected Map<Node,CentralityType> centralities = null;
+    /**
+     * Where addCentralityToNode and setCentralityForNode put values on the
+     * current thread while a {@link ParallellCentralityCalculation} runs on
+     * several threads, merged into the centralities afterwards.
+     */
+    private final ThreadLocal<Map<Node,CentralityType>> partialCentralities = new ThreadLocal<Map<Node,CentralityType>>();
 
     /**
      * Default constructor.
@@ -106,13 +112,13 @@ public abstract class ShortestPathBasedCentrality<CentralityType,ShortestPathCos
      */
     protected void addCentralityToNode( Node node, CentralityType value )
     {
-        CentralityType centrality = centralities.get( node );
+        Map<Node,CentralityType> target = targetCentralities();
+        CentralityType centrality = target.get( node );
         if ( centrality == null )
         {
             centrality = zeroValue;
         }
-        centralities.put( node, centralityAccumulator.addCosts( centrality,
-            value ) );
+        target.put( node, centralityAccumulator.addCosts( centrality, value ) );
     }
 
     /**
@@ -123,7 +129,67 @@ public abstract class ShortestPathBasedCentrality<CentralityType,ShortestPathCos
      */
     protected void setCentralityForNode( Node node, CentralityType value )
     {
-        centralities.put( node, value );
+        targetCentralities().put( node, value );
+    }
+
+    private Map<Node,CentralityType> targetCentralities()
+    {
+        Map<Node,CentralityType> partial = partialCentralities.get();
+        return partial != null ? partial : centralities;
+    }
+
+    /**
+     * Returns whether this measure can be computed in parts on several
+     * threads with {@link #startPartialCentralities()} and
+     * {@link #mergePartialCentralities(Map)}. Measures keeping state outside
+     * of the node centralities can't, and make a
+     * {@link ParallellCentralityCalculation} run on one thread.
+     */
+    boolean canComputePartialCentralities()
+    {
+        return true;
+    }
+
+    /**
+     * Makes addCentralityToNode and setCentralityForNode on the current
+     * thread put values in a map of its own, until
+     * {@link #endPartialCentralities()} is called.
+     * @return the map values will be put in.
+     */
+    Map<Node,CentralityType> startPartialCentralities()
+    {
+        Map<Node,CentralityType> partial = new HashMap<Node,CentralityType>();
+        partialCentralities.set( partial );
+        return partial;
+    }
+
+    void endPartialCentralities()
+    {
+        partialCentralities.remove();
+    }
+
+    /**
+     * Merges values computed on another thread into the centralities. They
+     * are added together with the centralityAccumulator, or replace the
+     * current values if there is none. The latter is only right for measures
+     * which set the value of a node from the shortest paths of that node
+     * alone.
+     * @param partial
+     *            A map returned by {@link #startPartialCentralities()}.
+     */
+    void mergePartialCentralities( Map<Node,CentralityType> partial )
+    {
+        for ( Map.Entry<Node,CentralityType> entry : partial.entrySet() )
+        {
+            if ( centralityAccumulator == null )
+            {
+                centralities.put( entry.getKey(), entry.getValue() );
+            }
+            else
+            {
+                addCentralityToNode( entry.getKey(), entry.getValue() );
+            }
+        }
     }
 
     /**
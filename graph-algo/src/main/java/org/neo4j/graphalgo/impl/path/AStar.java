@@ -22,7 +22,6 @@ package org.neo4j.graphalgo.impl.path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -37,12 +36,13 @@ import org.neo4j.graphalgo.WeightedPath;
 import org.neo4j.graphalgo.impl.util.PathImpl;
 import org.neo4j.graphalgo.impl.util.WeightedPathImpl;
 import org.neo4j.graphdb.Direction;
-import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipExpander;
 import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.impl.util.PrimitiveLongObjectMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 
 public class AStar implements PathFinder<WeightedPath>
 {
@@ -64,19 +64,17 @@ public class AStar implements PathFinder<WeightedPath>
         while ( doer.hasNext() )
         {
             Node node = doer.next();
-            GraphDatabaseService graphDb = node.getGraphDatabase();
             if ( node.equals( end ) )
             {
                 // Hit, return path
                 double weight = doer.score.get( node.getId() ).wayLength;
                 LinkedList<Relationship> rels = new LinkedList<Relationship>();
-                Relationship rel = graphDb.getRelationshipById( doer.cameFrom.get( node.getId() ) );
+                Relationship rel = doer.cameFrom.get( node.getId() );
                 while ( rel != null )
                 {
                     rels.addFirst( rel );
                     node = rel.getOtherNode( node );
-                    Long nextRelId = doer.cameFrom.get( node.getId() );
-                    rel = nextRelId == null ? null : graphDb.getRelationshipById( nextRelId );
+                    rel = doer.cameFrom.get( node.getId() );
                 }
                 Path path = toPath( start, rels );
                 return new WeightedPathImpl( weight, path );
@@ -117,12 +115,13 @@ public class AStar implements PathFinder<WeightedPath>
         private final Node end;
         private Node lastNode;
         private boolean expand;
-        private final Set<Long> visitedNodes = new HashSet<Long>();
+        private final PrimitiveLongSet visitedNodes = new PrimitiveLongSet();
         private final Set<Node> nextNodesSet = new HashSet<Node>();
         private final TreeMap<Double, Collection<Node>> nextNodes =
                 new TreeMap<Double, Collection<Node>>();
-        private final Map<Long, Long> cameFrom = new HashMap<Long, Long>();
-        private final Map<Long, Data> score = new HashMap<Long, Data>();
+        private final PrimitiveLongObjectMap<Relationship> cameFrom =
+                new PrimitiveLongObjectMap<Relationship>();
+        private final PrimitiveLongObjectMap<Data> score = new PrimitiveLongObjectMap<Data>();
         
         Doer( Node start, Node end )
         {
@@ -221,7 +220,7 @@ public class AStar implements PathFinder<WeightedPath>
                 
                 if ( isBetter )
                 {
-                    this.cameFrom.put( node.getId(), rel.getId() );
+                    this.cameFrom.put( node.getId(), rel );
                     Data data = new Data();
                     data.wayLength = tentativeGScore;
                     data.estimate = estimate;
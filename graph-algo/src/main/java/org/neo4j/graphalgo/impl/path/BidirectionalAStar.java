@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.path;
+
+import org.neo4j.graphalgo.CostEvaluator;
+import org.neo4j.graphalgo.EstimateEvaluator;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipExpander;
+
+/**
+ * A* from both ends at the same time, as {@link BidirectionalDijkstra} with
+ * the estimate to the end node guiding the forward side and the estimate to
+ * the start node guiding the backward side. The two are averaged into one
+ * potential so that the sides agree on when the cheapest path has been
+ * found. The estimates must never be more than the actual cost, and must be
+ * consistent, i.e. the estimate from a node may not be more than the cost of
+ * a relationship to a neighbour plus the estimate from that neighbour. A
+ * distance "as the crow flies", like
+ * {@link org.neo4j.graphalgo.impl.util.GeoEstimateEvaluator}, is both when
+ * no relationship costs less than the distance between its nodes.
+ */
+public class BidirectionalAStar extends BidirectionalDijkstra
+{
+    private final EstimateEvaluator<Double> estimateEvaluator;
+
+    public BidirectionalAStar( RelationshipExpander expander,
+            CostEvaluator<Double> lengthEvaluator, EstimateEvaluator<Double> estimateEvaluator )
+    {
+        super( expander, lengthEvaluator );
+        this.estimateEvaluator = estimateEvaluator;
+    }
+
+    @Override
+    protected double potential( Node node, Node start, Node end )
+    {
+        return ( estimateEvaluator.getCost( node, end )
+                 - estimateEvaluator.getCost( node, start ) ) / 2;
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.path;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+
+import org.neo4j.graphalgo.CostEvaluator;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphalgo.impl.util.IntMinHeap;
+import org.neo4j.graphalgo.impl.util.PathImpl;
+import org.neo4j.graphalgo.impl.util.WeightedPathImpl;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipExpander;
+import org.neo4j.kernel.impl.util.PrimitiveLongIntMap;
+
+/**
+ * Finds the cheapest path between two nodes by running Dijkstra's algorithm
+ * from both of them at the same time, the search from the end node using
+ * {@link RelationshipExpander#reversed()}. The side whose next node is the
+ * closest is expanded first, and the search stops when the next nodes of the
+ * two sides are together at least as far apart as the cheapest path found
+ * where they met. That usually means settling far fewer nodes than a search
+ * from one side, which has to reach every node closer to the start than the
+ * end node is.
+ * <p>
+ * Nodes are numbered in the order a side finds them, through a
+ * {@link PrimitiveLongIntMap} of node ids, and everything else a side knows
+ * about them is kept in arrays indexed by that number, with an
+ * {@link IntMinHeap} as the priority queue. So no objects are created per
+ * node, besides what the expander creates.
+ * <p>
+ * Relationship costs are evaluated as by {@link Dijkstra}, i.e. with
+ * {@link Direction#OUTGOING}, and must not be negative. Only one path is
+ * returned, also from {@link #findAllPaths(Node, Node)}.
+ */
+public class BidirectionalDijkstra implements PathFinder<WeightedPath>
+{
+    private final RelationshipExpander expander;
+    private final CostEvaluator<Double> costEvaluator;
+
+    public BidirectionalDijkstra( RelationshipExpander expander,
+            CostEvaluator<Double> costEvaluator )
+    {
+        this.expander = expander;
+        this.costEvaluator = costEvaluator;
+    }
+
+    public Iterable<WeightedPath> findAllPaths( Node start, Node end )
+    {
+        WeightedPath path = findSinglePath( start, end );
+        return path != null ? Arrays.asList( path ) : Collections.<WeightedPath>emptyList();
+    }
+
+    public WeightedPath findSinglePath( Node start, Node end )
+    {
+        if ( start.equals( end ) )
+        {
+            return new WeightedPathImpl( 0, PathImpl.singular( start ) );
+        }
+        Side forward = new Side( expander, start, end, true );
+        Side backward = new Side( expander.reversed(), start, end, false );
+        double cheapest = Double.POSITIVE_INFINITY;
+        Node meetingNode = null;
+        while ( !forward.queue.isEmpty() && !backward.queue.isEmpty() )
+        {
+            double forwardNext = forward.queue.peekPriority();
+            double backwardNext = backward.queue.peekPriority();
+            if ( forwardNext + backwardNext >= cheapest )
+            {
+                break;
+            }
+            Side side = forwardNext <= backwardNext ? forward : backward;
+            Side otherSide = side == forward ? backward : forward;
+            int index = side.queue.pop();
+            side.settled[index] = true;
+            Node node = side.nodes[index];
+            double cost = side.costs[index];
+            for ( Relationship relationship : side.expander.expand( node ) )
+            {
+                Node otherNode = relationship.getOtherNode( node );
+                double otherCost = cost + costEvaluator.getCost( relationship,
+                        Direction.OUTGOING );
+                if ( side.reach( otherNode, relationship, otherCost ) )
+                {
+                    int otherIndex = otherSide.indexes.get( otherNode.getId() );
+                    if ( otherIndex != -1
+                         && otherCost + otherSide.costs[otherIndex] < cheapest )
+                    {
+                        cheapest = otherCost + otherSide.costs[otherIndex];
+                        meetingNode = otherNode;
+                    }
+                }
+            }
+        }
+        if ( meetingNode == null )
+        {
+            return null;
+        }
+        LinkedList<Relationship> relationships = new LinkedList<Relationship>();
+        Node node = meetingNode;
+        for ( Relationship relationship; ( relationship = forward.relationshipTo( node ) ) != null; )
+        {
+            relationships.addFirst( relationship );
+            node = relationship.getOtherNode( node );
+        }
+        node = meetingNode;
+        for ( Relationship relationship; ( relationship = backward.relationshipTo( node ) ) != null; )
+        {
+            relationships.addLast( relationship );
+            node = relationship.getOtherNode( node );
+        }
+        PathImpl.Builder builder = new PathImpl.Builder( start );
+        for ( Relationship relationship : relationships )
+        {
+            builder = builder.push( relationship );
+        }
+        return new WeightedPathImpl( cheapest, builder.build() );
+    }
+
+    /**
+     * A lower bound of the cost from the start node to a node, minus a lower
+     * bound of the cost from that node to the end node, divided by two. The
+     * forward side adds this to its costs when choosing the next node and the
+     * backward side subtracts it, which keeps the stop condition valid as long
+     * as the bounds are consistent (see {@link BidirectionalAStar}). Without
+     * bounds it is 0, and the search is plain bidirectional Dijkstra.
+     */
+    protected double potential( Node node, Node start, Node end )
+    {
+        return 0;
+    }
+
+    /**
+     * What one of the sides of the search knows.
+     */
+    private class Side
+    {
+        private final RelationshipExpander expander;
+        private final Node start;
+        private final Node end;
+        private final boolean forward;
+        private final PrimitiveLongIntMap indexes = new PrimitiveLongIntMap();
+        private final IntMinHeap queue = new IntMinHeap( 16 );
+        private Node[] nodes = new Node[16];
+        private Relationship[] cameFrom = new Relationship[16];
+        private double[] costs = new double[16];
+        private double[] potentials = new double[16];
+        private boolean[] settled = new boolean[16];
+        private int count;
+
+        Side( RelationshipExpander expander, Node start, Node end, boolean forward )
+        {
+            this.expander = expander;
+            this.start = start;
+            this.end = end;
+            this.forward = forward;
+            reach( forward ? start : end, null, 0 );
+        }
+
+        /**
+         * Records that a node can be reached at a cost through a
+         * relationship, unless it is already known to be at least as cheap
+         * to reach.
+         * @return whether or not this was the cheapest way to the node yet.
+         */
+        boolean reach( Node node, Relationship relationship, double cost )
+        {
+            int index = indexes.get( node.getId() );
+            if ( index == -1 )
+            {
+                index = count++;
+                if ( index == nodes.length )
+                {
+                    grow();
+                }
+                indexes.put( node.getId(), index );
+                nodes[index] = node;
+                double potential = potential( node, start, end );
+                potentials[index] = forward ? potential : -potential;
+            }
+            else if ( settled[index] || cost >= costs[index] )
+            {
+                return false;
+            }
+            cameFrom[index] = relationship;
+            costs[index] = cost;
+            queue.addOrDecrease( index, cost + potentials[index] );
+            return true;
+        }
+
+        private void grow()
+        {
+            int length = nodes.length * 2;
+            nodes = Arrays.copyOf( nodes, length );
+            cameFrom = Arrays.copyOf( cameFrom, length );
+            costs = Arrays.copyOf( costs, length );
+            potentials = Arrays.copyOf( potentials, length );
+            settled = Arrays.copyOf( settled, length );
+            queue.ensureCapacity( length );
+        }
+
+        /**
+         * @return the relationship a node was reached through, or null if
+         *         it is where this side started.
+         */
+        Relationship relationshipTo( Node node )
+        {
+            return cameFrom[indexes.get( node.getId() )];
+        }
+    }
+}
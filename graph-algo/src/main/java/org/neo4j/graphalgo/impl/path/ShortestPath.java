@@ -27,7 +27,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.neo4j.graphalgo.PathFinder;
 import org.neo4j.graphalgo.impl.util.PathImpl;
@@ -41,6 +45,8 @@ import org.neo4j.graphdb.RelationshipExpander;
 import org.neo4j.helpers.collection.IterableWrapper;
 import org.neo4j.helpers.collection.NestingIterator;
 import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.impl.util.PrimitiveLongObjectMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 
 /**
  * Find (all or one) simple shortest path(s) between two nodes. It starts
@@ -52,12 +58,24 @@ import org.neo4j.helpers.collection.PrefetchingIterator;
  * Relationships are traversed in the specified directions from the start node,
  * but in the reverse direction ( {@link Direction#reverse()} ) from the
  * end node. This doesn't affect {@link Direction#BOTH}.
+ * 
+ * Given an {@link ExecutorService} the relationships of the nodes of each
+ * level are expanded by several threads, a batch of nodes at a time, and then
+ * visited in the same order as they would have been on a single thread. The
+ * returned paths are the same either way. The expanding threads only see
+ * committed data, and the {@link RelationshipExpander} must be safe to call
+ * from several threads at once.
  */
 public class ShortestPath implements PathFinder<Path>
 {
     private final int maxDepth;
     private final RelationshipExpander relExpander;
     private final HitDecider hitDecider;
+    private final ExecutorService executor;
+    private final int parallelism;
+    
+    private static final int NODES_PER_TASK = 64;
+    private static final Relationship[] NO_RELATIONSHIPS = new Relationship[0];
     
     /**
      * Constructs a new stortest path algorithm.
@@ -82,9 +100,35 @@ public class ShortestPath implements PathFinder<Path>
      */
     public ShortestPath( int maxDepth, RelationshipExpander relExpander, boolean findPathsOnMaxDepthOnly )
     {
+        this( maxDepth, relExpander, findPathsOnMaxDepthOnly, null, 1 );
+    }
+    
+    /**
+     * Constructs a new stortest path algorithm which expands the nodes of
+     * each level on several threads.
+     * @param maxDepth the maximum depth for the traversal. Returned paths
+     * will never have a greater {@link Path#length()} than {@code maxDepth}.
+     * @param relExpander the {@link RelationshipExpander} to use for deciding
+     * which relationships to expand for each {@link Node}.
+     * @param findPathsOnMaxDepthOnly if {@code true} then it will only try to
+     * find paths on that particular depth ({@code maxDepth}).
+     * @param executor the {@link ExecutorService} to expand nodes on, or
+     * {@code null} to expand them on the calling thread.
+     * @param parallelism the number of tasks each batch of nodes is split into.
+     */
+    public ShortestPath( int maxDepth, RelationshipExpander relExpander, boolean findPathsOnMaxDepthOnly,
+            ExecutorService executor, int parallelism )
+    {
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "Parallelism must be at least 1, not "
+                    + parallelism );
+        }
         this.maxDepth = maxDepth;
         this.relExpander = relExpander;
         this.hitDecider = findPathsOnMaxDepthOnly ? new DepthHitDecider( maxDepth ) : YES_HIT_DECIDER;
+        this.executor = executor;
+        this.parallelism = parallelism;
     }
     
     public Iterable<Path> findAllPaths( Node start, Node end )
@@ -106,7 +150,7 @@ public class ShortestPath implements PathFinder<Path>
         }
 
         Hits hits = new Hits();
-        Collection<Long> sharedVisitedRels = new HashSet<Long>();
+        PrimitiveLongSet sharedVisitedRels = new PrimitiveLongSet();
         MutableInteger sharedFrozenDepth = new MutableInteger( MutableInteger.NULL );
         MutableBoolean sharedStop = new MutableBoolean();
         MutableInteger sharedCurrentDepth = new MutableInteger( 0 );
@@ -164,7 +208,7 @@ public class ShortestPath implements PathFinder<Path>
         }
         
         Node nextNode = directionData.next();
-        LevelData otherSideHit = otherSide.visitedNodes.get( nextNode );
+        LevelData otherSideHit = otherSide.visitedNodes.get( nextNode.getId() );
         if ( otherSideHit != null )
         {
             // This is a hit
@@ -215,8 +259,9 @@ public class ShortestPath implements PathFinder<Path>
         private int currentDepth;
         private Iterator<Relationship> nextRelationships;
         private final Collection<Node> nextNodes = new ArrayList<Node>();
-        private Map<Node, LevelData> visitedNodes = new HashMap<Node, LevelData>();
-        private final Collection<Long> sharedVisitedRels;
+        private final PrimitiveLongObjectMap<LevelData> visitedNodes =
+                new PrimitiveLongObjectMap<LevelData>();
+        private final PrimitiveLongSet sharedVisitedRels;
         private Node lastParentTraverserNode;
         private final MutableInteger sharedFrozenDepth;
         private final MutableBoolean sharedStop;
@@ -226,14 +271,14 @@ public class ShortestPath implements PathFinder<Path>
         private final boolean stopAsap;
         private final RelationshipExpander expander;
         
-        DirectionData( Direction direction, Node startNode, Collection<Long> sharedVisitedRels,
+        DirectionData( Direction direction, Node startNode, PrimitiveLongSet sharedVisitedRels,
                 MutableInteger sharedFrozenDepth, MutableBoolean sharedStop,
                 MutableInteger sharedCurrentDepth, boolean stopAsap,
                 RelationshipExpander expander )
         {
             this.direction = direction;
             this.startNode = startNode;
-            this.visitedNodes.put( startNode, new LevelData( null, 0 ) );
+            this.visitedNodes.put( startNode.getId(), new LevelData( null, 0 ) );
             this.nextNodes.add( startNode );
             this.sharedFrozenDepth = sharedFrozenDepth;
             this.sharedStop = sharedStop;
@@ -257,16 +302,23 @@ public class ShortestPath implements PathFinder<Path>
             Collection<Node> nodesToIterate = new ArrayList<Node>(
                     filterNextLevelNodes( this.nextNodes ) );
             this.nextNodes.clear();
-            this.nextRelationships = new NestingIterator<Relationship, Node>(
-                    nodesToIterate.iterator() )
+            if ( executor != null )
+            {
+                this.nextRelationships = new ParallelLevelIterator( nodesToIterate );
+            }
+            else
             {
-                @Override
-                protected Iterator<Relationship> createNestedIterator( Node node )
+                this.nextRelationships = new NestingIterator<Relationship, Node>(
+                        nodesToIterate.iterator() )
                 {
-                    lastParentTraverserNode = node;
-                    return expander.expand( node ).iterator();
-                }
-            };
+                    @Override
+                    protected Iterator<Relationship> createNestedIterator( Node node )
+                    {
+                        lastParentTraverserNode = node;
+                        return expander.expand( node ).iterator();
+                    }
+                };
+            }
             this.currentDepth++;
             this.sharedCurrentDepth.value = this.sharedCurrentDepth.value + 1;
         }
@@ -287,12 +339,12 @@ public class ShortestPath implements PathFinder<Path>
                 }
                 
                 Node result = nextRel.getOtherNode( this.lastParentTraverserNode );
-                LevelData levelData = this.visitedNodes.get( result );
+                LevelData levelData = this.visitedNodes.get( result.getId() );
                 boolean createdLevelData = false;
                 if ( levelData == null )
                 {
                     levelData = new LevelData( nextRel, this.currentDepth );
-                    this.visitedNodes.put( result, levelData );
+                    this.visitedNodes.put( result.getId(), levelData );
                     createdLevelData = true;
                 }
                 
@@ -344,6 +396,117 @@ public class ShortestPath implements PathFinder<Path>
             }
             return this.nextRelationships.hasNext() ? this.nextRelationships.next() : null;
         }
+        
+        // Hands out the relationships of a level in the same order as the
+        // NestingIterator would, but expands the nodes a batch at a time
+        // on the executor. The batches start small and double in size so
+        // that a search which stops early in a level doesn't expand much
+        // more than it would have on a single thread.
+        private class ParallelLevelIterator extends PrefetchingIterator<Relationship>
+        {
+            private final Node[] nodes;
+            private Relationship[][] batch;
+            private int batchStart;
+            private int batchEnd;
+            private int batchSize = parallelism;
+            private int nodeIndex;
+            private int relIndex;
+            
+            ParallelLevelIterator( Collection<Node> nodesToIterate )
+            {
+                this.nodes = nodesToIterate.toArray( new Node[nodesToIterate.size()] );
+            }
+            
+            @Override
+            protected Relationship fetchNextOrNull()
+            {
+                while ( true )
+                {
+                    if ( nodeIndex < batchEnd )
+                    {
+                        Relationship[] rels = batch[nodeIndex - batchStart];
+                        if ( relIndex < rels.length )
+                        {
+                            lastParentTraverserNode = nodes[nodeIndex];
+                            return rels[relIndex++];
+                        }
+                        nodeIndex++;
+                        relIndex = 0;
+                    }
+                    else if ( nodeIndex < nodes.length )
+                    {
+                        batchStart = nodeIndex;
+                        batchEnd = Math.min( nodes.length, batchStart + batchSize );
+                        batch = expandInParallel( expander, nodes, batchStart, batchEnd );
+                        batchSize = Math.min( batchSize * 2, parallelism * NODES_PER_TASK );
+                    }
+                    else
+                    {
+                        return null;
+                    }
+                }
+            }
+        }
+    }
+    
+    private Relationship[][] expandInParallel( final RelationshipExpander expander,
+            final Node[] nodes, final int from, int to )
+    {
+        final Relationship[][] result = new Relationship[to - from][];
+        int count = to - from;
+        int tasks = Math.min( parallelism, count );
+        List<Future<?>> futures = new ArrayList<Future<?>>( tasks );
+        for ( int task = 0; task < tasks; task++ )
+        {
+            final int taskFrom = from + (int) ( (long) count * task / tasks );
+            final int taskTo = from + (int) ( (long) count * ( task + 1 ) / tasks );
+            futures.add( executor.submit( new Runnable()
+            {
+                public void run()
+                {
+                    for ( int i = taskFrom; i < taskTo; i++ )
+                    {
+                        result[i - from] = expand( expander, nodes[i] );
+                    }
+                }
+            } ) );
+        }
+        try
+        {
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException( e.getCause() );
+        }
+        return result;
+    }
+    
+    private static Relationship[] expand( RelationshipExpander expander, Node node )
+    {
+        Iterator<Relationship> rels = expander.expand( node ).iterator();
+        if ( !rels.hasNext() )
+        {
+            return NO_RELATIONSHIPS;
+        }
+        List<Relationship> list = new ArrayList<Relationship>();
+        while ( rels.hasNext() )
+        {
+            list.add( rels.next() );
+        }
+        return list.toArray( NO_RELATIONSHIPS );
     }
     
     protected Collection<Node> filterNextLevelNodes( Collection<Node> nextNodes )
@@ -469,7 +632,7 @@ public class ShortestPath implements PathFinder<Path>
     
     private static Iterable<LinkedList<Relationship>> getPaths( Hit hit, DirectionData data )
     {
-        LevelData levelData = data.visitedNodes.get( hit.connectingNode );
+        LevelData levelData = data.visitedNodes.get( hit.connectingNode.getId() );
         if ( levelData.depth == 0 )
         {
             Collection<LinkedList<Relationship>> result = new ArrayList<LinkedList<Relationship>>();
@@ -492,7 +655,7 @@ public class ShortestPath implements PathFinder<Path>
             {
                 // One path...
                 Node otherNode = entry.rels.getFirst().getOtherNode( entry.node );
-                LevelData otherLevelData = data.visitedNodes.get( otherNode );
+                LevelData otherLevelData = data.visitedNodes.get( otherNode.getId() );
                 int counter = 0;
                 for ( long rel : otherLevelData.relsToHere )
                 {
@@ -532,7 +695,7 @@ public class ShortestPath implements PathFinder<Path>
     {
         boolean isHit( int depth );
         
-        boolean canVisitRelationship( Collection<Long> rels, Relationship rel );
+        boolean canVisitRelationship( PrimitiveLongSet rels, Relationship rel );
     }
     
     private static final HitDecider YES_HIT_DECIDER = new HitDecider()
@@ -542,7 +705,7 @@ public class ShortestPath implements PathFinder<Path>
             return true;
         }
         
-        public boolean canVisitRelationship( Collection<Long> rels, Relationship rel )
+        public boolean canVisitRelationship( PrimitiveLongSet rels, Relationship rel )
         {
             return true;
         }
@@ -562,7 +725,7 @@ public class ShortestPath implements PathFinder<Path>
             return this.depth == depth;
         }
         
-        public boolean canVisitRelationship( Collection<Long> rels, Relationship rel )
+        public boolean canVisitRelationship( PrimitiveLongSet rels, Relationship rel )
         {
             return rels.add( rel.getId() );
         }
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.shortestpath;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphdb.Node;
+
+/**
+ * The Floyd Warshall all pair shortest path algorithm, as in
+ * {@link FloydWarshall}, computed over a {@link GraphProjection}. Costs and
+ * predecessors are kept in primitive matrices, so there is no boxing or
+ * {@link java.util.Comparator} call in the inner loop.
+ * @complexity O(n^3) time and O(n^2) memory.
+ */
+public class ProjectedFloydWarshall
+{
+    protected final GraphProjection graph;
+    protected double[][] costMatrix;
+    protected int[][] predecessors;
+    protected boolean doneCalculation = false;
+
+    public ProjectedFloydWarshall( GraphProjection graph )
+    {
+        this.graph = graph;
+    }
+
+    /**
+     * This resets the calculation if we for some reason would like to redo it.
+     */
+    public void reset()
+    {
+        doneCalculation = false;
+    }
+
+    /**
+     * Internal calculate method that will do the calculation. This can however
+     * be called externally to manually trigger the calculation.
+     */
+    public void calculate()
+    {
+        if ( doneCalculation )
+        {
+            return;
+        }
+        doneCalculation = true;
+        int n = graph.nodeCount();
+        costMatrix = new double[n][n];
+        predecessors = new int[n][n];
+        for ( int i = 0; i < n; i++ )
+        {
+            Arrays.fill( costMatrix[i], Double.POSITIVE_INFINITY );
+            Arrays.fill( predecessors[i], -1 );
+            costMatrix[i][i] = 0;
+            for ( int edge = graph.firstEdge( i ), end = graph.firstEdge( i + 1 ); edge < end; edge++ )
+            {
+                int j = graph.target( edge );
+                if ( i != j && graph.weight( edge ) < costMatrix[i][j] )
+                {
+                    costMatrix[i][j] = graph.weight( edge );
+                    predecessors[i][j] = i;
+                }
+            }
+        }
+        for ( int v = 0; v < n; v++ )
+        {
+            double[] costsFromV = costMatrix[v];
+            int[] predecessorsFromV = predecessors[v];
+            for ( int i = 0; i < n; i++ )
+            {
+                double costToV = costMatrix[i][v];
+                if ( costToV == Double.POSITIVE_INFINITY )
+                {
+                    continue;
+                }
+                double[] costsFromI = costMatrix[i];
+                int[] predecessorsFromI = predecessors[i];
+                for ( int j = 0; j < n; j++ )
+                {
+                    double alternative = costToV + costsFromV[j];
+                    if ( alternative < costsFromI[j] )
+                    {
+                        costsFromI[j] = alternative;
+                        predecessorsFromI[j] = predecessorsFromV[j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the cost of the shortest path between two nodes,
+     *         {@link Double#POSITIVE_INFINITY} if there is none, or null if
+     *         either node isn't in the projection.
+     */
+    public Double getCost( Node node1, Node node2 )
+    {
+        calculate();
+        int index1 = graph.indexOf( node1 );
+        int index2 = graph.indexOf( node2 );
+        if ( index1 == -1 || index2 == -1 )
+        {
+            return null;
+        }
+        return costMatrix[index1][index2];
+    }
+
+    /**
+     * @return the shortest path between two nodes as list of nodes, or null
+     *         if there is none.
+     */
+    public List<Node> getPath( Node startNode, Node targetNode )
+    {
+        calculate();
+        int startIndex = graph.indexOf( startNode );
+        int index = graph.indexOf( targetNode );
+        if ( startIndex == -1 || index == -1
+            || costMatrix[startIndex][index] == Double.POSITIVE_INFINITY )
+        {
+            return null;
+        }
+        LinkedList<Node> path = new LinkedList<Node>();
+        while ( index != startIndex )
+        {
+            path.addFirst( graph.node( index ) );
+            index = predecessors[startIndex][index];
+        }
+        path.addFirst( startNode );
+        return path;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.shortestpath;
+
+import java.util.Arrays;
+
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphalgo.impl.util.IntMinHeap;
+
+/**
+ * Single source shortest paths over a {@link GraphProjection}: breadth first
+ * for unweighted projections and Dijkstra for weighted ones. Besides the
+ * distances it counts the number of shortest paths to every node, and
+ * remembers the order in which nodes were reached, which is what the shortest
+ * path based centralities need. An instance holds arrays sized after the
+ * projection and is meant to be reused for one source after another, every
+ * run only clearing what the previous one touched. It is not thread safe;
+ * use one instance per thread.
+ * @complexity O(n + m) for unweighted projections and O((n + m) log(n)) for
+ *             weighted ones, where n and m are the number of nodes and edges
+ *             reached from the source.
+ */
+public class ProjectedShortestPaths
+{
+    private final GraphProjection graph;
+    private final double[] distances;
+    private final double[] pathCounts;
+    private final int[] reached;
+    private final IntMinHeap queue;
+    private int reachedCount;
+    private int source = -1;
+
+    public ProjectedShortestPaths( GraphProjection graph )
+    {
+        this.graph = graph;
+        int nodeCount = graph.nodeCount();
+        distances = new double[nodeCount];
+        Arrays.fill( distances, Double.POSITIVE_INFINITY );
+        pathCounts = new double[nodeCount];
+        reached = new int[nodeCount];
+        queue = graph.isWeighted() ? new IntMinHeap( nodeCount ) : null;
+    }
+
+    /**
+     * Calculates the shortest paths from a node, forgetting about the paths
+     * from any previous source.
+     * @param source
+     *            The number of the start node in the projection.
+     */
+    public void calculate( int source )
+    {
+        for ( int i = 0; i < reachedCount; i++ )
+        {
+            distances[reached[i]] = Double.POSITIVE_INFINITY;
+            pathCounts[reached[i]] = 0;
+        }
+        reachedCount = 0;
+        this.source = source;
+        distances[source] = 0;
+        pathCounts[source] = 1;
+        if ( queue == null )
+        {
+            breadthFirst( source );
+        }
+        else
+        {
+            dijkstra( source );
+        }
+    }
+
+    private void breadthFirst( int source )
+    {
+        reached[reachedCount++] = source;
+        for ( int head = 0; head < reachedCount; head++ )
+        {
+            int node = reached[head];
+            double distance = distances[node] + 1;
+            for ( int edge = graph.firstEdge( node ), end = graph.firstEdge( node + 1 ); edge < end; edge++ )
+            {
+                int target = graph.target( edge );
+                if ( distances[target] == Double.POSITIVE_INFINITY )
+                {
+                    distances[target] = distance;
+                    reached[reachedCount++] = target;
+                }
+                if ( distances[target] == distance )
+                {
+                    pathCounts[target] += pathCounts[node];
+                }
+            }
+        }
+    }
+
+    private void dijkstra( int source )
+    {
+        queue.addOrDecrease( source, 0 );
+        while ( !queue.isEmpty() )
+        {
+            int node = queue.pop();
+            reached[reachedCount++] = node;
+            double distance = distances[node];
+            for ( int edge = graph.firstEdge( node ), end = graph.firstEdge( node + 1 ); edge < end; edge++ )
+            {
+                int target = graph.target( edge );
+                double alternative = distance + graph.weight( edge );
+                if ( alternative < distances[target] )
+                {
+                    distances[target] = alternative;
+                    pathCounts[target] = pathCounts[node];
+                    queue.addOrDecrease( target, alternative );
+                }
+                else if ( alternative == distances[target] )
+                {
+                    pathCounts[target] += pathCounts[node];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the projection the paths are calculated over.
+     */
+    public GraphProjection getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return the source of the last calculation, or -1 if there has been
+     *         none.
+     */
+    public int getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @return the length of the shortest path from the source to a node, or
+     *         {@link Double#POSITIVE_INFINITY} if it can't be reached.
+     */
+    public double getDistance( int node )
+    {
+        return distances[node];
+    }
+
+    /**
+     * @return the number of shortest paths from the source to a node. This is
+     *         a double since it grows exponentially with the path length in
+     *         some graphs.
+     */
+    public double getPathCount( int node )
+    {
+        return pathCounts[node];
+    }
+
+    /**
+     * @return the number of nodes reachable from the source, including the
+     *         source itself.
+     */
+    public int getReachedCount()
+    {
+        return reachedCount;
+    }
+
+    /**
+     * @return the i:th node reached from the source. Nodes are reached in
+     *         the order of their distance from the source, the source first.
+     */
+    public int getReached( int i )
+    {
+        return reached[i];
+    }
+
+    /**
+     * @return whether an edge from a reached node is the last step of a
+     *         shortest path to its target.
+     */
+    public boolean isShortestPathEdge( int node, int edge )
+    {
+        return distances[node] + graph.weight( edge ) == distances[graph.target( edge )];
+    }
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.CostEvaluator;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+
+/**
+ * An immutable copy of a subgraph in compressed sparse row (CSR) form, for
+ * algorithms which visit every relationship many times and would otherwise
+ * spend their time hashing {@link Node} and {@link Relationship} proxies.
+ * <p>
+ * The nodes of the projection are numbered from 0 to {@link #nodeCount()}-1
+ * in the order of their ids. The relationships which can be followed from
+ * node <CODE>i</CODE> are the edges from {@link #firstEdge(int) firstEdge(i)}
+ * up to, but not including, {@link #firstEdge(int) firstEdge(i+1)}, each with
+ * a {@link #target(int) target} node and a {@link #weight(int) weight}. Only
+ * relationships between two nodes of the projection are loaded. A
+ * relationship is loaded once for {@link Direction#OUTGOING} and
+ * {@link Direction#INCOMING}, and as one edge in each direction for
+ * {@link Direction#BOTH}.
+ */
+public final class GraphProjection
+{
+    private final GraphDatabaseService graphDb;
+    private final Direction direction;
+    private final boolean weighted;
+    private final long[] nodeIds;
+    private final int[] offsets;
+    private final int[] targets;
+    private final long[] relationshipIds;
+    private final double[] weights;
+
+    private GraphProjection( GraphDatabaseService graphDb, Direction direction,
+        boolean weighted, long[] nodeIds, int[] offsets, int[] targets,
+        long[] relationshipIds, double[] weights )
+    {
+        this.graphDb = graphDb;
+        this.direction = direction;
+        this.weighted = weighted;
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.relationshipIds = relationshipIds;
+        this.weights = weights;
+    }
+
+    /**
+     * Loads an unweighted projection, where every relationship has the weight
+     * 1.
+     * @param nodes
+     *            The nodes of the projection.
+     * @param direction
+     *            The direction in which relationships are followed.
+     * @param types
+     *            The relationship types to load, all types if none are given.
+     * @return the projection.
+     */
+    public static GraphProjection load( Iterable<Node> nodes,
+        Direction direction, RelationshipType... types )
+    {
+        return load( nodes, direction, null, false, types );
+    }
+
+    /**
+     * Loads a projection where the weight of a relationship is the value of
+     * one of its properties.
+     * @param nodes
+     *            The nodes of the projection.
+     * @param direction
+     *            The direction in which relationships are followed.
+     * @param weightProperty
+     *            The property holding the weight of a relationship.
+     * @param types
+     *            The relationship types to load, all types if none are given.
+     * @return the projection.
+     */
+    public static GraphProjection load( Iterable<Node> nodes,
+        Direction direction, String weightProperty, RelationshipType... types )
+    {
+        return load( nodes, direction,
+            CommonEvaluators.doubleCostEvaluator( weightProperty ), types );
+    }
+
+    /**
+     * Loads a projection where the weight of a relationship is given by a
+     * {@link CostEvaluator}, which is called once for every loaded edge.
+     * @param nodes
+     *            The nodes of the projection.
+     * @param direction
+     *            The direction in which relationships are followed.
+     * @param costEvaluator
+     *            Gives the weight of following a relationship in a direction.
+     * @param types
+     *            The relationship types to load, all types if none are given.
+     * @return the projection.
+     */
+    public static GraphProjection load( Iterable<Node> nodes,
+        Direction direction, CostEvaluator<Double> costEvaluator,
+        RelationshipType... types )
+    {
+        return load( nodes, direction, costEvaluator, true, types );
+    }
+
+    private static GraphProjection load( Iterable<Node> nodes,
+        Direction direction, CostEvaluator<Double> costEvaluator,
+        boolean weighted, RelationshipType... types )
+    {
+        List<Node> nodeList = new ArrayList<Node>();
+        for ( Node node : nodes )
+        {
+            nodeList.add( node );
+        }
+        Collections.sort( nodeList, new Comparator<Node>()
+        {
+            public int compare( Node o1, Node o2 )
+            {
+                long id1 = o1.getId();
+                long id2 = o2.getId();
+                return id1 < id2 ? -1 : ( id1 == id2 ? 0 : 1 );
+            }
+        } );
+        long[] nodeIds = new long[nodeList.size()];
+        int nodeCount = 0;
+        for ( Node node : nodeList )
+        {
+            if ( nodeCount == 0 || nodeIds[nodeCount - 1] != node.getId() )
+            {
+                nodeList.set( nodeCount, node );
+                nodeIds[nodeCount++] = node.getId();
+            }
+        }
+        nodeIds = Arrays.copyOf( nodeIds, nodeCount );
+
+        int[] offsets = new int[nodeCount + 1];
+        int edgeCount = 0;
+        int[] targets = new int[Math.max( 16, nodeCount * 2 )];
+        long[] relationshipIds = new long[targets.length];
+        double[] weights = new double[targets.length];
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            offsets[i] = edgeCount;
+            Node node = nodeList.get( i );
+            for ( Relationship relationship : relationships( node, direction,
+                types ) )
+            {
+                int target = Arrays.binarySearch( nodeIds,
+                    relationship.getOtherNode( node ).getId() );
+                if ( target < 0 )
+                {
+                    continue;
+                }
+                if ( edgeCount == targets.length )
+                {
+                    int newLength = targets.length * 2;
+                    targets = Arrays.copyOf( targets, newLength );
+                    relationshipIds = Arrays.copyOf( relationshipIds, newLength );
+                    weights = Arrays.copyOf( weights, newLength );
+                }
+                targets[edgeCount] = target;
+                relationshipIds[edgeCount] = relationship.getId();
+                weights[edgeCount] = weighted ? costEvaluator.getCost(
+                    relationship, relationship.getStartNode().getId() == node.getId()
+                        ? Direction.OUTGOING : Direction.INCOMING ) : 1.0;
+                edgeCount++;
+            }
+        }
+        offsets[nodeCount] = edgeCount;
+        GraphDatabaseService graphDb = nodeCount > 0
+            ? nodeList.get( 0 ).getGraphDatabase() : null;
+        return new GraphProjection( graphDb, direction, weighted, nodeIds,
+            offsets, Arrays.copyOf( targets, edgeCount ), Arrays.copyOf(
+                relationshipIds, edgeCount ), Arrays.copyOf( weights,
+                edgeCount ) );
+    }
+
+    private static Iterable<Relationship> relationships( Node node,
+        Direction direction, RelationshipType... types )
+    {
+        if ( types.length == 0 )
+        {
+            return node.getRelationships( direction );
+        }
+        if ( types.length == 1 )
+        {
+            return node.getRelationships( types[0], direction );
+        }
+        List<Relationship> relationships = new ArrayList<Relationship>();
+        for ( RelationshipType type : types )
+        {
+            for ( Relationship relationship : node.getRelationships( type,
+                direction ) )
+            {
+                relationships.add( relationship );
+            }
+        }
+        return relationships;
+    }
+
+    /**
+     * @return the number of nodes in the projection.
+     */
+    public int nodeCount()
+    {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return the number of edges in the projection, where a relationship
+     *         loaded with {@link Direction#BOTH} counts twice.
+     */
+    public int edgeCount()
+    {
+        return targets.length;
+    }
+
+    /**
+     * @return the direction relationships were loaded in.
+     */
+    public Direction getDirection()
+    {
+        return direction;
+    }
+
+    /**
+     * @return whether the edges have weights, or all have the weight 1.
+     */
+    public boolean isWeighted()
+    {
+        return weighted;
+    }
+
+    /**
+     * @param node
+     *            A node.
+     * @return the number of the node in this projection, or -1 if it isn't
+     *         in it.
+     */
+    public int indexOf( Node node )
+    {
+        return indexOf( node.getId() );
+    }
+
+    /**
+     * @param nodeId
+     *            The id of a node.
+     * @return the number of the node in this projection, or -1 if it isn't
+     *         in it.
+     */
+    public int indexOf( long nodeId )
+    {
+        int index = Arrays.binarySearch( nodeIds, nodeId );
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * @return the id of the node with the given number.
+     */
+    public long nodeId( int node )
+    {
+        return nodeIds[node];
+    }
+
+    /**
+     * @return the node with the given number.
+     */
+    public Node node( int node )
+    {
+        return graphDb.getNodeById( nodeIds[node] );
+    }
+
+    /**
+     * @return the first edge of the given node. The edges of a node end
+     *         where the edges of the next node begin, so this may be called
+     *         with {@link #nodeCount()} as well.
+     */
+    public int firstEdge( int node )
+    {
+        return offsets[node];
+    }
+
+    /**
+     * @return the number of edges from the given node.
+     */
+    public int degree( int node )
+    {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @return the node an edge leads to.
+     */
+    public int target( int edge )
+    {
+        return targets[edge];
+    }
+
+    /**
+     * @return the weight of an edge.
+     */
+    public double weight( int edge )
+    {
+        return weights[edge];
+    }
+
+    /**
+     * @return the id of the relationship an edge was loaded from.
+     */
+    public long relationshipId( int edge )
+    {
+        return relationshipIds[edge];
+    }
+
+    /**
+     * @return the relationship an edge was loaded from.
+     */
+    public Relationship relationship( int edge )
+    {
+        return graphDb.getRelationshipById( relationshipIds[edge] );
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.util;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of ints from 0 up to a capacity, each with a double
+ * priority which can be lowered while it is in the heap. Nothing is allocated
+ * after construction unless the capacity is raised with
+ * {@link #ensureCapacity(int)}, which makes it suitable for running many
+ * searches over the numbered nodes of a {@link GraphProjection}, or over
+ * nodes numbered as they are found.
+ */
+public class IntMinHeap
+{
+    private int[] heap;
+    private double[] priorities;
+    private int[] positions;
+    private int size;
+
+    /**
+     * @param capacity
+     *            The elements of this heap will be from 0 to capacity-1.
+     */
+    public IntMinHeap( int capacity )
+    {
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+        Arrays.fill( positions, -1 );
+    }
+
+    /**
+     * Makes room for elements up to capacity-1, keeping the current ones.
+     * The new capacity is at least doubled so that raising it one element at
+     * a time is cheap.
+     */
+    public void ensureCapacity( int capacity )
+    {
+        if ( capacity <= positions.length )
+        {
+            return;
+        }
+        int oldCapacity = positions.length;
+        int newCapacity = Math.max( capacity, oldCapacity * 2 );
+        heap = Arrays.copyOf( heap, newCapacity );
+        priorities = Arrays.copyOf( priorities, newCapacity );
+        positions = Arrays.copyOf( positions, newCapacity );
+        Arrays.fill( positions, oldCapacity, newCapacity, -1 );
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean contains( int element )
+    {
+        return positions[element] != -1;
+    }
+
+    /**
+     * @return the priority of an element in the heap.
+     */
+    public double getPriority( int element )
+    {
+        return priorities[element];
+    }
+
+    /**
+     * Adds an element, or lowers its priority if it is already in the heap
+     * with a higher priority.
+     * @return true if the element was added or its priority changed.
+     */
+    public boolean addOrDecrease( int element, double priority )
+    {
+        int position = positions[element];
+        if ( position == -1 )
+        {
+            position = size++;
+            heap[position] = element;
+            positions[element] = position;
+        }
+        else if ( priority >= priorities[element] )
+        {
+            return false;
+        }
+        priorities[element] = priority;
+        siftUp( position );
+        return true;
+    }
+
+    /**
+     * @return the element with the lowest priority, without removing it.
+     */
+    public int peek()
+    {
+        return heap[0];
+    }
+
+    /**
+     * @return the lowest priority in the heap.
+     */
+    public double peekPriority()
+    {
+        return priorities[heap[0]];
+    }
+
+    /**
+     * Removes and returns the element with the lowest priority.
+     */
+    public int pop()
+    {
+        int top = heap[0];
+        positions[top] = -1;
+        size--;
+        if ( size > 0 )
+        {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown( 0 );
+        }
+        return top;
+    }
+
+    /**
+     * Removes all elements, in time proportional to the number of elements
+     * in the heap rather than its capacity.
+     */
+    public void clear()
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp( int position )
+    {
+        int element = heap[position];
+        double priority = priorities[element];
+        while ( position > 0 )
+        {
+            int parentPosition = ( position - 1 ) >>> 1;
+            int parent = heap[parentPosition];
+            if ( priorities[parent] <= priority )
+            {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+
+    private void siftDown( int position )
+    {
+        int element = heap[position];
+        double priority = priorities[element];
+        int half = size >>> 1;
+        while ( position < half )
+        {
+            int childPosition = 2 * position + 1;
+            int child = heap[childPosition];
+            int rightPosition = childPosition + 1;
+            if ( rightPosition < size
+                && priorities[heap[rightPosition]] < priorities[child] )
+            {
+                childPosition = rightPosition;
+                child = heap[childPosition];
+            }
+            if ( priority <= priorities[child] )
+            {
+                break;
+            }
+            heap[position] = child;
+            positions[child] = position;
+            position = childPosition;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.neo4j.graphalgo.centrality;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -26,13 +27,18 @@ import org.neo4j.graphalgo.CostEvaluator;
 import org.neo4j.graphalgo.impl.centrality.BetweennessCentrality;
 import org.neo4j.graphalgo.impl.centrality.ClosenessCentrality;
 import org.neo4j.graphalgo.impl.centrality.CostDivider;
+import org.neo4j.graphalgo.impl.centrality.NetworkDiameter;
+import org.neo4j.graphalgo.impl.centrality.NetworkRadius;
 import org.neo4j.graphalgo.impl.centrality.ParallellCentralityCalculation;
 import org.neo4j.graphalgo.impl.centrality.ShortestPathBasedCentrality;
 import org.neo4j.graphalgo.impl.centrality.StressCentrality;
 import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPath;
 import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPathDijkstra;
+import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPathFactory;
 import org.neo4j.graphalgo.impl.util.DoubleAdder;
+import org.neo4j.graphalgo.impl.util.DoubleComparator;
 import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 
 import common.Neo4jAlgoTestCase;
@@ -54,6 +60,36 @@ public class ParallellCentralityCalculationTest extends Neo4jAlgoTestCase
             Direction.BOTH, MyRelTypes.R1 );
     }
 
+    protected SingleSourceShortestPathFactory<Double> getSingleSourceShortestPathFactory()
+    {
+        return new SingleSourceShortestPathFactory<Double>()
+        {
+            public SingleSourceShortestPath<Double> newSingleSourceShortestPath()
+            {
+                return getSingleSourceShortestPath();
+            }
+        };
+    }
+
+    protected ClosenessCentrality<Double> getClosenessCentrality(
+        SingleSourceShortestPath<Double> singleSourceShortestPath )
+    {
+        return new ClosenessCentrality<Double>( singleSourceShortestPath,
+            new DoubleAdder(), 0.0, graph.getAllNodes(),
+            new CostDivider<Double>()
+            {
+                public Double divideByCost( Double d, Double c )
+                {
+                    return d / c;
+                }
+
+                public Double divideCost( Double c, Double d )
+                {
+                    return c / d;
+                }
+            } );
+    }
+
     protected void assertCentrality(
         ShortestPathBasedCentrality<Double,Double> centrality, String nodeId,
         Double value )
@@ -114,4 +150,107 @@ public class ParallellCentralityCalculationTest extends Neo4jAlgoTestCase
         assertCentrality( closenessCentrality, "d", 1.0 / 7 );
         assertCentrality( closenessCentrality, "e", 1.0 / 7 );
     }
+
+    @Test
+    public void testPlusShapeOnSeveralThreads()
+    {
+        graph.makeEdgeChain( "a,b,c" );
+        graph.makeEdgeChain( "d,b,e" );
+        // The other threads only see committed data
+        restartTx();
+        ParallellCentralityCalculation<Double> pcc = new ParallellCentralityCalculation<Double>(
+            getSingleSourceShortestPathFactory(), graph.getAllNodes() );
+        pcc.setParallelism( 3 );
+        BetweennessCentrality<Double> betweennessCentrality = new BetweennessCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        StressCentrality<Double> stressCentrality = new StressCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        ClosenessCentrality<Double> closenessCentrality = getClosenessCentrality( getSingleSourceShortestPath() );
+        pcc.addCalculation( betweennessCentrality );
+        pcc.addCalculation( stressCentrality );
+        pcc.addCalculation( closenessCentrality );
+        pcc.calculate();
+        assertCentrality( betweennessCentrality, "a", 0.0 );
+        assertCentrality( betweennessCentrality, "b", 6.0 );
+        assertCentrality( betweennessCentrality, "e", 0.0 );
+        assertCentrality( stressCentrality, "a", 0.0 );
+        assertCentrality( stressCentrality, "b", 6.0 );
+        assertCentrality( stressCentrality, "e", 0.0 );
+        assertCentrality( closenessCentrality, "a", 1.0 / 7 );
+        assertCentrality( closenessCentrality, "b", 1.0 / 4 );
+        assertCentrality( closenessCentrality, "e", 1.0 / 7 );
+    }
+
+    @Test
+    public void testSameResultsOnOneAndSeveralThreads()
+    {
+        graph.makeEdgeChain( "a,b,c,d,e,f,g,h,i,j" );
+        graph.makeEdgeChain( "a,k,l,m,e,n,j" );
+        graph.makeEdgeChain( "c,o,p,h" );
+        graph.makeEdges( "b,l,d,p,f,n,g,o" );
+        restartTx();
+        BetweennessCentrality<Double> sequential = new BetweennessCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        StressCentrality<Double> sequentialStress = new StressCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        ParallellCentralityCalculation<Double> pcc = new ParallellCentralityCalculation<Double>(
+            getSingleSourceShortestPathFactory(), graph.getAllNodes() );
+        pcc.setParallelism( 4 );
+        BetweennessCentrality<Double> parallel = new BetweennessCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        StressCentrality<Double> parallelStress = new StressCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        pcc.addCalculation( parallel );
+        pcc.addCalculation( parallelStress );
+        pcc.calculate();
+        for ( Node node : graph.getAllNodes() )
+        {
+            assertEquals( sequential.getCentrality( node ),
+                parallel.getCentrality( node ), 0.000001 );
+            assertEquals( sequentialStress.getCentrality( node ),
+                parallelStress.getCentrality( node ), 0.000001 );
+        }
+    }
+
+    @Test
+    public void testNetworkDiameterAtDefaultParallelism()
+    {
+        graph.makeEdgeChain( "a,b,c,d" );
+        restartTx();
+        ParallellCentralityCalculation<Double> pcc = new ParallellCentralityCalculation<Double>(
+            getSingleSourceShortestPathFactory(), graph.getAllNodes() );
+        NetworkDiameter<Double> diameter = new NetworkDiameter<Double>(
+            getSingleSourceShortestPath(), 0.0, graph.getAllNodes(),
+            new DoubleComparator() );
+        pcc.addCalculation( diameter );
+        pcc.calculate();
+        assertEquals( 3.0, diameter.getCentrality( null ), 0.0 );
+    }
+
+    @Test
+    public void testNetworkRadiusIsComputedOnOneThread()
+    {
+        graph.makeEdgeChain( "a,b,c,d" );
+        restartTx();
+        ParallellCentralityCalculation<Double> pcc = new ParallellCentralityCalculation<Double>(
+            getSingleSourceShortestPathFactory(), graph.getAllNodes() );
+        pcc.setParallelism( 2 );
+        NetworkRadius<Double> radius = new NetworkRadius<Double>(
+            getSingleSourceShortestPath(), 0.0, graph.getAllNodes(),
+            new DoubleComparator() );
+        StressCentrality<Double> stressCentrality = new StressCentrality<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() );
+        pcc.addCalculation( radius );
+        pcc.addCalculation( stressCentrality );
+        pcc.calculate();
+        assertEquals( 2.0, radius.getCentrality( null ), 0.0 );
+        assertCentrality( stressCentrality, "b", 2.0 );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testSeveralThreadsRequireAFactory()
+    {
+        new ParallellCentralityCalculation<Double>(
+            getSingleSourceShortestPath(), graph.getAllNodes() ).setParallelism( 2 );
+    }
 }
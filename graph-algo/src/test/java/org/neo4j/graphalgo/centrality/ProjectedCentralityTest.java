@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.centrality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.impl.centrality.BetweennessCentrality;
+import org.neo4j.graphalgo.impl.centrality.EigenvectorCentralityPower;
+import org.neo4j.graphalgo.impl.centrality.ProjectedBetweennessCentrality;
+import org.neo4j.graphalgo.impl.centrality.ProjectedClosenessCentrality;
+import org.neo4j.graphalgo.impl.centrality.ProjectedEigenvectorCentrality;
+import org.neo4j.graphalgo.impl.shortestpath.SingleSourceShortestPathBFS;
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+
+import common.Neo4jAlgoTestCase;
+
+public class ProjectedCentralityTest extends Neo4jAlgoTestCase
+{
+    protected GraphProjection projection()
+    {
+        return GraphProjection.load( graph.getAllNodes(), Direction.BOTH,
+            MyRelTypes.R1 );
+    }
+
+    protected void assertCentrality( Double centrality, double value )
+    {
+        assertEquals( value, centrality, 0.00001 );
+    }
+
+    @Test
+    public void testBetweennessBox()
+    {
+        graph.makeEdgeChain( "a,b,c,d,a" );
+        ProjectedBetweennessCentrality betweenness = new ProjectedBetweennessCentrality(
+            projection() );
+        for ( String node : new String[] { "a", "b", "c", "d" } )
+        {
+            assertCentrality( betweenness.getCentrality( graph.getNode( node ) ), 0.5 );
+        }
+    }
+
+    @Test
+    public void testBetweennessPlusShape()
+    {
+        graph.makeEdgeChain( "a,b,c" );
+        graph.makeEdgeChain( "d,b,e" );
+        ProjectedBetweennessCentrality betweenness = new ProjectedBetweennessCentrality(
+            projection() );
+        assertCentrality( betweenness.getCentrality( graph.getNode( "a" ) ), 0.0 );
+        assertCentrality( betweenness.getCentrality( graph.getNode( "b" ) ), 6.0 );
+        assertCentrality( betweenness.getCentrality( graph.getNode( "c" ) ), 0.0 );
+    }
+
+    @Test
+    public void testBetweennessChainWithWeights()
+    {
+        graph.makeEdge( "a", "b", "cost", 1.0 );
+        graph.makeEdge( "b", "c", "cost", 1.0 );
+        graph.makeEdge( "a", "c", "cost", 3.0 );
+        ProjectedBetweennessCentrality betweenness = new ProjectedBetweennessCentrality(
+            GraphProjection.load( graph.getAllNodes(), Direction.BOTH, "cost",
+                MyRelTypes.R1 ) );
+        assertCentrality( betweenness.getCentrality( graph.getNode( "a" ) ), 0.0 );
+        assertCentrality( betweenness.getCentrality( graph.getNode( "b" ) ), 1.0 );
+    }
+
+    @Test
+    public void testBetweennessOfNodeSubset()
+    {
+        graph.makeEdgeChain( "a,b,c,d,e" );
+        Set<Node> nodeSet = new HashSet<Node>();
+        nodeSet.add( graph.getNode( "a" ) );
+        nodeSet.add( graph.getNode( "e" ) );
+        ProjectedBetweennessCentrality betweenness = new ProjectedBetweennessCentrality(
+            projection(), nodeSet );
+        BetweennessCentrality<Integer> expected = new BetweennessCentrality<Integer>(
+            new SingleSourceShortestPathBFS( null, Direction.BOTH,
+                MyRelTypes.R1 ), nodeSet );
+        for ( String node : new String[] { "a", "b", "c", "d", "e" } )
+        {
+            assertCentrality( betweenness.getCentrality( graph.getNode( node ) ),
+                expected.getCentrality( graph.getNode( node ) ) );
+        }
+    }
+
+    @Test
+    public void testClosenessChain()
+    {
+        graph.makeEdgeChain( "a,b,c,d,e" );
+        ProjectedClosenessCentrality closeness = new ProjectedClosenessCentrality(
+            projection() );
+        assertCentrality( closeness.getCentrality( graph.getNode( "a" ) ), 1.0 / 10 );
+        assertCentrality( closeness.getCentrality( graph.getNode( "b" ) ), 1.0 / 7 );
+        assertCentrality( closeness.getCentrality( graph.getNode( "c" ) ), 1.0 / 6 );
+        assertCentrality( closeness.getCentrality( graph.getNode( "d" ) ), 1.0 / 7 );
+        assertCentrality( closeness.getCentrality( graph.getNode( "e" ) ), 1.0 / 10 );
+    }
+
+    @Test
+    public void testClosenessOfNodeSubset()
+    {
+        graph.makeEdgeChain( "a,b,c" );
+        Set<Node> nodeSet = new HashSet<Node>();
+        nodeSet.add( graph.getNode( "a" ) );
+        nodeSet.add( graph.getNode( "c" ) );
+        ProjectedClosenessCentrality closeness = new ProjectedClosenessCentrality(
+            projection(), nodeSet );
+        assertCentrality( closeness.getCentrality( graph.getNode( "a" ) ), 1.0 / 2 );
+        assertNull( closeness.getCentrality( graph.getNode( "b" ) ) );
+    }
+
+    @Test
+    public void testEigenvectorAgreesWithPowerMethod()
+    {
+        graph.makeEdgeChain( "a,b,c,d" );
+        graph.makeEdges( "b,a,c,a" );
+        EigenvectorCentralityPower power = new EigenvectorCentralityPower(
+            Direction.OUTGOING, CommonEvaluators.doubleCostEvaluator( "cost", 1.0 ),
+            graph.getAllNodes(), graph.getAllEdges(), 0.0001 );
+        ProjectedEigenvectorCentrality projected = new ProjectedEigenvectorCentrality(
+            GraphProjection.load( graph.getAllNodes(), Direction.OUTGOING,
+                MyRelTypes.R1 ), 0.0001 );
+        for ( String node : new String[] { "a", "b", "c", "d" } )
+        {
+            assertEquals( power.getCentrality( graph.getNode( node ) ),
+                projected.getCentrality( graph.getNode( node ) ), 0.01 );
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+
+import common.Neo4jAlgoTestCase;
+
+public class TestGraphProjection extends Neo4jAlgoTestCase
+{
+    @Test
+    public void testOutgoing()
+    {
+        graph.makeEdgeChain( "a,b,c" );
+        graph.makeEdge( "a", "c" );
+        GraphProjection projection = GraphProjection.load(
+            graph.getAllNodes(), Direction.OUTGOING, MyRelTypes.R1 );
+        assertEquals( 3, projection.nodeCount() );
+        assertEquals( 3, projection.edgeCount() );
+        assertFalse( projection.isWeighted() );
+        assertTargets( projection, "a", "b", "c" );
+        assertTargets( projection, "b", "c" );
+        assertTargets( projection, "c" );
+    }
+
+    @Test
+    public void testIncomingAndBoth()
+    {
+        graph.makeEdgeChain( "a,b,c" );
+        GraphProjection incoming = GraphProjection.load(
+            graph.getAllNodes(), Direction.INCOMING, MyRelTypes.R1 );
+        assertTargets( incoming, "a" );
+        assertTargets( incoming, "b", "a" );
+        assertTargets( incoming, "c", "b" );
+        GraphProjection both = GraphProjection.load( graph.getAllNodes(),
+            Direction.BOTH );
+        assertEquals( 4, both.edgeCount() );
+        assertTargets( both, "b", "a", "c" );
+    }
+
+    @Test
+    public void testOnlyNodesInTheProjectionAreIncluded()
+    {
+        graph.makeEdgeChain( "a,b,c" );
+        Set<Node> nodes = new HashSet<Node>();
+        nodes.add( graph.getNode( "a" ) );
+        nodes.add( graph.getNode( "b" ) );
+        GraphProjection projection = GraphProjection.load( nodes,
+            Direction.BOTH, MyRelTypes.R1 );
+        assertEquals( 2, projection.nodeCount() );
+        assertEquals( 2, projection.edgeCount() );
+        assertEquals( -1, projection.indexOf( graph.getNode( "c" ) ) );
+        assertTargets( projection, "b", "a" );
+        int a = projection.indexOf( graph.getNode( "a" ) );
+        assertEquals( graph.getNode( "a" ), projection.node( a ) );
+        assertEquals( a, projection.indexOf( graph.getNode( "a" ).getId() ) );
+    }
+
+    @Test
+    public void testWeights()
+    {
+        graph.makeEdge( "a", "b", "cost", 2.5 );
+        graph.makeEdge( "b", "c", "cost", 1.5 );
+        GraphProjection projection = GraphProjection.load(
+            graph.getAllNodes(), Direction.BOTH, "cost", MyRelTypes.R1 );
+        assertTrue( projection.isWeighted() );
+        int b = projection.indexOf( graph.getNode( "b" ) );
+        assertEquals( 2, projection.degree( b ) );
+        double sum = 0;
+        for ( int edge = projection.firstEdge( b ); edge < projection.firstEdge( b + 1 ); edge++ )
+        {
+            sum += projection.weight( edge );
+            assertEquals( graph.getNode( "b" ), projection.relationship( edge )
+                .getOtherNode( projection.node( projection.target( edge ) ) ) );
+        }
+        assertEquals( 4.0, sum, 0.0 );
+    }
+
+    private void assertTargets( GraphProjection projection, String node,
+        String... targets )
+    {
+        int index = projection.indexOf( graph.getNode( node ) );
+        assertEquals( targets.length, projection.degree( index ) );
+        Set<Node> actual = new HashSet<Node>();
+        for ( int edge = projection.firstEdge( index ); edge < projection.firstEdge( index + 1 ); edge++ )
+        {
+            actual.add( projection.node( projection.target( edge ) ) );
+        }
+        for ( String target : targets )
+        {
+            assertTrue( actual.contains( graph.getNode( target ) ) );
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestIntMinHeap
+{
+    @Test
+    public void testIt()
+    {
+        IntMinHeap heap = new IntMinHeap( 10 );
+        assertTrue( heap.isEmpty() );
+        assertTrue( heap.addOrDecrease( 3, 5d ) );
+        assertTrue( heap.addOrDecrease( 7, 2d ) );
+        assertTrue( heap.addOrDecrease( 1, 4d ) );
+        assertFalse( heap.addOrDecrease( 1, 6d ) );
+        assertTrue( heap.addOrDecrease( 3, 1d ) );
+        assertEquals( 3, heap.size() );
+        assertEquals( 1d, heap.peekPriority(), 0d );
+        assertEquals( 3, heap.pop() );
+        assertFalse( heap.contains( 3 ) );
+        assertEquals( 7, heap.pop() );
+        assertEquals( 1, heap.pop() );
+        assertTrue( heap.isEmpty() );
+
+        heap.addOrDecrease( 9, 1d );
+        heap.addOrDecrease( 0, 2d );
+        heap.clear();
+        assertTrue( heap.isEmpty() );
+        assertFalse( heap.contains( 9 ) );
+        assertTrue( heap.addOrDecrease( 9, 3d ) );
+        assertEquals( 9, heap.pop() );
+    }
+
+    @Test
+    public void testEnsureCapacity()
+    {
+        IntMinHeap heap = new IntMinHeap( 2 );
+        heap.addOrDecrease( 1, 3d );
+        heap.addOrDecrease( 0, 2d );
+        heap.ensureCapacity( 5 );
+        assertFalse( heap.contains( 4 ) );
+        heap.addOrDecrease( 4, 1d );
+        assertTrue( heap.addOrDecrease( 1, 0d ) );
+        assertEquals( 1, heap.pop() );
+        assertEquals( 4, heap.pop() );
+        assertEquals( 0, heap.pop() );
+        assertTrue( heap.isEmpty() );
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.CostEvaluator;
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipExpander;
+import org.neo4j.kernel.Traversal;
+
+import common.Neo4jAlgoTestCase;
+
+public class TestBidirectionalPathFinders extends Neo4jAlgoTestCase
+{
+    private static final CostEvaluator<Double> LENGTH =
+            CommonEvaluators.doubleCostEvaluator( "length" );
+
+    @Test
+    public void testSmallGraph()
+    {
+        graph.makeEdge( "start", "a", "length", 1d );
+        graph.makeEdge( "a", "x", "length", 9d );
+        graph.makeEdge( "a", "b", "length", 1d );
+        graph.makeEdge( "b", "x", "length", 7d );
+        graph.makeEdge( "b", "c", "length", 1d );
+        graph.makeEdge( "c", "x", "length", 4d );
+        graph.makeEdge( "x", "y", "length", 2d );
+        PathFinder<WeightedPath> finder = GraphAlgoFactory.bidirectionalDijkstra(
+                Traversal.expanderForTypes( MyRelTypes.R1, Direction.OUTGOING ), "length" );
+        WeightedPath path = finder.findSinglePath( graph.getNode( "start" ),
+                graph.getNode( "y" ) );
+        assertPathDef( path, "start", "a", "b", "c", "x", "y" );
+        assertEquals( 9d, path.weight(), 0d );
+        assertNull( finder.findSinglePath( graph.getNode( "y" ),
+                graph.getNode( "start" ) ) );
+        assertPathDef( finder.findSinglePath( graph.getNode( "a" ),
+                graph.getNode( "a" ) ), "a" );
+        Iterator<WeightedPath> paths = finder.findAllPaths( graph.getNode( "a" ),
+                graph.getNode( "x" ) ).iterator();
+        assertPathDef( paths.next(), "a", "b", "c", "x" );
+    }
+
+    @Test
+    public void testSameWeightsAsDijkstra()
+    {
+        Node[] nodes = makeRandomPlane( 60, 150, new Random( 1234 ) );
+        RelationshipExpander expander = Traversal.expanderForTypes( MyRelTypes.R1,
+                Direction.OUTGOING );
+        PathFinder<WeightedPath> dijkstra = GraphAlgoFactory.dijkstra( expander, LENGTH );
+        PathFinder<WeightedPath> bidirectional = GraphAlgoFactory.bidirectionalDijkstra(
+                expander, LENGTH );
+        assertSameWeights( nodes, dijkstra, bidirectional );
+    }
+
+    @Test
+    public void testSameWeightsAsAStar()
+    {
+        Node[] nodes = makeRandomPlane( 60, 150, new Random( 4321 ) );
+        RelationshipExpander expander = Traversal.expanderForAllTypes();
+        PathFinder<WeightedPath> dijkstra = GraphAlgoFactory.dijkstra( expander, LENGTH );
+        PathFinder<WeightedPath> bidirectional = GraphAlgoFactory.bidirectionalAStar(
+                expander, LENGTH, TestAStar.ESTIMATE_EVALUATOR );
+        assertSameWeights( nodes, dijkstra, bidirectional );
+    }
+
+    /**
+     * Nodes at random points, with relationships between random pairs of
+     * them which are at least as long as the distance between the points, so
+     * that the distance is a consistent estimate.
+     */
+    private Node[] makeRandomPlane( int nodeCount, int relationshipCount,
+            Random random )
+    {
+        Node[] nodes = new Node[nodeCount];
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            nodes[i] = graph.makeNode( "n" + i, "x", random.nextDouble() * 100,
+                    "y", random.nextDouble() * 100 );
+        }
+        for ( int i = 0; i < relationshipCount; i++ )
+        {
+            int from = random.nextInt( nodeCount );
+            int to = random.nextInt( nodeCount );
+            if ( from == to )
+            {
+                continue;
+            }
+            double distance = TestAStar.ESTIMATE_EVALUATOR.getCost( nodes[from], nodes[to] );
+            graph.makeEdge( "n" + from, "n" + to, "length",
+                    distance * ( 1 + random.nextDouble() ) );
+        }
+        return nodes;
+    }
+
+    private void assertSameWeights( Node[] nodes, PathFinder<WeightedPath> expected,
+            PathFinder<WeightedPath> actual )
+    {
+        for ( Node start : nodes )
+        {
+            for ( int i = 0; i < nodes.length; i += 7 )
+            {
+                Node end = nodes[i];
+                WeightedPath expectedPath = expected.findSinglePath( start, end );
+                WeightedPath actualPath = actual.findSinglePath( start, end );
+                if ( expectedPath == null )
+                {
+                    assertNull( actualPath );
+                    continue;
+                }
+                assertEquals( expectedPath.weight(), actualPath.weight(), 0.000001 );
+                assertEquals( start, actualPath.startNode() );
+                assertEquals( end, actualPath.endNode() );
+                double weight = 0;
+                Node node = start;
+                for ( Relationship relationship : actualPath.relationships() )
+                {
+                    node = relationship.getOtherNode( node );
+                    weight += LENGTH.getCost( relationship, Direction.OUTGOING );
+                }
+                assertEquals( end, node );
+                assertEquals( actualPath.weight(), weight, 0.000001 );
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.path;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.impl.path.ShortestPath;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipExpander;
+import org.neo4j.kernel.Traversal;
+
+import common.Neo4jAlgoTestCase;
+
+public class TestParallelShortestPath extends Neo4jAlgoTestCase
+{
+    private ExecutorService executor;
+
+    @Before
+    public void startExecutor()
+    {
+        executor = Executors.newFixedThreadPool( 3 );
+    }
+
+    @After
+    public void stopExecutor()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSmallGraph()
+    {
+        graph.makeEdgeChain( "s,a,b,t" );
+        graph.makeEdgeChain( "s,c,d,t" );
+        graph.makeEdgeChain( "s,e,t" );
+        restartTx();
+        RelationshipExpander expander = Traversal.expanderForTypes( MyRelTypes.R1,
+                Direction.BOTH );
+        assertPaths( GraphAlgoFactory.shortestPath( expander, 5, executor, 3 ).findAllPaths(
+                graph.getNode( "s" ), graph.getNode( "t" ) ), "s,e,t" );
+        assertPaths( GraphAlgoFactory.pathsWithLength( expander, 3, executor, 3 ).findAllPaths(
+                graph.getNode( "s" ), graph.getNode( "t" ) ), "s,a,b,t", "s,c,d,t" );
+    }
+
+    @Test
+    public void testSamePathsAsSequential()
+    {
+        Node[] nodes = makeHubGraph( 600, 5, 150, 900, new Random( 1234 ) );
+        RelationshipExpander expander = Traversal.expanderForTypes( MyRelTypes.R1,
+                Direction.OUTGOING );
+        Random random = new Random( 4321 );
+        for ( int i = 0; i < 30; i++ )
+        {
+            Node start = nodes[random.nextInt( nodes.length )];
+            Node end = nodes[random.nextInt( nodes.length )];
+            assertSamePaths( GraphAlgoFactory.shortestPath( expander, 10 ),
+                    GraphAlgoFactory.shortestPath( expander, 10, executor, 3 ), start, end );
+            for ( int length = 2; length <= 5; length++ )
+            {
+                assertSamePaths( GraphAlgoFactory.pathsWithLength( expander, length ),
+                        GraphAlgoFactory.pathsWithLength( expander, length, executor, 3 ),
+                        start, end );
+            }
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testParallelismMustBePositive()
+    {
+        new ShortestPath( 5, Traversal.expanderForAllTypes(), false, executor, 0 );
+    }
+
+    private Node[] makeHubGraph( int nodeCount, int hubCount, int hubDegree,
+            int relationshipCount, Random random )
+    {
+        Node[] nodes = new Node[nodeCount];
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            nodes[i] = graph.makeNode( "n" + i );
+        }
+        for ( int hub = 0; hub < hubCount; hub++ )
+        {
+            for ( int i = 0; i < hubDegree; i++ )
+            {
+                Node other = nodes[hubCount + random.nextInt( nodeCount - hubCount )];
+                nodes[hub].createRelationshipTo( other, MyRelTypes.R1 );
+                other.createRelationshipTo( nodes[hub], MyRelTypes.R1 );
+            }
+        }
+        for ( int i = 0; i < relationshipCount; i++ )
+        {
+            Node from = nodes[random.nextInt( nodeCount )];
+            Node to = nodes[random.nextInt( nodeCount )];
+            if ( !from.equals( to ) )
+            {
+                from.createRelationshipTo( to, MyRelTypes.R1 );
+            }
+        }
+        restartTx();
+        return nodes;
+    }
+
+    private void assertSamePaths( PathFinder<Path> sequential, PathFinder<Path> parallel,
+            Node start, Node end )
+    {
+        assertEquals( describe( sequential.findAllPaths( start, end ) ),
+                describe( parallel.findAllPaths( start, end ) ) );
+        assertEquals( describe( sequential.findSinglePath( start, end ) ),
+                describe( parallel.findSinglePath( start, end ) ) );
+    }
+
+    private List<String> describe( Iterable<Path> paths )
+    {
+        List<String> result = new ArrayList<String>();
+        for ( Path path : paths )
+        {
+            result.add( describe( path ) );
+        }
+        return result;
+    }
+
+    private String describe( Path path )
+    {
+        if ( path == null )
+        {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder().append( path.startNode().getId() );
+        for ( Relationship relationship : path.relationships() )
+        {
+            builder.append( "," ).append( relationship.getId() );
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.shortestpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.neo4j.graphalgo.impl.shortestpath.ProjectedFloydWarshall;
+import org.neo4j.graphalgo.impl.util.GraphProjection;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+
+import common.Neo4jAlgoTestCase;
+
+public class ProjectedFloydWarshallTest extends Neo4jAlgoTestCase
+{
+    protected ProjectedFloydWarshall floydWarshall( Direction direction )
+    {
+        return new ProjectedFloydWarshall( GraphProjection.load(
+            graph.getAllNodes(), direction, "cost", MyRelTypes.R1 ) );
+    }
+
+    /**
+     * Test case for paths of length 0 and 1, and an impossible path
+     */
+    @Test
+    public void testMinimal()
+    {
+        graph.makeEdge( "a", "b", "cost", (double) 1 );
+        graph.makeEdge( "a", "c", "cost", (double) 1 );
+        graph.makeEdge( "b", "c", "cost", (double) 1 );
+        ProjectedFloydWarshall floydWarshall = floydWarshall( Direction.OUTGOING );
+        assertEquals( 0.0, floydWarshall.getCost( graph.getNode( "a" ),
+            graph.getNode( "a" ) ), 0.0 );
+        assertEquals( 1.0, floydWarshall.getCost( graph.getNode( "a" ),
+            graph.getNode( "b" ) ), 0.0 );
+        assertEquals( Double.POSITIVE_INFINITY, floydWarshall.getCost(
+            graph.getNode( "b" ), graph.getNode( "a" ) ), 0.0 );
+        assertNull( floydWarshall.getPath( graph.getNode( "b" ),
+            graph.getNode( "a" ) ) );
+    }
+
+    /**
+     * Test case for extracting paths
+     */
+    @Test
+    public void testPath()
+    {
+        graph.makeEdge( "a", "b", "cost", (double) 1 );
+        graph.makeEdge( "b", "c", "cost", (double) 1 );
+        graph.makeEdge( "c", "d", "cost", (double) 1 );
+        graph.makeEdge( "a", "d", "cost", (double) 5 );
+        ProjectedFloydWarshall floydWarshall = floydWarshall( Direction.BOTH );
+        assertEquals( 3.0, floydWarshall.getCost( graph.getNode( "d" ),
+            graph.getNode( "a" ) ), 0.0 );
+        List<Node> path = floydWarshall.getPath( graph.getNode( "a" ),
+            graph.getNode( "d" ) );
+        assertEquals( 4, path.size() );
+        assertEquals( graph.getNode( "a" ), path.get( 0 ) );
+        assertEquals( graph.getNode( "b" ), path.get( 1 ) );
+        assertEquals( graph.getNode( "c" ), path.get( 2 ) );
+        assertEquals( graph.getNode( "d" ), path.get( 3 ) );
+    }
+}
@@ -81,6 +81,7 @@ public class HighlyAvailableGraphDatabase extends AbstractGraphDatabase
     public static final String CONFIG_KEY_HA_CLUSTER_NAME = "ha.cluster_name";
     private static final String CONFIG_DEFAULT_HA_CLUSTER_NAME = "neo4j.ha";
     private static final int CONFIG_DEFAULT_PORT = 6361;
+    private static final int STORE_COPY_ATTEMPTS = 3;
     public static final String CONFIG_KEY_HA_PULL_INTERVAL = "ha.pull_interval";
     public static final String CONFIG_KEY_ALLOW_INIT_CLUSTER = "ha.allow_init_cluster";
 
@@ -253,8 +254,24 @@ public class HighlyAvailableGraphDatabase extends AbstractGraphDatabase
     private void copyStoreFromMaster( Pair<Master, Machine> master ) throws Exception
     {
         msgLog.logMessage( "Copying store from master" );
-        Response<Void> response = master.first().copyStore( new SlaveContext( machineId, 0, new Pair[0] ),
-                new ToFileStoreWriter( storeDir ) );
+        ToFileStoreWriter writer = new ToFileStoreWriter( storeDir );
+        Response<Void> response = null;
+        for ( int attempt = 1; response == null; attempt++ )
+        {
+            try
+            {
+                response = master.first().copyStore( new SlaveContext( machineId, 0, new Pair[0] ), writer );
+            }
+            catch ( ComException e )
+            {
+                if ( attempt == STORE_COPY_ATTEMPTS )
+                {
+                    throw e;
+                }
+                // Continues from where it stopped
+                msgLog.logMessage( "Copying store from master was interrupted, resuming", e );
+            }
+        }
         EmbeddedGraphDatabase tempDb = new EmbeddedGraphDatabase( storeDir );
         try
         {
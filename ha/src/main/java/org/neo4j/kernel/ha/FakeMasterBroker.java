@@ -20,8 +20,10 @@
 package org.neo4j.kernel.ha;
 
 import org.neo4j.com.Protocol;
+import org.neo4j.com.TransactionCompression;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.helpers.Pair;
+import org.neo4j.kernel.AbstractGraphDatabase;
 import org.neo4j.kernel.ha.zookeeper.Machine;
 import org.neo4j.kernel.impl.nioneo.store.StoreId;
 
@@ -61,6 +63,7 @@ public class FakeMasterBroker extends AbstractBroker
 
     public Object instantiateMasterServer( GraphDatabaseService graphDb )
     {
-        return new MasterServer( new MasterImpl( graphDb ), Protocol.PORT, getStoreDir() );
+        return new MasterServer( new MasterImpl( graphDb ), Protocol.PORT, getStoreDir(),
+                TransactionCompression.fromConfig( ((AbstractGraphDatabase) graphDb).getConfig().getParams() ) );
     }
 }
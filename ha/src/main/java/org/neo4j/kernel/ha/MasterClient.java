@@ -217,7 +217,8 @@ public class MasterClient extends Client<Master> implements Master
     {
         context = new SlaveContext( context.machineId(), context.getEventIdentifier(), new Pair[0] );
 
-        return sendRequest( HaRequestType.COPY_STORE, context, EMPTY_SERIALIZER, new Protocol.FileStreamsDeserializer( writer ) );
+        return sendRequest( HaRequestType.COPY_STORE, context, new Protocol.FileStreamsRequestSerializer( writer ),
+                new Protocol.FileStreamsDeserializer( writer ) );
     }
     
     public static enum HaRequestType implements RequestType<Master>
@@ -326,7 +327,7 @@ public class MasterClient extends Client<Master> implements Master
             public Response<Void> callMaster( Master master, SlaveContext context,
                     ChannelBuffer input, final ChannelBuffer target )
             {
-                return master.copyStore( context, new ToNetworkStoreWriter( target ) );
+                return master.copyStore( context, new ToNetworkStoreWriter( target, input ) );
             }
             
             byte id()
@@ -30,6 +30,7 @@ import org.jboss.netty.channel.Channel;
 import org.neo4j.com.RequestType;
 import org.neo4j.com.Server;
 import org.neo4j.com.SlaveContext;
+import org.neo4j.com.TransactionCompression;
 import org.neo4j.kernel.ha.MasterClient.HaRequestType;
 
 /**
@@ -38,9 +39,10 @@ import org.neo4j.kernel.ha.MasterClient.HaRequestType;
  */
 public class MasterServer extends Server<Master, Void>
 {
-    public MasterServer( Master realMaster, final int port, String storeDir )
+    public MasterServer( Master realMaster, final int port, String storeDir,
+            TransactionCompression txCompression )
     {
-        super( realMaster, port, storeDir );
+        super( realMaster, port, storeDir, DEFAULT_MAX_NUMBER_OF_CONCURRENT_TRANSACTIONS, txCompression );
     }
     
     @Override
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import javax.management.remote.JMXServiceURL;
 
+import org.neo4j.com.TransactionCompression;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.helpers.Pair;
 import org.neo4j.kernel.AbstractGraphDatabase;
@@ -136,7 +137,8 @@ public class ZooKeeperBroker extends AbstractBroker
     public Object instantiateMasterServer( GraphDatabaseService graphDb )
     {
         MasterServer server = new MasterServer( new MasterImpl( graphDb ),
-                Machine.splitIpAndPort( haServer ).other(), getStoreDir() );
+                Machine.splitIpAndPort( haServer ).other(), getStoreDir(),
+                TransactionCompression.fromConfig( ((AbstractGraphDatabase) graphDb).getConfig().getParams() ) );
         return server;
     }
 
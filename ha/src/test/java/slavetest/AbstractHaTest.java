@@ -37,6 +37,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.neo4j.com.TransactionCompression;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.DynamicRelationshipType;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -581,6 +582,14 @@ public abstract class AbstractHaTest
         pullUpdates();
     }
 
+    @Test
+    public void testPullLargeTransactionWithCompression() throws Exception
+    {
+        initializeDbs( 1, MapUtil.stringMap( TransactionCompression.CONFIG_KEY, "deflate" ) );
+        executeJobOnMaster( new CommonJobs.LargeTransactionJob( 20, 1 ) );
+        pullUpdates();
+    }
+
     @Test
     public void makeSureSlaveCanCopyLargeInitialDatabase() throws Exception
     {
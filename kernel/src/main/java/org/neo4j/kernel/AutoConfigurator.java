@@ -122,12 +122,13 @@ public class AutoConfigurator
     {
         int nodeStore = getFileSizeMb( "nodestore.db" );
         int relStore = getFileSizeMb( "relationshipstore.db" );
+        int groupStore = getFileSizeMb( "relationshipgroupstore.db" );
         int propStore = getFileSizeMb( "propertystore.db" );
         int stringStore = getFileSizeMb( "propertystore.db.strings" );
         int arrayStore = getFileSizeMb( "propertyStore.db.arrays" );
 
         int totalSize =
-            nodeStore + relStore + propStore + stringStore + arrayStore;
+            nodeStore + relStore + groupStore + propStore + stringStore + arrayStore;
         boolean expand = false;
         if ( totalSize * 1.15f < availableMem )
         {
@@ -138,6 +139,8 @@ public class AutoConfigurator
         memLeft -= relStore;
         nodeStore = calculate( memLeft, nodeStore, 0.2f, 1.1f, expand );
         memLeft -= nodeStore;
+        groupStore = calculate( memLeft, groupStore, 0.2f, 1.1f, expand );
+        memLeft -= groupStore;
         propStore = calculate( memLeft, propStore, 0.75f, 1.1f, expand );
         memLeft -= propStore;
         stringStore = calculate( memLeft, stringStore, 0.75f, 1.1f, expand );
@@ -147,6 +150,7 @@ public class AutoConfigurator
 
         configPut( config, "nodestore.db", nodeStore );
         configPut( config, "relationshipstore.db", relStore );
+        configPut( config, "relationshipgroupstore.db", groupStore );
         configPut( config, "propertystore.db", propStore );
         configPut( config, "propertystore.db.strings", stringStore );
         configPut( config, "propertystore.db.arrays", arrayStore );
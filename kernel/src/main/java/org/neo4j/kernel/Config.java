@@ -74,6 +74,7 @@ public class Config
     public static final String PROPERTY_STORE_MMAP_SIZE = "neostore.propertystore.db.mapped_memory";
     public static final String STRING_PROPERTY_STORE_MMAP_SIZE = "neostore.propertystore.db.strings.mapped_memory";
     public static final String RELATIONSHIP_STORE_MMAP_SIZE = "neostore.relationshipstore.db.mapped_memory";
+    public static final String RELATIONSHIP_GROUP_STORE_MMAP_SIZE = "neostore.relationshipgroupstore.db.mapped_memory";
     public static final String LOGICAL_LOG = "logical_log";
     public static final String NEO_STORE = "neo_store";
     public static final String CACHE_TYPE = "cache_type";
@@ -81,6 +82,13 @@ public class Config
     public static final String ALLOW_STORE_UPGRADE = "allow_store_upgrade";
     public static final String STRING_BLOCK_SIZE = "string_block_size";
     public static final String ARRAY_BLOCK_SIZE = "array_block_size";
+    public static final String GROUP_COMMIT = "group_commit";
+    public static final String GROUP_COMMIT_MAX_BATCH_SIZE = "group_commit_max_batch_size";
+    public static final String GROUP_COMMIT_MAX_WAIT_TIME = "group_commit_max_wait_time";
+    public static final String BACKGROUND_FLUSH = "background_flush";
+    public static final String BACKGROUND_FLUSH_INTERVAL = "background_flush_interval";
+    public static final String BACKGROUND_FLUSH_MAX_RATE = "background_flush_max_rate";
+    public static final String PARALLEL_APPLY_THREADS = "parallel_apply_threads";
     
     static final String LOAD_EXTENSIONS = "load_kernel_extensions";
 
@@ -157,6 +165,7 @@ public class Config
         params.put( "neostore.propertystore.db.strings.mapped_memory", "130M" );
         params.put( "neostore.propertystore.db.arrays.mapped_memory", "130M" );
         params.put( "neostore.relationshipstore.db.mapped_memory", "100M" );
+        params.put( "neostore.relationshipgroupstore.db.mapped_memory", "10M" );
         // if on windows, default no memory mapping
         if ( osIsWindows() )
         {
@@ -25,11 +25,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -213,7 +211,8 @@ class EmbeddedGraphDbImpl
     {
         return Boolean.parseBoolean( inputParams.get( Config.READ_ONLY ) ) ? new TxModule( true,
                 kernelPanicEventGenerator ) : new TxModule( this.storeDir,
-                kernelPanicEventGenerator, rollbackHook, inputParams.get(Config.TXMANAGER_IMPLEMENTATION) );
+                kernelPanicEventGenerator, rollbackHook, inputParams.get(Config.TXMANAGER_IMPLEMENTATION),
+                inputParams );
     }
 
     <T> T getManagementBean( Class<T> beanClass )
@@ -323,6 +322,31 @@ class EmbeddedGraphDbImpl
         return nodeManager.getRelationshipById( id );
     }
 
+    public Node[] getNodesById( long[] ids, String... propertyKeys )
+    {
+        for ( long id : ids )
+        {
+            if ( id < 0 || id > MAX_NODE_ID )
+            {
+                throw new NotFoundException( "Node[" + id + "]" );
+            }
+        }
+        return nodeManager.getNodesById( ids, propertyKeys );
+    }
+
+    public Relationship[] getRelationshipsById( long[] ids,
+        String... propertyKeys )
+    {
+        for ( long id : ids )
+        {
+            if ( id < 0 || id > MAX_RELATIONSHIP_ID )
+            {
+                throw new NotFoundException( "Relationship[" + id + "]" );
+            }
+        }
+        return nodeManager.getRelationshipsById( ids, propertyKeys );
+    }
+
     public Node getReferenceNode()
     {
         return nodeManager.getReferenceNode();
@@ -418,67 +442,14 @@ class EmbeddedGraphDbImpl
         return storeDir;
     }
 
-    public Iterable<Node> getAllNodes()
+    public StoreScan<Node> getAllNodes()
     {
-        return new Iterable<Node>()
-        {
-            @Override
-            public Iterator<Node> iterator()
-            {
-                long highId = nodeManager.getHighestPossibleIdInUse( Node.class );
-                return new AllNodesIterator( highId );
-            }
-        };
+        return nodeManager.getAllNodes();
     }
 
-    // TODO: temporary all nodes getter, fix this with better implementation
-    // (no NotFoundException to control flow)
-    private class AllNodesIterator implements Iterator<Node>
+    public StoreScan<Relationship> getAllRelationships()
     {
-        private final long highId;
-        private long currentNodeId = 0;
-        private Node currentNode = null;
-
-        AllNodesIterator( long highId )
-        {
-            this.highId = highId;
-        }
-
-        @Override
-        public synchronized boolean hasNext()
-        {
-            while ( currentNode == null && currentNodeId <= highId )
-            {
-                try
-                {
-                    currentNode = getNodeById( currentNodeId++ );
-                }
-                catch ( NotFoundException e )
-                {
-                    // ok we try next
-                }
-            }
-            return currentNode != null;
-        }
-
-        @Override
-        public synchronized Node next()
-        {
-            if ( !hasNext() )
-            {
-                throw new NoSuchElementException();
-            }
-
-            Node nextNode = currentNode;
-            currentNode = null;
-            return nextNode;
-        }
-
-        @Override
-        public void remove()
-        {
-            throw new UnsupportedOperationException();
-        }
+        return nodeManager.getAllRelationships();
     }
 
     <T> TransactionEventHandler<T> registerTransactionEventHandler(
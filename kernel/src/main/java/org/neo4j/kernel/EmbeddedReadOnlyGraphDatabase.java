@@ -24,6 +24,7 @@ import java.util.Map;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
@@ -113,6 +114,43 @@ public final class EmbeddedReadOnlyGraphDatabase extends AbstractGraphDatabase
         return graphDbImpl.getRelationshipById( id );
     }
 
+    /**
+     * Returns the nodes with the given ids, in the same order as
+     * <CODE>ids</CODE>. Looking up many nodes at once this way is faster
+     * than one at a time with {@link #getNodeById(long)} since the nodes are
+     * read from the store in id order and put in cache in one pass.
+     * <p>
+     * If any <CODE>propertyKeys</CODE> are given the properties of the nodes
+     * are read as well, so that getting the values of those keys from the
+     * returned nodes won't have to read from the store.
+     *
+     * @param ids the ids of the nodes
+     * @param propertyKeys keys of properties to read along with the nodes
+     * @return the nodes, in the same order as the ids
+     * @throws NotFoundException if any of the nodes doesn't exist
+     */
+    public Node[] getNodesById( long[] ids, String... propertyKeys )
+    {
+        return graphDbImpl.getNodesById( ids, propertyKeys );
+    }
+
+    /**
+     * Returns the relationships with the given ids, in the same order as
+     * <CODE>ids</CODE>, read the same way as in
+     * {@link #getNodesById(long[], String...)}.
+     *
+     * @param ids the ids of the relationships
+     * @param propertyKeys keys of properties to read along with the
+     *            relationships
+     * @return the relationships, in the same order as the ids
+     * @throws NotFoundException if any of the relationships doesn't exist
+     */
+    public Relationship[] getRelationshipsById( long[] ids,
+            String... propertyKeys )
+    {
+        return graphDbImpl.getRelationshipsById( ids, propertyKeys );
+    }
+
     public Node getReferenceNode()
     {
         return graphDbImpl.getReferenceNode();
@@ -172,11 +210,30 @@ public final class EmbeddedReadOnlyGraphDatabase extends AbstractGraphDatabase
         return graphDbImpl.getStoreDir();
     }
 
-    public Iterable<Node> getAllNodes()
+    /**
+     * Returns all nodes in the graph, read from the store in id order
+     * without loading them into the cache. The returned scan can be split
+     * up by id range to be iterated from several threads.
+     *
+     * @return all nodes in the graph
+     */
+    public StoreScan<Node> getAllNodes()
     {
         return graphDbImpl.getAllNodes();
     }
 
+    /**
+     * Returns all relationships in the graph, read from the store in id
+     * order without loading them into the cache. The returned scan can be
+     * split up by id range to be iterated from several threads.
+     *
+     * @return all relationships in the graph
+     */
+    public StoreScan<Relationship> getAllRelationships()
+    {
+        return graphDbImpl.getAllRelationships();
+    }
+
     public KernelEventHandler registerKernelEventHandler(
             KernelEventHandler handler )
     {
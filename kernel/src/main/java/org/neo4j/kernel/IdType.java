@@ -30,7 +30,8 @@ public enum IdType
     PROPERTY_INDEX_BLOCK,
     RELATIONSHIP_TYPE( 16 ),
     RELATIONSHIP_TYPE_BLOCK,
-    NEOSTORE_BLOCK;
+    NEOSTORE_BLOCK,
+    RELATIONSHIP_GROUP( 35 );
     
     private final long max;
     
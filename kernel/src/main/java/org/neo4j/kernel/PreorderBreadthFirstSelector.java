@@ -19,7 +19,7 @@
  */
 package org.neo4j.kernel;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.Queue;
 
 import org.neo4j.graphdb.traversal.TraversalBranch;
@@ -32,7 +32,7 @@ import org.neo4j.graphdb.traversal.BranchSelector;
  */
 class PreorderBreadthFirstSelector implements BranchSelector
 {
-    private final Queue<TraversalBranch> queue = new LinkedList<TraversalBranch>();
+    private final Queue<TraversalBranch> queue = new ArrayDeque<TraversalBranch>();
     private TraversalBranch current;
     
     PreorderBreadthFirstSelector( TraversalBranch startSource )
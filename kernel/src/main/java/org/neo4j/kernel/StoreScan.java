@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel;
+
+import java.util.List;
+
+/**
+ * A scan over all nodes or relationships in a range of ids, reading the
+ * store files in id order. Unlike looking up each id, a scan doesn't load
+ * the entities it returns into the cache and doesn't fail for ids that are
+ * not in use. Changes made in the current transaction are visible.
+ * <p>
+ * A scan can be {@link #split(int) split} into parts covering consecutive
+ * id ranges. The parts can be iterated in parallel, each from a thread of
+ * its own, for example as tasks submitted to an
+ * {@link java.util.concurrent.ExecutorService}. Each part, and each
+ * iterator of it, should then run in a transaction of its own or outside
+ * of any transaction.
+ *
+ * @param <T> the type of entities returned by the scan
+ */
+public interface StoreScan<T> extends Iterable<T>
+{
+    /**
+     * @return the lowest id covered by this scan
+     */
+    long getFromId();
+
+    /**
+     * @return the id after the highest id covered by this scan, or
+     *         {@link Long#MAX_VALUE} if this scan goes to the end of the
+     *         store as it is when iteration starts
+     */
+    long getToId();
+
+    /**
+     * Splits this scan into at most <CODE>parts</CODE> scans covering
+     * consecutive id ranges, together covering the same ids as this scan.
+     * Fewer parts are returned if there are too few ids to split over.
+     *
+     * @param parts the number of parts to split this scan into
+     * @return the parts in id order
+     */
+    List<StoreScan<T>> split( int parts );
+}
@@ -48,12 +48,16 @@ import org.neo4j.kernel.impl.nioneo.store.InvalidRecordException;
 import org.neo4j.kernel.impl.nioneo.store.NeoStore;
 import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
 import org.neo4j.kernel.impl.nioneo.store.NodeStore;
+import org.neo4j.kernel.impl.nioneo.store.PropertyBlock;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexStore;
 import org.neo4j.kernel.impl.nioneo.store.PropertyRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyStore;
 import org.neo4j.kernel.impl.nioneo.store.Record;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipDirection;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipTypeData;
@@ -203,48 +207,68 @@ public class BatchInserterImpl implements BatchInserter
     private void connectRelationship( NodeRecord firstNode, 
         NodeRecord secondNode, RelationshipRecord rel )
     {
-        rel.setFirstNextRel( firstNode.getNextRel() );
-        rel.setSecondNextRel( secondNode.getNextRel() );
-        if ( firstNode.getNextRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        connect( firstNode, rel, RelationshipDirection.OUTGOING );
+        connect( secondNode, rel, RelationshipDirection.INCOMING );
+    }
+
+    private void connect( NodeRecord node, RelationshipRecord rel,
+        RelationshipDirection direction )
+    {
+        RelationshipGroupRecord group = getOrCreateRelationshipGroup( node,
+            rel.getType() );
+        long first = group.getFirst( direction );
+        if ( direction == RelationshipDirection.OUTGOING )
+        {
+            rel.setFirstNextRel( first );
+        }
+        else
+        {
+            rel.setSecondNextRel( first );
+        }
+        if ( first != Record.NO_NEXT_RELATIONSHIP.intValue() )
         {
-            RelationshipRecord nextRel = getRelationshipStore().getRecord( 
-                firstNode.getNextRel() );
-            if ( nextRel.getFirstNode() == firstNode.getId() )
+            RelationshipRecord nextRel = getRelationshipStore().getRecord( first );
+            if ( nextRel.getFirstNode() == node.getId() )
             {
                 nextRel.setFirstPrevRel( rel.getId() );
             }
-            else if ( nextRel.getSecondNode() == firstNode.getId() )
+            else if ( nextRel.getSecondNode() == node.getId() )
             {
                 nextRel.setSecondPrevRel( rel.getId() );
             }
             else
             {
-                throw new InvalidRecordException( firstNode + " dont match "
+                throw new InvalidRecordException( node + " dont match "
                     + nextRel );
             }
             getRelationshipStore().updateRecord( nextRel );
         }
-        if ( secondNode.getNextRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        group.setFirst( direction, rel.getId() );
+        getRelationshipGroupStore().updateRecord( group );
+    }
+
+    private RelationshipGroupRecord getOrCreateRelationshipGroup( NodeRecord node,
+        int type )
+    {
+        long nextGroup = node.getNextGroup();
+        while ( nextGroup != Record.NO_NEXT_GROUP.intValue() )
         {
-            RelationshipRecord nextRel = getRelationshipStore().getRecord(  
-                secondNode.getNextRel() );
-            if ( nextRel.getFirstNode() == secondNode.getId() )
-            {
-                nextRel.setFirstPrevRel( rel.getId() );
-            }
-            else if ( nextRel.getSecondNode() == secondNode.getId() )
-            {
-                nextRel.setSecondPrevRel( rel.getId() );
-            }
-            else
+            RelationshipGroupRecord group =
+                getRelationshipGroupStore().getRecord( nextGroup );
+            if ( group.getType() == type )
             {
-                throw new InvalidRecordException( secondNode + " dont match "
-                    + nextRel );
+                return group;
             }
-            getRelationshipStore().updateRecord( nextRel );
+            nextGroup = group.getNext();
         }
-        firstNode.setNextRel( rel.getId() );
-        secondNode.setNextRel( rel.getId() );
+        RelationshipGroupRecord group = new RelationshipGroupRecord(
+            getRelationshipGroupStore().nextId(), type );
+        group.setInUse( true );
+        group.setCreated();
+        group.setOwningNode( node.getId() );
+        group.setNext( node.getNextGroup() );
+        node.setNextGroup( group.getId() );
+        return group;
     }
     
     public void setNodeProperties( long node, Map<String,Object> properties )
@@ -287,61 +311,62 @@ public class BatchInserterImpl implements BatchInserter
     
     public Iterable<Long> getRelationshipIds( long nodeId )
     {
-        NodeRecord nodeRecord = getNodeRecord( nodeId );
-        long nextRel = nodeRecord.getNextRel();
         List<Long> ids = new ArrayList<Long>();
-        while ( nextRel != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        for ( RelationshipRecord relRecord : getRelationshipRecords( nodeId ) )
         {
-            RelationshipRecord relRecord = getRelationshipRecord( nextRel );
             ids.add( relRecord.getId() );
-            long firstNode = relRecord.getFirstNode();
-            long secondNode = relRecord.getSecondNode();
-            if ( firstNode == nodeId )
-            {
-                nextRel = relRecord.getFirstNextRel();
-            }
-            else if ( secondNode == nodeId )
-            {
-                nextRel = relRecord.getSecondNextRel();
-            }
-            else
-            {
-                throw new InvalidRecordException( "Node[" + nodeId + 
-                    "] not part of firstNode[" + firstNode + 
-                    "] or secondNode[" + secondNode + "]" );
-            }
         }
         return ids;
     }
     
     public Iterable<SimpleRelationship> getRelationships( long nodeId )
     {
-        NodeRecord nodeRecord = getNodeRecord( nodeId );
-        long nextRel = nodeRecord.getNextRel();
         List<SimpleRelationship> rels = new ArrayList<SimpleRelationship>();
-        while ( nextRel != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        for ( RelationshipRecord relRecord : getRelationshipRecords( nodeId ) )
         {
-            RelationshipRecord relRecord = getRelationshipRecord( nextRel );
             RelationshipType type = new RelationshipTypeImpl( 
                 typeHolder.getName( relRecord.getType() ) );
             rels.add( new SimpleRelationship( relRecord.getId(), 
                 relRecord.getFirstNode(), relRecord.getSecondNode(), type ) );
-            long firstNode = relRecord.getFirstNode();
-            long secondNode = relRecord.getSecondNode();
-            if ( firstNode == nodeId )
-            {
-                nextRel = relRecord.getFirstNextRel();
-            }
-            else if ( secondNode == nodeId )
-            {
-                nextRel = relRecord.getSecondNextRel();
-            }
-            else
+        }
+        return rels;
+    }
+
+    private List<RelationshipRecord> getRelationshipRecords( long nodeId )
+    {
+        NodeRecord nodeRecord = getNodeRecord( nodeId );
+        List<RelationshipRecord> rels = new ArrayList<RelationshipRecord>();
+        long nextGroup = nodeRecord.getNextGroup();
+        while ( nextGroup != Record.NO_NEXT_GROUP.intValue() )
+        {
+            RelationshipGroupRecord group =
+                getRelationshipGroupStore().getRecord( nextGroup );
+            for ( RelationshipDirection direction : RelationshipDirection.values() )
             {
-                throw new InvalidRecordException( "Node[" + nodeId + 
-                    "] not part of firstNode[" + firstNode + 
-                    "] or secondNode[" + secondNode + "]" );
+                long nextRel = group.getFirst( direction );
+                while ( nextRel != Record.NO_NEXT_RELATIONSHIP.intValue() )
+                {
+                    RelationshipRecord relRecord = getRelationshipRecord( nextRel );
+                    rels.add( relRecord );
+                    long firstNode = relRecord.getFirstNode();
+                    long secondNode = relRecord.getSecondNode();
+                    if ( firstNode == nodeId )
+                    {
+                        nextRel = relRecord.getFirstNextRel();
+                    }
+                    else if ( secondNode == nodeId )
+                    {
+                        nextRel = relRecord.getSecondNextRel();
+                    }
+                    else
+                    {
+                        throw new InvalidRecordException( "Node[" + nodeId + 
+                            "] not part of firstNode[" + firstNode + 
+                            "] or secondNode[" + secondNode + "]" );
+                    }
+                }
             }
+            nextGroup = group.getNext();
         }
         return rels;
     }
@@ -382,6 +407,7 @@ public class BatchInserterImpl implements BatchInserter
         params.put( "neostore.propertystore.db.strings.mapped_memory", "130M" );
         params.put( "neostore.propertystore.db.arrays.mapped_memory", "130M" );
         params.put( "neostore.relationshipstore.db.mapped_memory", "50M" );
+        params.put( "neostore.relationshipgroupstore.db.mapped_memory", "10M" );
         return params;
     }
     
@@ -421,19 +447,24 @@ public class BatchInserterImpl implements BatchInserter
             {
                 keyId = createNewPropertyIndex( entry.getKey() );
             }
-            long propertyId = propStore.nextId();
-            PropertyRecord propertyRecord = new PropertyRecord( propertyId );
-            propertyRecord.setInUse( true );
-            propertyRecord.setCreated();
-            propertyRecord.setKeyIndexId( keyId );
-            propStore.encodeValue( propertyRecord, entry.getValue() );
-            if ( prevRecord != null )
+            PropertyBlock block = new PropertyBlock();
+            block.setKeyIndexId( keyId );
+            propStore.encodeValue( block, entry.getValue() );
+            if ( prevRecord == null || prevRecord.getFreeBlockIndex() == -1 )
             {
-                prevRecord.setPrevProp( propertyId );
-                propertyRecord.setNextProp( prevRecord.getId() );
+                long recordId = propStore.nextId();
+                PropertyRecord propertyRecord = new PropertyRecord( recordId );
+                propertyRecord.setInUse( true );
+                propertyRecord.setCreated();
+                if ( prevRecord != null )
+                {
+                    prevRecord.setPrevProp( recordId );
+                    propertyRecord.setNextProp( prevRecord.getId() );
+                }
+                propRecords.add( propertyRecord );
+                prevRecord = propertyRecord;
             }
-            propRecords.add( propertyRecord );
-            prevRecord = propertyRecord;
+            prevRecord.setBlock( prevRecord.getFreeBlockIndex(), block );
         }
         // reverse order results in forward update to store
         for ( int i = propRecords.size() - 1; i >=0; i-- )
@@ -447,38 +478,46 @@ public class BatchInserterImpl implements BatchInserter
         return Record.NO_NEXT_PROPERTY.intValue();
     }
     
-    private void deletePropertyChain( long propertyId )
+    private void deletePropertyChain( long firstProp )
     {
         PropertyStore propStore = getPropertyStore();
-        PropertyRecord propertyRecord = propStore.getRecord( propertyId );
-        propertyRecord.setInUse( false );
-        for ( DynamicRecord record : propertyRecord.getValueRecords() )
+        long nextProp = firstProp;
+        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
         {
-            record.setInUse( false );
+            PropertyRecord propertyRecord = propStore.getRecord( nextProp );
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+            {
+                if ( propertyRecord.getBlock( i ) != null )
+                {
+                    propertyRecord.removeBlock( i );
+                }
+            }
+            propertyRecord.setInUse( false );
+            propStore.updateRecord( propertyRecord );
+            nextProp = propertyRecord.getNextProp();
         }
-        propStore.updateRecord( propertyRecord );
     }
     
-    private Map<String,Object> getPropertyChain( long propertyId )
+    private Map<String,Object> getPropertyChain( long firstProp )
     {
         PropertyStore propStore = getPropertyStore();
-        PropertyRecord propertyRecord = propStore.getRecord( propertyId );
-        long nextProperty = -1;
         Map<String,Object> properties = new HashMap<String,Object>();
-        do
-        {
-            nextProperty = propertyRecord.getNextProp();
-            propStore.makeHeavy( propertyRecord );
-            String key = indexHolder.getStringKey( 
-                propertyRecord.getKeyIndexId() );
-            Object value = propStore.getValue( propertyRecord );
-            properties.put( key, value );
-            if ( nextProperty != Record.NO_NEXT_PROPERTY.intValue() )
+        for ( PropertyRecord propertyRecord :
+            propStore.getLightRecordChain( firstProp ) )
+        {
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
             {
-                propertyRecord =
-                    propStore.getRecord( propertyRecord.getNextProp() );
+                PropertyBlock block = propertyRecord.getBlock( i );
+                if ( block == null )
+                {
+                    continue;
+                }
+                propStore.makeHeavy( block );
+                String key = indexHolder.getStringKey( block.getKeyIndexId() );
+                Object value = propStore.getValue( block );
+                properties.put( key, value );
             }
-        } while ( nextProperty != Record.NO_NEXT_PROPERTY.intValue() );
+        }
         return properties;
     }
     
@@ -548,6 +587,11 @@ public class BatchInserterImpl implements BatchInserter
         return neoStore.getRelationshipStore();
     }
     
+    private RelationshipGroupStore getRelationshipGroupStore()
+    {
+        return neoStore.getRelationshipGroupStore();
+    }
+
     private RelationshipTypeStore getRelationshipTypeStore()
     {
         return neoStore.getRelationshipTypeStore();
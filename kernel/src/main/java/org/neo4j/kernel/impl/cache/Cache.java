@@ -97,4 +97,28 @@ public interface Cache<K,V>
     public void setAdaptiveStatus( boolean status );
     
     public void putAll( Map<K,V> map );
+
+    /**
+     * Returns the number of lookups that found an element, or <CODE>-1</CODE>
+     * if this cache doesn't keep count.
+     * 
+     * @return number of cache hits
+     */
+    public long hitCount();
+
+    /**
+     * Returns the number of lookups that didn't find an element, or
+     * <CODE>-1</CODE> if this cache doesn't keep count.
+     * 
+     * @return number of cache misses
+     */
+    public long missCount();
+
+    /**
+     * Returns the number of elements removed to keep the cache within its
+     * maximum size, or <CODE>-1</CODE> if this cache doesn't keep count.
+     * 
+     * @return number of evicted elements
+     */
+    public long evictionCount();
 }
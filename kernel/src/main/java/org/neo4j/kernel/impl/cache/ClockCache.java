@@ -0,0 +1,487 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.util.Map;
+
+/**
+ * Cache keyed by primitive <CODE>long</CODE> with a fixed number of entries
+ * and clock (second chance) eviction.
+ * <p>
+ * Keys are kept in plain <CODE>long[]</CODE> open addressing tables and the
+ * values in a parallel array, so there are no boxed keys, map entries or
+ * reference objects per cached element. All tables are allocated up front
+ * from <CODE>maxSize</CODE> (see {@link #resize(int)}), meaning the memory
+ * used by the cache itself is fixed and it produces no garbage while running.
+ * <p>
+ * The cache is split into segments, each guarded by its own monitor, to let
+ * concurrent readers of different ids proceed in parallel.
+ */
+public class ClockCache<E> implements Cache<Long,E>
+{
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+    private final String name;
+    private volatile int maxSize;
+    private volatile Segment[] segments;
+
+    /**
+     * Creates a clock cache. If <CODE>maxSize < 1</CODE> an
+     * IllegalArgumentException is thrown.
+     *
+     * @param name
+     *            name of cache
+     * @param maxSize
+     *            maximum number of elements in this cache
+     */
+    public ClockCache( String name, int maxSize )
+    {
+        if ( name == null || maxSize < 1 )
+        {
+            throw new IllegalArgumentException( "maxSize=" + maxSize
+                + ", name=" + name );
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.segments = newSegments( maxSize );
+    }
+
+    private static Segment[] newSegments( int maxSize )
+    {
+        int segmentMaxSize = Math.max( 1,
+            ( maxSize + SEGMENT_COUNT - 1 ) / SEGMENT_COUNT );
+        Segment[] result = new Segment[SEGMENT_COUNT];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = new Segment( segmentMaxSize );
+        }
+        return result;
+    }
+
+    private static int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ( h ^ ( h >>> 32 ) );
+    }
+
+    private Segment segmentFor( int hash )
+    {
+        return segments[hash >>> ( 32 - SEGMENT_BITS )];
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void put( Long key, E element )
+    {
+        if ( key == null || element == null )
+        {
+            throw new IllegalArgumentException( "key=" + key + ", element="
+                + element );
+        }
+        long id = key;
+        int hash = hash( id );
+        Object evicted = segmentFor( hash ).put( id, hash, element );
+        if ( evicted != null )
+        {
+            elementCleaned( cast( evicted ) );
+        }
+    }
+
+    public void putAll( Map<Long,E> map )
+    {
+        for ( Map.Entry<Long,E> entry : map.entrySet() )
+        {
+            put( entry.getKey(), entry.getValue() );
+        }
+    }
+
+    public E remove( Long key )
+    {
+        if ( key == null )
+        {
+            throw new IllegalArgumentException( "Null parameter" );
+        }
+        long id = key;
+        int hash = hash( id );
+        return cast( segmentFor( hash ).remove( id, hash ) );
+    }
+
+    public E get( Long key )
+    {
+        if ( key == null )
+        {
+            throw new IllegalArgumentException();
+        }
+        long id = key;
+        int hash = hash( id );
+        return cast( segmentFor( hash ).get( id, hash ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private E cast( Object value )
+    {
+        return (E) value;
+    }
+
+    public void clear()
+    {
+        for ( Segment segment : segments )
+        {
+            segment.clear();
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for ( Segment segment : segments )
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void elementCleaned( E element )
+    {
+    }
+
+    /**
+     * Returns the maximum number of elements in this cache.
+     *
+     * @return maximum size
+     */
+    public int maxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Changes the max size of the cache, reallocating the tables. Elements
+     * that don't fit in the new size are evicted in clock order and
+     * {@link #elementCleaned(Object)} is invoked for each one of them.
+     * <p>
+     * If <CODE>newMaxSize</CODE> is less then <CODE>1</CODE> an
+     * {@link IllegalArgumentException} is thrown.
+     *
+     * @param newMaxSize
+     *            the new maximum size of the cache
+     */
+    public synchronized void resize( int newMaxSize )
+    {
+        if ( newMaxSize < 1 )
+        {
+            throw new IllegalArgumentException( "newMaxSize=" + newMaxSize );
+        }
+        if ( newMaxSize == maxSize )
+        {
+            return;
+        }
+        Segment[] newSegments = newSegments( newMaxSize );
+        Segment[] oldSegments = segments;
+        for ( int i = 0; i < oldSegments.length; i++ )
+        {
+            // segment i only holds keys that map to segment i in the new
+            // segments as well, the segment count never changes
+            Segment oldSegment = oldSegments[i];
+            synchronized ( oldSegment )
+            {
+                oldSegment.transferTo( newSegments[i], this );
+            }
+        }
+        segments = newSegments;
+        maxSize = newMaxSize;
+    }
+
+    public boolean isAdaptive()
+    {
+        return false;
+    }
+
+    public long hitCount()
+    {
+        long count = 0;
+        for ( Segment segment : segments )
+        {
+            count += segment.hits();
+        }
+        return count;
+    }
+
+    public long missCount()
+    {
+        long count = 0;
+        for ( Segment segment : segments )
+        {
+            count += segment.misses();
+        }
+        return count;
+    }
+
+    public long evictionCount()
+    {
+        long count = 0;
+        for ( Segment segment : segments )
+        {
+            count += segment.evictions();
+        }
+        return count;
+    }
+
+    public void setAdaptiveStatus( boolean status )
+    {
+    }
+
+    private static final class Segment
+    {
+        private final int maxSize;
+        private final int mask;
+        private final long[] keys;
+        private final Object[] values;
+        private final boolean[] referenced;
+        private int size = 0;
+        private int hand = 0;
+        private long hits = 0;
+        private long misses = 0;
+        private long evictions = 0;
+        // set when the segment has been replaced by a resize
+        private Segment replacement = null;
+
+        Segment( int maxSize )
+        {
+            this.maxSize = maxSize;
+            // keep the load factor at or below 0.5 for short probe sequences
+            int capacity = Integer.highestOneBit( Math.max( 2, maxSize ) - 1 ) << 2;
+            this.mask = capacity - 1;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.referenced = new boolean[capacity];
+        }
+
+        synchronized Object get( long key, int hash )
+        {
+            if ( replacement != null )
+            {
+                return replacement.get( key, hash );
+            }
+            int slot = find( key, hash );
+            if ( slot == -1 )
+            {
+                misses++;
+                return null;
+            }
+            hits++;
+            referenced[slot] = true;
+            return values[slot];
+        }
+
+        /**
+         * @return the element evicted to make room for this one, or
+         * <CODE>null</CODE> if no element was evicted.
+         */
+        synchronized Object put( long key, int hash, Object value )
+        {
+            if ( replacement != null )
+            {
+                return replacement.put( key, hash, value );
+            }
+            int slot = find( key, hash );
+            if ( slot != -1 )
+            {
+                values[slot] = value;
+                referenced[slot] = true;
+                return null;
+            }
+            Object evicted = null;
+            if ( size >= maxSize )
+            {
+                evicted = evict();
+                evictions++;
+            }
+            slot = hash & mask;
+            while ( values[slot] != null )
+            {
+                slot = ( slot + 1 ) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            // new elements get their second chance only once read, so a
+            // scan over many ids can't push out the frequently used ones
+            referenced[slot] = false;
+            size++;
+            return evicted;
+        }
+
+        synchronized Object remove( long key, int hash )
+        {
+            if ( replacement != null )
+            {
+                return replacement.remove( key, hash );
+            }
+            int slot = find( key, hash );
+            if ( slot == -1 )
+            {
+                return null;
+            }
+            Object value = values[slot];
+            removeSlot( slot );
+            return value;
+        }
+
+        synchronized void clear()
+        {
+            if ( replacement != null )
+            {
+                replacement.clear();
+                return;
+            }
+            for ( int i = 0; i < values.length; i++ )
+            {
+                values[i] = null;
+                referenced[i] = false;
+            }
+            size = 0;
+            hand = 0;
+        }
+
+        synchronized long hits()
+        {
+            if ( replacement != null )
+            {
+                return replacement.hits();
+            }
+            return hits;
+        }
+
+        synchronized long misses()
+        {
+            if ( replacement != null )
+            {
+                return replacement.misses();
+            }
+            return misses;
+        }
+
+        synchronized long evictions()
+        {
+            if ( replacement != null )
+            {
+                return replacement.evictions();
+            }
+            return evictions;
+        }
+
+        synchronized int size()
+        {
+            if ( replacement != null )
+            {
+                return replacement.size();
+            }
+            return size;
+        }
+
+        <E> void transferTo( Segment target, ClockCache<E> cache )
+        {
+            for ( int i = 0; i < values.length; i++ )
+            {
+                if ( values[i] != null )
+                {
+                    Object evicted = target.put( keys[i], hash( keys[i] ),
+                        values[i] );
+                    if ( evicted != null )
+                    {
+                        cache.elementCleaned( cache.cast( evicted ) );
+                    }
+                }
+            }
+            target.hits += hits;
+            target.misses += misses;
+            target.evictions += evictions;
+            replacement = target;
+        }
+
+        private int find( long key, int hash )
+        {
+            int slot = hash & mask;
+            while ( values[slot] != null )
+            {
+                if ( keys[slot] == key )
+                {
+                    return slot;
+                }
+                slot = ( slot + 1 ) & mask;
+            }
+            return -1;
+        }
+
+        private Object evict()
+        {
+            while ( true )
+            {
+                Object value = values[hand];
+                if ( value != null )
+                {
+                    if ( !referenced[hand] )
+                    {
+                        removeSlot( hand );
+                        return value;
+                    }
+                    referenced[hand] = false;
+                }
+                hand = ( hand + 1 ) & mask;
+            }
+        }
+
+        /**
+         * Empties a slot, moving back later elements of the same probe
+         * sequence so lookups never have to skip over deleted slots.
+         */
+        private void removeSlot( int slot )
+        {
+            int free = slot;
+            int current = slot;
+            while ( true )
+            {
+                current = ( current + 1 ) & mask;
+                if ( values[current] == null )
+                {
+                    break;
+                }
+                int home = hash( keys[current] ) & mask;
+                boolean homeBetween = free <= current ?
+                    free < home && home <= current :
+                    free < home || home <= current;
+                if ( !homeBetween )
+                {
+                    keys[free] = keys[current];
+                    values[free] = values[current];
+                    referenced[free] = referenced[current];
+                    free = current;
+                }
+            }
+            values[free] = null;
+            referenced[free] = false;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+/**
+ * An element that can estimate how much memory it occupies. {@link LruCache}
+ * uses the estimate to keep its elements within a byte budget.
+ */
+public interface EntityWithSize
+{
+    /**
+     * Returns an estimate of the number of bytes this element and the
+     * objects only it references occupy on the heap. The estimate may change
+     * as the element loads more of its state, which it then marks, see
+     * {@link #clearSizeChanged()}.
+     *
+     * @return the estimated size in bytes
+     */
+    int size();
+
+    /**
+     * Clears the mark set when this element changed in a way that may
+     * change its {@link #size()} and returns whether it was set. The cache
+     * calls this before measuring an element again, so that lookups of an
+     * element that didn't change don't measure it.
+     *
+     * @return <CODE>true</CODE> if the size may have changed since the mark
+     *         was last cleared
+     */
+    boolean clearSizeChanged();
+}
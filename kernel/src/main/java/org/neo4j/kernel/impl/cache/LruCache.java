@@ -19,44 +19,55 @@
  */
 package org.neo4j.kernel.impl.cache;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Simple implementation of Least-recently-used cache.
  * 
  * The cache has a <CODE>maxSize</CODE> set and when the number of cached
  * elements exceeds that limit the least recently used element will be removed.
+ * <p>
+ * Lookups go to a concurrent map and don't block. The recency order is kept
+ * in one linked list per segment, each segment guarded by its own lock, and
+ * the elements are spread over the segments by key hash. A lookup only
+ * moves the element to the most recently used end of its list if it can
+ * get the lock of the segment without waiting, so under contention the
+ * order is approximate. Small caches have a single segment, making the
+ * order exact. Each segment evicts its own least recently used elements
+ * when it holds more than its share of <CODE>maxSize</CODE>.
+ * <p>
+ * The cache can also be given a budget in bytes, see
+ * {@link #setMaxSizeInBytes(long)}. Elements implementing
+ * {@link EntityWithSize} are then measured when put, and again when looked
+ * up if they marked themselves as changed since, for example by loading more
+ * state. Each segment evicts its least recently used elements while it holds
+ * more than its share of the budget. Other elements count as zero bytes.
  */
 public class LruCache<K,E> implements Cache<K,E>
 {
+    private static final int MAX_SEGMENT_COUNT = 16;
+    private static final int MIN_SEGMENT_SIZE = 256;
+
     private final String name;
-    int maxSize = 1000;
-    private boolean resizing = false;
-    private boolean adaptive = false;
+    private volatile int maxSize = 1000;
+    private volatile long maxBytes = 0;
+    private volatile boolean resizing = false;
+    private volatile boolean adaptive = false;
     
     private final AdaptiveCacheManager cacheManager;
 
-    private Map<K,E> cache = new LinkedHashMap<K,E>( 500, 0.75f, true )
-    {
-        protected boolean removeEldestEntry( Map.Entry<K,E> eldest )
-        {
-            // synchronization miss with old value on maxSize here is ok
-            if ( super.size() > maxSize )
-            {
-                if ( isAdaptive() && !isResizing() )
-                {
-                    adaptCache();
-                }
-                else
-                {
-                    super.remove( eldest.getKey() );
-                    elementCleaned( eldest.getValue() );
-                }
-            }
-            return false;
-        }
-    };
+    private final ConcurrentHashMap<Object,Entry> cache =
+        new ConcurrentHashMap<Object,Entry>( 500 );
+    private volatile Segment[] segments;
+
+    private final AtomicLong[] hits = newCounters();
+    private final AtomicLong[] misses = newCounters();
+    private final AtomicLong evictions = new AtomicLong();
 
     void adaptCache()
     {
@@ -66,11 +77,6 @@ public class LruCache<K,E> implements Cache<K,E>
         }
     }
 
-//    public void setMaxSize( int maxSize )
-//    {
-//        this.maxSize = maxSize;
-//    }
-
     /**
      * Creates a LRU cache. If <CODE>maxSize < 1</CODE> an
      * IllegalArgumentException is thrown.
@@ -92,6 +98,71 @@ public class LruCache<K,E> implements Cache<K,E>
         }
         this.name = name;
         this.maxSize = maxSize;
+        this.segments = newSegments( segmentCount( maxSize ), maxSize );
+    }
+
+    private static AtomicLong[] newCounters()
+    {
+        AtomicLong[] counters = new AtomicLong[MAX_SEGMENT_COUNT];
+        for ( int i = 0; i < counters.length; i++ )
+        {
+            counters[i] = new AtomicLong();
+        }
+        return counters;
+    }
+
+    private static int segmentCount( int maxSize )
+    {
+        int count = Integer.highestOneBit( Math.max( 1,
+            maxSize / MIN_SEGMENT_SIZE ) );
+        return Math.min( count, MAX_SEGMENT_COUNT );
+    }
+
+    private static int segmentMaxSize( int maxSize, int segmentCount )
+    {
+        return Math.max( 1, ( maxSize + segmentCount - 1 ) / segmentCount );
+    }
+
+    private static long segmentMaxBytes( long maxBytes, int segmentCount )
+    {
+        return ( maxBytes + segmentCount - 1 ) / segmentCount;
+    }
+
+    private static Segment[] newSegments( int count, int maxSize )
+    {
+        Segment[] result = new Segment[count];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = new Segment( segmentMaxSize( maxSize, count ) );
+        }
+        return result;
+    }
+
+    private static int sizeOf( Object element )
+    {
+        if ( element instanceof EntityWithSize )
+        {
+            return ((EntityWithSize) element).size();
+        }
+        return 0;
+    }
+
+    private static boolean sizeChanged( Object element )
+    {
+        return element instanceof EntityWithSize
+            && ((EntityWithSize) element).clearSizeChanged();
+    }
+
+    private static int hash( Object key )
+    {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ ( h >>> 16 );
+    }
+
+    private Segment segmentFor( int hash )
+    {
+        Segment[] current = segments;
+        return current[hash & ( current.length - 1 )];
     }
 
     public String getName()
@@ -99,42 +170,207 @@ public class LruCache<K,E> implements Cache<K,E>
         return this.name;
     }
 
-    public synchronized void put( K key, E element )
+    public void put( K key, E element )
     {
         if ( key == null || element == null )
         {
             throw new IllegalArgumentException( "key=" + key + ", element="
                 + element );
         }
-        cache.put( key, element );
+        int hash = hash( key );
+        int bytes = 0;
+        if ( maxBytes > 0 )
+        {
+            sizeChanged( element );
+            bytes = sizeOf( element );
+        }
+        List<Object> evicted = null;
+        boolean adapt = false;
+        Segment segment = lockSegment( hash );
+        try
+        {
+            Entry entry = cache.get( key );
+            if ( entry != null )
+            {
+                entry.value = element;
+                segment.moveToNewest( entry );
+                segment.measured( entry, bytes );
+            }
+            else
+            {
+                entry = new Entry( key, element );
+                entry.bytes = bytes;
+                cache.put( key, entry );
+                segment.addNewest( entry );
+            }
+            boolean overSize = segment.size > segment.maxSize;
+            if ( overSize && isAdaptive() && !isResizing() )
+            {
+                adapt = true;
+                overSize = false;
+            }
+            if ( overSize || segment.isOverBudget() )
+            {
+                evicted = evict( segment,
+                    overSize ? segment.maxSize : segment.size );
+            }
+        }
+        finally
+        {
+            segment.unlock();
+        }
+        cleaned( evicted );
+        if ( adapt )
+        {
+            adaptCache();
+        }
     }
 
-    public synchronized E remove( K key )
+    public E remove( K key )
     {
         if ( key == null )
         {
             throw new IllegalArgumentException( "Null parameter" );
         }
-        return cache.remove( key );
+        Segment segment = lockSegment( hash( key ) );
+        try
+        {
+            Entry entry = cache.remove( key );
+            if ( entry == null )
+            {
+                return null;
+            }
+            segment.unlink( entry );
+            return cast( entry.value );
+        }
+        finally
+        {
+            segment.unlock();
+        }
     }
 
-    public synchronized E get( K key )
+    public E get( K key )
     {
         if ( key == null )
         {
             throw new IllegalArgumentException();
         }
-        return cache.get( key );
+        int hash = hash( key );
+        Entry entry = cache.get( key );
+        if ( entry == null )
+        {
+            misses[hash & ( MAX_SEGMENT_COUNT - 1 )].incrementAndGet();
+            return null;
+        }
+        hits[hash & ( MAX_SEGMENT_COUNT - 1 )].incrementAndGet();
+        Segment segment = segmentFor( hash );
+        if ( segment.tryLock() )
+        {
+            try
+            {
+                if ( entry.segment == segment )
+                {
+                    segment.moveToNewest( entry );
+                    if ( segment.maxBytes > 0 && sizeChanged( entry.value ) )
+                    {
+                        segment.measured( entry, sizeOf( entry.value ) );
+                    }
+                }
+            }
+            finally
+            {
+                segment.unlock();
+            }
+        }
+        return cast( entry.value );
+    }
+
+    /**
+     * Locks and returns the segment for <CODE>hash</CODE>, retrying if the
+     * segments are replaced by a resize meanwhile.
+     */
+    private Segment lockSegment( int hash )
+    {
+        while ( true )
+        {
+            Segment segment = segmentFor( hash );
+            segment.lock();
+            if ( !segment.replaced )
+            {
+                return segment;
+            }
+            segment.unlock();
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private E cast( Object value )
+    {
+        return (E) value;
+    }
+
+    // removes the least recently used elements of a locked segment until
+    // it holds at most toSize elements and, keeping at least the most
+    // recently used one, is within its byte budget
+    private List<Object> evict( Segment segment, int toSize )
+    {
+        List<Object> evicted = null;
+        while ( segment.size > toSize
+            || ( segment.size > 1 && segment.isOverBudget() ) )
+        {
+            Entry eldest = segment.eldest();
+            cache.remove( eldest.key );
+            segment.unlink( eldest );
+            evictions.incrementAndGet();
+            if ( evicted == null )
+            {
+                evicted = new ArrayList<Object>( 1 );
+            }
+            evicted.add( eldest.value );
+        }
+        return evicted;
+    }
+
+    private void cleaned( List<Object> evicted )
+    {
+        if ( evicted != null )
+        {
+            for ( Object element : evicted )
+            {
+                elementCleaned( cast( element ) );
+            }
+        }
     }
 
     public synchronized void clear()
     {
-        resizeInternal( 0 );
+        for ( Segment segment : segments )
+        {
+            segment.lock();
+            try
+            {
+                while ( segment.size > 0 )
+                {
+                    Entry eldest = segment.eldest();
+                    cache.remove( eldest.key );
+                    segment.unlink( eldest );
+                }
+            }
+            finally
+            {
+                segment.unlock();
+            }
+        }
     }
 
-    public synchronized int size()
+    public int size()
     {
-        return cache.size();
+        int size = 0;
+        for ( Segment segment : segments )
+        {
+            size += segment.size;
+        }
+        return size;
     }
 
     /**
@@ -147,6 +383,59 @@ public class LruCache<K,E> implements Cache<K,E>
         return maxSize;
     }
 
+    /**
+     * Returns the estimated number of bytes held by the elements in this
+     * cache, as last measured. Elements are only measured while a byte
+     * budget is set.
+     * 
+     * @return estimated size in bytes
+     */
+    public long sizeInBytes()
+    {
+        long bytes = 0;
+        for ( Segment segment : segments )
+        {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the byte budget of this cache, or <CODE>0</CODE> if it has
+     * none.
+     * 
+     * @return maximum size in bytes
+     */
+    public long maxSizeInBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the byte budget of this cache. While the estimated size of the
+     * elements exceeds <CODE>newMaxBytes</CODE> the least recently used
+     * elements are removed, in addition to keeping the number of elements
+     * within <CODE>maxSize()</CODE>. For each element removed the
+     * {@link #elementCleaned} method is invoked. Elements already in the
+     * cache are measured the next time they are put, or looked up after
+     * they changed.
+     * <p>
+     * A <CODE>newMaxBytes</CODE> of <CODE>0</CODE> removes the budget, if
+     * it is negative an {@link IllegalArgumentException} is thrown.
+     * 
+     * @param newMaxBytes
+     *            the new maximum size of the cache in bytes
+     */
+    public synchronized void setMaxSizeInBytes( long newMaxBytes )
+    {
+        if ( newMaxBytes < 0 )
+        {
+            throw new IllegalArgumentException( "newMaxBytes=" + newMaxBytes );
+        }
+        maxBytes = newMaxBytes;
+        updateLimits( false );
+    }
+
     /**
      * Changes the max size of the cache. If <CODE>newMaxSize</CODE> is
      * greater then <CODE>maxSize()</CODE> next invoke to <CODE>maxSize()</CODE>
@@ -170,38 +459,85 @@ public class LruCache<K,E> implements Cache<K,E>
         {
             throw new IllegalArgumentException( "newMaxSize=" + newMaxSize );
         }
-        resizeInternal( newMaxSize );
-    }
-    
-    private void resizeInternal( int newMaxSize )
-    {
         resizing = true;
         try
         {
-            if ( newMaxSize >= size() )
+            int segmentCount = segmentCount( newMaxSize );
+            if ( segmentCount != segments.length )
             {
-                maxSize = newMaxSize;
+                resegment( segmentCount, newMaxSize );
             }
-            else if ( newMaxSize == 0 )
+            boolean shrink = newMaxSize < size();
+            maxSize = newMaxSize;
+            updateLimits( shrink );
+        }
+        finally
+        {
+            resizing = false;
+        }
+    }
+
+    // sets the limits of each segment from maxSize and maxBytes, evicting
+    // what is over the budget and, if shrink is set, over the size
+    private void updateLimits( boolean shrink )
+    {
+        for ( Segment segment : segments )
+        {
+            List<Object> evicted = null;
+            segment.lock();
+            try
             {
-                cache.clear();
+                segment.maxSize = segmentMaxSize( maxSize, segments.length );
+                segment.maxBytes = segmentMaxBytes( maxBytes,
+                    segments.length );
+                if ( shrink || segment.isOverBudget() )
+                {
+                    evicted = evict( segment,
+                        shrink ? segment.maxSize : segment.size );
+                }
             }
-            else
+            finally
             {
-                maxSize = newMaxSize;
-                java.util.Iterator<Map.Entry<K,E>> itr = cache.entrySet()
-                    .iterator();
-                while ( itr.hasNext() && cache.size() > maxSize )
+                segment.unlock();
+            }
+            cleaned( evicted );
+        }
+    }
+
+    /**
+     * Moves all elements to <CODE>count</CODE> new segments, keeping their
+     * order, with all the old segments locked. Threads waiting for an old
+     * segment will retry with the new ones.
+     */
+    private void resegment( int count, int newMaxSize )
+    {
+        Segment[] oldSegments = segments;
+        Segment[] newSegments = newSegments( count, newMaxSize );
+        for ( Segment segment : oldSegments )
+        {
+            segment.lock();
+        }
+        try
+        {
+            for ( Segment segment : oldSegments )
+            {
+                while ( segment.size > 0 )
                 {
-                    E element = itr.next().getValue();
-                    itr.remove();
-                    elementCleaned( element );
+                    Entry eldest = segment.eldest();
+                    segment.unlink( eldest );
+                    newSegments[hash( eldest.key ) & ( count - 1 )].addNewest(
+                        eldest );
                 }
+                segment.replaced = true;
             }
+            segments = newSegments;
         }
         finally
         {
-            resizing = false;
+            for ( Segment segment : oldSegments )
+            {
+                segment.unlock();
+            }
         }
     }
 
@@ -226,6 +562,119 @@ public class LruCache<K,E> implements Cache<K,E>
 
     public void putAll( Map<K, E> map )
     {
-        cache.putAll( map );
+        for ( Map.Entry<K,E> entry : map.entrySet() )
+        {
+            put( entry.getKey(), entry.getValue() );
+        }
+    }
+
+    public long hitCount()
+    {
+        return sum( hits );
+    }
+
+    public long missCount()
+    {
+        return sum( misses );
+    }
+
+    public long evictionCount()
+    {
+        return evictions.get();
+    }
+
+    private static long sum( AtomicLong[] counters )
+    {
+        long sum = 0;
+        for ( AtomicLong counter : counters )
+        {
+            sum += counter.get();
+        }
+        return sum;
+    }
+
+    private static final class Entry
+    {
+        final Object key;
+        volatile Object value;
+        // guarded by the lock of segment
+        Segment segment;
+        int bytes;
+        Entry newer;
+        Entry older;
+
+        Entry( Object key, Object value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Segment extends ReentrantLock
+    {
+        // circular list, head.newer is the least recently used entry and
+        // head.older the most recently used one
+        private final Entry head = new Entry( null, null );
+        volatile int size = 0;
+        volatile int maxSize;
+        volatile long bytes = 0;
+        // 0 if there is no byte budget
+        volatile long maxBytes = 0;
+        // set when the segment has been replaced by a resize
+        boolean replaced = false;
+
+        Segment( int maxSize )
+        {
+            this.maxSize = maxSize;
+            head.newer = head;
+            head.older = head;
+        }
+
+        Entry eldest()
+        {
+            return head.newer;
+        }
+
+        boolean isOverBudget()
+        {
+            return maxBytes > 0 && bytes > maxBytes;
+        }
+
+        void measured( Entry entry, int entryBytes )
+        {
+            bytes += entryBytes - entry.bytes;
+            entry.bytes = entryBytes;
+        }
+
+        void addNewest( Entry entry )
+        {
+            entry.segment = this;
+            entry.older = head.older;
+            entry.newer = head;
+            head.older.newer = entry;
+            head.older = entry;
+            size++;
+            bytes += entry.bytes;
+        }
+
+        void unlink( Entry entry )
+        {
+            entry.older.newer = entry.newer;
+            entry.newer.older = entry.older;
+            entry.older = null;
+            entry.newer = null;
+            entry.segment = null;
+            size--;
+            bytes -= entry.bytes;
+        }
+
+        void moveToNewest( Entry entry )
+        {
+            if ( head.older != entry )
+            {
+                unlink( entry );
+                addNewest( entry );
+            }
+        }
     }
 }
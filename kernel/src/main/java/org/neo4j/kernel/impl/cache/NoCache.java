@@ -84,4 +84,19 @@ public class NoCache<K,V> implements Cache<K,V>
     public void setAdaptiveStatus( boolean status )
     {
     }
+
+    public long hitCount()
+    {
+        return -1;
+    }
+
+    public long missCount()
+    {
+        return -1;
+    }
+
+    public long evictionCount()
+    {
+        return -1;
+    }
 }
@@ -88,4 +88,19 @@ public class StrongReferenceCache<K,V> implements Cache<K,V>
     {
         return cache.size();
     }
+
+    public long hitCount()
+    {
+        return -1;
+    }
+
+    public long missCount()
+    {
+        return -1;
+    }
+
+    public long evictionCount()
+    {
+        return -1;
+    }
 }
@@ -131,4 +131,19 @@ public class WeakLruCache<K,V> extends ReferenceCache<K,V>
     public void setAdaptiveStatus( boolean status )
     {
     }
-}
\ No newline at end of file
+
+    public long hitCount()
+    {
+        return -1;
+    }
+
+    public long missCount()
+    {
+        return -1;
+    }
+
+    public long evictionCount()
+    {
+        return -1;
+    }
+}
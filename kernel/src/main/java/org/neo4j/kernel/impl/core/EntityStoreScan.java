@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.StoreScan;
+
+/**
+ * A {@link StoreScan} reading the ids in use from the store a batch of
+ * records at a time and wrapping them in proxies, without going through
+ * the node or relationship cache.
+ */
+abstract class EntityStoreScan<T> implements StoreScan<T>
+{
+    /**
+     * Number of ids read from the store at a time, parts of a split scan
+     * start at a multiple of this.
+     */
+    static final int IDS_PER_BATCH = 1024;
+
+    final NodeManager nodeManager;
+    private final long fromId;
+    private final long toId;
+
+    EntityStoreScan( NodeManager nodeManager, long fromId, long toId )
+    {
+        this.nodeManager = nodeManager;
+        this.fromId = fromId;
+        this.toId = toId;
+    }
+
+    public long getFromId()
+    {
+        return fromId;
+    }
+
+    public long getToId()
+    {
+        return toId;
+    }
+
+    public Iterator<T> iterator()
+    {
+        final long endId = endId();
+        return new PrefetchingIterator<T>()
+        {
+            private final long[] ids = new long[IDS_PER_BATCH];
+            private long nextId = fromId;
+            private int count;
+            private int index;
+
+            @Override
+            protected T fetchNextOrNull()
+            {
+                while ( index == count )
+                {
+                    if ( nextId >= endId )
+                    {
+                        return null;
+                    }
+                    long batchEndId = Math.min( endId, nextId + IDS_PER_BATCH );
+                    count = getIdsInUse( nextId, batchEndId, ids );
+                    index = 0;
+                    nextId = batchEndId;
+                }
+                return newEntity( ids[index++] );
+            }
+        };
+    }
+
+    public List<StoreScan<T>> split( int parts )
+    {
+        if ( parts < 1 )
+        {
+            throw new IllegalArgumentException( "Can't split into " + parts +
+                " parts" );
+        }
+        long endId = endId();
+        long idsPerPart = (endId - fromId + parts - 1) / parts;
+        // whole batches, so that parts don't share persistence windows
+        idsPerPart = Math.max( 1, (idsPerPart + IDS_PER_BATCH - 1) /
+            IDS_PER_BATCH ) * IDS_PER_BATCH;
+        List<StoreScan<T>> result = new ArrayList<StoreScan<T>>( parts );
+        long partFromId = fromId;
+        while ( endId - partFromId > idsPerPart )
+        {
+            result.add( newScan( partFromId, partFromId + idsPerPart ) );
+            partFromId += idsPerPart;
+        }
+        // the last part keeps the end of this scan, for an open ended scan
+        // that means ids created after the split are still covered
+        result.add( newScan( partFromId, toId ) );
+        return result;
+    }
+
+    private long endId()
+    {
+        return Math.min( toId, getHighId() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + fromId + "-" +
+            (toId == Long.MAX_VALUE ? "" : String.valueOf( toId )) + "]";
+    }
+
+    abstract long getHighId();
+
+    abstract int getIdsInUse( long fromId, long toId, long[] ids );
+
+    abstract T newEntity( long id );
+
+    abstract StoreScan<T> newScan( long fromId, long toId );
+
+    static class Nodes extends EntityStoreScan<Node>
+    {
+        Nodes( NodeManager nodeManager, long fromId, long toId )
+        {
+            super( nodeManager, fromId, toId );
+        }
+
+        @Override
+        long getHighId()
+        {
+            return nodeManager.getHighestPossibleIdInUse( Node.class ) + 1;
+        }
+
+        @Override
+        int getIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return nodeManager.getNodeIdsInUse( fromId, toId, ids );
+        }
+
+        @Override
+        Node newEntity( long id )
+        {
+            return new NodeProxy( id, nodeManager );
+        }
+
+        @Override
+        StoreScan<Node> newScan( long fromId, long toId )
+        {
+            return new Nodes( nodeManager, fromId, toId );
+        }
+    }
+
+    static class Relationships extends EntityStoreScan<Relationship>
+    {
+        Relationships( NodeManager nodeManager, long fromId, long toId )
+        {
+            super( nodeManager, fromId, toId );
+        }
+
+        @Override
+        long getHighId()
+        {
+            return nodeManager.getHighestPossibleIdInUse( Relationship.class ) + 1;
+        }
+
+        @Override
+        int getIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return nodeManager.getRelationshipIdsInUse( fromId, toId, ids );
+        }
+
+        @Override
+        Relationship newEntity( long id )
+        {
+            return new RelationshipProxy( id, nodeManager );
+        }
+
+        @Override
+        StoreScan<Relationship> newScan( long fromId, long toId )
+        {
+            return new Relationships( nodeManager, fromId, toId );
+        }
+    }
+}
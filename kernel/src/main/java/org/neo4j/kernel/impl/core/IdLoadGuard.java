@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes sure an id is loaded into a cache by one thread at a time, so that
+ * there won't be two instances of the same entity in cache. Only threads
+ * loading the same id wait for each other.
+ * <p>
+ * A thread that misses the cache claims the id before loading it and marks
+ * it as done after the loaded entity has been put in cache. A thread that
+ * fails to claim an id waits for the claiming thread to be done and then
+ * checks the cache again.
+ */
+class IdLoadGuard
+{
+    private final ConcurrentMap<Long,CountDownLatch> loading =
+        new ConcurrentHashMap<Long,CountDownLatch>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * Claims <CODE>id</CODE> for loading. If another thread has claimed it
+     * this method waits for that thread to be done with it.
+     *
+     * @return <CODE>true</CODE> if the id was claimed and must be marked as
+     * {@link #done(long) done}, <CODE>false</CODE> if another thread was done
+     * loading it
+     */
+    boolean claim( long id )
+    {
+        CountDownLatch loaded = tryClaim( id );
+        if ( loaded == null )
+        {
+            return true;
+        }
+        waits.incrementAndGet();
+        long startTime = System.nanoTime();
+        awaitUninterruptibly( loaded );
+        waitTime.addAndGet( System.nanoTime() - startTime );
+        return false;
+    }
+
+    /**
+     * Claims each of the <CODE>ids</CODE> that no other thread has claimed,
+     * without waiting.
+     *
+     * @return the claimed ids, which must be marked as
+     * {@link #done(long) done}
+     */
+    long[] tryClaim( long[] ids )
+    {
+        long[] claimed = new long[ids.length];
+        int count = 0;
+        for ( long id : ids )
+        {
+            if ( tryClaim( id ) == null )
+            {
+                claimed[count++] = id;
+            }
+        }
+        return count == claimed.length ? claimed : Arrays.copyOf( claimed, count );
+    }
+
+    void done( long id )
+    {
+        loading.remove( id ).countDown();
+    }
+
+    void done( long[] ids )
+    {
+        for ( long id : ids )
+        {
+            done( id );
+        }
+    }
+
+    private CountDownLatch tryClaim( long id )
+    {
+        CountDownLatch loaded = loading.putIfAbsent( id, new CountDownLatch( 1 ) );
+        if ( loaded == null )
+        {
+            loads.incrementAndGet();
+        }
+        return loaded;
+    }
+
+    private static void awaitUninterruptibly( CountDownLatch latch )
+    {
+        boolean interrupted = false;
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    latch.await();
+                    return;
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return the number of ids that have been claimed for loading
+     */
+    long getNumberOfLoads()
+    {
+        return loads.get();
+    }
+
+    /**
+     * @return the number of times a thread has waited for another thread
+     * loading the same id
+     */
+    long getNumberOfLoadWaits()
+    {
+        return waits.get();
+    }
+
+    /**
+     * @return the total time, in milliseconds, threads have waited for other
+     * threads loading the same id
+     */
+    long getTotalLoadWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( waitTime.get() );
+    }
+}
@@ -112,7 +112,7 @@ class IntArrayIterator implements Iterable<Relationship>,
                 {
                     currentTypeIterator = typeIterator.next();
                 }
-                else if ( fromNode.getMoreRelationships( nodeManager ) )
+                else if ( fromNode.getMoreRelationships( nodeManager, types, direction ) )
                 {
                     Map<String, RelTypeElementIterator> newRels = new HashMap<String, RelTypeElementIterator>();
                     for ( RelTypeElementIterator itr : rels )
@@ -136,7 +136,7 @@ class IntArrayIterator implements Iterable<Relationship>,
                             RelTypeElementIterator itr = newRels.get( type );
                             if ( itr == null || itr.isSrcEmpty() )
                             {
-                                itr = itr == null ? new FastRelTypeElement( type, fromNode, entry.getValue() ) :
+                                itr = itr == null ? fromNode.getRelationshipsOfType( nodeManager, type ) :
                                         itr.setSrc( entry.getValue() );
                                 newRels.put( type, itr );
                             }
@@ -35,7 +35,6 @@ import org.neo4j.graphdb.Traverser;
 import org.neo4j.graphdb.Traverser.Order;
 import org.neo4j.helpers.Pair;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
-import org.neo4j.kernel.impl.nioneo.store.Record;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipChainPosition;
 import org.neo4j.kernel.impl.transaction.LockType;
 import org.neo4j.kernel.impl.traversal.OldTraverserWrapper;
@@ -60,11 +59,31 @@ class NodeImpl extends Primitive
         if ( newNode )
         {
             relationshipMap = new ArrayMap<String,RelIdArray>();
-            relChainPosition = new RelationshipChainPosition(
-                Record.NO_NEXT_RELATIONSHIP.intValue() );
+            relChainPosition = new RelationshipChainPosition();
         }
     }
 
+    @Override
+    public int size()
+    {
+        // relationship map and chain position references
+        int size = super.size() + 8;
+        ArrayMap<String,RelIdArray> relationships = relationshipMap;
+        if ( relationships != null )
+        {
+            size += 64;
+            for ( RelIdArray ids : relationships.values() )
+            {
+                size += 32 + ids.size();
+            }
+        }
+        if ( relChainPosition != null )
+        {
+            size += 32;
+        }
+        return size;
+    }
+
     @Override
     public int hashCode()
     {
@@ -101,9 +120,11 @@ class NodeImpl extends Primitive
         return nodeManager.loadProperties( this, light );
     }
 
-    List<RelTypeElementIterator> getAllRelationships( NodeManager nodeManager )
+    List<RelTypeElementIterator> getAllRelationships( NodeManager nodeManager,
+        Direction direction )
     {
         ensureRelationshipMapNotNull( nodeManager );
+        ensureFirstRelationshipsLoaded( nodeManager, direction );
         List<RelTypeElementIterator> relTypeList =
             new LinkedList<RelTypeElementIterator>();
         boolean hasModifications = nodeManager.getLockReleaser().hasRelationshipModifications( this );
@@ -146,54 +167,56 @@ class NodeImpl extends Primitive
     }
 
     List<RelTypeElementIterator> getAllRelationshipsOfType( NodeManager nodeManager,
-        RelationshipType... types)
+        Direction direction, RelationshipType... types)
     {
         ensureRelationshipMapNotNull( nodeManager );
+        ensureFirstRelationshipsLoaded( nodeManager, direction, types );
         List<RelTypeElementIterator> relTypeList =
             new LinkedList<RelTypeElementIterator>();
-        boolean hasModifications = nodeManager.getLockReleaser().hasRelationshipModifications( this );
         for ( RelationshipType type : types )
         {
-            RelIdArray src = relationshipMap.get( type.name() );
-            RelIdArray remove = null;
-            RelIdArray add = null;
-            if ( hasModifications )
-            {
-                remove = nodeManager.getCowRelationshipRemoveMap( this, type.name() );
-                add = nodeManager.getCowRelationshipAddMap( this, type.name() );
-            }
-//            if ( src != null || add != null )
-//            {
-                relTypeList.add( RelTypeElement.create( type.name(), this, src, add, remove ) );
-//            }
+            relTypeList.add( getRelationshipsOfType( nodeManager, type.name() ) );
         }
         return relTypeList;
     }
 
+    RelTypeElementIterator getRelationshipsOfType( NodeManager nodeManager, String type )
+    {
+        RelIdArray src = relationshipMap.get( type );
+        RelIdArray remove = null;
+        RelIdArray add = null;
+        if ( nodeManager.getLockReleaser().hasRelationshipModifications( this ) )
+        {
+            remove = nodeManager.getCowRelationshipRemoveMap( this, type );
+            add = nodeManager.getCowRelationshipAddMap( this, type );
+        }
+        return RelTypeElement.create( type, this, src, add, remove );
+    }
+
     public Iterable<Relationship> getRelationships( NodeManager nodeManager )
     {
-        return new IntArrayIterator( getAllRelationships( nodeManager ), this,
-            Direction.BOTH, nodeManager, new RelationshipType[0] );
+        return new IntArrayIterator( getAllRelationships( nodeManager, Direction.BOTH ),
+            this, Direction.BOTH, nodeManager, new RelationshipType[0] );
     }
 
     public Iterable<Relationship> getRelationships( NodeManager nodeManager, Direction dir )
     {
-        return new IntArrayIterator( getAllRelationships( nodeManager ), this, dir,
-            nodeManager, new RelationshipType[0] );
+        return new IntArrayIterator( getAllRelationships( nodeManager, dir ), this,
+            dir, nodeManager, new RelationshipType[0] );
     }
 
     public Iterable<Relationship> getRelationships( NodeManager nodeManager, RelationshipType type )
     {
         RelationshipType types[] = new RelationshipType[] { type };
-        return new IntArrayIterator( getAllRelationshipsOfType( nodeManager, types ),
-            this, Direction.BOTH, nodeManager, types );
+        return new IntArrayIterator( getAllRelationshipsOfType( nodeManager,
+            Direction.BOTH, types ), this, Direction.BOTH, nodeManager, types );
     }
 
     public Iterable<Relationship> getRelationships( NodeManager nodeManager,
             RelationshipType... types )
     {
-        return new IntArrayIterator( getAllRelationshipsOfType( nodeManager, types ),
-            this, Direction.BOTH, nodeManager, types );
+        return new IntArrayIterator( getAllRelationshipsOfType( nodeManager,
+            Direction.BOTH, types ), this, Direction.BOTH, nodeManager, types );
     }
 
     public Relationship getSingleRelationship( NodeManager nodeManager, RelationshipType type,
@@ -201,7 +224,7 @@ class NodeImpl extends Primitive
     {
         RelationshipType types[] = new RelationshipType[] { type };
         Iterator<Relationship> rels = new IntArrayIterator( getAllRelationshipsOfType( nodeManager,
-                types ),
+                dir, types ),
             this, dir, nodeManager, types );
         if ( !rels.hasNext() )
         {
@@ -220,8 +243,8 @@ class NodeImpl extends Primitive
         Direction dir )
     {
         RelationshipType types[] = new RelationshipType[] { type };
-        return new IntArrayIterator( getAllRelationshipsOfType( nodeManager, types ),
-            this, dir, nodeManager, types );
+        return new IntArrayIterator( getAllRelationshipsOfType( nodeManager,
+            dir, types ), this, dir, nodeManager, types );
     }
 
     public void delete( NodeManager nodeManager )
@@ -292,69 +315,72 @@ class NodeImpl extends Primitive
         }
     }
 
-    private void loadInitialRelationships( NodeManager nodeManager )
+    /**
+     * Loads the first batch of relationships of <CODE>types</CODE>, or of
+     * any type if <CODE>types</CODE> is empty, unless some of them are loaded
+     * already. An iterator then sees the relationships that existed when it
+     * was created, as it did when that batch was loaded with the node.
+     */
+    private void ensureFirstRelationshipsLoaded( NodeManager nodeManager,
+        Direction direction, RelationshipType... types )
     {
-        Map<Long,RelationshipImpl> map = null;
-        synchronized ( this )
+        if ( types.length == 0 )
         {
-            if ( relationshipMap == null )
+            if ( relationshipMap.size() > 0 )
             {
-                this.relChainPosition =
-                    nodeManager.getRelationshipChainPosition( this );
-                ArrayMap<String,RelIdArray> tmpRelMap = new ArrayMap<String,RelIdArray>();
-                map = getMoreRelationships( nodeManager, tmpRelMap );
-                this.relationshipMap = tmpRelMap;
+                return;
             }
         }
-        if ( map != null )
+        else
         {
-            nodeManager.putAllInRelCache( map );
+            for ( RelationshipType type : types )
+            {
+                if ( relationshipMap.get( type.name() ) != null )
+                {
+                    return;
+                }
+            }
         }
+        getMoreRelationships( nodeManager, types, direction );
     }
 
-    private Map<Long,RelationshipImpl> getMoreRelationships( NodeManager nodeManager, 
-            ArrayMap<String,RelIdArray> tmpRelMap )
+    private void loadInitialRelationships( NodeManager nodeManager )
     {
-        if ( !relChainPosition.hasMore() )
-        {
-            return null;
-        }
-        Pair<ArrayMap<String,RelIdArray>,Map<Long,RelationshipImpl>> pair = 
-            nodeManager.getMoreRelationships( this );
-        ArrayMap<String,RelIdArray> addMap = pair.first();
-        if ( addMap.size() == 0 )
-        {
-            return null;
-        }
-        for ( String type : addMap.keySet() )
+        synchronized ( this )
         {
-            RelIdArray addRels = addMap.get( type );
-            RelIdArray srcRels = tmpRelMap.get( type );
-            if ( srcRels == null )
-            {
-                tmpRelMap.put( type, addRels );
-            }
-            else
+            if ( relationshipMap == null )
             {
-                srcRels.addAll( addRels );
+                // relationships are loaded per type and direction as they
+                // are asked for, see ensureFirstRelationshipsLoaded and
+                // getMoreRelationships
+                this.relChainPosition =
+                    nodeManager.getRelationshipChainPosition( this );
+                this.relationshipMap = new ArrayMap<String,RelIdArray>();
+                sizeChanged();
             }
         }
-        return pair.other();
-        // nodeManager.putAllInRelCache( pair.other() );
     }
-    
-    boolean getMoreRelationships( NodeManager nodeManager )
+
+    /**
+     * Loads more relationships of any of <CODE>types</CODE>, or of any type
+     * if <CODE>types</CODE> is empty, in <CODE>direction</CODE>. Relationship
+     * chains of other types and directions aren't touched.
+     *
+     * @return <CODE>true</CODE> if more relationships were loaded
+     */
+    boolean getMoreRelationships( NodeManager nodeManager,
+        RelationshipType[] types, Direction direction )
     {
-        // ArrayMap<String, IntArray> tmpRelMap = relationshipMap;
+        int[] typeIds = nodeManager.getRelationshipTypeIds( types );
         Pair<ArrayMap<String,RelIdArray>,Map<Long,RelationshipImpl>> pair;
         synchronized ( this )
         {
-            if ( !relChainPosition.hasMore() )
+            if ( !relChainPosition.hasMore( typeIds, direction ) )
             {
                 return false;
             }
             
-            pair = nodeManager.getMoreRelationships( this );
+            pair = nodeManager.getMoreRelationships( this, typeIds, direction );
             ArrayMap<String,RelIdArray> addMap = pair.first();
             if ( addMap.size() == 0 )
             {
@@ -363,7 +389,6 @@ class NodeImpl extends Primitive
             for ( String type : addMap.keySet() )
             {
                 RelIdArray addRels = addMap.get( type );
-                // IntArray srcRels = tmpRelMap.get( type );
                 RelIdArray srcRels = relationshipMap.get( type );
                 if ( srcRels == null )
                 {
@@ -374,6 +399,7 @@ class NodeImpl extends Primitive
                     srcRels.addAll( addRels );
                 }
             }
+            sizeChanged();
         }
         nodeManager.putAllInRelCache( pair.other() );
         return true;
@@ -501,6 +527,7 @@ class NodeImpl extends Primitive
                 relationshipMap.put( type, RelIdArray.from( src, null, remove ) );
             }
         }
+        sizeChanged();
     }
 
     RelationshipChainPosition getRelChainPosition()
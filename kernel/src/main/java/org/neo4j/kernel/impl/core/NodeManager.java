@@ -19,14 +19,15 @@
  */
 package org.neo4j.kernel.impl.core;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.transaction.TransactionManager;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
@@ -35,8 +36,10 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.helpers.Pair;
+import org.neo4j.kernel.StoreScan;
 import org.neo4j.kernel.impl.cache.AdaptiveCacheManager;
 import org.neo4j.kernel.impl.cache.Cache;
+import org.neo4j.kernel.impl.cache.ClockCache;
 import org.neo4j.kernel.impl.cache.LruCache;
 import org.neo4j.kernel.impl.cache.NoCache;
 import org.neo4j.kernel.impl.cache.SoftLruCache;
@@ -80,10 +83,11 @@ public class NodeManager
     private int minRelCacheSize = 0;
     private int maxNodeCacheSize = 1500;
     private int maxRelCacheSize = 3500;
+    private long maxNodeCacheBytes = 0;
+    private long maxRelCacheBytes = 0;
 
-    private static final int LOCK_STRIPE_COUNT = 32;
-    private final ReentrantLock loadLocks[] =
-        new ReentrantLock[LOCK_STRIPE_COUNT];
+    private final IdLoadGuard nodeLoads = new IdLoadGuard();
+    private final IdLoadGuard relLoads = new IdLoadGuard();
 
     NodeManager( GraphDatabaseService graphDb,
             AdaptiveCacheManager cacheManager, LockManager lockManager,
@@ -108,10 +112,6 @@ public class NodeManager
         this.cacheType = cacheType;
         this.nodeCache = cacheType.node( cacheManager );
         this.relCache = cacheType.relationship( cacheManager );
-        for ( int i = 0; i < loadLocks.length; i++ )
-        {
-            loadLocks[i] = new ReentrantLock();
-        }
     }
 
     public GraphDatabaseService getGraphDbService()
@@ -213,6 +213,52 @@ public class NodeManager
                     + value );
             }
         }
+        if ( params.containsKey( "max_node_cache_memory" ) )
+        {
+            Object value = params.get( "max_node_cache_memory" );
+            try
+            {
+                maxNodeCacheBytes = parseBytes( (String) value );
+            }
+            catch ( NumberFormatException e )
+            {
+                log.warning( "Unable to parse max_node_cache_memory " + value );
+            }
+        }
+        if ( params.containsKey( "max_relationship_cache_memory" ) )
+        {
+            Object value = params.get( "max_relationship_cache_memory" );
+            try
+            {
+                maxRelCacheBytes = parseBytes( (String) value );
+            }
+            catch ( NumberFormatException e )
+            {
+                log.warning( "Unable to parse max_relationship_cache_memory "
+                    + value );
+            }
+        }
+    }
+
+    private static long parseBytes( String value )
+    {
+        long multiplier = 1;
+        if ( value.endsWith( "M" ) )
+        {
+            multiplier = 1024 * 1024;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        else if ( value.endsWith( "k" ) )
+        {
+            multiplier = 1024;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        else if ( value.endsWith( "G" ) )
+        {
+            multiplier = 1024 * 1024 * 1024;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        return Long.parseLong( value ) * multiplier;
     }
 
     public void start( Map<Object,Object> params )
@@ -220,6 +266,8 @@ public class NodeManager
         parseParams( params );
         nodeCache.resize( maxNodeCacheSize );
         relCache.resize( maxRelCacheSize );
+        setMaxSizeInBytes( nodeCache, maxNodeCacheBytes );
+        setMaxSizeInBytes( relCache, maxRelCacheBytes );
         if ( useAdaptiveCache && cacheType.needsCacheManagerRegistration )
         {
             cacheManager.registerCache( nodeCache, adaptiveCacheHeapRatio,
@@ -230,6 +278,24 @@ public class NodeManager
         }
     }
 
+    private void setMaxSizeInBytes( Cache<Long,?> cache, long maxBytes )
+    {
+        if ( maxBytes <= 0 )
+        {
+            return;
+        }
+        if ( cache instanceof LruCache )
+        {
+            ((LruCache<Long,?>) cache).setMaxSizeInBytes( maxBytes );
+        }
+        else
+        {
+            log.warning( "Cache " + cache.getName() + " of type "
+                + cacheType.getDescription()
+                + " doesn't support a memory budget, ignoring it" );
+        }
+    }
+
     public void stop()
     {
         if ( useAdaptiveCache && cacheType.needsCacheManagerRegistration )
@@ -357,103 +423,221 @@ public class NodeManager
         }
     }
 
-    private ReentrantLock lockId( long id )
+    public Node getNodeById( long nodeId ) throws NotFoundException
     {
-        // TODO: Change stripe mod for new 4B+
-        int stripe = (int) (id / 32768) % LOCK_STRIPE_COUNT;
-        if ( stripe < 0 )
+        if ( getLightNode( nodeId ) == null )
         {
-            stripe *= -1;
+            throw new NotFoundException( "Node[" + nodeId + "]" );
         }
-        ReentrantLock lock = loadLocks[stripe];
-        lock.lock();
-        return lock;
+        return new NodeProxy( nodeId, this );
+    }
+
+    /**
+     * Returns the nodes with the given ids, in the same order as
+     * <CODE>ids</CODE>. The nodes that aren't in cache are read from the
+     * store in id order, each persistence window once, and put in cache.
+     * <p>
+     * If any <CODE>propertyKeys</CODE> are given the properties of the nodes
+     * are loaded as well, together with the values of those keys, so that
+     * getting them from the returned nodes won't have to go to the store.
+     * 
+     * @throws NotFoundException if any of the nodes doesn't exist
+     */
+    public Node[] getNodesById( long[] ids, String... propertyKeys )
+    {
+        long[] sortedIds = sortedCopy( ids );
+        loadNodes( sortedIds );
+        if ( propertyKeys.length > 0 )
+        {
+            for ( int i = 0; i < sortedIds.length; i++ )
+            {
+                if ( i == 0 || sortedIds[i] != sortedIds[i - 1] )
+                {
+                    loadProperties( getNodeForProxy( sortedIds[i] ),
+                        propertyKeys );
+                }
+            }
+        }
+        Node[] nodes = new Node[ids.length];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            nodes[i] = new NodeProxy( ids[i], this );
+        }
+        return nodes;
     }
 
-    public Node getNodeById( long nodeId ) throws NotFoundException
+    private void loadNodes( long[] sortedIds )
     {
-        NodeImpl node = nodeCache.get( nodeId );
-        if ( node != null )
-        {
-            return new NodeProxy( nodeId, this );
-        }
-        ReentrantLock loadLock = lockId( nodeId );
+        long[] ids = idsNotInCache( nodeCache, sortedIds );
+        long[] claimedIds = nodeLoads.tryClaim( ids );
         try
         {
-            if ( nodeCache.get( nodeId ) != null )
+            long[] loadIds = idsNotInCache( nodeCache, claimedIds );
+            boolean[] found = new boolean[loadIds.length];
+            persistenceManager.loadLightNodes( loadIds, found );
+            for ( int i = 0; i < loadIds.length; i++ )
             {
-                return new NodeProxy( nodeId, this );
-            }
-            if ( !persistenceManager.loadLightNode( nodeId ) )
-            {
-                throw new NotFoundException( "Node[" + nodeId + "]" );
+                if ( !found[i] )
+                {
+                    throw new NotFoundException( "Node[" + loadIds[i] + "]" );
+                }
+                nodeCache.put( loadIds[i], new NodeImpl( loadIds[i] ) );
             }
-            node = new NodeImpl( nodeId );
-            nodeCache.put( nodeId, node );
-            return new NodeProxy( nodeId, this );
         }
         finally
         {
-            loadLock.unlock();
+            nodeLoads.done( claimedIds );
+        }
+        // the ids other threads were loading, one at a time
+        if ( claimedIds.length < ids.length )
+        {
+            for ( long id : ids )
+            {
+                if ( Arrays.binarySearch( claimedIds, id ) < 0 )
+                {
+                    getNodeForProxy( id );
+                }
+            }
         }
     }
 
-    NodeImpl getLightNode( long nodeId )
+    /**
+     * Returns the relationships with the given ids, in the same order as
+     * <CODE>ids</CODE>, loading the ones that aren't in cache the same way
+     * as {@link #getNodesById(long[], String...)} does for nodes.
+     * 
+     * @throws NotFoundException if any of the relationships doesn't exist
+     */
+    public Relationship[] getRelationshipsById( long[] ids,
+        String... propertyKeys )
     {
-        NodeImpl node = nodeCache.get( nodeId );
-        if ( node != null )
+        long[] sortedIds = sortedCopy( ids );
+        loadRelationships( sortedIds );
+        if ( propertyKeys.length > 0 )
         {
-            return node;
+            for ( int i = 0; i < sortedIds.length; i++ )
+            {
+                if ( i == 0 || sortedIds[i] != sortedIds[i - 1] )
+                {
+                    loadProperties( getRelForProxy( sortedIds[i] ),
+                        propertyKeys );
+                }
+            }
+        }
+        Relationship[] relationships = new Relationship[ids.length];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            relationships[i] = new RelationshipProxy( ids[i], this );
         }
-        ReentrantLock loadLock = lockId( nodeId );
+        return relationships;
+    }
+
+    private void loadRelationships( long[] sortedIds )
+    {
+        long[] ids = idsNotInCache( relCache, sortedIds );
+        long[] claimedIds = relLoads.tryClaim( ids );
         try
         {
-            node = nodeCache.get( nodeId );
-            if ( node != null )
+            long[] loadIds = idsNotInCache( relCache, claimedIds );
+            RelationshipData[] data =
+                persistenceManager.loadLightRelationships( loadIds );
+            for ( int i = 0; i < loadIds.length; i++ )
             {
-                return node;
-            }
-            if ( !persistenceManager.loadLightNode( nodeId ) )
-            {
-                return null;
+                if ( data[i] == null )
+                {
+                    throw new NotFoundException( "Relationship[" + loadIds[i]
+                        + "]" );
+                }
+                relCache.put( loadIds[i], newRelationship( data[i] ) );
             }
-            node = new NodeImpl( nodeId );
-            nodeCache.put( nodeId, node );
-            return node;
         }
         finally
         {
-            loadLock.unlock();
+            relLoads.done( claimedIds );
+        }
+        // the ids other threads were loading, one at a time
+        if ( claimedIds.length < ids.length )
+        {
+            for ( long id : ids )
+            {
+                if ( Arrays.binarySearch( claimedIds, id ) < 0 )
+                {
+                    getRelForProxy( id );
+                }
+            }
         }
     }
 
-    NodeImpl getNodeForProxy( long nodeId )
+    private void loadProperties( Primitive primitive, String[] propertyKeys )
     {
-        NodeImpl node = nodeCache.get( nodeId );
-        if ( node != null )
+        for ( String key : propertyKeys )
         {
-            return node;
+            primitive.getProperty( this, key, null );
         }
-        ReentrantLock loadLock = lockId( nodeId );
-        try
+    }
+
+    private static long[] sortedCopy( long[] ids )
+    {
+        long[] sortedIds = ids.clone();
+        Arrays.sort( sortedIds );
+        return sortedIds;
+    }
+
+    // the distinct ids in sortedIds not in cache, in order
+    private static long[] idsNotInCache( Cache<Long,?> cache, long[] sortedIds )
+    {
+        long[] ids = new long[sortedIds.length];
+        int count = 0;
+        for ( long id : sortedIds )
         {
-            node = nodeCache.get( nodeId );
-            if ( node != null )
+            if ( (count == 0 || ids[count - 1] != id) && cache.get( id ) == null )
             {
-                return node;
+                ids[count++] = id;
             }
-            if ( !persistenceManager.loadLightNode( nodeId ) )
+        }
+        return count == ids.length ? ids : Arrays.copyOf( ids, count );
+    }
+
+    NodeImpl getLightNode( long nodeId )
+    {
+        NodeImpl node = nodeCache.get( nodeId );
+        while ( node == null )
+        {
+            if ( nodeLoads.claim( nodeId ) )
             {
-                throw new NotFoundException( "Node[" + nodeId + "] not found." );
+                try
+                {
+                    node = nodeCache.get( nodeId );
+                    if ( node != null )
+                    {
+                        return node;
+                    }
+                    if ( !persistenceManager.loadLightNode( nodeId ) )
+                    {
+                        return null;
+                    }
+                    node = new NodeImpl( nodeId );
+                    nodeCache.put( nodeId, node );
+                    return node;
+                }
+                finally
+                {
+                    nodeLoads.done( nodeId );
+                }
             }
-            node = new NodeImpl( nodeId );
-            nodeCache.put( nodeId, node );
-            return node;
+            node = nodeCache.get( nodeId );
         }
-        finally
+        return node;
+    }
+
+    NodeImpl getNodeForProxy( long nodeId )
+    {
+        NodeImpl node = getLightNode( nodeId );
+        if ( node == null )
         {
-            loadLock.unlock();
+            throw new NotFoundException( "Node[" + nodeId + "] not found." );
         }
+        return node;
     }
 
     public Node getReferenceNode() throws NotFoundException
@@ -473,43 +657,11 @@ public class NodeManager
     public Relationship getRelationshipById( long relId )
         throws NotFoundException
     {
-        RelationshipImpl relationship = relCache.get( relId );
-        if ( relationship != null )
+        if ( getLightRelationship( relId ) == null )
         {
-            return new RelationshipProxy( relId, this );
-        }
-        ReentrantLock loadLock = lockId( relId );
-        try
-        {
-            relationship = relCache.get( relId );
-            if ( relationship != null )
-            {
-                return new RelationshipProxy( relId, this );
-            }
-            RelationshipData data = persistenceManager.loadLightRelationship(
-                relId );
-            if ( data == null )
-            {
-                throw new NotFoundException( "Relationship[" + relId + "]" );
-            }
-            int typeId = data.relationshipType();
-            RelationshipType type = getRelationshipTypeById( typeId );
-            if ( type == null )
-            {
-                throw new NotFoundException( "Relationship[" + data.getId()
-                    + "] exist but relationship type[" + typeId
-                    + "] not found." );
-            }
-            final long startNodeId = data.firstNode();
-            final long endNodeId = data.secondNode();
-            relationship = new RelationshipImpl( relId, startNodeId, endNodeId, type, false );
-            relCache.put( relId, relationship );
-            return new RelationshipProxy( relId, this );
-        }
-        finally
-        {
-            loadLock.unlock();
+            throw new NotFoundException( "Relationship[" + relId + "]" );
         }
+        return new RelationshipProxy( relId, this );
     }
 
     RelationshipType getRelationshipTypeById( int id )
@@ -519,43 +671,61 @@ public class NodeManager
 
     RelationshipImpl getRelForProxy( long relId )
     {
-        RelationshipImpl relationship = relCache.get( relId );
-        if ( relationship != null )
+        RelationshipImpl relationship = getLightRelationship( relId );
+        if ( relationship == null )
         {
-            return relationship;
+            throw new NotFoundException( "Relationship[" + relId
+                + "] not found." );
         }
-        ReentrantLock loadLock = lockId( relId );
-        try
+        return relationship;
+    }
+
+    private RelationshipImpl getLightRelationship( long relId )
+    {
+        RelationshipImpl relationship = relCache.get( relId );
+        while ( relationship == null )
         {
-            relationship = relCache.get( relId );
-            if ( relationship != null )
-            {
-                return relationship;
-            }
-            RelationshipData data = persistenceManager.loadLightRelationship(
-                relId );
-            if ( data == null )
+            if ( relLoads.claim( relId ) )
             {
-                throw new NotFoundException( "Relationship[" + relId
-                    + "] not found." );
-            }
-            int typeId = data.relationshipType();
-            RelationshipType type = getRelationshipTypeById( typeId );
-            if ( type == null )
-            {
-                throw new NotFoundException( "Relationship[" + data.getId()
-                    + "] exist but relationship type[" + typeId
-                    + "] not found." );
+                try
+                {
+                    relationship = relCache.get( relId );
+                    if ( relationship != null )
+                    {
+                        return relationship;
+                    }
+                    RelationshipData data =
+                        persistenceManager.loadLightRelationship( relId );
+                    if ( data == null )
+                    {
+                        return null;
+                    }
+                    relationship = newRelationship( data );
+                    relCache.put( relId, relationship );
+                    return relationship;
+                }
+                finally
+                {
+                    relLoads.done( relId );
+                }
             }
-            relationship = new RelationshipImpl( relId, data.firstNode(), data.secondNode(), type,
-                    false );
-            relCache.put( relId, relationship );
-            return relationship;
+            relationship = relCache.get( relId );
         }
-        finally
+        return relationship;
+    }
+
+    private RelationshipImpl newRelationship( RelationshipData data )
+    {
+        int typeId = data.relationshipType();
+        RelationshipType type = getRelationshipTypeById( typeId );
+        if ( type == null )
         {
-            loadLock.unlock();
+            throw new NotFoundException( "Relationship[" + data.getId()
+                + "] exist but relationship type[" + typeId
+                + "] not found." );
         }
+        return new RelationshipImpl( data.getId(), data.firstNode(),
+            data.secondNode(), type, false );
     }
 
     public void removeNodeFromCache( long nodeId )
@@ -578,12 +748,43 @@ public class NodeManager
         return persistenceManager.getRelationshipChainPosition( node.getId() );
     }
 
-    Pair<ArrayMap<String,RelIdArray>,Map<Long,RelationshipImpl>> getMoreRelationships( NodeImpl node )
+    /**
+     * Returns the ids of <CODE>types</CODE>, or <CODE>null</CODE> meaning
+     * all types if <CODE>types</CODE> is empty. Types that don't exist are
+     * left out.
+     */
+    int[] getRelationshipTypeIds( RelationshipType... types )
+    {
+        if ( types.length == 0 )
+        {
+            return null;
+        }
+        int[] typeIds = new int[types.length];
+        int count = 0;
+        for ( RelationshipType type : types )
+        {
+            Integer typeId = relTypeHolder.getIdFor( type.name() );
+            if ( typeId != null )
+            {
+                typeIds[count++] = typeId;
+            }
+        }
+        if ( count < typeIds.length )
+        {
+            int[] existingTypeIds = new int[count];
+            System.arraycopy( typeIds, 0, existingTypeIds, 0, count );
+            typeIds = existingTypeIds;
+        }
+        return typeIds;
+    }
+
+    Pair<ArrayMap<String,RelIdArray>,Map<Long,RelationshipImpl>> getMoreRelationships(
+        NodeImpl node, int[] typeIds, Direction direction )
     {
         long nodeId = node.getId();
         RelationshipChainPosition position = node.getRelChainPosition();
-        Iterable<RelationshipData> rels =
-            persistenceManager.getMoreRelationships( nodeId, position );
+        Iterable<RelationshipData> rels = persistenceManager.getMoreRelationships(
+            nodeId, position, typeIds, direction );
         ArrayMap<String,RelIdArray> newRelationshipMap =
             new ArrayMap<String,RelIdArray>();
         Map<Long,RelationshipImpl> relsMap = new HashMap<Long,RelationshipImpl>( 150 );
@@ -645,6 +846,142 @@ public class NodeManager
         return relCache.size();
     }
 
+    /**
+     * @return the number of node cache hits, or <CODE>-1</CODE> if the
+     * cache type doesn't count them
+     */
+    public long getNodeCacheHits()
+    {
+        return nodeCache.hitCount();
+    }
+
+    /**
+     * @return the number of node cache misses, or <CODE>-1</CODE> if the
+     * cache type doesn't count them
+     */
+    public long getNodeCacheMisses()
+    {
+        return nodeCache.missCount();
+    }
+
+    /**
+     * @return the number of nodes evicted from cache, or <CODE>-1</CODE> if
+     * the cache type doesn't count them
+     */
+    public long getNodeCacheEvictions()
+    {
+        return nodeCache.evictionCount();
+    }
+
+    /**
+     * @return the number of relationship cache hits, or <CODE>-1</CODE> if
+     * the cache type doesn't count them
+     */
+    public long getRelationshipCacheHits()
+    {
+        return relCache.hitCount();
+    }
+
+    /**
+     * @return the number of relationship cache misses, or <CODE>-1</CODE> if
+     * the cache type doesn't count them
+     */
+    public long getRelationshipCacheMisses()
+    {
+        return relCache.missCount();
+    }
+
+    /**
+     * @return the number of relationships evicted from cache, or
+     * <CODE>-1</CODE> if the cache type doesn't count them
+     */
+    public long getRelationshipCacheEvictions()
+    {
+        return relCache.evictionCount();
+    }
+
+    /**
+     * @return the estimated number of bytes held by the node cache, or
+     * <CODE>-1</CODE> if the cache type doesn't keep a memory budget
+     */
+    public long getNodeCacheSizeInBytes()
+    {
+        return sizeInBytes( nodeCache );
+    }
+
+    /**
+     * @return the memory budget of the node cache in bytes, <CODE>0</CODE>
+     * if it has none or <CODE>-1</CODE> if the cache type doesn't support one
+     */
+    public long getNodeCacheMaxSizeInBytes()
+    {
+        return maxSizeInBytes( nodeCache );
+    }
+
+    /**
+     * @return the estimated number of bytes held by the relationship cache,
+     * or <CODE>-1</CODE> if the cache type doesn't keep a memory budget
+     */
+    public long getRelationshipCacheSizeInBytes()
+    {
+        return sizeInBytes( relCache );
+    }
+
+    /**
+     * @return the memory budget of the relationship cache in bytes,
+     * <CODE>0</CODE> if it has none or <CODE>-1</CODE> if the cache type
+     * doesn't support one
+     */
+    public long getRelationshipCacheMaxSizeInBytes()
+    {
+        return maxSizeInBytes( relCache );
+    }
+
+    private static long sizeInBytes( Cache<Long,?> cache )
+    {
+        if ( cache instanceof LruCache )
+        {
+            return ((LruCache<Long,?>) cache).sizeInBytes();
+        }
+        return -1;
+    }
+
+    private static long maxSizeInBytes( Cache<Long,?> cache )
+    {
+        if ( cache instanceof LruCache )
+        {
+            return ((LruCache<Long,?>) cache).maxSizeInBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of nodes and relationships that have been loaded
+     * from the store on a cache miss
+     */
+    public long getNumberOfLoads()
+    {
+        return nodeLoads.getNumberOfLoads() + relLoads.getNumberOfLoads();
+    }
+
+    /**
+     * @return the number of times a thread has waited for another thread
+     * loading the same node or relationship
+     */
+    public long getNumberOfLoadWaits()
+    {
+        return nodeLoads.getNumberOfLoadWaits() + relLoads.getNumberOfLoadWaits();
+    }
+
+    /**
+     * @return the total time, in milliseconds, threads have waited for
+     * other threads loading the same node or relationship
+     */
+    public long getTotalLoadWaitTime()
+    {
+        return nodeLoads.getTotalLoadWaitTime() + relLoads.getTotalLoadWaitTime();
+    }
+
     public void clearCache()
     {
         nodeCache.clear();
@@ -735,6 +1072,32 @@ public class NodeManager
         return idGenerator.getHighestPossibleIdInUse( clazz );
     }
 
+    /**
+     * @return a scan over all nodes, see {@link StoreScan}
+     */
+    public StoreScan<Node> getAllNodes()
+    {
+        return new EntityStoreScan.Nodes( this, 0, Long.MAX_VALUE );
+    }
+
+    /**
+     * @return a scan over all relationships, see {@link StoreScan}
+     */
+    public StoreScan<Relationship> getAllRelationships()
+    {
+        return new EntityStoreScan.Relationships( this, 0, Long.MAX_VALUE );
+    }
+
+    int getNodeIdsInUse( long fromId, long toId, long[] ids )
+    {
+        return persistenceManager.getNodeIdsInUse( fromId, toId, ids );
+    }
+
+    int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+    {
+        return persistenceManager.getRelationshipIdsInUse( fromId, toId, ids );
+    }
+
     public long getNumberOfIdsInUse( Class<?> clazz )
     {
         return idGenerator.getNumberOfIdsInUse( clazz );
@@ -1029,6 +1392,20 @@ public class NodeManager
             {
                 return new StrongReferenceCache<Long,RelationshipImpl>( RELATIONSHIP_CACHE_NAME );
             }
+        },
+        clock( false, "fixed size clock cache with primitive keys" )
+        {
+            @Override
+            Cache<Long, NodeImpl> node( AdaptiveCacheManager cacheManager )
+            {
+                return new ClockCache<NodeImpl>( NODE_CACHE_NAME, 1500 );
+            }
+
+            @Override
+            Cache<Long, RelationshipImpl> relationship( AdaptiveCacheManager cacheManager )
+            {
+                return new ClockCache<RelationshipImpl>( RELATIONSHIP_CACHE_NAME, 3500 );
+            }
         };
 
         private static final String NODE_CACHE_NAME = "NodeCache";
@@ -19,20 +19,23 @@
  */
 package org.neo4j.kernel.impl.core;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.kernel.impl.cache.EntityWithSize;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
 import org.neo4j.kernel.impl.transaction.LockType;
 import org.neo4j.kernel.impl.util.ArrayMap;
 
-abstract class Primitive
+abstract class Primitive implements EntityWithSize
 {
     protected final long id;
 
     private ArrayMap<Integer,PropertyData> propertyMap = null;
+    private volatile boolean sizeChanged = true;
 
     protected abstract void changeProperty( NodeManager nodeManager, long propertyId, Object value );
 
@@ -62,6 +65,68 @@ abstract class Primitive
         return this.id;
     }
 
+    public int size()
+    {
+        // object header, id and property map reference
+        int size = 32;
+        ArrayMap<Integer,PropertyData> properties = propertyMap;
+        if ( properties != null )
+        {
+            size += 64;
+            for ( PropertyData property : properties.values() )
+            {
+                // map entry, key and property data
+                size += 64 + sizeOfValue( property.getValue() );
+            }
+        }
+        return size;
+    }
+
+    public boolean clearSizeChanged()
+    {
+        if ( !sizeChanged )
+        {
+            return false;
+        }
+        sizeChanged = false;
+        return true;
+    }
+
+    /**
+     * Marks that state counted by {@link #size()} was loaded or changed.
+     */
+    protected void sizeChanged()
+    {
+        sizeChanged = true;
+    }
+
+    private static int sizeOfValue( Object value )
+    {
+        if ( value == null )
+        {
+            // light property, value not loaded yet
+            return 0;
+        }
+        if ( value instanceof String )
+        {
+            return 40 + 2 * ((String) value).length();
+        }
+        if ( value instanceof String[] )
+        {
+            int size = 16;
+            for ( String item : (String[]) value )
+            {
+                size += 4 + sizeOfValue( item );
+            }
+            return size;
+        }
+        if ( value.getClass().isArray() )
+        {
+            return 16 + 8 * Array.getLength( value );
+        }
+        return 16;
+    }
+
     public Iterable<Object> getPropertyValues( NodeManager nodeManager )
     {
         ArrayMap<Integer,PropertyData> skipMap = 
@@ -537,6 +602,7 @@ abstract class Primitive
         {
             value = nodeManager.loadPropertyValue( property.getId() );
             property.setNewValue( value );
+            sizeChanged();
         }
         return value;
     }
@@ -564,6 +630,7 @@ abstract class Primitive
                 propertyMap.remove( index );
             }
         }
+        sizeChanged();
     }
 
     private boolean ensureFullProperties( NodeManager nodeManager )
@@ -571,6 +638,7 @@ abstract class Primitive
         if ( propertyMap == null )
         {
             this.propertyMap = loadProperties( nodeManager, false );
+            sizeChanged();
             return true;
         }
         return false;
@@ -581,6 +649,7 @@ abstract class Primitive
         if ( propertyMap == null )
         {
             this.propertyMap = loadProperties( nodeManager, true );
+            sizeChanged();
             return true;
         }
         return false;
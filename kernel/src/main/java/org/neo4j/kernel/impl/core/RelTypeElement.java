@@ -29,7 +29,7 @@ import org.neo4j.kernel.impl.util.RelIdArray.RelIdIterator;
 class RelTypeElement extends RelTypeElementIterator
 {
     private final RelIdArray src;
-    private final Set<Long> remove = new HashSet<Long>();
+    private final Set<Long> remove;
     private final RelIdIterator srcIterator;
     private final RelIdIterator addIterator;
     private RelIdIterator currentIterator;
@@ -56,6 +56,7 @@ class RelTypeElement extends RelTypeElementIterator
         this.src = src;
         this.srcIterator = src.iterator();
         this.addIterator = add == null ? RelIdArray.EMPTY.iterator() : add.iterator();
+        this.remove = new HashSet<Long>();
         if ( remove != null )
         {
             for ( RelIdIterator iterator = remove.iterator(); iterator.hasNext(); )
@@ -66,6 +67,18 @@ class RelTypeElement extends RelTypeElementIterator
         this.currentIterator = srcIterator;
     }
 
+    private RelTypeElement( RelTypeElement from, RelIdArray newSrc )
+    {
+        super( from.getType(), from.getNode() );
+        this.src = newSrc;
+        this.srcIterator = newSrc.iterator();
+        this.srcIterator.fastForwardTo( from.srcIterator.position() );
+        this.addIterator = from.addIterator;
+        this.remove = from.remove;
+        this.currentIterator = srcIterator;
+        this.nextElement = from.nextElement;
+    }
+
     public boolean hasNext( NodeManager nodeManager )
     {
         if ( nextElement != null )
@@ -114,6 +127,7 @@ class RelTypeElement extends RelTypeElementIterator
     @Override
     public RelTypeElementIterator setSrc( RelIdArray newSrc )
     {
-        return new FastRelTypeElement( getType(), getNode(), newSrc, srcIterator.position() );
+        // keep what's been added/removed in this tx and how far we've come
+        return new RelTypeElement( this, newSrc );
     }
 }
@@ -50,6 +50,13 @@ class RelationshipImpl extends Primitive
         this.type = type;
     }
 
+    @Override
+    public int size()
+    {
+        // start and end node ids and type reference
+        return super.size() + 24;
+    }
+
     @Override
     public int hashCode()
     {
@@ -206,7 +206,53 @@ public abstract class AbstractStore extends CommonAbstractStore
     {
         super.setHighId( id );
     }
-    
+
+    /**
+     * Puts the ids of the records in use from <CODE>fromId</CODE> up to, but
+     * not including, <CODE>toId</CODE> in <CODE>ids</CODE>, lowest id first.
+     * The records are read in file order, acquiring each persistence window
+     * once instead of once per record. Records above the high id are never
+     * in use.
+     *
+     * @param ids
+     *            Array to put the ids in, must have room for
+     *            <CODE>toId - fromId</CODE> ids
+     * @return The number of ids put in <CODE>ids</CODE>
+     */
+    public int getIdsInUse( long fromId, long toId, long[] ids )
+    {
+        if ( ids.length < toId - fromId )
+        {
+            throw new IllegalArgumentException( "Room for " + ids.length +
+                " ids, " + (toId - fromId) + " needed" );
+        }
+        long endId = Math.min( toId, getHighId() );
+        int count = 0;
+        long id = fromId;
+        while ( id < endId )
+        {
+            PersistenceWindow window = acquireWindow( id, OperationType.READ );
+            try
+            {
+                long windowEndId = Math.min( endId,
+                    window.position() + window.size() );
+                for ( ; id < windowEndId; id++ )
+                {
+                    byte inUse = window.getOffsettedBuffer( id ).get();
+                    if ( (inUse & 0x1) == Record.IN_USE.byteValue() )
+                    {
+                        ids[count++] = id;
+                    }
+                }
+            }
+            finally
+            {
+                releaseWindow( window );
+            }
+        }
+        return count;
+    }
+
 //    @Override
 //    protected void updateHighId()
 //    {
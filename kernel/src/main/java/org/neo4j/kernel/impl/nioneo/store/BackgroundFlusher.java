@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.neo4j.kernel.Config;
+
+/**
+ * Forces dirty store windows to disk from a background thread so that a full
+ * flush (on log rotation or shutdown) only has to force what has been written
+ * since the last pass. Passes run every <CODE>interval</CODE> milliseconds and
+ * are throttled to at most <CODE>maxRate</CODE> bytes per second to not starve
+ * transactions of disk bandwidth. Each completed pass moves the checkpoint of
+ * the {@link NeoStore}, see {@link NeoStore#getCheckpointTx()}.
+ */
+public class BackgroundFlusher implements Runnable
+{
+    static final long DEFAULT_INTERVAL = 1000;
+    static final long DEFAULT_MAX_RATE = 16 * 1024 * 1024;
+
+    private static Logger log = Logger.getLogger( 
+        BackgroundFlusher.class.getName() );
+
+    private final NeoStore neoStore;
+    private final long interval;
+    private final long maxRate;
+    private final Thread thread;
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private volatile boolean running = false;
+
+    private long periodStart = 0;
+    private long bytesInPeriod = 0;
+
+    /**
+     * @param interval the time in milliseconds between two passes.
+     * @param maxRate the maximum number of bytes to force per second.
+     */
+    public BackgroundFlusher( NeoStore neoStore, long interval, long maxRate )
+    {
+        if ( interval <= 0 )
+        {
+            throw new IllegalArgumentException( "Illegal interval " + interval );
+        }
+        if ( maxRate <= 0 )
+        {
+            throw new IllegalArgumentException( "Illegal max rate " + maxRate );
+        }
+        this.neoStore = neoStore;
+        this.interval = interval;
+        this.maxRate = maxRate;
+        this.thread = new Thread( this, "Background flusher[" + 
+            neoStore.getStorageFileName() + "]" );
+        thread.setDaemon( true );
+    }
+
+    /**
+     * Returns a background flusher for <CODE>neoStore</CODE> if enabled with
+     * {@link Config#BACKGROUND_FLUSH} in <CODE>config</CODE>, otherwise
+     * <CODE>null</CODE>.
+     */
+    public static BackgroundFlusher fromConfig( NeoStore neoStore, 
+        Map<?,?> config )
+    {
+        if ( config == null ||
+            !Boolean.parseBoolean( (String) config.get( Config.BACKGROUND_FLUSH ) ) )
+        {
+            return null;
+        }
+        long interval = Long.parseLong( (String) Config.getFromConfig( config,
+            Config.BACKGROUND_FLUSH_INTERVAL, "" + DEFAULT_INTERVAL ) );
+        long maxRate = parseBytes( (String) Config.getFromConfig( config,
+            Config.BACKGROUND_FLUSH_MAX_RATE, "" + DEFAULT_MAX_RATE ) );
+        return new BackgroundFlusher( neoStore, interval, maxRate );
+    }
+
+    private static long parseBytes( String value )
+    {
+        long multiplier = 1;
+        if ( value.endsWith( "M" ) )
+        {
+            multiplier = 1024 * 1024;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        else if ( value.endsWith( "k" ) )
+        {
+            multiplier = 1024;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        else if ( value.endsWith( "G" ) )
+        {
+            multiplier = 1024 * 1024 * 1024;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        return Long.parseLong( value ) * multiplier;
+    }
+
+    public void start()
+    {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the flusher and waits for the current pass, if any, to finish
+     * forcing the window it is on. Must be called before the stores are
+     * closed.
+     */
+    public void stop()
+    {
+        synchronized ( this )
+        {
+            running = false;
+            notifyAll();
+        }
+        while ( thread.isAlive() )
+        {
+            try
+            {
+                thread.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    public void run()
+    {
+        while ( running )
+        {
+            try
+            {
+                neoStore.flushDirtyWindows( this );
+            }
+            catch ( RuntimeException e )
+            {
+                log.log( Level.WARNING, "Background flush of " + 
+                    neoStore.getStorageFileName() + " failed", e );
+            }
+            synchronized ( this )
+            {
+                waitFor( interval );
+            }
+        }
+    }
+
+    /**
+     * Called before forcing a window of <CODE>bytes</CODE> size, blocks
+     * until forcing it stays within the max rate.
+     * 
+     * @return <CODE>false</CODE> if the flusher has been stopped and the
+     * pass should end
+     */
+    synchronized boolean aboutToFlush( long bytes )
+    {
+        while ( running )
+        {
+            long now = System.currentTimeMillis();
+            if ( now - periodStart >= 1000 )
+            {
+                periodStart = now;
+                bytesInPeriod = 0;
+            }
+            // always let one window through, even if larger than the rate
+            if ( bytesInPeriod == 0 || bytesInPeriod + bytes <= maxRate )
+            {
+                bytesInPeriod += bytes;
+                return true;
+            }
+            waitFor( periodStart + 1000 - now );
+        }
+        return false;
+    }
+
+    void flushed( long bytes )
+    {
+        flushedBytes.addAndGet( bytes );
+    }
+
+    /**
+     * Returns the number of bytes forced by this flusher since it started.
+     */
+    public long getFlushedBytes()
+    {
+        return flushedBytes.get();
+    }
+
+    private void waitFor( long millis )
+    {
+        if ( millis <= 0 || !running )
+        {
+            return;
+        }
+        try
+        {
+            wait( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            // window locks wake waiting threads with interrupts, see
+            // LockableWindow, so this may not be meant for us
+            Thread.interrupted();
+        }
+    }
+}
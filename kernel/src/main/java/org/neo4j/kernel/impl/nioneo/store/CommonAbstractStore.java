@@ -545,6 +545,18 @@ public abstract class CommonAbstractStore
         windowPool.flushAll();
     }
 
+    /**
+     * Forces the windows of this store that have been written to since they
+     * were last forced, throttled by <CODE>flusher</CODE>.
+     * 
+     * @return <CODE>false</CODE> if the flusher was stopped before all dirty
+     * windows were forced
+     */
+    public boolean flushDirtyWindows( BackgroundFlusher flusher )
+    {
+        return windowPool.flushDirtyWindows( flusher );
+    }
+
     private boolean isRecovered = false;
 
     protected boolean isInRecoveryMode()
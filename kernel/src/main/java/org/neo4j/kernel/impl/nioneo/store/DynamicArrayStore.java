@@ -45,7 +45,9 @@ class DynamicArrayStore extends AbstractDynamicStore
         LONG( 6 ), 
         BYTE( 7 ), 
         CHAR( 8 ), 
-        SHORT( 10 );
+        SHORT( 10 ),
+        // each string encoded with StringEncoding, STRING is plain UTF-16
+        ENCODED_STRING( 12 );
 
         private int type;
 
@@ -137,23 +139,19 @@ class DynamicArrayStore extends AbstractDynamicStore
         String[] array )
     {
         int size = 5;
-        for ( String str : array )
+        byte[][] encoded = new byte[array.length][];
+        for ( int i = 0; i < array.length; i++ )
         {
-            size += 4 + str.length() * 2;
+            encoded[i] = StringEncoding.encode( array[i] );
+            size += 4 + encoded[i].length;
         }
         ByteBuffer buf = ByteBuffer.allocate( size );
-        buf.put( ArrayType.STRING.byteValue() );
+        buf.put( ArrayType.ENCODED_STRING.byteValue() );
         buf.putInt( array.length );
-        for ( String str : array )
+        for ( byte[] bytes : encoded )
         {
-            int length = str.length();
-            char[] chars = new char[length];
-            str.getChars( 0, length, chars, 0 );
-            buf.putInt( length * 2 );
-            for ( char c : chars )
-            {
-                buf.putChar( c );
-            }
+            buf.putInt( bytes.length );
+            buf.put( bytes );
         }
         return allocateRecords( startBlock, buf.array() );
     }
@@ -458,6 +456,18 @@ class DynamicArrayStore extends AbstractDynamicStore
             }
             return array;
         }
+        if ( type == ArrayType.ENCODED_STRING.byteValue() )
+        {
+            String[] array = new String[buf.getInt()];
+            for ( int i = 0; i < array.length; i++ )
+            {
+                int length = buf.getInt();
+                array[i] = StringEncoding.decode( bArray, buf.position(), 
+                    length );
+                buf.position( buf.position() + length );
+            }
+            return array;
+        }
         if ( type == ArrayType.BOOL.byteValue() )
         {
             boolean[] array = new boolean[buf.getInt()];
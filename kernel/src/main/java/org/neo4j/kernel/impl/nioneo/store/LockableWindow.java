@@ -49,6 +49,8 @@ abstract class LockableWindow implements PersistenceWindow
         new LinkedList<Thread>();
     private int lockCount = 0;
     private int marked = 0;
+    private boolean closedForUse = false;
+    private volatile boolean dirty = false;
 
     LockableWindow( FileChannel fileChannel )
     {
@@ -73,6 +75,36 @@ abstract class LockableWindow implements PersistenceWindow
     void setOperationType( OperationType type )
     {
         this.type = type;
+        if ( type == OperationType.WRITE )
+        {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if this window has been acquired for a write
+     * operation since it was last forced with {@link #forceIfDirty()}.
+     */
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+     * Forces this window if it is dirty. Must be called while holding the
+     * lock on this window so no write can be in progress.
+     * 
+     * @return <CODE>true</CODE> if the window was forced
+     */
+    boolean forceIfDirty()
+    {
+        if ( !dirty )
+        {
+            return false;
+        }
+        dirty = false;
+        force();
+        return true;
     }
 
     synchronized void mark()
@@ -85,6 +117,39 @@ abstract class LockableWindow implements PersistenceWindow
         return marked > 0;
     }
 
+    /**
+     * Marks this window as about to be locked, unless it has been closed for
+     * use by {@link #closeForUseIfUnused()}.
+     * 
+     * @return <CODE>true</CODE> if the window was marked and can be locked
+     */
+    synchronized boolean markIfOpenForUse()
+    {
+        if ( closedForUse )
+        {
+            return false;
+        }
+        this.marked++;
+        return true;
+    }
+
+    /**
+     * Closes this window for further use if it isn't marked, locked or waited
+     * upon. Once closed {@link #markIfOpenForUse()} will fail so the window
+     * can safely be unmapped or written out.
+     * 
+     * @return <CODE>true</CODE> if the window was closed for use
+     */
+    synchronized boolean closeForUseIfUnused()
+    {
+        if ( marked > 0 || lockCount > 0 || !waitingThreadList.isEmpty() )
+        {
+            return false;
+        }
+        closedForUse = true;
+        return true;
+    }
+
     synchronized void lock()
     {
         Thread currentThread = Thread.currentThread();
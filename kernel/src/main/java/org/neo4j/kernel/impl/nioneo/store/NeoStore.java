@@ -31,10 +31,11 @@ import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
 import org.neo4j.kernel.impl.core.LastCommittedTxIdSetter;
 import org.neo4j.kernel.impl.transaction.xaframework.LogIoUtils;
+import org.neo4j.kernel.impl.util.StringLogger;
 
 /**
  * This class contains the references to the "NodeStore,RelationshipStore,
- * PropertyStore and RelationshipTypeStore". NeoStore doesn't actually "store"
+ * RelationshipGroupStore,PropertyStore and RelationshipTypeStore". NeoStore doesn't actually "store"
  * anything but extends the AbstractStore for the "type and version" validation
  * performed in there.
  */
@@ -42,7 +43,7 @@ public class NeoStore extends AbstractStore
 {
     // neo store version, store should end with this string
     // (byte encoded)
-    private static final String VERSION = "NeoStore v0.9.9";
+    private static final String VERSION = "NeoStore v0.A.0";
 
     // 4 longs in header (long + in use), time | random | version | txid
     private static final int RECORD_SIZE = 9;
@@ -51,11 +52,13 @@ public class NeoStore extends AbstractStore
     private NodeStore nodeStore;
     private PropertyStore propStore;
     private RelationshipStore relStore;
+    private RelationshipGroupStore relGroupStore;
     private RelationshipTypeStore relTypeStore;
     private final LastCommittedTxIdSetter lastCommittedTxIdSetter;
     private final IdGeneratorFactory idGeneratorFactory;
     private boolean isStarted;
     private long lastCommittedTx = -1;
+    private volatile long checkpointTx = -1;
 
     private final int REL_GRAB_SIZE;
 
@@ -84,23 +87,39 @@ public class NeoStore extends AbstractStore
 //    }
 
     /**
-     * Initializes the node,relationship,property and relationship type stores.
+     * Initializes the node,relationship,relationship group,property and
+     * relationship type stores.
      */
     @Override
     protected void initStorage()
     {
+        RelationshipGroupMigration.completeInterrupted( getStorageFileName() );
+        if ( RelationshipGroupMigration.isNeeded( getStorageFileName() ) )
+        {
+            if ( isReadOnly() || !configSaysOkToUpgrade() )
+            {
+                throw new IllegalStoreVersionException( "Relationship chains of store " +
+                    getStorageFileName() + " have to be split up, which is done automatically if '" +
+                    Config.ALLOW_STORE_UPGRADE + "' configuration parameter was set to 'true'." );
+            }
+            RelationshipGroupMigration.upgrade( getStorageFileName(), getConfig(),
+                StringLogger.getLogger( getStoreDir() ) );
+        }
         relTypeStore = new RelationshipTypeStore( getStorageFileName()
             + ".relationshiptypestore.db", getConfig(), IdType.RELATIONSHIP_TYPE );
         propStore = new PropertyStore( getStorageFileName()
             + ".propertystore.db", getConfig() );
         relStore = new RelationshipStore( getStorageFileName()
             + ".relationshipstore.db", getConfig() );
+        relGroupStore = new RelationshipGroupStore( getStorageFileName()
+            + ".relationshipgroupstore.db", getConfig() );
         nodeStore = new NodeStore( getStorageFileName() + ".nodestore.db",
             getConfig() );
     }
     
     /**
-     * Closes the node,relationship,property and relationship type stores.
+     * Closes the node,relationship,relationship group,property and
+     * relationship type stores.
      */
     @Override
     protected void closeStorage()
@@ -120,6 +139,11 @@ public class NeoStore extends AbstractStore
             relStore.close();
             relStore = null;
         }
+        if ( relGroupStore != null )
+        {
+            relGroupStore.close();
+            relGroupStore = null;
+        }
         if ( nodeStore != null )
         {
             nodeStore.close();
@@ -131,14 +155,61 @@ public class NeoStore extends AbstractStore
     public void flushAll()
     {
         if ( relTypeStore == null || propStore == null || relStore == null ||
-                nodeStore == null )
+                relGroupStore == null || nodeStore == null )
         {
             return;
         }
+        long txId = getLastCommittedTx();
         relTypeStore.flushAll();
         propStore.flushAll();
         relStore.flushAll();
+        relGroupStore.flushAll();
         nodeStore.flushAll();
+        checkpointed( txId );
+    }
+
+    /**
+     * Forces the dirty windows of all stores on behalf of a background
+     * flusher. If the pass completes every transaction committed before it
+     * started is on disk and becomes the new checkpoint.
+     */
+    @Override
+    public boolean flushDirtyWindows( BackgroundFlusher flusher )
+    {
+        if ( relTypeStore == null || propStore == null || relStore == null ||
+                relGroupStore == null || nodeStore == null )
+        {
+            return false;
+        }
+        long txId = getLastCommittedTx();
+        if ( relTypeStore.flushDirtyWindows( flusher ) &&
+            propStore.flushDirtyWindows( flusher ) &&
+            relStore.flushDirtyWindows( flusher ) &&
+            relGroupStore.flushDirtyWindows( flusher ) &&
+            nodeStore.flushDirtyWindows( flusher ) )
+        {
+            checkpointed( txId );
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void checkpointed( long txId )
+    {
+        if ( txId > checkpointTx )
+        {
+            checkpointTx = txId;
+        }
+    }
+
+    /**
+     * Returns the id of the last transaction known to have all its changes
+     * forced to the store files, or -1 if the stores haven't been flushed
+     * since they were opened.
+     */
+    public long getCheckpointTx()
+    {
+        return checkpointTx;
     }
 
     @Override
@@ -159,7 +230,8 @@ public class NeoStore extends AbstractStore
     }
 
     /**
-     * Creates the neo,node,relationship,property and relationship type stores.
+     * Creates the neo,node,relationship,relationship group,property and
+     * relationship type stores.
      *
      * @param fileName
      *            The name of store
@@ -176,6 +248,8 @@ public class NeoStore extends AbstractStore
         createEmptyStore( fileName, VERSION, idGeneratorFactory );
         NodeStore.createStore( fileName + ".nodestore.db", config );
         RelationshipStore.createStore( fileName + ".relationshipstore.db", idGeneratorFactory );
+        RelationshipGroupStore.createStore( fileName + ".relationshipgroupstore.db",
+            idGeneratorFactory );
         PropertyStore.createStore( fileName + ".propertystore.db", config );
         RelationshipTypeStore.createStore( fileName
             + ".relationshiptypestore.db", config );
@@ -341,6 +415,16 @@ public class NeoStore extends AbstractStore
         return relStore;
     }
 
+    /**
+     * The relationship group store.
+     *
+     * @return The relationship group store
+     */
+    public RelationshipGroupStore getRelationshipGroupStore()
+    {
+        return relGroupStore;
+    }
+
     /**
      * Returns the relationship type store.
      *
@@ -367,6 +451,7 @@ public class NeoStore extends AbstractStore
         relTypeStore.makeStoreOk();
         propStore.makeStoreOk();
         relStore.makeStoreOk();
+        relGroupStore.makeStoreOk();
         nodeStore.makeStoreOk();
         super.makeStoreOk();
         isStarted = true;
@@ -378,6 +463,7 @@ public class NeoStore extends AbstractStore
         relTypeStore.rebuildIdGenerators();
         propStore.rebuildIdGenerators();
         relStore.rebuildIdGenerators();
+        relGroupStore.rebuildIdGenerators();
         nodeStore.rebuildIdGenerators();
         super.rebuildIdGenerators();
     }
@@ -388,6 +474,7 @@ public class NeoStore extends AbstractStore
         relTypeStore.updateIdGenerators();
         propStore.updateIdGenerators();
         relStore.updateHighId();
+        relGroupStore.updateHighId();
         nodeStore.updateHighId();
     }
 
@@ -427,6 +514,18 @@ public class NeoStore extends AbstractStore
             LogIoUtils.moveAllLogicalLogs( new File( getStoreDir() ), "1.2-logs" );
             return true;
         }
+        if ( version.equals( "NeoStore v0.9.9" ) )
+        {
+            if ( !configSaysOkToUpgrade() )
+            {
+                throw new IllegalStoreVersionException( "Store version [" + version + "] is older " +
+                    "than expected, but could be upgraded automatically if '" +
+                    Config.ALLOW_STORE_UPGRADE + "' configuration " + "parameter was set to 'true'." );
+            }
+            // logs of older versions can't be applied to split up chains
+            LogIoUtils.moveAllLogicalLogs( new File( getStoreDir() ), "1.3-logs" );
+            return true;
+        }
         throw new IllegalStoreVersionException( "Store version [" + version  +
             "]. Please make sure you are not running old Neo4j kernel " +
             "on a store that has been created by newer version of Neo4j." );
@@ -450,6 +549,7 @@ public class NeoStore extends AbstractStore
         list.addAll( nodeStore.getAllWindowPoolStats() );
         list.addAll( propStore.getAllWindowPoolStats() );
         list.addAll( relStore.getAllWindowPoolStats() );
+        list.addAll( relGroupStore.getAllWindowPoolStats() );
         list.addAll( relTypeStore.getAllWindowPoolStats() );
         return list;
     }
@@ -457,6 +557,7 @@ public class NeoStore extends AbstractStore
     public boolean isStoreOk()
     {
         return getStoreOk() && relTypeStore.getStoreOk() &&
-            propStore.getStoreOk() && relStore.getStoreOk() && nodeStore.getStoreOk();
+            propStore.getStoreOk() && relStore.getStoreOk() &&
+            relGroupStore.getStoreOk() && nodeStore.getStoreOk();
     }
 }
@@ -21,7 +21,7 @@ package org.neo4j.kernel.impl.nioneo.store;
 
 public class NodeRecord extends Abstract64BitRecord
 {
-    private long nextRel = Record.NO_NEXT_RELATIONSHIP.intValue();
+    private long nextGroup = Record.NO_NEXT_GROUP.intValue();
     private long nextProp = Record.NO_NEXT_PROPERTY.intValue();
 
     public NodeRecord( long id )
@@ -29,14 +29,20 @@ public class NodeRecord extends Abstract64BitRecord
         super( id );
     }
 
-    public long getNextRel()
+    /**
+     * Returns the id of the first {@link RelationshipGroupRecord} of this
+     * node, i.e. the start of its list of relationship chains per type.
+     *
+     * @return The first relationship group of this node
+     */
+    public long getNextGroup()
     {
-        return nextRel;
+        return nextGroup;
     }
 
-    public void setNextRel( long nextRel )
+    public void setNextGroup( long nextGroup )
     {
-        this.nextRel = nextRel;
+        this.nextGroup = nextGroup;
     }
 
     public long getNextProp()
@@ -53,7 +59,7 @@ public class NodeRecord extends Abstract64BitRecord
     {
         StringBuffer buf = new StringBuffer();
         buf.append( "NodeRecord[" ).append( getId() ).append( "," ).append(
-            inUse() ).append( "," ).append( nextRel ).append( "," ).append(
+            inUse() ).append( "," ).append( nextGroup ).append( "," ).append(
             nextProp ).append( "]" );
         return buf.toString();
     }
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.neo4j.kernel.Config;
 import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
 
@@ -33,9 +34,9 @@ public class NodeStore extends AbstractStore implements Store
 {
     // node store version, each node store should end with this string
     // (byte encoded)
-    private static final String VERSION = "NodeStore v0.9.9";
+    static final String VERSION = "NodeStore v0.A.0";
 
-    // in_use(byte)+next_rel_id(int)+next_prop_id(int)
+    // in_use(byte)+next_group_id(int)+next_prop_id(int)
     public static final int RECORD_SIZE = 9;
 
     /**
@@ -157,13 +158,99 @@ public class NodeStore extends AbstractStore implements Store
         }
     }
 
+    /**
+     * Checks which of the nodes in <CODE>ids</CODE> exist, like
+     * {@link #loadLightNode(long)} does for a single node. The ids must be
+     * sorted, lowest id first, so that every persistence window is acquired
+     * only once for all the ids it covers.
+     * 
+     * @param ids
+     *            The sorted ids of the nodes
+     * @param inUse
+     *            Set to <CODE>true</CODE> at the index of each node that
+     *            exists
+     */
+    public void loadLightNodes( long[] ids, boolean[] inUse )
+    {
+        long highId = getHighId();
+        int i = 0;
+        while ( i < ids.length && ids[i] < highId )
+        {
+            PersistenceWindow window = acquireWindow( ids[i], OperationType.READ );
+            try
+            {
+                long windowEndId = Math.min( highId,
+                    window.position() + window.size() );
+                for ( ; i < ids.length && ids[i] < windowEndId; i++ )
+                {
+                    inUse[i] = getRecord( ids[i], window, true ) != null;
+                }
+            }
+            finally
+            {
+                releaseWindow( window );
+            }
+        }
+    }
+
+    /**
+     * Like {@link #getIdsInUse(long, long, long[])}, also putting the id of
+     * the first property record of each node in use in
+     * <CODE>firstProps</CODE>, at the same index as its id. Nodes without
+     * properties get {@link Record#NO_NEXT_PROPERTY}.
+     *
+     * @param ids
+     *            Array to put the ids in, must have room for
+     *            <CODE>toId - fromId</CODE> ids
+     * @param firstProps
+     *            Array to put the first property ids in, as big as
+     *            <CODE>ids</CODE>
+     * @return The number of ids put in <CODE>ids</CODE>
+     */
+    public int getPropertyChainsInUse( long fromId, long toId, long[] ids,
+        long[] firstProps )
+    {
+        if ( ids.length < toId - fromId || firstProps.length < ids.length )
+        {
+            throw new IllegalArgumentException( "Room for " + ids.length +
+                " ids and " + firstProps.length + " property ids, " +
+                (toId - fromId) + " needed" );
+        }
+        long endId = Math.min( toId, getHighId() );
+        int count = 0;
+        long id = fromId;
+        while ( id < endId )
+        {
+            PersistenceWindow window = acquireWindow( id, OperationType.READ );
+            try
+            {
+                long windowEndId = Math.min( endId,
+                    window.position() + window.size() );
+                for ( ; id < windowEndId; id++ )
+                {
+                    NodeRecord record = getRecord( id, window, true );
+                    if ( record != null )
+                    {
+                        ids[count] = id;
+                        firstProps[count++] = record.getNextProp();
+                    }
+                }
+            }
+            finally
+            {
+                releaseWindow( window );
+            }
+        }
+        return count;
+    }
+
     private NodeRecord getRecord( long id, PersistenceWindow window, 
         boolean check )
     {
         Buffer buffer = window.getOffsettedBuffer( id );
         
         // [    ,   x] in use bit
-        // [    ,xxx ] higher bits for rel id
+        // [    ,xxx ] higher bits for group id
         // [xxxx,    ] higher bits for prop id
         long inUseByte = buffer.get();
         
@@ -177,15 +264,15 @@ public class NodeStore extends AbstractStore implements Store
             throw new InvalidRecordException( "Record[" + id + "] not in use" );
         }
         
-        long nextRel = buffer.getUnsignedInt();
+        long nextGroup = buffer.getUnsignedInt();
         long nextProp = buffer.getUnsignedInt();
         
-        long relModifier = (inUseByte & 0xEL) << 31;
+        long groupModifier = (inUseByte & 0xEL) << 31;
         long propModifier = (inUseByte & 0xF0L) << 28;
         
         NodeRecord nodeRecord = new NodeRecord( id );
         nodeRecord.setInUse( inUse );
-        nodeRecord.setNextRel( longFromIntAndMod( nextRel, relModifier ) );
+        nodeRecord.setNextGroup( longFromIntAndMod( nextGroup, groupModifier ) );
         nodeRecord.setNextProp( longFromIntAndMod( nextProp, propModifier ) );
         return nodeRecord;
     }
@@ -196,17 +283,17 @@ public class NodeStore extends AbstractStore implements Store
         Buffer buffer = window.getOffsettedBuffer( id );
         if ( record.inUse() )
         {
-            long nextRel = record.getNextRel();
+            long nextGroup = record.getNextGroup();
             long nextProp = record.getNextProp();
             
-            short relModifier = nextRel == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0 : (short)((nextRel & 0x700000000L) >> 31);
+            short groupModifier = nextGroup == Record.NO_NEXT_GROUP.intValue() ? 0 : (short)((nextGroup & 0x700000000L) >> 31);
             short propModifier = nextProp == Record.NO_NEXT_PROPERTY.intValue() ? 0 : (short)((nextProp & 0xF00000000L) >> 28);
 
             // [    ,   x] in use bit
-            // [    ,xxx ] higher bits for rel id
+            // [    ,xxx ] higher bits for group id
             // [xxxx,    ] higher bits for prop id
-            short inUseUnsignedByte = (short)((Record.IN_USE.byteValue() | relModifier | propModifier));
-            buffer.put( (byte)inUseUnsignedByte ).putInt( (int) nextRel ).putInt( (int) nextProp );
+            short inUseUnsignedByte = (short)((Record.IN_USE.byteValue() | groupModifier | propModifier));
+            buffer.put( (byte)inUseUnsignedByte ).putInt( (int) nextGroup ).putInt( (int) nextProp );
         }
         else
         {
@@ -237,9 +324,11 @@ public class NodeStore extends AbstractStore implements Store
 //            closeIdGenerator();
 //            return true;
 //        }
-        if ( version.equals( "NodeStore v0.9.5" ) )
+        if ( version.equals( "NodeStore v0.9.5" ) || version.equals( "NodeStore v0.9.9" ) )
         {
-            return true;
+            throw new IllegalStoreVersionException( "Store version [" + version + "] still has " +
+                "one relationship chain per node, it can only be upgraded by a neo store with '" +
+                Config.ALLOW_STORE_UPGRADE + "' configuration parameter set to 'true'." );
         }
         throw new IllegalStoreVersionException( "Store version [" + version  + 
             "]. Please make sure you are not running old Neo4j kernel " + 
@@ -25,8 +25,12 @@ import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -36,33 +40,56 @@ import java.util.logging.Logger;
  * make the most efficient use of those windows by allocating them in such a way
  * that the most frequently used records/blocks (be it for read or write
  * operations) are encapsulated by a memory mapped persistence window.
+ * <p>
+ * Looking up a mapped window doesn't take any pool wide lock, the brick array
+ * is published through a volatile field and each window is claimed with
+ * {@link LockableWindow#markIfOpenForUse()}. Rows (single record windows used
+ * when no mapped window covers a position) are tracked in a concurrent map
+ * with striped locks. Changing which bricks are mapped is done by a
+ * background thread once enough misses have been recorded.
  */
 class PersistenceWindowPool
 {
     private static final int MAX_BRICK_COUNT = 100000;
+    private static final int ROW_LOCK_STRIPES = 64;
 
     private final String storeName;
     // == recordSize
     private final int blockSize;
-    private FileChannel fileChannel;
-    private final Map<Integer,PersistenceRow> activeRowWindows = 
-        new HashMap<Integer,PersistenceRow>();
+    private volatile FileChannel fileChannel;
+    private final ConcurrentMap<Long,PersistenceRow> activeRowWindows = 
+        new ConcurrentHashMap<Long,PersistenceRow>();
+    private final Object[] rowLocks = new Object[ROW_LOCK_STRIPES];
     private long availableMem = 0;
     private long memUsed = 0;
     private int brickCount = 0;
-    private int brickSize = 0;
-    private BrickElement brickArray[] = new BrickElement[0];
-    private int brickMiss = 0;
+    private volatile int brickSize = 0;
+    private volatile BrickElement brickArray[] = new BrickElement[0];
+    private volatile int brickMiss = 0;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
 
     private static Logger log = Logger.getLogger( PersistenceWindowPool.class
         .getName() );
     private static final int REFRESH_BRICK_COUNT = 50000;
     private final FileChannel.MapMode mapMode;
 
-    private int hit = 0;
-    private int miss = 0;
-    private int switches = 0;
-    private int ooe = 0;
+    private static final ExecutorService refresher =
+        Executors.newSingleThreadExecutor( new ThreadFactory()
+        {
+            public Thread newThread( Runnable task )
+            {
+                Thread thread = new Thread( task, "PersistenceWindowPoolRefresher" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+    // statistics only, updated without synchronization
+    private volatile int hit = 0;
+    private volatile int miss = 0;
+    private volatile int switches = 0;
+    private volatile int ooe = 0;
+    private volatile int refreshes = 0;
     private boolean useMemoryMapped = true;
 
     private final boolean readOnly;
@@ -99,6 +126,10 @@ class PersistenceWindowPool
         {
             mapMode = FileChannel.MapMode.READ_WRITE;
         }
+        for ( int i = 0; i < rowLocks.length; i++ )
+        {
+            rowLocks[i] = new Object();
+        }
         setupBricks();
         dumpStatus();
     }
@@ -119,76 +150,94 @@ class PersistenceWindowPool
     {
         LockableWindow window = null;
         boolean readPos = false;
-//        synchronized ( activeRowWindows )
-//        {
-            if ( brickMiss >= REFRESH_BRICK_COUNT )
+        if ( brickMiss >= REFRESH_BRICK_COUNT )
+        {
+            scheduleRefreshBricks();
+        }
+        int currentBrickSize = brickSize;
+        if ( currentBrickSize > 0 )
+        {
+            int brickIndex = (int) (position * blockSize / currentBrickSize);
+            BrickElement bricks[] = brickArray;
+            if ( brickIndex >= bricks.length )
             {
-//                brickMiss = 0;
-                refreshBricks();
+                expandBricks( brickIndex + 1 );
+                bricks = brickArray;
             }
-            if ( brickSize > 0 )
+            BrickElement brick = bricks[brickIndex];
+            window = brick.getWindow();
+            if ( window != null && !window.markIfOpenForUse() )
             {
-                int brickIndex = (int) (position * blockSize / brickSize);
-                if ( brickIndex < brickArray.length )
+                // just got unmapped by the refresher, use a row instead
+                window = null;
+            }
+            // assert window == null || window.encapsulates( position );
+            brick.setHit();
+        }
+        if ( window == null )
+        {
+            miss++;
+            brickMiss++;
+            synchronized ( rowLock( position ) )
+            {
+                PersistenceRow dpw = activeRowWindows.get( position );
+                if ( dpw == null )
                 {
-                    synchronized ( this )
-                    {
-                        window = brickArray[brickIndex].getWindow();
-                        if ( window != null )
-                        {
-                            window.mark();
-                        }
-                    }
-                    // assert window == null || window.encapsulates( position );
-                    brickArray[brickIndex].setHit();
+                    dpw = new PersistenceRow( position, blockSize, 
+                        fileChannel );
+                    activeRowWindows.put( position, dpw );
                 }
-                else
+                if ( operationType == OperationType.READ )
                 {
-                    expandBricks( brickIndex + 1 );
-                    window = brickArray[brickIndex].getWindow();
+                    readPos = true;
                 }
+                window = dpw;
+                window.mark();
             }
-            if ( window == null )
+        }
+        else
+        {
+            hit++;
+        }
+        window.lock();
+        if ( readPos )
+        {
+            ((PersistenceRow) window).readPosition();
+        }
+        window.setOperationType( operationType );
+        return window;
+    }
+
+    private Object rowLock( long position )
+    {
+        return rowLocks[(int) (position & (ROW_LOCK_STRIPES - 1))];
+    }
+
+    private void scheduleRefreshBricks()
+    {
+        if ( refreshScheduled.compareAndSet( false, true ) )
+        {
+            refresher.execute( new Runnable()
             {
-                synchronized ( this )
+                public void run()
                 {
-                    miss++;
-                    brickMiss++;
-                    
-                    PersistenceRow dpw = activeRowWindows.get( (int) position ); 
-                    
-                    if ( dpw == null )
+                    try
                     {
-                        dpw = new PersistenceRow( position, blockSize, 
-                            fileChannel );
+                        refreshBricks();
                     }
-                    if ( operationType == OperationType.READ )
+                    finally
                     {
-                        readPos = true;
+                        refreshScheduled.set( false );
                     }
-                    window = dpw;
-                    activeRowWindows.put( (int) position, dpw );
-                    window.mark();
                 }
-            }
-            else
-            {
-                hit++;
-            }
-//        }
-        window.lock();
-        if ( readPos )
-        {
-            ((PersistenceRow) window).readPosition();
+            } );
         }
-        window.setOperationType( operationType );
-        return window;
     }
 
     void dumpStatistics()
     {
         log.finest( storeName + " hit=" + hit + " miss=" + miss + " switches="
-            + switches + " ooe=" + ooe );
+            + switches + " ooe=" + ooe + " refreshes=" + refreshes );
     }
 
     /**
@@ -206,11 +255,11 @@ class PersistenceWindowPool
         {
             PersistenceRow dpw = (PersistenceRow) window;
             dpw.writeOut();
-            synchronized ( this )
+            long key = dpw.position();
+            synchronized ( rowLock( key ) )
             {
                 if ( dpw.getWaitingThreadsCount() == 0 && !dpw.isMarked() )
                 {
-                    int key = (int) dpw.position();
                     activeRowWindows.remove( key );
                 }
             }
@@ -225,8 +274,6 @@ class PersistenceWindowPool
     synchronized void close()
     {
         flushAll();
-//        synchronized ( activeRowWindows )
-//        {
             for ( BrickElement element : brickArray )
             {
                 if ( element.getWindow() != null )
@@ -237,26 +284,88 @@ class PersistenceWindowPool
             }
             fileChannel = null;
             activeRowWindows.clear();
-//        }
-        // activeRowWindows = null;
         dumpStatistics();
     }
 
+    /**
+     * Forces the mapped windows written to since they were last forced and
+     * then the file channel. Each window is locked while forced so writes to
+     * it can't be lost between forcing it and clearing its dirty flag, other
+     * windows stay available meanwhile.
+     */
     void flushAll()
     {
         if ( readOnly ) return;
 
-        //        synchronized ( activeRowWindows )
-//        {
-            for ( BrickElement element : brickArray )
+        for ( BrickElement element : brickArray )
+        {
+            LockableWindow window = element.getWindow();
+            if ( window != null && window.isDirty() )
             {
-                PersistenceWindow window = element.getWindow();
-                if ( window != null )
-                {
-                    window.force();
-                }
+                forceIfDirty( window );
             }
-//        }
+        }
+        forceChannel();
+    }
+
+    /**
+     * Forces dirty mapped windows one at a time on behalf of a
+     * {@link BackgroundFlusher}, which is asked before each window so it can
+     * throttle the rate or stop the pass.
+     * 
+     * @return <CODE>false</CODE> if the flusher stopped the pass before all
+     * windows had been visited
+     */
+    boolean flushDirtyWindows( BackgroundFlusher flusher )
+    {
+        if ( readOnly ) return true;
+
+        int forced = 0;
+        for ( BrickElement element : brickArray )
+        {
+            LockableWindow window = element.getWindow();
+            if ( window == null || !window.isDirty() )
+            {
+                continue;
+            }
+            int bytes = brickSize;
+            if ( !flusher.aboutToFlush( bytes ) )
+            {
+                return false;
+            }
+            if ( forceIfDirty( window ) )
+            {
+                flusher.flushed( bytes );
+                forced++;
+            }
+        }
+        if ( forced > 0 )
+        {
+            forceChannel();
+        }
+        return true;
+    }
+
+    private boolean forceIfDirty( LockableWindow window )
+    {
+        if ( !window.markIfOpenForUse() )
+        {
+            // being unmapped by the refresher, which writes it out
+            return false;
+        }
+        window.lock();
+        try
+        {
+            return window.forceIfDirty();
+        }
+        finally
+        {
+            window.unLock();
+        }
+    }
+
+    private void forceChannel()
+    {
         try
         {
             fileChannel.force( false );
@@ -270,9 +379,9 @@ class PersistenceWindowPool
 
     private static class BrickElement
     {
-        private int index;
+        private final int index;
         private int hitCount;
-        private LockableWindow window = null;
+        private volatile LockableWindow window = null;
 
         BrickElement( int index )
         {
@@ -437,26 +546,39 @@ class PersistenceWindowPool
         for ( int i = 0; i < nr && i < mappedBricks.size(); i++ )
         {
             BrickElement mappedBrick = mappedBricks.get( i );
-            LockableWindow window = mappedBrick.getWindow();
-            if ( window.getWaitingThreadsCount() == 0 && !window.isMarked() )
+            if ( unmapIfUnused( mappedBrick ) )
             {
-                if ( window instanceof MappedPersistenceWindow )
-                {
-                    ((MappedPersistenceWindow) window).unmap();
-                }
-                else if ( window instanceof PlainPersistenceWindow )
-                {
-                    ((PlainPersistenceWindow) window).writeOut();
-                }
-                mappedBrick.setWindow( null );
                 memUsed -= brickSize;
             }
         }
     }
     
+    /**
+     * Takes a mapped brick out of use and unmaps (or writes out) its window,
+     * unless some thread is using or about to use it.
+     */
+    private boolean unmapIfUnused( BrickElement mappedBrick )
+    {
+        LockableWindow window = mappedBrick.getWindow();
+        if ( !window.closeForUseIfUnused() )
+        {
+            return false;
+        }
+        mappedBrick.setWindow( null );
+        if ( window instanceof MappedPersistenceWindow )
+        {
+            ((MappedPersistenceWindow) window).unmap();
+        }
+        else if ( window instanceof PlainPersistenceWindow )
+        {
+            ((PlainPersistenceWindow) window).writeOut();
+        }
+        return true;
+    }
+
     private synchronized void refreshBricks()
     {
-        if ( brickMiss < REFRESH_BRICK_COUNT )
+        if ( brickMiss < REFRESH_BRICK_COUNT || fileChannel == null )
         {
             return;
         }
@@ -466,6 +588,7 @@ class PersistenceWindowPool
             // memory mapped turned off
             return;
         }
+        refreshes++;
         ArrayList<BrickElement> nonMappedBricks = new ArrayList<BrickElement>();
         ArrayList<BrickElement> mappedBricks = new ArrayList<BrickElement>();
         for ( int i = 0; i < brickCount; i++ )
@@ -524,18 +647,8 @@ class PersistenceWindowPool
             {
                 break;
             }
-            LockableWindow window = mappedBrick.getWindow();
-            if ( window.getWaitingThreadsCount() == 0 && !window.isMarked() )
+            if ( unmapIfUnused( mappedBrick ) )
             {
-                if ( window instanceof MappedPersistenceWindow )
-                {
-                    ((MappedPersistenceWindow) window).unmap();
-                }
-                else if ( window instanceof PlainPersistenceWindow )
-                {
-                    ((PlainPersistenceWindow) window).writeOut();
-                }
-                mappedBrick.setWindow( null );
                 memUsed -= brickSize;
                 try
                 {
@@ -657,6 +770,6 @@ class PersistenceWindowPool
     WindowPoolStats getStats()
     {
         return new WindowPoolStats( storeName, availableMem, memUsed, brickCount, 
-                brickSize, hit, miss, ooe );
+                brickSize, hit, miss, ooe, switches, refreshes );
     }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * One property in a {@link PropertyRecord}: its key, type and either the
+ * value itself or, for strings and arrays too big to be inlined, the first
+ * block of the value in a dynamic store.
+ */
+public class PropertyBlock
+{
+    private PropertyType type;
+    private int keyIndexId = Record.NO_NEXT_BLOCK.intValue();
+    private long propBlock = Record.NO_NEXT_BLOCK.intValue();
+    private List<DynamicRecord> valueRecords = new ArrayList<DynamicRecord>();
+    private boolean isLight = false;
+    private boolean isCreated = false;
+    private boolean isChanged = false;
+
+    public PropertyType getType()
+    {
+        return type;
+    }
+
+    public void setType( PropertyType type )
+    {
+        this.type = type;
+    }
+
+    public int getKeyIndexId()
+    {
+        return keyIndexId;
+    }
+
+    public void setKeyIndexId( int keyId )
+    {
+        this.keyIndexId = keyId;
+    }
+
+    public long getPropBlock()
+    {
+        return propBlock;
+    }
+
+    public void setPropBlock( long propBlock )
+    {
+        this.propBlock = propBlock;
+    }
+
+    void setIsLight( boolean status )
+    {
+        isLight = status;
+    }
+
+    public boolean isLight()
+    {
+        return isLight;
+    }
+
+    public Collection<DynamicRecord> getValueRecords()
+    {
+        assert !isLight;
+        return valueRecords;
+    }
+
+    public void addValueRecord( DynamicRecord record )
+    {
+        assert !isLight;
+        valueRecords.add( record );
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if this property was added in the
+     * transaction modifying the record it is in.
+     */
+    public boolean isCreated()
+    {
+        return isCreated;
+    }
+
+    public void setCreated()
+    {
+        isCreated = true;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the value of this property was changed
+     * in the transaction modifying the record it is in.
+     */
+    public boolean isChanged()
+    {
+        return isChanged;
+    }
+
+    public void setChanged()
+    {
+        isChanged = true;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuffer buf = new StringBuffer();
+        buf.append( "PropertyBlock[" ).append( type ).append( "," ).append(
+            keyIndexId ).append( "," ).append( propBlock );
+        buf.append( ", Value[" );
+        for ( DynamicRecord record : valueRecords )
+        {
+            buf.append( record );
+        }
+        buf.append( "]]" );
+        return buf.toString();
+    }
+}
@@ -127,6 +127,13 @@ public class PropertyIndexStore extends AbstractStore implements Store
         super.flushAll();
     }
 
+    @Override
+    public boolean flushDirtyWindows( BackgroundFlusher flusher )
+    {
+        return keyPropertyStore.flushDirtyWindows( flusher ) &&
+            super.flushDirtyWindows( flusher );
+    }
+
     public static void createStore( String fileName, IdGeneratorFactory idGeneratorFactory )
     {
         createEmptyStore( fileName, VERSION, idGeneratorFactory );
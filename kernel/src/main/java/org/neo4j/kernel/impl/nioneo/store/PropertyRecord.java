@@ -23,27 +23,60 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * A record in the property chain of a node or relationship, holding up to
+ * {@link #BLOCKS_PER_RECORD} properties in {@link PropertyBlock}s. A block
+ * keeps its index in the record for as long as the property is there, the
+ * id of a property is made up of the record id and that index, see
+ * {@link #propertyId(long, int)}.
+ */
 public class PropertyRecord extends Abstract64BitRecord
 {
-    private PropertyType type;
-    private int keyIndexId = Record.NO_NEXT_BLOCK.intValue();
-    private long propBlock = Record.NO_NEXT_BLOCK.intValue();
+    public static final int BLOCKS_PER_RECORD = 4;
+
+    private final PropertyBlock[] blocks = new PropertyBlock[BLOCKS_PER_RECORD];
+    private final PropertyBlock[] removedBlocks = new PropertyBlock[BLOCKS_PER_RECORD];
     private long prevProp = Record.NO_PREVIOUS_PROPERTY.intValue();
     private long nextProp = Record.NO_NEXT_PROPERTY.intValue();
-    private List<DynamicRecord> valueRecords = new ArrayList<DynamicRecord>();
-    private boolean isLight = false;
+    private List<DynamicRecord> deletedValueRecords = new ArrayList<DynamicRecord>();
     private long nodeRelId = -1;
     private boolean nodeIdSet = false;
-    private boolean isChanged = false;
 
     public PropertyRecord( long id )
     {
         super( id );
     }
 
-    public void setType( PropertyType type )
+    /**
+     * Returns the id of the property in block <CODE>blockIndex</CODE> of
+     * the property record <CODE>recordId</CODE>.
+     */
+    public static long propertyId( long recordId, int blockIndex )
+    {
+        return recordId * BLOCKS_PER_RECORD + blockIndex;
+    }
+
+    /**
+     * Returns the id of the record holding the property
+     * <CODE>propertyId</CODE>.
+     */
+    public static long recordId( long propertyId )
+    {
+        return propertyId / BLOCKS_PER_RECORD;
+    }
+
+    /**
+     * Returns the index of the block holding the property
+     * <CODE>propertyId</CODE> in its record.
+     */
+    public static int blockIndex( long propertyId )
     {
-        this.type = type;
+        return (int) (propertyId % BLOCKS_PER_RECORD);
+    }
+
+    public long getPropertyId( int blockIndex )
+    {
+        return propertyId( getId(), blockIndex );
     }
 
     public void setNodeId( long nodeId )
@@ -76,51 +109,109 @@ public class PropertyRecord extends Abstract64BitRecord
         return -1;
     }
 
-    void setIsLight( boolean status )
+    /**
+     * Returns the block at <CODE>index</CODE> or <CODE>null</CODE> if that
+     * block is empty.
+     */
+    public PropertyBlock getBlock( int index )
     {
-        isLight = status;
+        return blocks[index];
     }
 
-    public boolean isLight()
+    public void setBlock( int index, PropertyBlock block )
     {
-        return isLight;
+        blocks[index] = block;
     }
 
-    public Collection<DynamicRecord> getValueRecords()
+    /**
+     * Deletes the property in the block at <CODE>index</CODE> and returns
+     * it. The block has to be heavy, its value records are marked as not in
+     * use and kept by this record to be written with it.
+     */
+    public PropertyBlock removeBlock( int index )
     {
-        assert !isLight;
-        return valueRecords;
+        PropertyBlock block = blocks[index];
+        assert !block.isLight();
+        blocks[index] = null;
+        removedBlocks[index] = block;
+        for ( DynamicRecord valueRecord : block.getValueRecords() )
+        {
+            if ( valueRecord.inUse() )
+            {
+                // keeps its type telling which dynamic store it's in
+                valueRecord.setInUse( false );
+            }
+            deletedValueRecords.add( valueRecord );
+        }
+        return block;
     }
 
-    public void addValueRecord( DynamicRecord record )
+    /**
+     * Returns the block last removed from <CODE>index</CODE> by
+     * {@link #removeBlock(int)}, or <CODE>null</CODE> if none was.
+     */
+    public PropertyBlock getRemovedBlock( int index )
     {
-        assert !isLight;
-        valueRecords.add( record );
+        return removedBlocks[index];
     }
 
-    public PropertyType getType()
+    /**
+     * Returns the index of the first empty block or -1 if all blocks are
+     * used.
+     */
+    public int getFreeBlockIndex()
     {
-        return type;
+        for ( int i = 0; i < BLOCKS_PER_RECORD; i++ )
+        {
+            if ( blocks[i] == null )
+            {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    public int getKeyIndexId()
+    public int getBlockCount()
     {
-        return keyIndexId;
+        int count = 0;
+        for ( PropertyBlock block : blocks )
+        {
+            if ( block != null )
+            {
+                count++;
+            }
+        }
+        return count;
     }
 
-    public void setKeyIndexId( int keyId )
+    /**
+     * Returns the index of the block holding the property with key
+     * <CODE>keyId</CODE> or -1 if there is no such block.
+     */
+    public int getBlockIndex( int keyId )
     {
-        this.keyIndexId = keyId;
+        for ( int i = 0; i < BLOCKS_PER_RECORD; i++ )
+        {
+            if ( blocks[i] != null && blocks[i].getKeyIndexId() == keyId )
+            {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    public long getPropBlock()
+    /**
+     * Returns the value records no longer used by any block of this record,
+     * they are written together with the record.
+     */
+    public Collection<DynamicRecord> getDeletedValueRecords()
     {
-        return propBlock;
+        return deletedValueRecords;
     }
 
-    public void setPropBlock( long propBlock )
+    public void addDeletedValueRecord( DynamicRecord record )
     {
-        this.propBlock = propBlock;
+        deletedValueRecords.add( record );
     }
 
     public long getPrevProp()
@@ -148,25 +239,21 @@ public class PropertyRecord extends Abstract64BitRecord
     {
         StringBuffer buf = new StringBuffer();
         buf.append( "PropertyRecord[" ).append( getId() ).append( "," ).append(
-            inUse() ).append( "," ).append( type ).append( "," ).append(
-            keyIndexId ).append( "," ).append( propBlock ).append( "," )
-            .append( prevProp ).append( "," ).append( nextProp );
-        buf.append( ", Value[" );
-        for ( DynamicRecord record : valueRecords )
+            inUse() ).append( "," ).append( prevProp ).append( "," ).append(
+            nextProp );
+        for ( int i = 0; i < BLOCKS_PER_RECORD; i++ )
+        {
+            if ( blocks[i] != null )
+            {
+                buf.append( "," ).append( i ).append( "=" ).append( blocks[i] );
+            }
+        }
+        buf.append( ", Deleted[" );
+        for ( DynamicRecord record : deletedValueRecords )
         {
             buf.append( record );
         }
         buf.append( "]]" );
         return buf.toString();
     }
-    
-    public boolean isChanged()
-    {
-        return isChanged;
-    }
-    
-    public void setChanged()
-    {
-        isChanged = true;
-    }
-}
\ No newline at end of file
+}
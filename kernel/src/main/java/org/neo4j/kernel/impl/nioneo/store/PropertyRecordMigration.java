@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.helpers.UTF8;
+import org.neo4j.kernel.IdType;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+/**
+ * Packs the property records of stores older than v0.A.0, which held one
+ * property each, into records of {@link PropertyRecord#BLOCKS_PER_RECORD}
+ * {@link PropertyBlock}s.
+ * <p>
+ * The old property store is only read. The packed records are written to
+ * a new property store file, with an id file of its own, and the nodes and
+ * relationships are pointed at their new chains. All of that happens in the
+ * upgrade directory of a {@link RelationshipGroupMigration}, which moves the
+ * files into place when the node and relationship stores are done as well.
+ * Property values kept in the dynamic stores are left where they are.
+ */
+class PropertyRecordMigration
+{
+    private static final String PROPERTY_STORE = ".propertystore.db";
+    private static final String ID = ".id";
+    private static final String[] OLD_VERSIONS = {
+        "PropertyStore v0.9.5", "PropertyStore v0.9.9" };
+
+    // in_use(byte)+type(int)+key_indexId(int)+prop_blockId(long)+
+    // prev_prop_id(int)+next_prop_id(int)
+    private static final int OLD_RECORD_SIZE = 25;
+
+    private final FileChannel oldStore;
+    private final FileChannel newStore;
+    private final NodeStore nodeStore;
+    private final RelationshipStore relStore;
+    private final StringLogger msgLog;
+    private final ByteBuffer oldRecord = ByteBuffer.allocate( OLD_RECORD_SIZE );
+    private final ByteBuffer newRecord = ByteBuffer.allocate( PropertyStore.RECORD_SIZE );
+    private long nextId = 0;
+
+    private PropertyRecordMigration( FileChannel oldStore, FileChannel newStore,
+        NodeStore nodeStore, RelationshipStore relStore, StringLogger msgLog )
+    {
+        this.oldStore = oldStore;
+        this.newStore = newStore;
+        this.nodeStore = nodeStore;
+        this.relStore = relStore;
+        this.msgLog = msgLog;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the property store of the neo store at
+     * <CODE>neoStoreFileName</CODE> still has one property per record.
+     */
+    static boolean isNeeded( String neoStoreFileName )
+    {
+        return RelationshipGroupMigration.endsWithOneOf(
+            new File( neoStoreFileName + PROPERTY_STORE ), OLD_VERSIONS );
+    }
+
+    /**
+     * Writes the packed property store of the neo store at
+     * <CODE>neoStoreFileName</CODE> as <CODE>upgradeFileName</CODE> and
+     * updates the property chain pointers of <CODE>nodeStore</CODE> and
+     * <CODE>relStore</CODE>, which have to be the copies in the upgrade
+     * directory.
+     */
+    static void migrate( String neoStoreFileName, String upgradeFileName,
+        NodeStore nodeStore, RelationshipStore relStore, StringLogger msgLog )
+    {
+        String newFileName = upgradeFileName + PROPERTY_STORE;
+        try
+        {
+            FileChannel oldStore = new RandomAccessFile(
+                neoStoreFileName + PROPERTY_STORE, "r" ).getChannel();
+            try
+            {
+                FileChannel newStore = new RandomAccessFile( newFileName, "rw" ).getChannel();
+                try
+                {
+                    PropertyRecordMigration migration = new PropertyRecordMigration(
+                        oldStore, newStore, nodeStore, relStore, msgLog );
+                    migration.migrate();
+                    migration.writeVersionAndIds( newFileName );
+                }
+                finally
+                {
+                    newStore.close();
+                }
+            }
+            finally
+            {
+                oldStore.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to migrate property store "
+                + neoStoreFileName + PROPERTY_STORE, e );
+        }
+    }
+
+    private void migrate() throws IOException
+    {
+        long migrated = 0;
+        long highId = nodeStore.getHighId();
+        for ( long nodeId = 0; nodeId < highId; nodeId++ )
+        {
+            if ( !nodeStore.loadLightNode( nodeId ) )
+            {
+                continue;
+            }
+            NodeRecord node = nodeStore.getRecord( nodeId );
+            if ( node.getNextProp() != Record.NO_NEXT_PROPERTY.intValue() )
+            {
+                node.setNextProp( migrateChain( node.getNextProp() ) );
+                nodeStore.updateRecord( node );
+                migrated++;
+            }
+        }
+        highId = relStore.getHighId();
+        for ( long relId = 0; relId < highId; relId++ )
+        {
+            RelationshipRecord rel = relStore.getLightRel( relId );
+            if ( rel != null && rel.getNextProp() != Record.NO_NEXT_PROPERTY.intValue() )
+            {
+                rel.setNextProp( migrateChain( rel.getNextProp() ) );
+                relStore.updateRecord( rel );
+                migrated++;
+            }
+        }
+        msgLog.logMessage( "Properties of " + migrated + " nodes and relationships packed into "
+            + nextId + " property records", true );
+    }
+
+    /**
+     * Reads the old chain starting at <CODE>firstProp</CODE>, writes its
+     * properties packed into new records and returns the id of the first one.
+     */
+    private long migrateChain( long firstProp ) throws IOException
+    {
+        List<PropertyBlock> blocks = new ArrayList<PropertyBlock>();
+        long nextProp = firstProp;
+        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+        {
+            nextProp = readOldRecord( nextProp, blocks );
+        }
+
+        int recordCount = (blocks.size() + PropertyRecord.BLOCKS_PER_RECORD - 1)
+            / PropertyRecord.BLOCKS_PER_RECORD;
+        long[] ids = new long[recordCount];
+        for ( int i = 0; i < recordCount; i++ )
+        {
+            ids[i] = nextId();
+        }
+        for ( int i = 0; i < recordCount; i++ )
+        {
+            PropertyRecord record = new PropertyRecord( ids[i] );
+            record.setInUse( true );
+            record.setPrevProp( i == 0 ? Record.NO_PREVIOUS_PROPERTY.intValue() : ids[i - 1] );
+            record.setNextProp( i == recordCount - 1 ? Record.NO_NEXT_PROPERTY.intValue() : ids[i + 1] );
+            for ( int j = 0; j < PropertyRecord.BLOCKS_PER_RECORD; j++ )
+            {
+                int index = i * PropertyRecord.BLOCKS_PER_RECORD + j;
+                if ( index < blocks.size() )
+                {
+                    record.setBlock( j, blocks.get( index ) );
+                }
+            }
+            writeRecord( record );
+        }
+        return ids[0];
+    }
+
+    /**
+     * Reads the old record <CODE>id</CODE>, adds its property to
+     * <CODE>blocks</CODE> and returns the id of the next record in its chain.
+     */
+    private long readOldRecord( long id, List<PropertyBlock> blocks ) throws IOException
+    {
+        oldRecord.clear();
+        long position = id * OLD_RECORD_SIZE;
+        while ( oldRecord.hasRemaining() )
+        {
+            if ( oldStore.read( oldRecord, position + oldRecord.position() ) == -1 )
+            {
+                throw new InvalidRecordException( "Property record[" + id
+                    + "] is beyond the end of the old property store" );
+            }
+        }
+        oldRecord.flip();
+
+        // [    ,   x] in use
+        // [xxxx,    ] high prev prop bits
+        long inUseByte = oldRecord.get();
+        if ( (inUseByte & 0x1) != Record.IN_USE.intValue() )
+        {
+            throw new InvalidRecordException( "Property record[" + id + "] not in use" );
+        }
+        // [    ,    ][    ,    ][xxxx,xxxx][xxxx,xxxx] type
+        // [    ,    ][    ,xxxx][    ,    ][    ,    ] high next prop bits
+        long typeInt = oldRecord.getInt();
+        PropertyBlock block = new PropertyBlock();
+        block.setType( PropertyType.getPropertyType( (int) typeInt & 0xFFFF, false ) );
+        block.setKeyIndexId( oldRecord.getInt() );
+        block.setPropBlock( oldRecord.getLong() );
+        blocks.add( block );
+
+        oldRecord.getInt(); // prev prop, the new chains get new ones
+        long nextProp = oldRecord.getInt() & 0xFFFFFFFFL;
+        long nextModifier = (typeInt & 0xF0000L) << 16;
+        return CommonAbstractStore.longFromIntAndMod( nextProp, nextModifier );
+    }
+
+    private long nextId()
+    {
+        long id = nextId++;
+        if ( id == IdGeneratorImpl.INTEGER_MINUS_ONE )
+        {
+            // reserved for "no record", left as an unused record
+            id = nextId++;
+        }
+        return id;
+    }
+
+    private void writeRecord( PropertyRecord record ) throws IOException
+    {
+        newRecord.clear();
+        PropertyStore.writeRecord( record, new Buffer( null, newRecord ) );
+        newRecord.flip();
+        long position = record.getId() * PropertyStore.RECORD_SIZE;
+        while ( newRecord.hasRemaining() )
+        {
+            position += newStore.write( newRecord, position );
+        }
+    }
+
+    private void writeVersionAndIds( String newFileName ) throws IOException
+    {
+        ByteBuffer version = ByteBuffer.wrap( UTF8.encode( PropertyStore.VERSION ) );
+        long position = nextId * PropertyStore.RECORD_SIZE;
+        while ( version.hasRemaining() )
+        {
+            position += newStore.write( version, position );
+        }
+        newStore.force( false );
+
+        IdGeneratorImpl.createGenerator( newFileName + ID );
+        IdGeneratorImpl idGenerator = new IdGeneratorImpl( newFileName + ID, 1,
+            IdType.PROPERTY.getMaxValue() );
+        idGenerator.setHighId( nextId );
+        idGenerator.close();
+    }
+}
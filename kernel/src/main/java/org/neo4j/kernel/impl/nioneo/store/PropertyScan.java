@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scan over the values of one property of all nodes or relationships in
+ * a range of ids, reading the entity and property records directly from the
+ * store files in id order. Unlike reading the property through the graph
+ * API, a scan doesn't load the entities into the cache, doesn't build their
+ * property maps and doesn't box values of primitive types, see
+ * {@link PropertyValueVisitor}.
+ * <p>
+ * A scan reads the committed state of the store. It doesn't see changes in
+ * the current transaction and isn't isolated from transactions committing
+ * while it runs.
+ * <p>
+ * A scan can be {@link #split(int) split} into parts covering consecutive
+ * id ranges, that can be run in parallel each from a thread of its own.
+ */
+public abstract class PropertyScan
+{
+    /**
+     * Number of entities read from the store at a time, parts of a split
+     * scan start at a multiple of this.
+     */
+    static final int IDS_PER_BATCH = 1024;
+
+    final PropertyStore propertyStore;
+    final int keyId;
+    private final long fromId;
+    private final long toId;
+
+    PropertyScan( PropertyStore propertyStore, int keyId, long fromId,
+        long toId )
+    {
+        this.propertyStore = propertyStore;
+        this.keyId = keyId;
+        this.fromId = fromId;
+        this.toId = toId;
+    }
+
+    /**
+     * @return the key id of the property this scan reads
+     */
+    public int getKeyId()
+    {
+        return keyId;
+    }
+
+    /**
+     * @return the lowest id covered by this scan
+     */
+    public long getFromId()
+    {
+        return fromId;
+    }
+
+    /**
+     * @return the id after the highest id covered by this scan, or
+     *         {@link Long#MAX_VALUE} if this scan goes to the end of the
+     *         store as it is when the scan is run
+     */
+    public long getToId()
+    {
+        return toId;
+    }
+
+    /**
+     * Passes the value of the property of each entity in the range that
+     * has it to <CODE>visitor</CODE>, lowest entity id first.
+     *
+     * @param visitor the visitor to pass the values to, it mustn't modify
+     *            the graph
+     */
+    public void accept( PropertyValueVisitor visitor )
+    {
+        long[] ids = new long[IDS_PER_BATCH];
+        long[] firstProps = new long[IDS_PER_BATCH];
+        long endId = endId();
+        for ( long id = fromId; id < endId; id += IDS_PER_BATCH )
+        {
+            long batchEndId = Math.min( endId, id + IDS_PER_BATCH );
+            int count = getPropertyChainsInUse( id, batchEndId, ids,
+                firstProps );
+            propertyStore.visitProperties( ids, firstProps, count, keyId,
+                visitor );
+        }
+    }
+
+    /**
+     * Splits this scan into at most <CODE>parts</CODE> scans covering
+     * consecutive id ranges, together covering the same ids as this scan.
+     * Fewer parts are returned if there are too few ids to split over.
+     *
+     * @param parts the number of parts to split this scan into
+     * @return the parts in id order
+     */
+    public List<PropertyScan> split( int parts )
+    {
+        if ( parts < 1 )
+        {
+            throw new IllegalArgumentException( "Can't split into " + parts +
+                " parts" );
+        }
+        long endId = endId();
+        long idsPerPart = (endId - fromId + parts - 1) / parts;
+        // whole batches, so that parts don't share persistence windows
+        idsPerPart = Math.max( 1, (idsPerPart + IDS_PER_BATCH - 1) /
+            IDS_PER_BATCH ) * IDS_PER_BATCH;
+        List<PropertyScan> result = new ArrayList<PropertyScan>( parts );
+        long partFromId = fromId;
+        while ( endId - partFromId > idsPerPart )
+        {
+            result.add( newScan( partFromId, partFromId + idsPerPart ) );
+            partFromId += idsPerPart;
+        }
+        // the last part keeps the end of this scan, for an open ended scan
+        // that means ids created after the split are still covered
+        result.add( newScan( partFromId, toId ) );
+        return result;
+    }
+
+    private long endId()
+    {
+        return Math.min( toId, getHighId() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[key=" + keyId + ", " + fromId +
+            "-" + (toId == Long.MAX_VALUE ? "" : String.valueOf( toId )) + "]";
+    }
+
+    abstract long getHighId();
+
+    abstract int getPropertyChainsInUse( long fromId, long toId, long[] ids,
+        long[] firstProps );
+
+    abstract PropertyScan newScan( long fromId, long toId );
+
+    /**
+     * A scan over a property of nodes.
+     */
+    public static class Nodes extends PropertyScan
+    {
+        private final NodeStore nodeStore;
+
+        public Nodes( NeoStore neoStore, int keyId )
+        {
+            this( neoStore.getNodeStore(), neoStore.getPropertyStore(), keyId,
+                0, Long.MAX_VALUE );
+        }
+
+        private Nodes( NodeStore nodeStore, PropertyStore propertyStore,
+            int keyId, long fromId, long toId )
+        {
+            super( propertyStore, keyId, fromId, toId );
+            this.nodeStore = nodeStore;
+        }
+
+        @Override
+        long getHighId()
+        {
+            return nodeStore.getHighId();
+        }
+
+        @Override
+        int getPropertyChainsInUse( long fromId, long toId, long[] ids,
+            long[] firstProps )
+        {
+            return nodeStore.getPropertyChainsInUse( fromId, toId, ids,
+                firstProps );
+        }
+
+        @Override
+        PropertyScan newScan( long fromId, long toId )
+        {
+            return new Nodes( nodeStore, propertyStore, keyId, fromId, toId );
+        }
+    }
+
+    /**
+     * A scan over a property of relationships.
+     */
+    public static class Relationships extends PropertyScan
+    {
+        private final RelationshipStore relStore;
+
+        public Relationships( NeoStore neoStore, int keyId )
+        {
+            this( neoStore.getRelationshipStore(), neoStore.getPropertyStore(),
+                keyId, 0, Long.MAX_VALUE );
+        }
+
+        private Relationships( RelationshipStore relStore,
+            PropertyStore propertyStore, int keyId, long fromId, long toId )
+        {
+            super( propertyStore, keyId, fromId, toId );
+            this.relStore = relStore;
+        }
+
+        @Override
+        long getHighId()
+        {
+            return relStore.getHighId();
+        }
+
+        @Override
+        int getPropertyChainsInUse( long fromId, long toId, long[] ids,
+            long[] firstProps )
+        {
+            return relStore.getPropertyChainsInUse( fromId, toId, ids,
+                firstProps );
+        }
+
+        @Override
+        PropertyScan newScan( long fromId, long toId )
+        {
+            return new Relationships( relStore, propertyStore, keyId, fromId,
+                toId );
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.neo4j.kernel.Config;
 import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
 
@@ -43,12 +44,18 @@ public class PropertyStore extends AbstractStore implements Store
     public static final int DEFAULT_DATA_BLOCK_SIZE = 120;
 
     // store version, each store ends with this string (byte encoded)
-    private static final String VERSION = "PropertyStore v0.9.9";
+    static final String VERSION = "PropertyStore v0.A.0";
 
-    // record header size
-    // in_use(byte)+type(int)+key_indexId(int)+prop_blockId(long)+
-    // prev_prop_id(int)+next_prop_id(int)
-    public static final int RECORD_SIZE = 25;
+    // in_use(byte)+next_prop_mod(byte)+prev_prop_id(int)+next_prop_id(int)
+    static final int HEADER_SIZE = 10;
+
+    // type(byte)+key_indexId(int)+prop_block(long), type 0 means empty
+    static final int BLOCK_SIZE = 13;
+
+    // record size
+    // header+BLOCKS_PER_RECORD blocks
+    public static final int RECORD_SIZE = HEADER_SIZE +
+        PropertyRecord.BLOCKS_PER_RECORD * BLOCK_SIZE;
 
     private DynamicStringStore stringPropertyStore;
     private PropertyIndexStore propertyIndexStore;
@@ -128,6 +135,15 @@ public class PropertyStore extends AbstractStore implements Store
         super.flushAll();
     }
 
+    @Override
+    public boolean flushDirtyWindows( BackgroundFlusher flusher )
+    {
+        return stringPropertyStore.flushDirtyWindows( flusher ) &&
+            propertyIndexStore.flushDirtyWindows( flusher ) &&
+            arrayPropertyStore.flushDirtyWindows( flusher ) &&
+            super.flushDirtyWindows( flusher );
+    }
+
     public String getTypeAndVersionDescriptor()
     {
         return VERSION;
@@ -214,6 +230,11 @@ public class PropertyStore extends AbstractStore implements Store
         return propertyIndexStore;
     }
 
+    DynamicStringStore getStringStore()
+    {
+        return stringPropertyStore;
+    }
+
     public void updateRecord( PropertyRecord record, boolean recovered )
     {
         assert recovered;
@@ -241,62 +262,86 @@ public class PropertyStore extends AbstractStore implements Store
         {
             releaseWindow( window );
         }
-        if ( !record.isLight() )
+        for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
         {
-            for ( DynamicRecord valueRecord : record.getValueRecords() )
+            PropertyBlock block = record.getBlock( i );
+            if ( block != null && !block.isLight() )
             {
-                if ( valueRecord.getType() == PropertyType.STRING.intValue() )
-                {
-                    stringPropertyStore.updateRecord( valueRecord );
-                }
-                else if ( valueRecord.getType() == 
-                    PropertyType.ARRAY.intValue() )
-                {
-                    arrayPropertyStore.updateRecord( valueRecord );
-                }
-                else
-                {
-                    throw new InvalidRecordException( "Unknown dynamic record" );
-                }
+                updateValueRecords( block.getValueRecords() );
             }
         }
+        updateValueRecords( record.getDeletedValueRecords() );
     }
 
-    // in_use(byte)+type(int)+key_blockId(int)+prop_blockId(long)+
-    // prev_prop_id(int)+next_prop_id(int)
+    private void updateValueRecords( Collection<DynamicRecord> valueRecords )
+    {
+        for ( DynamicRecord valueRecord : valueRecords )
+        {
+            if ( valueRecord.getType() == PropertyType.STRING.intValue() )
+            {
+                stringPropertyStore.updateRecord( valueRecord );
+            }
+            else if ( valueRecord.getType() == 
+                PropertyType.ARRAY.intValue() )
+            {
+                arrayPropertyStore.updateRecord( valueRecord );
+            }
+            else
+            {
+                throw new InvalidRecordException( "Unknown dynamic record" );
+            }
+        }
+    }
 
     private void updateRecord( PropertyRecord record, PersistenceWindow window )
     {
         long id = record.getId();
         Buffer buffer = window.getOffsettedBuffer( id );
+        writeRecord( record, buffer );
+        if ( !record.inUse() && !isInRecoveryMode() )
+        {
+            freeId( id );
+        }
+    }
+
+    // in_use(byte)+next_prop_mod(byte)+prev_prop_id(int)+next_prop_id(int)+
+    // BLOCKS_PER_RECORD*(type(byte)+key_indexId(int)+prop_block(long))
+
+    static void writeRecord( PropertyRecord record, Buffer buffer )
+    {
         if ( record.inUse() )
         {
             long prevProp = record.getPrevProp();
             long prevModifier = prevProp == Record.NO_NEXT_PROPERTY.intValue() ? 0 : (prevProp & 0xF00000000L) >> 28;
             
             long nextProp = record.getNextProp();
-            long nextModifier = nextProp == Record.NO_NEXT_PROPERTY.intValue() ? 0 : (nextProp & 0xF00000000L) >> 16;
+            long nextModifier = nextProp == Record.NO_NEXT_PROPERTY.intValue() ? 0 : (nextProp & 0xF00000000L) >> 32;
             
             // [    ,   x] in use
             // [xxxx,    ] high prev prop bits
             short inUseUnsignedByte = (short)((Record.IN_USE.byteValue() | prevModifier));
             
-            // [    ,    ][    ,    ][xxxx,xxxx][xxxx,xxxx] type
-            // [    ,    ][    ,xxxx][    ,    ][    ,    ] high next prop bits
-            int typeInt = record.getType().intValue();
-            typeInt |= nextModifier;
-            
-            buffer.put( (byte)inUseUnsignedByte ).putInt( typeInt )
-                .putInt( record.getKeyIndexId() ).putLong( record.getPropBlock() )
+            // [    ,xxxx] high next prop bits
+            buffer.put( (byte)inUseUnsignedByte ).put( (byte) nextModifier )
                 .putInt( (int) prevProp ).putInt( (int) nextProp );
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+            {
+                PropertyBlock block = record.getBlock( i );
+                if ( block == null )
+                {
+                    buffer.put( (byte) 0 ).putInt( 0 ).putLong( 0 );
+                }
+                else
+                {
+                    buffer.put( (byte) block.getType().intValue() )
+                        .putInt( block.getKeyIndexId() )
+                        .putLong( block.getPropBlock() );
+                }
+            }
         }
         else
         {
             buffer.put( Record.NOT_IN_USE.byteValue() );
-            if ( !isInRecoveryMode() )
-            {
-                freeId( id );
-            }
         }
     }
 
@@ -305,9 +350,7 @@ public class PropertyStore extends AbstractStore implements Store
         PersistenceWindow window = acquireWindow( id, OperationType.READ );
         try
         {
-            PropertyRecord record = getRecord( id, window );
-            record.setIsLight( true );
-            return record;
+            return getRecord( id, window );
         }
         finally
         {
@@ -315,76 +358,290 @@ public class PropertyStore extends AbstractStore implements Store
         }
     }
 
-    public void makeHeavy( PropertyRecord record )
+    /**
+     * Returns the property <CODE>propertyId</CODE> with its value records
+     * loaded.
+     *
+     * @throws InvalidRecordException if the property doesn't exist
+     */
+    public PropertyBlock getBlock( long propertyId )
     {
-        record.setIsLight( false );
-        if ( record.getType() == PropertyType.STRING )
+        PropertyRecord record = getLightRecord( PropertyRecord.recordId( propertyId ) );
+        PropertyBlock block = record.getBlock( PropertyRecord.blockIndex( propertyId ) );
+        if ( block == null )
         {
-            Collection<DynamicRecord> stringRecords = 
-                stringPropertyStore.getLightRecords( 
-                    record.getPropBlock() );
-            for ( DynamicRecord stringRecord : stringRecords )
+            throw new InvalidRecordException( "Property[" + propertyId + "] not in use" );
+        }
+        makeHeavy( block );
+        return block;
+    }
+
+    /**
+     * Returns the light records of the property chain starting at
+     * <CODE>firstId</CODE>, in chain order. A window is kept for as long as
+     * the next record in the chain is inside it, so a chain that was written
+     * in one go (and therefore got consecutive ids) is read with a single
+     * window acquire instead of one per property.
+     *
+     * @param firstId the id of the first property record in the chain
+     * @return the light property records of the chain
+     */
+    public List<PropertyRecord> getLightRecordChain( long firstId )
+    {
+        List<PropertyRecord> chain = new ArrayList<PropertyRecord>();
+        long nextProp = firstId;
+        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+        {
+            PersistenceWindow window = acquireWindow( nextProp,
+                OperationType.READ );
+            try
             {
-                stringRecord.setType( PropertyType.STRING.intValue() );
-                record.addValueRecord( stringRecord );
+                do
+                {
+                    PropertyRecord record = getRecord( nextProp, window );
+                    chain.add( record );
+                    nextProp = record.getNextProp();
+                }
+                while ( nextProp != Record.NO_NEXT_PROPERTY.intValue()
+                    && isInWindow( nextProp, window ) );
+            }
+            finally
+            {
+                releaseWindow( window );
             }
         }
-        else if ( record.getType() == PropertyType.ARRAY )
+        return chain;
+    }
+
+    /**
+     * Looks up the property with key <CODE>keyId</CODE> in the property
+     * chains starting at <CODE>firstProps</CODE> and passes its value, if
+     * found, to <CODE>visitor</CODE> together with the id of the entity at
+     * the same index in <CODE>entityIds</CODE>. The records are read
+     * directly from the persistence windows without creating property
+     * records, keeping a window for as long as the chains stay inside it.
+     * Values kept in the dynamic stores are loaded with the window released.
+     * <p>
+     * The visitor is called with a read window held, so it mustn't modify
+     * the graph. Properties deleted while the chains are visited are
+     * skipped, a record no longer in use ends the chain it is in.
+     *
+     * @param entityIds the ids of the entities owning the chains
+     * @param firstProps the ids of the first property record of each chain,
+     *            or {@link Record#NO_NEXT_PROPERTY}
+     * @param count the number of chains to look in
+     * @param keyId the key id of the property to look up
+     * @param visitor the visitor to pass the values to
+     */
+    public void visitProperties( long[] entityIds, long[] firstProps,
+        int count, int keyId, PropertyValueVisitor visitor )
+    {
+        PersistenceWindow window = null;
+        try
         {
-            Collection<DynamicRecord> arrayRecords = 
-                arrayPropertyStore.getLightRecords( 
-                    record.getPropBlock() );
-            for ( DynamicRecord arrayRecord : arrayRecords )
+            for ( int i = 0; i < count; i++ )
             {
-                arrayRecord.setType( PropertyType.ARRAY.intValue() );
-                record.addValueRecord( arrayRecord );
+                long propId = firstProps[i];
+                while ( propId != Record.NO_NEXT_PROPERTY.intValue() )
+                {
+                    if ( window == null || !isInWindow( propId, window ) )
+                    {
+                        if ( window != null )
+                        {
+                            releaseWindow( window );
+                            window = null;
+                        }
+                        window = acquireWindow( propId, OperationType.READ );
+                    }
+                    Buffer buffer = window.getOffsettedBuffer( propId );
+                    long inUseByte = buffer.get();
+                    if ( (inUseByte & 0x1) != Record.IN_USE.intValue() )
+                    {
+                        // deleted since the chain was read, the entity
+                        // or its property is gone
+                        break;
+                    }
+                    long nextModifier = (buffer.get() & 0xFL) << 32;
+                    buffer.getUnsignedInt(); // prev prop
+                    long nextProp = buffer.getUnsignedInt();
+                    int blockIndex = -1;
+                    int typeInt = 0;
+                    long propBlock = 0;
+                    for ( int block = 0; block < PropertyRecord.BLOCKS_PER_RECORD; block++ )
+                    {
+                        typeInt = buffer.get();
+                        int blockKeyId = buffer.getInt();
+                        propBlock = buffer.getLong();
+                        if ( typeInt != 0 && blockKeyId == keyId )
+                        {
+                            blockIndex = block;
+                            break;
+                        }
+                    }
+                    if ( blockIndex != -1 )
+                    {
+                        long propertyId = PropertyRecord.propertyId( propId, blockIndex );
+                        PropertyType type = getEnumType( typeInt );
+                        if ( type.usesStringStore() || type == PropertyType.ARRAY )
+                        {
+                            releaseWindow( window );
+                            window = null;
+                            Object value = getDeletableValue( propertyId, keyId );
+                            if ( value != null )
+                            {
+                                visitor.visitOther( entityIds[i], value );
+                            }
+                        }
+                        else
+                        {
+                            visitValue( entityIds[i], type, propBlock, visitor );
+                        }
+                        break;
+                    }
+                    propId = longFromIntAndMod( nextProp, nextModifier );
+                }
+            }
+        }
+        finally
+        {
+            if ( window != null )
+            {
+                releaseWindow( window );
             }
         }
     }
 
-    public PropertyRecord getRecord( long id )
+    /**
+     * Returns the value of the property <CODE>propertyId</CODE> or
+     * <CODE>null</CODE> if it has been deleted, or its id reused for a
+     * property with another key, since it was read without a window held.
+     */
+    private Object getDeletableValue( long propertyId, int keyId )
     {
-        PropertyRecord record;
-        PersistenceWindow window = acquireWindow( id, OperationType.READ );
         try
         {
-            record = getRecord( id, window );
+            PropertyBlock block = getBlock( propertyId );
+            if ( block.getKeyIndexId() != keyId )
+            {
+                return null;
+            }
+            return getValue( block );
         }
-        finally
+        catch ( InvalidRecordException e )
         {
-            releaseWindow( window );
+            return null;
+        }
+    }
+
+    private void visitValue( long entityId, PropertyType type,
+        long propBlock, PropertyValueVisitor visitor )
+    {
+        switch ( type )
+        {
+        case INT:
+            visitor.visitInt( entityId, (int) propBlock );
+            break;
+        case LONG:
+            visitor.visitLong( entityId, propBlock );
+            break;
+        case DOUBLE:
+            visitor.visitDouble( entityId, Double.longBitsToDouble( propBlock ) );
+            break;
+        case BOOL:
+            visitor.visitBoolean( entityId, propBlock == 1 );
+            break;
+        default:
+            PropertyBlock block = new PropertyBlock();
+            block.setType( type );
+            block.setPropBlock( propBlock );
+            visitor.visitOther( entityId, getValue( block ) );
+        }
+    }
+
+    private static boolean isInWindow( long id, PersistenceWindow window )
+    {
+        return id >= window.position()
+            && id < window.position() + window.size();
+    }
+
+    /**
+     * Loads the value records of all light blocks of <CODE>record</CODE>.
+     */
+    public void makeHeavy( PropertyRecord record )
+    {
+        for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+        {
+            PropertyBlock block = record.getBlock( i );
+            if ( block != null && block.isLight() )
+            {
+                makeHeavy( block );
+            }
         }
-        if ( record.getType() == PropertyType.STRING )
+    }
+
+    public void makeHeavy( PropertyBlock block )
+    {
+        block.setIsLight( false );
+        if ( block.getType().usesStringStore() )
         {
             Collection<DynamicRecord> stringRecords = 
                 stringPropertyStore.getLightRecords( 
-                    record.getPropBlock() );
-            record.setIsLight( false );
+                    block.getPropBlock() );
             for ( DynamicRecord stringRecord : stringRecords )
             {
                 stringRecord.setType( PropertyType.STRING.intValue() );
-                record.addValueRecord( stringRecord );
+                block.addValueRecord( stringRecord );
             }
         }
-        else if ( record.getType() == PropertyType.ARRAY )
+        else if ( block.getType() == PropertyType.ARRAY )
         {
             Collection<DynamicRecord> arrayRecords = 
                 arrayPropertyStore.getLightRecords( 
-                    record.getPropBlock() );
-            record.setIsLight( false );
+                    block.getPropBlock() );
             for ( DynamicRecord arrayRecord : arrayRecords )
             {
                 arrayRecord.setType( PropertyType.ARRAY.intValue() );
-                record.addValueRecord( arrayRecord );
+                block.addValueRecord( arrayRecord );
             }
         }
+    }
+
+    public PropertyRecord getRecord( long id )
+    {
+        PropertyRecord record;
+        PersistenceWindow window = acquireWindow( id, OperationType.READ );
+        try
+        {
+            record = getRecord( id, window );
+        }
+        finally
+        {
+            releaseWindow( window );
+        }
+        makeHeavy( record );
         return record;
     }
 
+    /**
+     * Reads the record <CODE>id</CODE> with all its blocks light.
+     */
     private PropertyRecord getRecord( long id, PersistenceWindow window )
     {
         Buffer buffer = window.getOffsettedBuffer( id );
-        
+        PropertyRecord record = readRecord( id, buffer );
+        if ( record == null )
+        {
+            throw new InvalidRecordException( "Record[" + id + "] not in use" );
+        }
+        return record;
+    }
+
+    /**
+     * Reads the record <CODE>id</CODE> from <CODE>buffer</CODE>, returning
+     * <CODE>null</CODE> if it isn't in use.
+     */
+    static PropertyRecord readRecord( long id, Buffer buffer )
+    {
         // [    ,   x] in use
         // [xxxx,    ] high prev prop bits
         long inUseByte = buffer.get();
@@ -392,37 +649,47 @@ public class PropertyStore extends AbstractStore implements Store
         boolean inUse = (inUseByte & 0x1) == Record.IN_USE.intValue();
         if ( !inUse )
         {
-            throw new InvalidRecordException( "Record[" + id + "] not in use" );
+            return null;
         }
         PropertyRecord record = new PropertyRecord( id );
-        
-        // [    ,    ][    ,    ][xxxx,xxxx][xxxx,xxxx] type
-        // [    ,    ][    ,xxxx][    ,    ][    ,    ] high next prop bits
-        long typeInt = buffer.getInt();
-        
-        record.setType( getEnumType( (int)typeInt & 0xFFFF ) );
         record.setInUse( true );
-        record.setKeyIndexId( buffer.getInt() );
-        record.setPropBlock( buffer.getLong() );
+        
+        // [    ,xxxx] high next prop bits
+        long nextModByte = buffer.get();
         
         long prevProp = buffer.getUnsignedInt();
         long prevModifier = (inUseByte & 0xF0L) << 28;
         long nextProp = buffer.getUnsignedInt();
-        long nextModifier = (typeInt & 0xF0000L) << 16;
+        long nextModifier = (nextModByte & 0xFL) << 32;
         
         record.setPrevProp( longFromIntAndMod( prevProp, prevModifier ) );
         record.setNextProp( longFromIntAndMod( nextProp, nextModifier ) );
+        for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+        {
+            int type = buffer.get();
+            int keyIndexId = buffer.getInt();
+            long propBlock = buffer.getLong();
+            if ( type != 0 )
+            {
+                PropertyBlock block = new PropertyBlock();
+                block.setType( getEnumType( type ) );
+                block.setKeyIndexId( keyIndexId );
+                block.setPropBlock( propBlock );
+                block.setIsLight( true );
+                record.setBlock( i, block );
+            }
+        }
         return record;
     }
 
-    private PropertyType getEnumType( int type )
+    private static PropertyType getEnumType( int type )
     {
         return PropertyType.getPropertyType( type, false );
     }
     
-    public Object getValue( PropertyRecord propertyRecord )
+    public Object getValue( PropertyBlock block )
     {
-        return propertyRecord.getType().getValue( propertyRecord, this );
+        return block.getType().getValue( block, this );
     }
 
     @Override
@@ -452,9 +719,9 @@ public class PropertyStore extends AbstractStore implements Store
     }    
     
     private Collection<DynamicRecord> allocateStringRecords( long valueBlockId,
-        char[] chars )
+        byte[] bytes )
     {
-        return stringPropertyStore.allocateRecords( valueBlockId, chars );
+        return stringPropertyStore.allocateRecords( valueBlockId, bytes );
     }
 
     private Collection<DynamicRecord> allocateArrayRecords( long valueBlockId,
@@ -463,85 +730,82 @@ public class PropertyStore extends AbstractStore implements Store
         return arrayPropertyStore.allocateRecords( valueBlockId, array );
     }
 
-    public void encodeValue( PropertyRecord record, Object value )
+    public void encodeValue( PropertyBlock block, Object value )
     {
         if ( value instanceof String )
         {
             String string = (String) value;
-            if ( ShortString.encode( string, record ) )
+            if ( ShortString.encode( string, block ) )
             {
-                record.setType( PropertyType.SHORT_STRING );
+                block.setType( PropertyType.SHORT_STRING );
                 return;
             }
 
             long stringBlockId = nextStringBlockId();
-            record.setPropBlock( stringBlockId );
-            int length = string.length();
-            char[] chars = new char[length];
-            string.getChars( 0, length, chars, 0 );
+            block.setPropBlock( stringBlockId );
             Collection<DynamicRecord> valueRecords = allocateStringRecords(
-                stringBlockId, chars );
+                stringBlockId, StringEncoding.encode( string ) );
             for ( DynamicRecord valueRecord : valueRecords )
             {
                 valueRecord.setType( PropertyType.STRING.intValue() );
-                record.addValueRecord( valueRecord );
+                block.addValueRecord( valueRecord );
             }
-            record.setType( PropertyType.STRING );
+            block.setType( PropertyType.ENCODED_STRING );
         }
         else if ( value instanceof Integer )
         {
-            record.setPropBlock( ((Integer) value).intValue() );
-            record.setType( PropertyType.INT );
+            block.setPropBlock( ((Integer) value).intValue() );
+            block.setType( PropertyType.INT );
         }
         else if ( value instanceof Boolean )
         {
-            record.setPropBlock( (((Boolean) value).booleanValue() ? 1 : 0) );
-            record.setType( PropertyType.BOOL );
+            block.setPropBlock( (((Boolean) value).booleanValue() ? 1 : 0) );
+            block.setType( PropertyType.BOOL );
         }
         else if ( value instanceof Float )
         {
-            record.setPropBlock( Float.floatToRawIntBits( ((Float) value)
+            block.setPropBlock( Float.floatToRawIntBits( ((Float) value)
                 .floatValue() ) );
-            record.setType( PropertyType.FLOAT );
+            block.setType( PropertyType.FLOAT );
         }
         else if ( value instanceof Long )
         {
-            record.setPropBlock( ((Long) value).longValue() );
-            record.setType( PropertyType.LONG );
+            block.setPropBlock( ((Long) value).longValue() );
+            block.setType( PropertyType.LONG );
         }
         else if ( value instanceof Double )
         {
-            record.setPropBlock( Double.doubleToRawLongBits( ((Double) value)
+            block.setPropBlock( Double.doubleToRawLongBits( ((Double) value)
                 .doubleValue() ) );
-            record.setType( PropertyType.DOUBLE );
+            block.setType( PropertyType.DOUBLE );
         }
         else if ( value instanceof Byte )
         {
-            record.setPropBlock( ((Byte) value).byteValue() );
-            record.setType( PropertyType.BYTE );
+            block.setPropBlock( ((Byte) value).byteValue() );
+            block.setType( PropertyType.BYTE );
         }
         else if ( value instanceof Character )
         {
-            record.setPropBlock( ((Character) value).charValue() );
-            record.setType( PropertyType.CHAR );
+            block.setPropBlock( ((Character) value).charValue() );
+            block.setType( PropertyType.CHAR );
         }
         else if ( value.getClass().isArray() )
         {
             long arrayBlockId = nextArrayBlockId();
-            record.setPropBlock( arrayBlockId );
+            block.setPropBlock( arrayBlockId );
             Collection<DynamicRecord> arrayRecords = allocateArrayRecords(
                 arrayBlockId, value );
             for ( DynamicRecord valueRecord : arrayRecords )
             {
                 valueRecord.setType( PropertyType.ARRAY.intValue() );
-                record.addValueRecord( valueRecord );
+                block.addValueRecord( valueRecord );
             }
-            record.setType( PropertyType.ARRAY );
+            block.setType( PropertyType.ARRAY );
         }
         else if ( value instanceof Short )
         {
-            record.setPropBlock( ((Short) value).shortValue() );
-            record.setType( PropertyType.SHORT );
+            block.setPropBlock( ((Short) value).shortValue() );
+            block.setType( PropertyType.SHORT );
         }
         else
         {
@@ -550,15 +814,21 @@ public class PropertyStore extends AbstractStore implements Store
         }
     }
 
-    public Object getStringFor( PropertyRecord propRecord )
+    /**
+     * Returns the string value of a {@link PropertyType#STRING} or
+     * {@link PropertyType#ENCODED_STRING} property. The blocks are copied
+     * straight into one array which is then decoded.
+     */
+    public Object getStringFor( PropertyBlock block )
     {
-        long recordToFind = propRecord.getPropBlock();
+        long recordToFind = block.getPropBlock();
         Map<Long,DynamicRecord> recordsMap = new HashMap<Long,DynamicRecord>();
-        for ( DynamicRecord record : propRecord.getValueRecords() )
+        for ( DynamicRecord record : block.getValueRecords() )
         {
             recordsMap.put( record.getId(), record );
         }
-        List<char[]> charList = new LinkedList<char[]>();
+        List<DynamicRecord> chain = new ArrayList<DynamicRecord>( 
+            recordsMap.size() );
         int totalSize = 0;
         while ( recordToFind != Record.NO_NEXT_BLOCK.intValue() )
         {
@@ -567,31 +837,52 @@ public class PropertyStore extends AbstractStore implements Store
             {
                 stringPropertyStore.makeHeavy( record );
             }
-            if ( !record.isCharData() )
+            totalSize += record.isCharData() ? 
+                record.getDataAsChar().length * 2 : record.getData().length;
+            chain.add( record );
+            recordToFind = record.getNextBlock();
+        }
+        if ( block.getType() == PropertyType.ENCODED_STRING )
+        {
+            byte[] bytes = new byte[totalSize];
+            int offset = 0;
+            for ( DynamicRecord record : chain )
             {
-                ByteBuffer buf = ByteBuffer.wrap( record.getData() );
-                char[] chars = new char[record.getData().length / 2];
-                totalSize += chars.length;
-                buf.asCharBuffer().get( chars );
-                charList.add( chars );
+                if ( record.isCharData() )
+                {
+                    throw new InvalidRecordException( 
+                        "Expected byte data on record " + record );
+                }
+                byte[] data = record.getData();
+                System.arraycopy( data, 0, bytes, offset, data.length );
+                offset += data.length;
+            }
+            return StringEncoding.decode( bytes, 0, bytes.length );
+        }
+        char[] chars = new char[totalSize / 2];
+        int offset = 0;
+        for ( DynamicRecord record : chain )
+        {
+            if ( record.isCharData() )
+            {
+                char[] data = record.getDataAsChar();
+                System.arraycopy( data, 0, chars, offset, data.length );
+                offset += data.length;
             }
             else
             {
-                charList.add( record.getDataAsChar() );
+                int length = record.getData().length / 2;
+                ByteBuffer.wrap( record.getData() ).asCharBuffer().get( 
+                    chars, offset, length );
+                offset += length;
             }
-            recordToFind = record.getNextBlock();
-        }
-        StringBuffer buf = new StringBuffer();
-        for ( char[] str : charList )
-        {
-            buf.append( str );
         }
-        return buf.toString();
+        return new String( chars );
     }
 
-    public Object getArrayFor( PropertyRecord propertyRecord )
+    public Object getArrayFor( PropertyBlock block )
     {
-        return getArrayFor( propertyRecord.getPropBlock(), propertyRecord.getValueRecords(), arrayPropertyStore );
+        return getArrayFor( block.getPropBlock(), block.getValueRecords(), arrayPropertyStore );
     }
     
     public static Object getArrayFor( long startRecord, Iterable<DynamicRecord> records,
@@ -652,9 +943,11 @@ public class PropertyStore extends AbstractStore implements Store
 //            closeIdGenerator();
 //            return true;
 //        }
-        if ( version.equals( "PropertyStore v0.9.5" ) )
+        if ( version.equals( "PropertyStore v0.9.5" ) || version.equals( "PropertyStore v0.9.9" ) )
         {
-            return true;
+            throw new IllegalStoreVersionException( "Store version [" + version + "] has " +
+                "one property per record, it can only be upgraded by a neo store with '" +
+                Config.ALLOW_STORE_UPGRADE + "' configuration parameter set to 'true'." );
         }
         throw new IllegalStoreVersionException( "Store version [" + version  + 
             "]. Please make sure you are not running old Neo4j kernel " + 
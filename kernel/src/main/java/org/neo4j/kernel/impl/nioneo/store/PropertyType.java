@@ -27,100 +27,113 @@ public enum PropertyType
     ILLEGAL( 0 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            throw new InvalidRecordException( "Invalid type: 0 for record " + record );
+            throw new InvalidRecordException( "Invalid type: 0 for block " + block );
         }
     },
     INT( 1 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return Integer.valueOf( (int) record.getPropBlock() );
+            return Integer.valueOf( (int) block.getPropBlock() );
         }
     },
     STRING( 2 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
             if ( store == null ) return null;
-            return store.getStringFor( record );
+            return store.getStringFor( block );
         }
     },
     BOOL( 3 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            if ( record.getPropBlock() == 1 ) return Boolean.TRUE;
+            if ( block.getPropBlock() == 1 ) return Boolean.TRUE;
             return Boolean.FALSE;
         }
     },
     DOUBLE( 4 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return Double.valueOf( Double.longBitsToDouble( record.getPropBlock() ) );
+            return Double.valueOf( Double.longBitsToDouble( block.getPropBlock() ) );
         }
     },
     FLOAT( 5 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return new Float( Float.intBitsToFloat( (int) record.getPropBlock() ) );
+            return new Float( Float.intBitsToFloat( (int) block.getPropBlock() ) );
         }
     },
     LONG( 6 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return Long.valueOf( record.getPropBlock() );
+            return Long.valueOf( block.getPropBlock() );
         }
     },
     BYTE( 7 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return Byte.valueOf( (byte) record.getPropBlock() );
+            return Byte.valueOf( (byte) block.getPropBlock() );
         }
     },
     CHAR( 8 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return Character.valueOf( (char) record.getPropBlock() );
+            return Character.valueOf( (char) block.getPropBlock() );
         }
     },
     ARRAY( 9 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
             if ( store == null ) return null;
-            return store.getArrayFor( record );
+            return store.getArrayFor( block );
         }
     },
     SHORT( 10 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return Short.valueOf( (short) record.getPropBlock() );
+            return Short.valueOf( (short) block.getPropBlock() );
         }
     },
     SHORT_STRING( 11 )
     {
         @Override
-        public Object getValue( PropertyRecord record, PropertyStore store )
+        public Object getValue( PropertyBlock block, PropertyStore store )
         {
-            return ShortString.decode( record.getPropBlock() );
+            return ShortString.decode( block.getPropBlock() );
+        }
+    },
+    /**
+     * A string in the dynamic string store encoded with
+     * {@link StringEncoding}, {@link #STRING} values are plain UTF-16.
+     */
+    ENCODED_STRING( 12 )
+    {
+        @Override
+        public Object getValue( PropertyBlock block, PropertyStore store )
+        {
+            if ( store == null ) return null;
+            return store.getStringFor( block );
         }
     }
     ;
@@ -142,7 +155,16 @@ public enum PropertyType
         return type;
     }
 
-    public abstract Object getValue( PropertyRecord record, PropertyStore store );
+    /**
+     * Returns <CODE>true</CODE> if values of this type are kept in the
+     * dynamic string store.
+     */
+    public boolean usesStringStore()
+    {
+        return this == STRING || this == ENCODED_STRING;
+    }
+
+    public abstract Object getValue( PropertyBlock block, PropertyStore store );
 
     public static PropertyType getPropertyType( int type, boolean nullOnIllegal )
     {
@@ -173,6 +195,8 @@ public enum PropertyType
             return SHORT;
         case 11:
             return SHORT_STRING;
+        case 12:
+            return ENCODED_STRING;
         }
         throw new InvalidRecordException( "Unknown property type:" + type );
     }
@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+/**
+ * Receives the values found by a {@link PropertyScan}, one call per entity
+ * that has the property. Values of type int, long, double and boolean are
+ * passed as primitives, values of the other types boxed as they would be
+ * returned by {@link PropertyStore#getValue(PropertyBlock)}.
+ */
+public interface PropertyValueVisitor
+{
+    void visitInt( long entityId, int value );
+
+    void visitLong( long entityId, long value );
+
+    void visitDouble( long entityId, double value );
+
+    void visitBoolean( long entityId, boolean value );
+
+    void visitOther( long entityId, Object value );
+}
@@ -31,6 +31,7 @@ public enum Record
     NO_PREVIOUS_PROPERTY( (byte) -1, -1 ),
     NO_NEXT_RELATIONSHIP( (byte) -1, -1 ),
     NO_PREV_RELATIONSHIP( (byte) -1, -1 ), 
+    NO_NEXT_GROUP( (byte) -1, -1 ),
     NOT_DIRECTED( (byte) 0, 0 ),
     DIRECTED( (byte) 2, 2 ), 
     NO_NEXT_BLOCK( (byte) -1, -1 ), 
@@ -19,27 +19,122 @@
  */
 package org.neo4j.kernel.impl.nioneo.store;
 
+import org.neo4j.graphdb.Direction;
+
+/**
+ * How far the relationship chains of a node have been loaded. There is one
+ * chain per relationship type and {@link RelationshipDirection}, so
+ * relationships of some types and directions can be loaded without touching
+ * the others.
+ */
 public class RelationshipChainPosition
 {
-    private long nextRecord;
-    
-    public RelationshipChainPosition( long startRecord )
+    private int[] types = new int[2];
+    private RelationshipDirection[] directions = new RelationshipDirection[2];
+    private long[] nextRecords = new long[2];
+    private int size;
+
+    /**
+     * Creates a position without any chains, as for a node without
+     * relationships.
+     */
+    public RelationshipChainPosition()
+    {
+    }
+
+    public void addChain( int type, RelationshipDirection direction, long startRecord )
+    {
+        if ( size == types.length )
+        {
+            int newLength = size * 2;
+            int[] newTypes = new int[newLength];
+            RelationshipDirection[] newDirections = new RelationshipDirection[newLength];
+            long[] newNextRecords = new long[newLength];
+            System.arraycopy( types, 0, newTypes, 0, size );
+            System.arraycopy( directions, 0, newDirections, 0, size );
+            System.arraycopy( nextRecords, 0, newNextRecords, 0, size );
+            types = newTypes;
+            directions = newDirections;
+            nextRecords = newNextRecords;
+        }
+        types[size] = type;
+        directions[size] = direction;
+        nextRecords[size] = startRecord;
+        size++;
+    }
+
+    public int chainCount()
+    {
+        return size;
+    }
+
+    public int getType( int chain )
+    {
+        return types[chain];
+    }
+
+    public RelationshipDirection getDirection( int chain )
+    {
+        return directions[chain];
+    }
+
+    public long getNextRecord( int chain )
     {
-        nextRecord = startRecord;
+        return nextRecords[chain];
     }
-    
-    public long getNextRecord()
+
+    public void setNextRecord( int chain, long record )
     {
-        return nextRecord;
+        nextRecords[chain] = record;
     }
-    
-    public void setNextRecord( long record )
+
+    /**
+     * Returns <CODE>true</CODE> if <CODE>chain</CODE> holds relationships
+     * of one of <CODE>typeIds</CODE> (<CODE>null</CODE> meaning any type)
+     * in <CODE>direction</CODE>. Loops match every direction.
+     */
+    public boolean matches( int chain, int[] typeIds, Direction direction )
     {
-        nextRecord = record;
+        RelationshipDirection chainDirection = directions[chain];
+        if ( direction == Direction.OUTGOING &&
+            chainDirection == RelationshipDirection.INCOMING )
+        {
+            return false;
+        }
+        if ( direction == Direction.INCOMING &&
+            chainDirection == RelationshipDirection.OUTGOING )
+        {
+            return false;
+        }
+        if ( typeIds == null )
+        {
+            return true;
+        }
+        for ( int typeId : typeIds )
+        {
+            if ( typeId == types[chain] )
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean hasMore()
     {
-        return nextRecord != Record.NO_NEXT_RELATIONSHIP.intValue();
+        return hasMore( null, Direction.BOTH );
+    }
+
+    public boolean hasMore( int[] typeIds, Direction direction )
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( nextRecords[i] != Record.NO_NEXT_RELATIONSHIP.intValue() &&
+                matches( i, typeIds, direction ) )
+            {
+                return true;
+            }
+        }
+        return false;
     }
 }
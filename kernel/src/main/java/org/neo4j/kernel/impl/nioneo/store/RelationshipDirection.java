@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+/**
+ * The relationship chains a {@link RelationshipGroupRecord} points to. A
+ * relationship is in the outgoing chain of its first node and the incoming
+ * chain of its second node, except for loops which only are in the loop
+ * chain of their node.
+ */
+public enum RelationshipDirection
+{
+    OUTGOING,
+    INCOMING,
+    LOOP;
+
+    public static RelationshipDirection of( RelationshipRecord record, long nodeId )
+    {
+        if ( record.getFirstNode() == nodeId )
+        {
+            return record.getSecondNode() == nodeId ? LOOP : OUTGOING;
+        }
+        else if ( record.getSecondNode() == nodeId )
+        {
+            return INCOMING;
+        }
+        throw new InvalidRecordException( "Node[" + nodeId + "] is neither firstNode[" +
+            record.getFirstNode() + "] nor secondNode[" + record.getSecondNode() +
+            "] for Relationship[" + record.getId() + "]" );
+    }
+}
@@ -0,0 +1,462 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.neo4j.helpers.UTF8;
+import org.neo4j.kernel.IdGeneratorFactory;
+import org.neo4j.kernel.impl.util.FileUtils;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+/**
+ * Splits up the single relationship chain each node had in stores older
+ * than v0.A.0 into one chain per relationship type and
+ * {@link RelationshipDirection}, held by {@link RelationshipGroupRecord}s.
+ * <p>
+ * Only the pointers belonging to the node being migrated are touched in a
+ * relationship record, so the other node of a relationship can still walk
+ * its old chain until it gets migrated itself.
+ * <p>
+ * The migration never touches the store files in place. The node and
+ * relationship stores are copied into an {@link #UPGRADE_DIRECTORY} where
+ * they are migrated together with a new relationship group store. When that
+ * is done a marker file is written and the files are moved into place. A
+ * crash before the marker leaves the old store files as they were and the
+ * migration is simply done again, a crash after it is completed by moving
+ * the remaining files on the next start.
+ * <p>
+ * Stores that old also have one property per property record, so their
+ * property store is packed by a {@link PropertyRecordMigration} into the
+ * same upgrade directory before the marker is written.
+ */
+class RelationshipGroupMigration
+{
+    static final String UPGRADE_DIRECTORY = "upgrade";
+    static final String MIGRATED_MARKER = "relationship-groups-migrated";
+
+    private static final String NODE_STORE = ".nodestore.db";
+    private static final String REL_STORE = ".relationshipstore.db";
+    private static final String REL_GROUP_STORE = ".relationshipgroupstore.db";
+    private static final String ID = ".id";
+    private static final String[] OLD_NODE_STORE_VERSIONS = {
+        "NodeStore v0.9.5", "NodeStore v0.9.9" };
+
+    private final NodeStore nodeStore;
+    private final RelationshipStore relStore;
+    private final RelationshipGroupStore groupStore;
+    private final StringLogger msgLog;
+
+    RelationshipGroupMigration( NodeStore nodeStore, RelationshipStore relStore,
+        RelationshipGroupStore groupStore, StringLogger msgLog )
+    {
+        this.nodeStore = nodeStore;
+        this.relStore = relStore;
+        this.groupStore = groupStore;
+        this.msgLog = msgLog;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the node store of the neo store at
+     * <CODE>neoStoreFileName</CODE> still has one relationship chain per
+     * node. That is decided by the version at the end of the node store
+     * file, which is left as it is until the migrated files are moved in.
+     */
+    static boolean isNeeded( String neoStoreFileName )
+    {
+        return endsWithOneOf( new File( neoStoreFileName + NODE_STORE ),
+            OLD_NODE_STORE_VERSIONS );
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if <CODE>storeFile</CODE> exists and ends
+     * with one of <CODE>versions</CODE>, which all have to be of the same
+     * length.
+     */
+    static boolean endsWithOneOf( File storeFile, String[] versions )
+    {
+        if ( !storeFile.exists() )
+        {
+            return false;
+        }
+        try
+        {
+            RandomAccessFile file = new RandomAccessFile( storeFile, "r" );
+            try
+            {
+                byte[] version = new byte[UTF8.encode( versions[0] ).length];
+                if ( file.length() < version.length )
+                {
+                    return false;
+                }
+                file.seek( file.length() - version.length );
+                file.readFully( version );
+                String found = UTF8.decode( version );
+                for ( String oldVersion : versions )
+                {
+                    if ( oldVersion.equals( found ) )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            finally
+            {
+                file.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to read version of "
+                + storeFile, e );
+        }
+    }
+
+    /**
+     * Moves the files of a migration that was interrupted after all of them
+     * had been written into place. Does nothing if there is no such
+     * migration.
+     */
+    static void completeInterrupted( String neoStoreFileName )
+    {
+        if ( new File( upgradeDirectory( neoStoreFileName ), MIGRATED_MARKER ).exists() )
+        {
+            moveIntoPlace( neoStoreFileName );
+        }
+    }
+
+    /**
+     * Splits up the relationship chains of the neo store at
+     * <CODE>neoStoreFileName</CODE>, see the class comment for how this is
+     * made safe to interrupt.
+     */
+    static void upgrade( String neoStoreFileName, Map<?,?> config, StringLogger msgLog )
+    {
+        migrateIntoUpgradeDirectory( neoStoreFileName, config, msgLog );
+        moveIntoPlace( neoStoreFileName );
+    }
+
+    static void migrateIntoUpgradeDirectory( String neoStoreFileName, Map<?,?> config,
+        StringLogger msgLog )
+    {
+        File upgradeDir = upgradeDirectory( neoStoreFileName );
+        if ( upgradeDir.exists() )
+        {
+            msgLog.logMessage( "Removing files of interrupted relationship group migration in "
+                + upgradeDir, true );
+            deleteDirectory( upgradeDir );
+        }
+        if ( !upgradeDir.mkdirs() )
+        {
+            throw new UnderlyingStorageException( "Unable to create " + upgradeDir );
+        }
+        String upgradeFileName = new File( upgradeDir,
+            new File( neoStoreFileName ).getName() ).getPath();
+        copyWithVersion( neoStoreFileName + NODE_STORE, upgradeFileName + NODE_STORE,
+            NodeStore.VERSION );
+        copyWithVersion( neoStoreFileName + REL_STORE, upgradeFileName + REL_STORE,
+            RelationshipStore.VERSION );
+        RelationshipGroupStore.createStore( upgradeFileName + REL_GROUP_STORE,
+            (IdGeneratorFactory) config.get( IdGeneratorFactory.class ) );
+
+        NodeStore nodeStore = new NodeStore( upgradeFileName + NODE_STORE, config );
+        RelationshipStore relStore = null;
+        RelationshipGroupStore groupStore = null;
+        try
+        {
+            relStore = new RelationshipStore( upgradeFileName + REL_STORE, config );
+            groupStore = new RelationshipGroupStore( upgradeFileName + REL_GROUP_STORE, config );
+            new RelationshipGroupMigration( nodeStore, relStore, groupStore, msgLog ).migrate();
+            if ( PropertyRecordMigration.isNeeded( neoStoreFileName ) )
+            {
+                PropertyRecordMigration.migrate( neoStoreFileName, upgradeFileName,
+                    nodeStore, relStore, msgLog );
+            }
+        }
+        finally
+        {
+            // closing forces the migrated records to disk
+            nodeStore.close();
+            if ( relStore != null )
+            {
+                relStore.close();
+            }
+            if ( groupStore != null )
+            {
+                groupStore.close();
+            }
+        }
+        writeMarker( new File( upgradeDir, MIGRATED_MARKER ) );
+    }
+
+    private static File upgradeDirectory( String neoStoreFileName )
+    {
+        return new File( new File( neoStoreFileName ).getAbsoluteFile().getParentFile(),
+            UPGRADE_DIRECTORY );
+    }
+
+    private static void copyWithVersion( String source, String target, String version )
+    {
+        try
+        {
+            byte[] versionBytes = UTF8.encode( version );
+            // the old version has the same length as the new one
+            FileChannel out = copy( new File( source ), new File( target ), versionBytes.length );
+            try
+            {
+                out.write( ByteBuffer.wrap( versionBytes ), out.size() );
+                out.force( false );
+            }
+            finally
+            {
+                out.close();
+            }
+            File idFile = new File( source + ID );
+            if ( idFile.exists() )
+            {
+                copy( idFile, new File( target + ID ), 0 ).close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to copy " + source
+                + " to " + target, e );
+        }
+    }
+
+    /**
+     * Copies all but the last <CODE>skipAtEnd</CODE> bytes of
+     * <CODE>source</CODE> to <CODE>target</CODE> and returns the forced, still
+     * open channel of <CODE>target</CODE>.
+     */
+    private static FileChannel copy( File source, File target, int skipAtEnd ) throws IOException
+    {
+        FileChannel in = new FileInputStream( source ).getChannel();
+        FileChannel out = new FileOutputStream( target ).getChannel();
+        try
+        {
+            long size = in.size() - skipAtEnd;
+            long position = 0;
+            while ( position < size )
+            {
+                position += in.transferTo( position, size - position, out );
+            }
+            out.force( false );
+            return out;
+        }
+        catch ( IOException e )
+        {
+            out.close();
+            throw e;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static void writeMarker( File marker )
+    {
+        try
+        {
+            FileOutputStream out = new FileOutputStream( marker );
+            try
+            {
+                out.getFD().sync();
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to create " + marker, e );
+        }
+    }
+
+    /**
+     * Moves every file left in the upgrade directory into the store
+     * directory, replacing the old ones. Can be done again after being
+     * interrupted, since files already moved are gone from the upgrade
+     * directory. The marker goes last.
+     */
+    private static void moveIntoPlace( String neoStoreFileName )
+    {
+        File upgradeDir = upgradeDirectory( neoStoreFileName );
+        File storeDir = upgradeDir.getParentFile();
+        File marker = new File( upgradeDir, MIGRATED_MARKER );
+        for ( File file : upgradeDir.listFiles() )
+        {
+            if ( file.equals( marker ) )
+            {
+                continue;
+            }
+            File target = new File( storeDir, file.getName() );
+            if ( !FileUtils.deleteFile( target ) || !FileUtils.renameFile( file, target ) )
+            {
+                throw new UnderlyingStorageException( "Unable to move " + file + " to " + target );
+            }
+        }
+        deleteDirectory( upgradeDir );
+    }
+
+    private static void deleteDirectory( File directory )
+    {
+        for ( File file : directory.listFiles() )
+        {
+            if ( !FileUtils.deleteFile( file ) )
+            {
+                throw new UnderlyingStorageException( "Unable to delete " + file );
+            }
+        }
+        if ( !FileUtils.deleteFile( directory ) )
+        {
+            throw new UnderlyingStorageException( "Unable to delete " + directory );
+        }
+    }
+
+    void migrate()
+    {
+        long highId = nodeStore.getHighId();
+        msgLog.logMessage( "Splitting up relationship chains of " + highId +
+            " node records into relationship groups", true );
+        long migrated = 0;
+        for ( long nodeId = 0; nodeId < highId; nodeId++ )
+        {
+            if ( !nodeStore.loadLightNode( nodeId ) )
+            {
+                continue;
+            }
+            NodeRecord node = nodeStore.getRecord( nodeId );
+            // before v0.A.0 the group pointer was the first relationship
+            long firstRel = node.getNextGroup();
+            if ( firstRel != Record.NO_NEXT_RELATIONSHIP.intValue() )
+            {
+                node.setNextGroup( migrateChain( nodeId, firstRel ) );
+                nodeStore.updateRecord( node );
+                migrated++;
+            }
+        }
+        msgLog.logMessage( "Relationship chains of " + migrated +
+            " nodes split up into relationship groups", true );
+    }
+
+    private long migrateChain( long nodeId, long firstRel )
+    {
+        // the last record so far of each type and direction, the chains are
+        // built in the same order as the old chain
+        Map<Integer,Chains> chainsByType = new LinkedHashMap<Integer,Chains>();
+        long nextRel = firstRel;
+        while ( nextRel != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            RelationshipRecord rel = relStore.getRecord( nextRel );
+            RelationshipDirection direction = RelationshipDirection.of( rel, nodeId );
+            boolean firstSide = direction != RelationshipDirection.INCOMING;
+            nextRel = firstSide ? rel.getFirstNextRel() : rel.getSecondNextRel();
+
+            Chains chains = chainsByType.get( rel.getType() );
+            if ( chains == null )
+            {
+                chains = new Chains();
+                chainsByType.put( rel.getType(), chains );
+            }
+            int index = direction.ordinal();
+            RelationshipRecord last = chains.last[index];
+            long prevRel = Record.NO_PREV_RELATIONSHIP.intValue();
+            if ( last == null )
+            {
+                chains.first[index] = rel.getId();
+            }
+            else
+            {
+                setNext( last, nodeId, rel.getId() );
+                relStore.updateRecord( last );
+                prevRel = last.getId();
+            }
+            if ( firstSide )
+            {
+                rel.setFirstPrevRel( prevRel );
+                rel.setFirstNextRel( Record.NO_NEXT_RELATIONSHIP.intValue() );
+            }
+            else
+            {
+                rel.setSecondPrevRel( prevRel );
+                rel.setSecondNextRel( Record.NO_NEXT_RELATIONSHIP.intValue() );
+            }
+            if ( direction == RelationshipDirection.LOOP )
+            {
+                // loops are only linked through their first node pointers
+                rel.setSecondPrevRel( Record.NO_PREV_RELATIONSHIP.intValue() );
+                rel.setSecondNextRel( Record.NO_NEXT_RELATIONSHIP.intValue() );
+            }
+            relStore.updateRecord( rel );
+            chains.last[index] = rel;
+        }
+
+        long nextGroup = Record.NO_NEXT_GROUP.intValue();
+        for ( Map.Entry<Integer,Chains> entry : chainsByType.entrySet() )
+        {
+            RelationshipGroupRecord group = new RelationshipGroupRecord(
+                groupStore.nextId(), entry.getKey() );
+            group.setInUse( true );
+            group.setNext( nextGroup );
+            group.setOwningNode( nodeId );
+            for ( RelationshipDirection direction : RelationshipDirection.values() )
+            {
+                group.setFirst( direction, entry.getValue().first[direction.ordinal()] );
+            }
+            groupStore.updateRecord( group );
+            nextGroup = group.getId();
+        }
+        return nextGroup;
+    }
+
+    private static void setNext( RelationshipRecord rel, long nodeId, long nextRel )
+    {
+        if ( rel.getFirstNode() == nodeId )
+        {
+            rel.setFirstNextRel( nextRel );
+        }
+        else
+        {
+            rel.setSecondNextRel( nextRel );
+        }
+    }
+
+    private static class Chains
+    {
+        private final long[] first = new long[] {
+            Record.NO_NEXT_RELATIONSHIP.intValue(),
+            Record.NO_NEXT_RELATIONSHIP.intValue(),
+            Record.NO_NEXT_RELATIONSHIP.intValue() };
+        private final RelationshipRecord[] last =
+            new RelationshipRecord[RelationshipDirection.values().length];
+    }
+}
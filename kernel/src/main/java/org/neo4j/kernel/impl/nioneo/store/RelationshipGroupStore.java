@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.kernel.IdGeneratorFactory;
+import org.neo4j.kernel.IdType;
+
+/**
+ * Implementation of the relationship group store, see
+ * {@link RelationshipGroupRecord}.
+ */
+public class RelationshipGroupStore extends AbstractStore implements Store
+{
+    // relationship group store version, each group store ends with this
+    // string (byte encoded)
+    private static final String VERSION = "RelationshipGroupStore v0.A.0";
+
+    // record header size
+    // in_use(byte)+type(int)+next(int)+first_out(int)+first_in(int)+
+    // first_loop(int)+owning_node(int)
+    public static final int RECORD_SIZE = 25;
+
+    /**
+     * See {@link AbstractStore#AbstractStore(String, Map)}
+     */
+    public RelationshipGroupStore( String fileName, Map<?,?> config )
+    {
+        super( fileName, config, IdType.RELATIONSHIP_GROUP );
+    }
+
+    public String getTypeAndVersionDescriptor()
+    {
+        return VERSION;
+    }
+
+    public int getRecordSize()
+    {
+        return RECORD_SIZE;
+    }
+
+    /**
+     * Creates a new relationship group store contained in
+     * <CODE>fileName</CODE> If filename is <CODE>null</CODE> or the file
+     * already exists an <CODE>IOException</CODE> is thrown.
+     * 
+     * @param fileName
+     *            File name of the new relationship group store
+     * @throws IOException
+     *             If unable to create relationship group store or name null
+     */
+    public static void createStore( String fileName, IdGeneratorFactory idGeneratorFactory )
+    {
+        createEmptyStore( fileName, VERSION, idGeneratorFactory );
+    }
+
+    public RelationshipGroupRecord getRecord( long id )
+    {
+        PersistenceWindow window = acquireWindow( id, OperationType.READ );
+        try
+        {
+            return getRecord( id, window );
+        }
+        finally
+        {
+            releaseWindow( window );
+        }
+    }
+
+    public void updateRecord( RelationshipGroupRecord record, boolean recovered )
+    {
+        assert recovered;
+        setRecovered();
+        try
+        {
+            updateRecord( record );
+            registerIdFromUpdateRecord( record.getId() );
+        }
+        finally
+        {
+            unsetRecovered();
+        }
+    }
+
+    public void updateRecord( RelationshipGroupRecord record )
+    {
+        PersistenceWindow window = acquireWindow( record.getId(),
+            OperationType.WRITE );
+        try
+        {
+            updateRecord( record, window );
+        }
+        finally
+        {
+            releaseWindow( window );
+        }
+    }
+
+    private void updateRecord( RelationshipGroupRecord record,
+        PersistenceWindow window )
+    {
+        long id = record.getId();
+        Buffer buffer = window.getOffsettedBuffer( id );
+        if ( record.inUse() )
+        {
+            long next = record.getNext();
+            long nextMod = next == Record.NO_NEXT_GROUP.intValue() ? 0 : (next & 0x700000000L) >> 31;
+
+            long firstOut = record.getFirstOut();
+            long firstOutMod = firstOut == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0 : (firstOut & 0x700000000L) >> 28;
+
+            long firstIn = record.getFirstIn();
+            long firstInMod = firstIn == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0 : (firstIn & 0x700000000L) >> 16;
+
+            long firstLoop = record.getFirstLoop();
+            long firstLoopMod = firstLoop == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0 : (firstLoop & 0x700000000L) >> 13;
+
+            long owningNode = record.getOwningNode();
+            long owningNodeMod = owningNode == -1 ? 0 : (owningNode & 0x700000000L) >> 10;
+
+            // [    ,   x] in use flag
+            // [    ,xxx ] next group high order bits
+            // [ xxx,    ] first out high order bits
+            short inUseUnsignedByte = (short)(Record.IN_USE.byteValue() | nextMod | firstOutMod);
+
+            // [    ,   x][xx  ,    ][    ,    ][    ,    ] owning node high order bits, 0x1C00000
+            // [    ,    ][  xx,x   ][    ,    ][    ,    ] first loop high order bits,  0x380000
+            // [    ,    ][    , xxx][    ,    ][    ,    ] first in high order bits,    0x70000
+            // [    ,    ][    ,    ][xxxx,xxxx][xxxx,xxxx] type
+            int typeInt = (int)(record.getType() | firstInMod | firstLoopMod | owningNodeMod);
+
+            buffer.put( (byte)inUseUnsignedByte ).putInt( typeInt ).putInt( (int) next )
+                .putInt( (int) firstOut ).putInt( (int) firstIn ).putInt( (int) firstLoop )
+                .putInt( (int) owningNode );
+        }
+        else
+        {
+            buffer.put( Record.NOT_IN_USE.byteValue() );
+            if ( !isInRecoveryMode() )
+            {
+                freeId( id );
+            }
+        }
+    }
+
+    private RelationshipGroupRecord getRecord( long id, PersistenceWindow window )
+    {
+        Buffer buffer = window.getOffsettedBuffer( id );
+
+        // [    ,   x] in use flag
+        // [    ,xxx ] next group high order bits
+        // [ xxx,    ] first out high order bits
+        long inUseByte = buffer.get();
+        boolean inUse = (inUseByte & 0x1) == Record.IN_USE.intValue();
+        if ( !inUse )
+        {
+            throw new InvalidRecordException( "Record[" + id + "] not in use" );
+        }
+
+        // [    ,   x][xx  ,    ][    ,    ][    ,    ] owning node high order bits, 0x1C00000
+        // [    ,    ][  xx,x   ][    ,    ][    ,    ] first loop high order bits,  0x380000
+        // [    ,    ][    , xxx][    ,    ][    ,    ] first in high order bits,    0x70000
+        // [    ,    ][    ,    ][xxxx,xxxx][xxxx,xxxx] type
+        long typeInt = buffer.getInt();
+        RelationshipGroupRecord record = new RelationshipGroupRecord( id,
+            (int)(typeInt & 0xFFFF) );
+        record.setInUse( inUse );
+
+        long next = buffer.getUnsignedInt();
+        record.setNext( longFromIntAndMod( next, (inUseByte & 0xEL) << 31 ) );
+
+        long firstOut = buffer.getUnsignedInt();
+        record.setFirstOut( longFromIntAndMod( firstOut, (inUseByte & 0x70L) << 28 ) );
+
+        long firstIn = buffer.getUnsignedInt();
+        record.setFirstIn( longFromIntAndMod( firstIn, (typeInt & 0x70000L) << 16 ) );
+
+        long firstLoop = buffer.getUnsignedInt();
+        record.setFirstLoop( longFromIntAndMod( firstLoop, (typeInt & 0x380000L) << 13 ) );
+
+        long owningNode = buffer.getUnsignedInt();
+        record.setOwningNode( longFromIntAndMod( owningNode, (typeInt & 0x1C00000L) << 10 ) );
+        return record;
+    }
+
+    public String toString()
+    {
+        return "RelGroupStore";
+    }
+
+    @Override
+    protected boolean versionFound( String version )
+    {
+        if ( !version.startsWith( "RelationshipGroupStore" ) )
+        {
+            // non clean shutdown, need to do recover with right neo
+            return false;
+        }
+        throw new IllegalStoreVersionException( "Store version [" + version  + 
+            "]. Please make sure you are not running old Neo4j kernel " + 
+            " towards a store that has been created by newer version " + 
+            " of Neo4j." );
+    }
+
+    public List<WindowPoolStats> getAllWindowPoolStats()
+    {
+        List<WindowPoolStats> list = new ArrayList<WindowPoolStats>();
+        list.add( getWindowPoolStats() );
+        return list;
+    }
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.neo4j.kernel.Config;
 import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
 
@@ -33,7 +34,7 @@ public class RelationshipStore extends AbstractStore implements Store
 {
     // relationship store version, each rel store ends with this
     // string (byte encoded)
-    private static final String VERSION = "RelationshipStore v0.9.9";
+    static final String VERSION = "RelationshipStore v0.A.0";
 
     // record header size
     // directed|in_use(byte)+first_node(int)+second_node(int)+rel_type(int)+
@@ -125,6 +126,92 @@ public class RelationshipStore extends AbstractStore implements Store
         }
     }
 
+    /**
+     * Gets the light records of the relationships in <CODE>ids</CODE>, like
+     * {@link #getLightRel(long)} does for a single relationship. The ids
+     * must be sorted, lowest id first, so that every persistence window is
+     * acquired only once for all the ids it covers.
+     * 
+     * @param ids
+     *            The sorted ids of the relationships
+     * @param records
+     *            Set to the record at the index of each relationship that
+     *            exists
+     */
+    public void getLightRels( long[] ids, RelationshipRecord[] records )
+    {
+        long highId = getHighId();
+        int i = 0;
+        while ( i < ids.length && ids[i] < highId )
+        {
+            PersistenceWindow window = acquireWindow( ids[i], OperationType.READ );
+            try
+            {
+                long windowEndId = Math.min( highId,
+                    window.position() + window.size() );
+                for ( ; i < ids.length && ids[i] < windowEndId; i++ )
+                {
+                    records[i] = getRecord( ids[i], window, true );
+                }
+            }
+            finally
+            {
+                releaseWindow( window );
+            }
+        }
+    }
+
+    /**
+     * Like {@link #getIdsInUse(long, long, long[])}, also putting the id of
+     * the first property record of each relationship in use in
+     * <CODE>firstProps</CODE>, at the same index as its id. Relationships without
+     * properties get {@link Record#NO_NEXT_PROPERTY}.
+     *
+     * @param ids
+     *            Array to put the ids in, must have room for
+     *            <CODE>toId - fromId</CODE> ids
+     * @param firstProps
+     *            Array to put the first property ids in, as big as
+     *            <CODE>ids</CODE>
+     * @return The number of ids put in <CODE>ids</CODE>
+     */
+    public int getPropertyChainsInUse( long fromId, long toId, long[] ids,
+        long[] firstProps )
+    {
+        if ( ids.length < toId - fromId || firstProps.length < ids.length )
+        {
+            throw new IllegalArgumentException( "Room for " + ids.length +
+                " ids and " + firstProps.length + " property ids, " +
+                (toId - fromId) + " needed" );
+        }
+        long endId = Math.min( toId, getHighId() );
+        int count = 0;
+        long id = fromId;
+        while ( id < endId )
+        {
+            PersistenceWindow window = acquireWindow( id, OperationType.READ );
+            try
+            {
+                long windowEndId = Math.min( endId,
+                    window.position() + window.size() );
+                for ( ; id < windowEndId; id++ )
+                {
+                    RelationshipRecord record = getRecord( id, window, true );
+                    if ( record != null )
+                    {
+                        ids[count] = id;
+                        firstProps[count++] = record.getNextProp();
+                    }
+                }
+            }
+            finally
+            {
+                releaseWindow( window );
+            }
+        }
+        return count;
+    }
+
     public void updateRecord( RelationshipRecord record, boolean recovered )
     {
         assert recovered;
@@ -308,9 +395,12 @@ public class RelationshipStore extends AbstractStore implements Store
 //            closeIdGenerator();
 //            return true;
 //        }
-        if ( version.equals( "RelationshipStore v0.9.5" ) )
+        if ( version.equals( "RelationshipStore v0.9.5" ) ||
+            version.equals( "RelationshipStore v0.9.9" ) )
         {
-            return true;
+            throw new IllegalStoreVersionException( "Store version [" + version + "] still has " +
+                "one relationship chain per node, it can only be upgraded by a neo store with '" +
+                Config.ALLOW_STORE_UPGRADE + "' configuration parameter set to 'true'." );
         }
         throw new IllegalStoreVersionException( "Store version [" + version  + 
             "]. Please make sure you are not running old Neo4j kernel " + 
@@ -333,7 +423,9 @@ public class RelationshipStore extends AbstractStore implements Store
         try
         {
 //            return getFullRecord( relId, window );
-            return getRecord( relId, window, false );
+            // a record deleted since the chain position was read ends the
+            // chain, same as one above high id
+            return getRecord( relId, window, true );
         }
         finally
         {
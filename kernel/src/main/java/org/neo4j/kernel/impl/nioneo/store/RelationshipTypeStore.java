@@ -104,6 +104,13 @@ public class RelationshipTypeStore extends AbstractStore implements Store
         super.flushAll();
     }
 
+    @Override
+    public boolean flushDirtyWindows( BackgroundFlusher flusher )
+    {
+        return typeNameStore.flushDirtyWindows( flusher ) &&
+            super.flushDirtyWindows( flusher );
+    }
+
     public String getTypeAndVersionDescriptor()
     {
         return VERSION;
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.nio.charset.Charset;
+
+/**
+ * Encodes string property values kept in the dynamic string and array
+ * stores. An encoded value starts with a header byte telling which encoding
+ * the rest of the bytes are in, the most compact of Latin-1, UTF-8 and UTF-16
+ * is picked for each value. Strings with unpaired surrogates are always kept
+ * as UTF-16 since UTF-8 can't represent them.
+ */
+enum StringEncoding
+{
+    LATIN1( 1 ),
+    UTF8( 2 ),
+    UTF16( 3 );
+
+    private static final Charset UTF8_CHARSET = Charset.forName( "UTF-8" );
+
+    private final byte header;
+
+    StringEncoding( int header )
+    {
+        this.header = (byte) header;
+    }
+
+    /**
+     * Returns <CODE>string</CODE> encoded, including the header byte.
+     */
+    static byte[] encode( String string )
+    {
+        int length = string.length();
+        boolean latin1 = true;
+        boolean utf8 = true;
+        int utf8Length = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = string.charAt( i );
+            if ( c < 0x80 )
+            {
+                utf8Length++;
+            }
+            else if ( c < 0x800 )
+            {
+                utf8Length += 2;
+                latin1 &= c <= 0xFF;
+            }
+            else
+            {
+                latin1 = false;
+                if ( Character.isHighSurrogate( c ) && i + 1 < length &&
+                    Character.isLowSurrogate( string.charAt( i + 1 ) ) )
+                {
+                    utf8Length += 4;
+                    i++;
+                }
+                else if ( c >= Character.MIN_SURROGATE &&
+                    c <= Character.MAX_SURROGATE )
+                {
+                    utf8 = false;
+                    break;
+                }
+                else
+                {
+                    utf8Length += 3;
+                }
+            }
+        }
+        if ( latin1 && utf8 )
+        {
+            byte[] data = new byte[1 + length];
+            data[0] = LATIN1.header;
+            for ( int i = 0; i < length; i++ )
+            {
+                data[i + 1] = (byte) string.charAt( i );
+            }
+            return data;
+        }
+        if ( utf8 && utf8Length < length * 2 )
+        {
+            byte[] data = new byte[1 + utf8Length];
+            data[0] = UTF8.header;
+            encodeUtf8( string, data, 1 );
+            return data;
+        }
+        byte[] data = new byte[1 + length * 2];
+        data[0] = UTF16.header;
+        for ( int i = 0, pos = 1; i < length; i++ )
+        {
+            char c = string.charAt( i );
+            data[pos++] = (byte) (c >> 8);
+            data[pos++] = (byte) c;
+        }
+        return data;
+    }
+
+    private static void encodeUtf8( String string, byte[] data, int pos )
+    {
+        int length = string.length();
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = string.charAt( i );
+            if ( c < 0x80 )
+            {
+                data[pos++] = (byte) c;
+            }
+            else if ( c < 0x800 )
+            {
+                data[pos++] = (byte) (0xC0 | (c >> 6));
+                data[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if ( Character.isHighSurrogate( c ) )
+            {
+                int codePoint = Character.toCodePoint( c, string.charAt( ++i ) );
+                data[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                data[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                data[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                data[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else
+            {
+                data[pos++] = (byte) (0xE0 | (c >> 12));
+                data[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                data[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Decodes a value encoded by {@link #encode(String)}.
+     * 
+     * @param offset the position of the header byte in <CODE>data</CODE>
+     * @param length the number of bytes including the header byte
+     */
+    static String decode( byte[] data, int offset, int length )
+    {
+        if ( length < 1 )
+        {
+            throw new InvalidRecordException( "Missing string encoding header" );
+        }
+        byte header = data[offset];
+        int start = offset + 1;
+        int size = length - 1;
+        if ( header == LATIN1.header )
+        {
+            char[] chars = new char[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                chars[i] = (char) (data[start + i] & 0xFF);
+            }
+            return new String( chars );
+        }
+        if ( header == UTF8.header )
+        {
+            return new String( data, start, size, UTF8_CHARSET );
+        }
+        if ( header == UTF16.header )
+        {
+            char[] chars = new char[size / 2];
+            for ( int i = 0, pos = start; i < chars.length; i++, pos += 2 )
+            {
+                chars[i] = (char) ((data[pos] << 8) | (data[pos + 1] & 0xFF));
+            }
+            return new String( chars );
+        }
+        throw new InvalidRecordException( "Unknown string encoding[" + 
+            header + "]" );
+    }
+}
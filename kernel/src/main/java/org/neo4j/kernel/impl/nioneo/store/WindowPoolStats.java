@@ -33,8 +33,19 @@ public class WindowPoolStats
     private final int missCount;
     private final int oomCount;
     
+    private final int switchCount;
+    private final int refreshCount;
+    
     public WindowPoolStats( String name, long memAvail, long memUsed, int windowCount,
             int windowSize, int hitCount, int missCount, int oomCount )
+    {
+        this( name, memAvail, memUsed, windowCount, windowSize, hitCount, missCount,
+                oomCount, 0, 0 );
+    }
+    
+    public WindowPoolStats( String name, long memAvail, long memUsed, int windowCount,
+            int windowSize, int hitCount, int missCount, int oomCount,
+            int switchCount, int refreshCount )
     {
         this.name = name;
         this.memAvail = memAvail;
@@ -44,6 +55,8 @@ public class WindowPoolStats
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.oomCount = oomCount;
+        this.switchCount = switchCount;
+        this.refreshCount = refreshCount;
     }
     
     public String getName()
@@ -85,4 +98,14 @@ public class WindowPoolStats
     {
         return oomCount;
     }
+
+    public int getSwitchCount()
+    {
+        return switchCount;
+    }
+
+    public int getRefreshCount()
+    {
+        return refreshCount;
+    }
 }
@@ -29,12 +29,15 @@ import org.neo4j.kernel.impl.nioneo.store.DynamicRecord;
 import org.neo4j.kernel.impl.nioneo.store.NeoStore;
 import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
 import org.neo4j.kernel.impl.nioneo.store.NodeStore;
+import org.neo4j.kernel.impl.nioneo.store.PropertyBlock;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexStore;
 import org.neo4j.kernel.impl.nioneo.store.PropertyRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyStore;
 import org.neo4j.kernel.impl.nioneo.store.PropertyType;
 import org.neo4j.kernel.impl.nioneo.store.Record;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipTypeRecord;
@@ -166,6 +169,7 @@ abstract class Command extends XaCommand
     private static final byte REL_COMMAND = (byte) 3;
     private static final byte REL_TYPE_COMMAND = (byte) 4;
     private static final byte PROP_INDEX_COMMAND = (byte) 5;
+    private static final byte REL_GROUP_COMMAND = (byte) 6;
 
     static class NodeCommand extends Command
     {
@@ -208,7 +212,7 @@ abstract class Command extends XaCommand
             buffer.put( inUse );
             if ( record.inUse() )
             {
-                buffer.putLong( record.getNextRel() ).putLong(
+                buffer.putLong( record.getNextGroup() ).putLong(
                     record.getNextProp() );
             }
         }
@@ -246,7 +250,7 @@ abstract class Command extends XaCommand
                     return null;
                 }
                 buffer.flip();
-                record.setNextRel( buffer.getLong() );
+                record.setNextGroup( buffer.getLong() );
                 record.setNextProp( buffer.getLong() );
             }
             return new NodeCommand( neoStore.getNodeStore(), record );
@@ -377,6 +381,123 @@ abstract class Command extends XaCommand
         }
     }
 
+    static class RelationshipGroupCommand extends Command
+    {
+        private final RelationshipGroupRecord record;
+        private final RelationshipGroupStore store;
+
+        RelationshipGroupCommand( RelationshipGroupStore store,
+            RelationshipGroupRecord record )
+        {
+            super( record.getId() );
+            this.record = record;
+            this.store = store;
+        }
+
+        @Override
+        public void execute()
+        {
+            if ( isRecovered() )
+            {
+                logger.fine( this.toString() );
+                store.updateRecord( record, true );
+            }
+            else
+            {
+                store.updateRecord( record );
+            }
+        }
+
+        long getOwningNode()
+        {
+            return record.getOwningNode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "RelationshipGroupCommand[" + record + "]";
+        }
+
+        @Override
+        public void writeToFile( LogBuffer buffer ) throws IOException
+        {
+            // id+in_use(byte)+type(int)+next(long)+first_out(long)+
+            // first_in(long)+first_loop(long)+owning_node(long)
+            byte inUse = record.inUse() ? Record.IN_USE.byteValue()
+                : Record.NOT_IN_USE.byteValue();
+            buffer.put( REL_GROUP_COMMAND );
+            buffer.putLong( record.getId() );
+            buffer.put( inUse );
+            if ( record.inUse() )
+            {
+                buffer.putInt( record.getType() ).putLong( record.getNext() )
+                    .putLong( record.getFirstOut() ).putLong( record.getFirstIn() )
+                    .putLong( record.getFirstLoop() ).putLong(
+                        record.getOwningNode() );
+            }
+        }
+
+        static Command readCommand( NeoStore neoStore,
+            ReadableByteChannel byteChannel, ByteBuffer buffer )
+            throws IOException
+        {
+            buffer.clear();
+            buffer.limit( 9 );
+            if ( byteChannel.read( buffer ) != buffer.limit() )
+            {
+                return null;
+            }
+            buffer.flip();
+            long id = buffer.getLong();
+            byte inUseFlag = buffer.get();
+            boolean inUse = false;
+            if ( inUseFlag == Record.IN_USE.byteValue() )
+            {
+                inUse = true;
+            }
+            else if ( inUseFlag != Record.NOT_IN_USE.byteValue() )
+            {
+                throw new IOException( "Illegal in use flag: " + inUseFlag );
+            }
+            RelationshipGroupRecord record;
+            if ( inUse )
+            {
+                buffer.clear();
+                buffer.limit( 44 );
+                if ( byteChannel.read( buffer ) != buffer.limit() )
+                {
+                    return null;
+                }
+                buffer.flip();
+                record = new RelationshipGroupRecord( id, buffer.getInt() );
+                record.setInUse( true );
+                record.setNext( buffer.getLong() );
+                record.setFirstOut( buffer.getLong() );
+                record.setFirstIn( buffer.getLong() );
+                record.setFirstLoop( buffer.getLong() );
+                record.setOwningNode( buffer.getLong() );
+            }
+            else
+            {
+                record = new RelationshipGroupRecord( id, -1 );
+                record.setInUse( false );
+            }
+            return new RelationshipGroupCommand(
+                neoStore.getRelationshipGroupStore(), record );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !(o instanceof RelationshipGroupCommand) )
+            {
+                return false;
+            }
+            return getKey() == ((Command) o).getKey();
+        }
+    }
+
     static class PropertyIndexCommand extends Command
     {
         private final PropertyIndexRecord record;
@@ -533,8 +654,9 @@ abstract class Command extends XaCommand
         @Override
         public void writeToFile( LogBuffer buffer ) throws IOException
         {
-            // id+in_use(byte)+type(int)+key_indexId(int)+prop_blockId(long)+
-            // prev_prop_id(long)+next_prop_id(long)+nr_value_records(int)
+            // id+in_use(byte)+node_rel_id(long)+prev_prop_id(long)+
+            // next_prop_id(long)+nr_blocks(byte)+blocks+
+            // nr_deleted_value_records(int)+deleted_value_records
             byte inUse = record.inUse() ? Record.IN_USE.byteValue()
                 : Record.NOT_IN_USE.byteValue();
             if ( record.getRelId() != -1 )
@@ -562,18 +684,41 @@ abstract class Command extends XaCommand
             }
             if ( record.inUse() )
             {
-                buffer.putInt( record.getType().intValue() ).putInt(
-                    record.getKeyIndexId() ).putLong( record.getPropBlock() )
-                    .putLong( record.getPrevProp() ).putLong(
-                        record.getNextProp() );
+                buffer.putLong( record.getPrevProp() ).putLong(
+                    record.getNextProp() );
+                buffer.put( (byte) record.getBlockCount() );
+                for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+                {
+                    PropertyBlock block = record.getBlock( i );
+                    if ( block != null )
+                    {
+                        writePropertyBlock( buffer, i, block );
+                    }
+                }
             }
-            if ( record.isLight() )
+            Collection<DynamicRecord> deletedRecords = 
+                record.getDeletedValueRecords();
+            buffer.putInt( deletedRecords.size() );
+            for ( DynamicRecord valueRecord : deletedRecords )
+            {
+                writeDynamicRecord( buffer, valueRecord );
+            }
+        }
+
+        private static void writePropertyBlock( LogBuffer buffer, int index,
+            PropertyBlock block ) throws IOException
+        {
+            // index(byte)+type(int)+key_indexId(int)+prop_block(long)+
+            // nr_value_records(int)
+            buffer.put( (byte) index ).putInt( block.getType().intValue() )
+                .putInt( block.getKeyIndexId() ).putLong( block.getPropBlock() );
+            if ( block.isLight() )
             {
                 buffer.putInt( 0 );
             }
             else
             {
-                Collection<DynamicRecord> valueRecords = record
+                Collection<DynamicRecord> valueRecords = block
                     .getValueRecords();
                 buffer.putInt( valueRecords.size() );
                 for ( DynamicRecord valueRecord : valueRecords )
@@ -587,8 +732,9 @@ abstract class Command extends XaCommand
             ReadableByteChannel byteChannel, ByteBuffer buffer ) 
             throws IOException
         {
-            // id+in_use(byte)+type(int)+key_indexId(int)+prop_blockId(long)+
-            // prev_prop_id(long)+next_prop_id(long)+nr_value_records(int)
+            // id+in_use(byte)+node_rel_id(long)+prev_prop_id(long)+
+            // next_prop_id(long)+nr_blocks(byte)+blocks+
+            // nr_deleted_value_records(int)+deleted_value_records
             buffer.clear();
             buffer.limit( 17 );
             if ( byteChannel.read( buffer ) != buffer.limit() )
@@ -623,23 +769,23 @@ abstract class Command extends XaCommand
             if ( inUse )
             {
                 buffer.clear();
-                buffer.limit( 32 );
+                buffer.limit( 17 );
                 if ( byteChannel.read( buffer ) != buffer.limit() )
                 {
                     return null;
                 }
                 buffer.flip();
-                PropertyType type = getType( buffer.getInt() );
-                if ( type == null )
-                {
-                    return null;
-                }
-                record.setType( type );
                 record.setInUse( inUse );
-                record.setKeyIndexId( buffer.getInt() );
-                record.setPropBlock( buffer.getLong() );
                 record.setPrevProp( buffer.getLong() );
                 record.setNextProp( buffer.getLong() );
+                int nrBlocks = buffer.get();
+                for ( int i = 0; i < nrBlocks; i++ )
+                {
+                    if ( !readPropertyBlock( byteChannel, buffer, record ) )
+                    {
+                        return null;
+                    }
+                }
             }
             buffer.clear();
             buffer.limit( 4 );
@@ -648,19 +794,57 @@ abstract class Command extends XaCommand
                 return null;
             }
             buffer.flip();
-            int nrValueRecords = buffer.getInt();
-            for ( int i = 0; i < nrValueRecords; i++ )
+            int nrDeletedRecords = buffer.getInt();
+            for ( int i = 0; i < nrDeletedRecords; i++ )
             {
                 DynamicRecord dr = readDynamicRecord( byteChannel, buffer );
                 if ( dr == null )
                 {
                     return null;
                 }
-                record.addValueRecord( dr );
+                record.addDeletedValueRecord( dr );
             }
             return new PropertyCommand( neoStore.getPropertyStore(), record );
         }
 
+        private static boolean readPropertyBlock( 
+            ReadableByteChannel byteChannel, ByteBuffer buffer, 
+            PropertyRecord record ) throws IOException
+        {
+            // index(byte)+type(int)+key_indexId(int)+prop_block(long)+
+            // nr_value_records(int)
+            buffer.clear();
+            buffer.limit( 21 );
+            if ( byteChannel.read( buffer ) != buffer.limit() )
+            {
+                return false;
+            }
+            buffer.flip();
+            int index = buffer.get();
+            PropertyType type = getType( buffer.getInt() );
+            if ( type == null || index < 0 || 
+                index >= PropertyRecord.BLOCKS_PER_RECORD )
+            {
+                return false;
+            }
+            PropertyBlock block = new PropertyBlock();
+            block.setType( type );
+            block.setKeyIndexId( buffer.getInt() );
+            block.setPropBlock( buffer.getLong() );
+            int nrValueRecords = buffer.getInt();
+            for ( int i = 0; i < nrValueRecords; i++ )
+            {
+                DynamicRecord dr = readDynamicRecord( byteChannel, buffer );
+                if ( dr == null )
+                {
+                    return false;
+                }
+                block.addValueRecord( dr );
+            }
+            record.setBlock( index, block );
+            return true;
+        }
+
         private static PropertyType getType( int type )
         {
             return PropertyType.getPropertyType( type, true );
@@ -807,6 +991,9 @@ abstract class Command extends XaCommand
             case REL_TYPE_COMMAND:
                 return RelationshipTypeCommand.readCommand( neoStore,
                     byteChannel, buffer );
+            case REL_GROUP_COMMAND:
+                return RelationshipGroupCommand.readCommand( neoStore,
+                    byteChannel, buffer );
             case NONE: return null;
             default:
                 throw new IOException( "Unknown command type[" + commandType
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.xa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.kernel.Config;
+import org.neo4j.kernel.impl.transaction.xaframework.XaCommand;
+
+/**
+ * Executes the commands of recovered and applied transactions, that is
+ * transactions replayed from a logical log during recovery or pulled from
+ * the master on a slave. The commands are given in groups touching
+ * different stores, each group in the order it must be executed in. Big
+ * transactions get their groups executed concurrently, one group per
+ * thread, with the calling thread taking the first group. Since every
+ * record belongs to exactly one group, the updates of each record are
+ * still applied in order.
+ */
+class CommandApplier
+{
+    /**
+     * Transactions with fewer commands than this are executed on the calling
+     * thread only, handing work over to other threads costs more than it
+     * saves for them.
+     */
+    static final int MIN_PARALLEL_COMMANDS = 512;
+
+    private final int threads;
+    private ExecutorService executor;
+    private final AtomicLong parallelCount = new AtomicLong();
+
+    CommandApplier( int threads )
+    {
+        this.threads = threads;
+    }
+
+    static CommandApplier fromConfig( Map<?,?> config )
+    {
+        int defaultThreads = Math.min( 4,
+            Runtime.getRuntime().availableProcessors() );
+        int threads = Integer.parseInt( (String) Config.getFromConfig( config,
+            Config.PARALLEL_APPLY_THREADS, "" + defaultThreads ) );
+        return new CommandApplier( threads );
+    }
+
+    /**
+     * Executes the commands in <CODE>groups</CODE>, each group in order and
+     * on a single thread. Returns when all commands are executed. If a
+     * command fails the other groups are still executed to the end before
+     * the failure is thrown.
+     *
+     * @param groups the command groups, touching different stores
+     */
+    void apply( List<List<? extends XaCommand>> groups )
+    {
+        if ( threads <= 1 || countCommands( groups ) < MIN_PARALLEL_COMMANDS )
+        {
+            for ( List<? extends XaCommand> group : groups )
+            {
+                execute( group );
+            }
+            return;
+        }
+        parallelCount.incrementAndGet();
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        ExecutorService executor = getExecutor();
+        for ( final List<? extends XaCommand> group :
+            groups.subList( 1, groups.size() ) )
+        {
+            if ( !group.isEmpty() )
+            {
+                futures.add( executor.submit( new Callable<Object>()
+                {
+                    public Object call()
+                    {
+                        execute( group );
+                        return null;
+                    }
+                } ) );
+            }
+        }
+        RuntimeException failure = null;
+        try
+        {
+            execute( groups.get( 0 ) );
+        }
+        catch ( RuntimeException e )
+        {
+            failure = e;
+        }
+        for ( Future<Object> future : futures )
+        {
+            RuntimeException groupFailure = waitFor( future );
+            if ( failure == null )
+            {
+                failure = groupFailure;
+            }
+        }
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the number of transactions that have been executed on more
+     * than one thread
+     */
+    long getParallelCount()
+    {
+        return parallelCount.get();
+    }
+
+    private static int countCommands( List<List<? extends XaCommand>> groups )
+    {
+        int count = 0;
+        for ( List<? extends XaCommand> group : groups )
+        {
+            count += group.size();
+        }
+        return count;
+    }
+
+    private static void execute( List<? extends XaCommand> group )
+    {
+        for ( XaCommand command : group )
+        {
+            command.execute();
+        }
+    }
+
+    private static RuntimeException waitFor( Future<Object> future )
+    {
+        boolean interrupted = false;
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    future.get();
+                    return null;
+                }
+                catch ( InterruptedException e )
+                {
+                    // the group must finish before the transaction is done
+                    interrupted = true;
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof RuntimeException )
+                    {
+                        return (RuntimeException) cause;
+                    }
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    return new RuntimeException( cause );
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if ( executor == null )
+        {
+            executor = Executors.newFixedThreadPool( threads - 1,
+                new ThreadFactory()
+                {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread( Runnable runnable )
+                    {
+                        Thread thread = new Thread( runnable,
+                            "Neo4j command applier " + count.incrementAndGet() );
+                        thread.setDaemon( true );
+                        return thread;
+                    }
+                } );
+        }
+        return executor;
+    }
+
+    synchronized void close()
+    {
+        if ( executor != null )
+        {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.nioneo.xa;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.TransactionFailureException;
 import org.neo4j.kernel.impl.core.PropertyIndex;
 import org.neo4j.kernel.impl.nioneo.store.CommonAbstractStore;
@@ -206,10 +207,15 @@ public class NeoStoreXaConnection extends XaConnectionHelpImpl
             return xaCon.getWriteTransaction().nodeLoadLight( nodeId );
         }
 
-        public void addProperty( long nodeId, long propertyId,
-            PropertyIndex index, Object value )
+        public void loadLightNodes( long[] nodeIds, boolean[] found )
         {
-            xaCon.getWriteTransaction().nodeAddProperty( nodeId, propertyId,
+            xaCon.getWriteTransaction().nodesLoadLight( nodeIds, found );
+        }
+
+        public long addProperty( long nodeId, PropertyIndex index,
+            Object value )
+        {
+            return xaCon.getWriteTransaction().nodeAddProperty( nodeId,
                 index, value );
         }
 
@@ -240,6 +246,12 @@ public class NeoStoreXaConnection extends XaConnectionHelpImpl
         {
             return xaCon.getWriteTransaction().nodeCreated( nodeId );
         }
+
+        public int getNodeIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return xaCon.getWriteTransaction().getNodeIdsInUse( fromId, toId,
+                ids );
+        }
     };
 
     private static class RelationshipEventConsumerImpl implements
@@ -264,10 +276,10 @@ public class NeoStoreXaConnection extends XaConnectionHelpImpl
             return xaCon.getWriteTransaction().relDelete( id );
         }
 
-        public void addProperty( long relId, long propertyId,
-            PropertyIndex index, Object value )
+        public long addProperty( long relId, PropertyIndex index,
+            Object value )
         {
-            xaCon.getWriteTransaction().relAddProperty( relId, propertyId, index,
+            return xaCon.getWriteTransaction().relAddProperty( relId, index,
                 value );
         }
 
@@ -293,6 +305,11 @@ public class NeoStoreXaConnection extends XaConnectionHelpImpl
             return xaCon.getWriteTransaction().relationshipLoad( id );
         }
 
+        public RelationshipData[] getRelationships( long[] ids )
+        {
+            return xaCon.getWriteTransaction().relationshipsLoad( ids );
+        }
+
         public RelationshipChainPosition getRelationshipChainPosition( 
             long nodeId )
         {
@@ -301,16 +318,22 @@ public class NeoStoreXaConnection extends XaConnectionHelpImpl
         }
 
         public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-            RelationshipChainPosition position )
+            RelationshipChainPosition position, int[] typeIds, Direction direction )
         {
             return xaCon.getWriteTransaction().getMoreRelationships( nodeId, 
-                position );
+                position, typeIds, direction );
         }
 
         public boolean isRelationshipCreated( long relId )
         {
             return xaCon.getWriteTransaction().relCreated( relId );
         }
+
+        public int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return xaCon.getWriteTransaction().getRelationshipIdsInUse( fromId,
+                toId, ids );
+        }
     };
 
     private static class RelationshipTypeEventConsumerImpl implements
@@ -39,7 +39,9 @@ import org.neo4j.kernel.Config;
 import org.neo4j.kernel.impl.core.LockReleaser;
 import org.neo4j.kernel.impl.core.PropertyIndex;
 import org.neo4j.kernel.impl.index.IndexStore;
+import org.neo4j.kernel.impl.nioneo.store.BackgroundFlusher;
 import org.neo4j.kernel.impl.nioneo.store.NeoStore;
+import org.neo4j.kernel.impl.nioneo.store.PropertyScan;
 import org.neo4j.kernel.impl.nioneo.store.PropertyStore;
 import org.neo4j.kernel.impl.nioneo.store.Store;
 import org.neo4j.kernel.impl.nioneo.store.StoreId;
@@ -74,6 +76,7 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
         NeoStoreXaDataSource.class.getName() );
 
     private final NeoStore neoStore;
+    private final CommandApplier applier;
     private final XaContainer xaContainer;
     private final ArrayMap<Class<?>,Store> idGenerators;
 
@@ -83,6 +86,7 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
     private final boolean readOnly;
 
     private boolean logApplied = false;
+    private volatile BackgroundFlusher backgroundFlusher;
     
     private final StringLogger msgLog;
 
@@ -130,6 +134,7 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
         }
 
         neoStore = new NeoStore( config );
+        applier = CommandApplier.fromConfig( config );
         xaContainer = XaContainer.create( this, (String) config.get( "logical_log" ),
                 new CommandFactory( neoStore ), new TransactionFactory(), config );
 
@@ -167,6 +172,14 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
         xaContainer.getLogicalLog().setKeepLogs(
                 shouldKeepLog( (String) config.get( Config.KEEP_LOGICAL_LOGS ), "nioneodb" ) );
         setLogicalLogAtCreationTime( xaContainer.getLogicalLog() );
+        if ( !readOnly )
+        {
+            backgroundFlusher = BackgroundFlusher.fromConfig( neoStore, config );
+            if ( backgroundFlusher != null )
+            {
+                backgroundFlusher.start();
+            }
+        }
     }
 
     private void autoCreatePath( String store ) throws IOException
@@ -241,11 +254,17 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
     @Override
     public void close()
     {
+        if ( backgroundFlusher != null )
+        {
+            backgroundFlusher.stop();
+            backgroundFlusher = null;
+        }
         if ( !readOnly )
         {
             neoStore.flushAll();
         }
         xaContainer.close();
+        applier.close();
         if ( logApplied )
         {
             neoStore.rebuildIdGenerators();
@@ -301,7 +320,7 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
         public XaTransaction create( int identifier )
         {
             return new WriteTransaction( identifier, getLogicalLog(), neoStore,
-                lockReleaser, lockManager );
+                lockReleaser, lockManager, applier );
         }
 
         @Override
@@ -387,6 +406,30 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
         return store.getNumberOfIdsInUse();
     }
 
+    /**
+     * Returns a scan over the values of the property with key id
+     * <CODE>keyId</CODE> of all nodes, see {@link PropertyScan}.
+     *
+     * @param keyId the key id of the property
+     * @return a scan over the property of all nodes
+     */
+    public PropertyScan getNodePropertyScan( int keyId )
+    {
+        return new PropertyScan.Nodes( neoStore, keyId );
+    }
+
+    /**
+     * Returns a scan over the values of the property with key id
+     * <CODE>keyId</CODE> of all relationships, see {@link PropertyScan}.
+     *
+     * @param keyId the key id of the property
+     * @return a scan over the property of all relationships
+     */
+    public PropertyScan getRelationshipPropertyScan( int keyId )
+    {
+        return new PropertyScan.Relationships( neoStore, keyId );
+    }
+
     public String getStoreDir()
     {
         return storeDir;
@@ -461,6 +504,25 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
     {
         return neoStore.getLastCommittedTx();
     }
+
+    /**
+     * Returns the id of the last transaction known to have all its changes
+     * forced to the store files, see {@link NeoStore#getCheckpointTx()}.
+     */
+    public long getCheckpointTxId()
+    {
+        return neoStore.getCheckpointTx();
+    }
+
+    /**
+     * Returns the number of bytes forced by the background flusher, 0 if
+     * background flushing isn't enabled.
+     */
+    public long getBackgroundFlushedBytes()
+    {
+        BackgroundFlusher flusher = backgroundFlusher;
+        return flusher != null ? flusher.getFlushedBytes() : 0;
+    }
     
     @Override
     public XaContainer getXaContainer()
@@ -21,11 +21,11 @@ package org.neo4j.kernel.impl.nioneo.xa;
 
 import javax.transaction.xa.XAResource;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.kernel.impl.core.PropertyIndex;
 import org.neo4j.kernel.impl.core.ReadOnlyDbException;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexData;
-import org.neo4j.kernel.impl.nioneo.store.PropertyStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipChainPosition;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipData;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipTypeData;
@@ -235,6 +235,11 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             return readTransaction.nodeLoadLight( id );
         }
 
+        public void nodesLoadLight( long[] ids, boolean[] found )
+        {
+            readTransaction.nodesLoadLight( ids, found );
+        }
+
         public ArrayMap<Integer,PropertyData> nodeLoadProperties( long nodeId,
                 boolean light )
         {
@@ -247,6 +252,11 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             return readTransaction.relationshipLoad( id );
         }
 
+        public RelationshipData[] relsLoadLight( long[] ids )
+        {
+            return readTransaction.relationshipsLoad( ids );
+        }
+
         public ArrayMap<Integer,PropertyData> relLoadProperties( long relId,
                 boolean light )
         {
@@ -275,9 +285,10 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
         }
 
         public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-            RelationshipChainPosition position )
+            RelationshipChainPosition position, int[] typeIds, Direction direction )
         {
-            return readTransaction.getMoreRelationships( nodeId, position );
+            return readTransaction.getMoreRelationships( nodeId, position,
+                typeIds, direction );
         }
 
         public RelIdArray getCreatedNodes()
@@ -295,6 +306,16 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             return false;
         }
 
+        public int getNodeIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return readTransaction.getNodeIdsInUse( fromId, toId, ids );
+        }
+
+        public int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return readTransaction.getRelationshipIdsInUse( fromId, toId, ids );
+        }
+
         public int getKeyIdForProperty( long propertyId )
         {
             return readTransaction.getKeyIdForProperty( propertyId );
@@ -309,7 +330,6 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
         private RelationshipEventConsumer relConsumer;
         private RelationshipTypeEventConsumer relTypeConsumer;
         private PropertyIndexEventConsumer propIndexConsumer;
-        private PropertyStore propStore;
 
         NioNeoDbResourceConnection( NeoStoreXaDataSource xaDs )
         {
@@ -318,7 +338,6 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             relConsumer = xaCon.getRelationshipConsumer();
             relTypeConsumer = xaCon.getRelationshipTypeConsumer();
             propIndexConsumer = xaCon.getPropertyIndexConsumer();
-            propStore = xaCon.getPropertyStore();
         }
 
         public XAResource getXAResource()
@@ -344,9 +363,7 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
         public long nodeAddProperty( long nodeId, PropertyIndex index,
             Object value )
         {
-            long propertyId = propStore.nextId();
-            nodeConsumer.addProperty( nodeId, propertyId, index, value );
-            return propertyId;
+            return nodeConsumer.addProperty( nodeId, index, value );
         }
 
         public void nodeChangeProperty( long nodeId, long propertyId, Object value )
@@ -377,9 +394,7 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
 
         public long relAddProperty( long relId, PropertyIndex index, Object value )
         {
-            long propertyId = propStore.nextId();
-            relConsumer.addProperty( relId, propertyId, index, value );
-            return propertyId;
+            return relConsumer.addProperty( relId, index, value );
         }
 
         public void relChangeProperty( long relId, long propertyId, Object value )
@@ -426,6 +441,11 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             return nodeConsumer.loadLightNode( id );
         }
 
+        public void nodesLoadLight( long[] ids, boolean[] found )
+        {
+            nodeConsumer.loadLightNodes( ids, found );
+        }
+
         public ArrayMap<Integer,PropertyData> nodeLoadProperties( long nodeId,
                 boolean light )
         {
@@ -437,6 +457,11 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             return relConsumer.getRelationship( id );
         }
 
+        public RelationshipData[] relsLoadLight( long[] ids )
+        {
+            return relConsumer.getRelationships( ids );
+        }
+
         public ArrayMap<Integer,PropertyData> relLoadProperties( long relId,
                 boolean light )
         {
@@ -460,9 +485,10 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
         }
 
         public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-            RelationshipChainPosition position )
+            RelationshipChainPosition position, int[] typeIds, Direction direction )
         {
-            return relConsumer.getMoreRelationships( nodeId, position );
+            return relConsumer.getMoreRelationships( nodeId, position,
+                typeIds, direction );
         }
 
         public RelIdArray getCreatedNodes()
@@ -480,6 +506,16 @@ public class NioNeoDbPersistenceSource implements PersistenceSource
             return relConsumer.isRelationshipCreated( relId );
         }
 
+        public int getNodeIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return nodeConsumer.getNodeIdsInUse( fromId, toId, ids );
+        }
+
+        public int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+        {
+            return relConsumer.getRelationshipIdsInUse( fromId, toId, ids );
+        }
+
         public int getKeyIdForProperty( long propertyId )
         {
             return xaCon.getWriteTransaction().getKeyIdForProperty( propertyId );
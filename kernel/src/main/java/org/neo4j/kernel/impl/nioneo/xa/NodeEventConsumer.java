@@ -65,22 +65,34 @@ public interface NodeEventConsumer
      */
     public boolean loadLightNode( long nodeId );
 
+    /**
+     * Checks which of the nodes in <CODE>nodeIds</CODE> exist, setting
+     * <CODE>found</CODE> to <CODE>true</CODE> at the index of each node
+     * whose record is in use.
+     * 
+     * @param nodeIds
+     *            The ids of the nodes, sorted lowest id first
+     * @param found
+     *            Array to mark existing nodes in, as long as
+     *            <CODE>nodeIds</CODE>
+     */
+    public void loadLightNodes( long[] nodeIds, boolean[] found );
+
     /**
      * Adds a property to the node.
      * 
      * @param nodeId
      *            The id of the node to add the property to
-     * @param propertyId
-     *            The id of the property
      * @param key
      *            The key of the property
      * @param value
      *            The value of the property
+     * @return The id of the new property, made up of the id of the
+     *         property record it was put in and its block in that record
      * @throws IOException
      *             If unable to add property
      */
-    public void addProperty( long nodeId, long propertyId, PropertyIndex index,
-        Object value );
+    public long addProperty( long nodeId, PropertyIndex index, Object value );
 
     /**
      * Changes the value of a property on a node.
@@ -121,4 +133,13 @@ public interface NodeEventConsumer
     public RelIdArray getCreatedNodes();
 
     public boolean isNodeCreated( long nodeId );
+
+    /**
+     * Puts the ids of the nodes in use from <CODE>fromId</CODE> up to, but
+     * not including, <CODE>toId</CODE> in <CODE>ids</CODE>, including the
+     * changes made in this transaction.
+     *
+     * @return The number of ids put in <CODE>ids</CODE>
+     */
+    public int getNodeIdsInUse( long fromId, long toId, long[] ids );
 }
\ No newline at end of file
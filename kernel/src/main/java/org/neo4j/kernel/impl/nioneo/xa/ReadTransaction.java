@@ -22,10 +22,12 @@ package org.neo4j.kernel.impl.nioneo.xa;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.kernel.impl.nioneo.store.InvalidRecordException;
 import org.neo4j.kernel.impl.nioneo.store.NeoStore;
 import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
 import org.neo4j.kernel.impl.nioneo.store.NodeStore;
+import org.neo4j.kernel.impl.nioneo.store.PropertyBlock;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexRecord;
@@ -35,6 +37,9 @@ import org.neo4j.kernel.impl.nioneo.store.PropertyStore;
 import org.neo4j.kernel.impl.nioneo.store.Record;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipChainPosition;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipData;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipDirection;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipStore;
 import org.neo4j.kernel.impl.util.ArrayMap;
@@ -84,57 +89,151 @@ class ReadTransaction
         return null;
     }
 
+    /**
+     * Checks which of the nodes in <CODE>ids</CODE> exist.
+     * 
+     * @see NodeStore#loadLightNodes(long[], boolean[])
+     */
+    public void nodesLoadLight( long[] ids, boolean[] found )
+    {
+        getNodeStore().loadLightNodes( ids, found );
+    }
+
+    /**
+     * Loads the relationships in <CODE>ids</CODE>, leaving
+     * <CODE>null</CODE> for each relationship that doesn't exist.
+     * 
+     * @see RelationshipStore#getLightRels(long[], RelationshipRecord[])
+     */
+    public RelationshipData[] relationshipsLoad( long[] ids )
+    {
+        RelationshipRecord[] records = new RelationshipRecord[ids.length];
+        getRelationshipStore().getLightRels( ids, records );
+        RelationshipData[] result = new RelationshipData[ids.length];
+        for ( int i = 0; i < records.length; i++ )
+        {
+            RelationshipRecord relRecord = records[i];
+            if ( relRecord != null )
+            {
+                result[i] = new RelationshipData( ids[i],
+                    relRecord.getFirstNode(), relRecord.getSecondNode(),
+                    relRecord.getType() );
+            }
+        }
+        return result;
+    }
+
     public RelationshipChainPosition getRelationshipChainPosition( long nodeId )
     {
         NodeRecord nodeRecord = getNodeStore().getRecord( nodeId );
-        long nextRel = nodeRecord.getNextRel();
-        return new RelationshipChainPosition( nextRel );
+        return getRelationshipChainPosition( nodeRecord,
+            neoStore.getRelationshipGroupStore() );
     }
 
     public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-        RelationshipChainPosition position )
+        RelationshipChainPosition position, int[] typeIds, Direction direction )
     {
-        long nextRel = position.getNextRecord();
-        List<RelationshipData> rels = new ArrayList<RelationshipData>();
-        for ( int i = 0; i < getRelGrabSize() && 
-            nextRel != Record.NO_NEXT_RELATIONSHIP.intValue(); i++ )
+        return getMoreRelationships( nodeId, position, typeIds, direction,
+            getRelationshipStore(), getRelGrabSize() );
+    }
+
+    /**
+     * Puts the ids of the nodes in use from <CODE>fromId</CODE> up to, but
+     * not including, <CODE>toId</CODE> in <CODE>ids</CODE>.
+     *
+     * @return the number of ids put in <CODE>ids</CODE>
+     * @see AbstractStore#getIdsInUse(long, long, long[])
+     */
+    public int getNodeIdsInUse( long fromId, long toId, long[] ids )
+    {
+        return getNodeStore().getIdsInUse( fromId, toId, ids );
+    }
+
+    /**
+     * Puts the ids of the relationships in use from <CODE>fromId</CODE> up
+     * to, but not including, <CODE>toId</CODE> in <CODE>ids</CODE>.
+     *
+     * @return the number of ids put in <CODE>ids</CODE>
+     * @see AbstractStore#getIdsInUse(long, long, long[])
+     */
+    public int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+    {
+        return getRelationshipStore().getIdsInUse( fromId, toId, ids );
+    }
+
+    static RelationshipChainPosition getRelationshipChainPosition(
+        NodeRecord nodeRecord, RelationshipGroupStore groupStore )
+    {
+        RelationshipChainPosition position = new RelationshipChainPosition();
+        long nextGroup = nodeRecord.getNextGroup();
+        while ( nextGroup != Record.NO_NEXT_GROUP.intValue() )
         {
-            RelationshipRecord relRecord = 
-                getRelationshipStore().getChainRecord( nextRel );
-            if ( relRecord == null )
-            {
-                // return what we got so far
-                position.setNextRecord( Record.NO_NEXT_RELATIONSHIP.intValue() );
-                return rels;
-            }
-            long firstNode = relRecord.getFirstNode();
-            long secondNode = relRecord.getSecondNode();
-            if ( relRecord.inUse() )
-            {
-                rels.add( new RelationshipData( relRecord.getId(), firstNode, 
-                    secondNode, relRecord.getType() ) );
-            }
-            else
+            RelationshipGroupRecord group = groupStore.getRecord( nextGroup );
+            for ( RelationshipDirection direction : RelationshipDirection.values() )
             {
-                i--;
+                long first = group.getFirst( direction );
+                if ( first != Record.NO_NEXT_RELATIONSHIP.intValue() )
+                {
+                    position.addChain( group.getType(), direction, first );
+                }
             }
-            if ( firstNode == nodeId )
-            {
-                nextRel = relRecord.getFirstNextRel();
-            }
-            else if ( secondNode == nodeId )
+            nextGroup = group.getNext();
+        }
+        return position;
+    }
+
+    /**
+     * Loads at most <CODE>grabSize</CODE> relationships from the chains in
+     * <CODE>position</CODE> matching <CODE>typeIds</CODE> and
+     * <CODE>direction</CODE>, chains not matching are left as they are.
+     */
+    static Iterable<RelationshipData> getMoreRelationships( long nodeId,
+        RelationshipChainPosition position, int[] typeIds, Direction direction,
+        RelationshipStore relStore, int grabSize )
+    {
+        List<RelationshipData> rels = new ArrayList<RelationshipData>();
+        for ( int chain = 0; chain < position.chainCount() && 
+            rels.size() < grabSize; chain++ )
+        {
+            if ( !position.matches( chain, typeIds, direction ) )
             {
-                nextRel = relRecord.getSecondNextRel();
+                continue;
             }
-            else
+            long nextRel = position.getNextRecord( chain );
+            while ( rels.size() < grabSize && 
+                nextRel != Record.NO_NEXT_RELATIONSHIP.intValue() )
             {
-                System.out.println( relRecord );
-                throw new InvalidRecordException( "Node[" + nodeId + 
-                    "] is neither firstNode[" + firstNode + 
-                    "] nor secondNode[" + secondNode + "] for Relationship[" + relRecord.getId() + "]" );
+                RelationshipRecord relRecord = relStore.getChainRecord( nextRel );
+                if ( relRecord == null )
+                {
+                    // return what we got so far
+                    nextRel = Record.NO_NEXT_RELATIONSHIP.intValue();
+                    break;
+                }
+                long firstNode = relRecord.getFirstNode();
+                long secondNode = relRecord.getSecondNode();
+                if ( relRecord.inUse() )
+                {
+                    rels.add( new RelationshipData( relRecord.getId(), firstNode, 
+                        secondNode, relRecord.getType() ) );
+                }
+                if ( firstNode == nodeId )
+                {
+                    nextRel = relRecord.getFirstNextRel();
+                }
+                else if ( secondNode == nodeId )
+                {
+                    nextRel = relRecord.getSecondNextRel();
+                }
+                else
+                {
+                    throw new InvalidRecordException( "Node[" + nodeId + 
+                        "] is neither firstNode[" + firstNode + 
+                        "] nor secondNode[" + secondNode + "] for Relationship[" + relRecord.getId() + "]" );
+                }
             }
+            position.setNextRecord( chain, nextRel );
         }
-        position.setNextRecord( nextRel );
         return rels;
     }
     
@@ -149,15 +248,7 @@ class ReadTransaction
         long nextProp = relRecord.getNextProp();
         ArrayMap<Integer,PropertyData> propertyMap = 
             new ArrayMap<Integer,PropertyData>( 9, false, true );
-        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
-        {
-            PropertyRecord propRecord = 
-                getPropertyStore().getLightRecord( nextProp );
-            propertyMap.put( propRecord.getKeyIndexId(), 
-                new PropertyData( propRecord.getId(),                      
-                    propertyGetValueOrNull( propRecord ) ) );
-            nextProp = propRecord.getNextProp();
-        }
+        putProperties( nextProp, propertyMap );
         return propertyMap;
     }
 
@@ -168,31 +259,40 @@ class ReadTransaction
         long nextProp = nodeRecord.getNextProp();
         ArrayMap<Integer,PropertyData> propertyMap = 
             new ArrayMap<Integer,PropertyData>( 9, false, true );
-        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+        putProperties( nextProp, propertyMap );
+        return propertyMap;
+    }
+
+    // Duplicated code
+    private void putProperties( long firstProp,
+        ArrayMap<Integer,PropertyData> propertyMap )
+    {
+        for ( PropertyRecord propRecord :
+            getPropertyStore().getLightRecordChain( firstProp ) )
         {
-            PropertyRecord propRecord = getPropertyStore().getLightRecord( nextProp );
-            propertyMap.put( propRecord.getKeyIndexId(), 
-                new PropertyData( propRecord.getId(), 
-                    propertyGetValueOrNull( propRecord ) ) );
-            nextProp = propRecord.getNextProp();
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+            {
+                PropertyBlock block = propRecord.getBlock( i );
+                if ( block != null )
+                {
+                    propertyMap.put( block.getKeyIndexId(), 
+                        new PropertyData( propRecord.getPropertyId( i ), 
+                            propertyGetValueOrNull( block ) ) );
+                }
+            }
         }
-        return propertyMap;
     }
     
     // Duplicated code
-    public Object propertyGetValueOrNull( PropertyRecord propertyRecord )
+    public Object propertyGetValueOrNull( PropertyBlock block )
     {
-        return propertyRecord.getType().getValue( propertyRecord, null );
+        return block.getType().getValue( block, null );
     }
 
     public Object propertyGetValue( long id )
     {
-        PropertyRecord propertyRecord = getPropertyStore().getRecord( id );
-        if ( propertyRecord.isLight() )
-        {
-            getPropertyStore().makeHeavy( propertyRecord );
-        }
-        return propertyRecord.getType().getValue( propertyRecord, getPropertyStore() );
+        PropertyBlock block = getPropertyStore().getBlock( id );
+        return block.getType().getValue( block, getPropertyStore() );
     }
 
     String getPropertyIndex( int id )
@@ -214,8 +314,15 @@ class ReadTransaction
 
     public int getKeyIdForProperty( long propertyId )
     {
-        PropertyRecord propRecord = 
-            getPropertyStore().getLightRecord( propertyId );
-        return propRecord.getKeyIndexId();
+        PropertyRecord propRecord = getPropertyStore().getLightRecord( 
+            PropertyRecord.recordId( propertyId ) );
+        PropertyBlock block = propRecord.getBlock(
+            PropertyRecord.blockIndex( propertyId ) );
+        if ( block == null )
+        {
+            throw new InvalidRecordException( "Property[" + propertyId + 
+                "] not in use" );
+        }
+        return block.getKeyIndexId();
     }
 }
@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.nioneo.xa;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.kernel.impl.core.PropertyIndex;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipChainPosition;
@@ -64,17 +65,16 @@ public interface RelationshipEventConsumer
      * 
      * @param relId
      *            The id of the relationship to add the property to
-     * @param propertyId
-     *            The id of the property
      * @param key
      *            The key of the property
      * @param value
      *            The value of the property
+     * @return The id of the new property, made up of the id of the
+     *         property record it was put in and its block in that record
      * @throws IOException
      *             If unable to add property
      */
-    public void addProperty( long relId, long propertyId, PropertyIndex index,
-        Object value );
+    public long addProperty( long relId, PropertyIndex index, Object value );
 
     /**
      * Changes the value of a property on a relationship.
@@ -123,10 +123,35 @@ public interface RelationshipEventConsumer
      */
     public RelationshipData getRelationship( long id );
 
+    /**
+     * Gets the relationships with the given ids.
+     * 
+     * @param ids
+     *            The ids of the relationships, sorted lowest id first
+     * @return The relationship data at the index of each id, or
+     *         <CODE>null</CODE> if there is no such relationship
+     */
+    public RelationshipData[] getRelationships( long[] ids );
+
     public RelationshipChainPosition getRelationshipChainPosition( long nodeId );
 
+    /**
+     * Loads more relationships of <CODE>nodeId</CODE> from the chains in
+     * <CODE>position</CODE> holding relationships of any of
+     * <CODE>typeIds</CODE>, or any type if <CODE>null</CODE>, in
+     * <CODE>direction</CODE>.
+     */
     public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-        RelationshipChainPosition position );
+        RelationshipChainPosition position, int[] typeIds, Direction direction );
 
     public boolean isRelationshipCreated( long relId );
+
+    /**
+     * Puts the ids of the relationships in use from <CODE>fromId</CODE> up
+     * to, but not including, <CODE>toId</CODE> in <CODE>ids</CODE>,
+     * including the changes made in this transaction.
+     *
+     * @return The number of ids put in <CODE>ids</CODE>
+     */
+    public int getRelationshipIdsInUse( long fromId, long toId, long[] ids );
 }
\ No newline at end of file
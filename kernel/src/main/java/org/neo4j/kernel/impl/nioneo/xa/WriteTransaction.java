@@ -21,25 +21,31 @@ package org.neo4j.kernel.impl.nioneo.xa;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.transaction.xa.XAException;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.kernel.impl.core.LockReleaser;
 import org.neo4j.kernel.impl.core.PropertyIndex;
+import org.neo4j.kernel.impl.nioneo.store.Abstract64BitRecord;
 import org.neo4j.kernel.impl.nioneo.store.DynamicRecord;
 import org.neo4j.kernel.impl.nioneo.store.InvalidRecordException;
 import org.neo4j.kernel.impl.nioneo.store.NeoStore;
 import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
 import org.neo4j.kernel.impl.nioneo.store.NodeStore;
+import org.neo4j.kernel.impl.nioneo.store.PropertyBlock;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexRecord;
@@ -50,6 +56,9 @@ import org.neo4j.kernel.impl.nioneo.store.PropertyType;
 import org.neo4j.kernel.impl.nioneo.store.Record;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipChainPosition;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipData;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipDirection;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipStore;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipTypeData;
@@ -76,11 +85,21 @@ class WriteTransaction extends XaTransaction
         new HashMap<Long,PropertyRecord>();
     private final Map<Long,RelationshipRecord> relRecords =
         new HashMap<Long,RelationshipRecord>();
+    private final Map<Long,RelationshipGroupRecord> relGroupRecords =
+        new HashMap<Long,RelationshipGroupRecord>();
     private final Map<Integer,RelationshipTypeRecord> relTypeRecords = 
         new HashMap<Integer,RelationshipTypeRecord>();
     private final Map<Integer,PropertyIndexRecord> propIndexRecords = 
         new HashMap<Integer,PropertyIndexRecord>();
 
+    // owners of property chains that had properties removed, their chains
+    // are re-packed on prepare
+    private final Set<Long> propertyRemovedNodes = new HashSet<Long>();
+    private final Set<Long> propertyRemovedRels = new HashSet<Long>();
+    // owners whose properties got new ids when their chains were re-packed
+    private final Set<Long> repackedNodes = new HashSet<Long>();
+    private final Set<Long> repackedRels = new HashSet<Long>();
+
     private final ArrayList<Command.NodeCommand> nodeCommands = 
         new ArrayList<Command.NodeCommand>();
     private final ArrayList<Command.PropertyCommand> propCommands = 
@@ -91,6 +110,8 @@ class WriteTransaction extends XaTransaction
         new ArrayList<Command.RelationshipCommand>();
     private final ArrayList<Command.RelationshipTypeCommand> relTypeCommands = 
         new ArrayList<Command.RelationshipTypeCommand>();
+    private final ArrayList<Command.RelationshipGroupCommand> relGroupCommands = 
+        new ArrayList<Command.RelationshipGroupCommand>();
 
     private final NeoStore neoStore;
     private boolean committed = false;
@@ -98,14 +119,17 @@ class WriteTransaction extends XaTransaction
 
     private final LockReleaser lockReleaser;
     private final LockManager lockManager;
+    private final CommandApplier applier;
 
     WriteTransaction( int identifier, XaLogicalLog log, NeoStore neoStore,
-        LockReleaser lockReleaser, LockManager lockManager )
+        LockReleaser lockReleaser, LockManager lockManager,
+        CommandApplier applier )
     {
         super( identifier, log );
         this.neoStore = neoStore;
         this.lockReleaser = lockReleaser;
         this.lockManager = lockManager;
+        this.applier = applier;
     }
 
     public boolean isReadOnly()
@@ -114,7 +138,7 @@ class WriteTransaction extends XaTransaction
         {
             if ( nodeCommands.size() == 0 && propCommands.size() == 0 && 
                 relCommands.size() == 0 && relTypeCommands.size() == 0 && 
-                propIndexCommands.size() == 0 )
+                propIndexCommands.size() == 0 && relGroupCommands.size() == 0 )
             {
                 return true;
             }
@@ -122,7 +146,7 @@ class WriteTransaction extends XaTransaction
         }
         if ( nodeRecords.size() == 0 && relRecords.size() == 0 && 
             relTypeRecords.size() == 0 && propertyRecords.size() == 0 && 
-            propIndexRecords.size() == 0 )
+            propIndexRecords.size() == 0 && relGroupRecords.size() == 0 )
         {
             return true;
         }
@@ -149,6 +173,7 @@ class WriteTransaction extends XaTransaction
         }
         // generate records then write to logical log via addCommand method
         prepared = true;
+        repackPropertyChains();
         for ( RelationshipTypeRecord record : relTypeRecords.values() )
         {
             Command.RelationshipTypeCommand command = 
@@ -159,11 +184,9 @@ class WriteTransaction extends XaTransaction
         }
         for ( NodeRecord record : nodeRecords.values() )
         {
-            if ( !record.inUse() && record.getNextRel() != 
-                Record.NO_NEXT_RELATIONSHIP.intValue() )
+            if ( !record.inUse() )
             {
-                throw new InvalidRecordException( "Node record " + record
-                    + " still has relationships" );
+                deleteGroups( record );
             }
             Command.NodeCommand command = new Command.NodeCommand( 
                 neoStore.getNodeStore(), record );
@@ -186,6 +209,14 @@ class WriteTransaction extends XaTransaction
             }
             addCommand( command );
         }
+        for ( RelationshipGroupRecord record : relGroupRecords.values() )
+        {
+            Command.RelationshipGroupCommand command = 
+                new Command.RelationshipGroupCommand( 
+                    getRelationshipGroupStore(), record );
+            relGroupCommands.add( command );
+            addCommand( command );
+        }
         for ( PropertyIndexRecord record : propIndexRecords.values() )
         {
             Command.PropertyIndexCommand command = 
@@ -226,6 +257,10 @@ class WriteTransaction extends XaTransaction
         {
             relTypeCommands.add( (Command.RelationshipTypeCommand) xaCommand );
         }
+        else if ( xaCommand instanceof Command.RelationshipGroupCommand )
+        {
+            relGroupCommands.add( (Command.RelationshipGroupCommand) xaCommand );
+        }
         else
         {
             throw new IllegalArgumentException( "Unknown command " + xaCommand );
@@ -274,6 +309,13 @@ class WriteTransaction extends XaTransaction
                 }
                 removeRelationshipFromCache( record.getId() );
             }
+            for ( RelationshipGroupRecord record : relGroupRecords.values() )
+            {
+                if ( record.isCreated() )
+                {
+                    getRelationshipGroupStore().freeId( record.getId() );
+                }
+            }
             for ( PropertyIndexRecord record : propIndexRecords.values() )
             {
                 if ( record.isCreated() )
@@ -302,38 +344,27 @@ class WriteTransaction extends XaTransaction
                 if ( record.isCreated() )
                 {
                     getPropertyStore().freeId( record.getId() );
-                    for ( DynamicRecord dynamicRecord : record
-                        .getValueRecords() )
+                }
+                // values added or changed in existing records have their
+                // own new dynamic records
+                for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+                {
+                    PropertyBlock block = record.getBlock( i );
+                    if ( block != null && !block.isLight() )
                     {
-                        if ( dynamicRecord.isCreated() )
-                        {
-                            if ( dynamicRecord.getType() == 
-                                PropertyType.STRING.intValue() )
-                            {
-                                getPropertyStore().freeStringBlockId(
-                                    dynamicRecord.getId() );
-                            }
-                            else if ( dynamicRecord.getType() == 
-                                PropertyType.ARRAY.intValue() )
-                            {
-                                getPropertyStore().freeArrayBlockId(
-                                    dynamicRecord.getId() );
-                            }
-                            else
-                            {
-                                throw new InvalidRecordException( 
-                                    "Unknown type on " + dynamicRecord );
-                            }
-                        }
+                        freeCreatedValueRecords( block.getValueRecords() );
                     }
                 }
+                freeCreatedValueRecords( record.getDeletedValueRecords() );
             }
         }
         finally
         {
             nodeRecords.clear();
             propertyRecords.clear();
+            clearPropertyChainOwners();
             relRecords.clear();
+            relGroupRecords.clear();
             relTypeRecords.clear();
             propIndexRecords.clear();
 
@@ -341,6 +372,7 @@ class WriteTransaction extends XaTransaction
             propCommands.clear();
             propIndexCommands.clear();
             relCommands.clear();
+            relGroupCommands.clear();
             relTypeCommands.clear();
             if ( !isRecovered() )
             {
@@ -438,6 +470,12 @@ class WriteTransaction extends XaTransaction
             {
                 command.execute();
             }
+            // relationship groups
+            java.util.Collections.sort( relGroupCommands, sorter );
+            for ( Command.RelationshipGroupCommand command : relGroupCommands )
+            {
+                command.execute();
+            }
             java.util.Collections.sort( propIndexCommands, sorter );
             for ( Command.PropertyIndexCommand command : propIndexCommands )
             {
@@ -449,6 +487,17 @@ class WriteTransaction extends XaTransaction
             {
                 command.execute();
             }
+            // the cached property ids of these are no longer valid, evicting
+            // them also keeps the changes of this transaction from being
+            // applied to them on commit in the lock releaser
+            for ( Long nodeId : repackedNodes )
+            {
+                removeNodeFromCache( nodeId );
+            }
+            for ( Long relId : repackedRels )
+            {
+                removeRelationshipFromCache( relId );
+            }
             
             neoStore.setLastCommittedTx( getCommitTxId() );
             if ( !isRecovered() )
@@ -460,7 +509,9 @@ class WriteTransaction extends XaTransaction
         {
             nodeRecords.clear();
             propertyRecords.clear();
+            clearPropertyChainOwners();
             relRecords.clear();
+            relGroupRecords.clear();
             relTypeRecords.clear();
             propIndexRecords.clear();
 
@@ -468,6 +519,7 @@ class WriteTransaction extends XaTransaction
             propCommands.clear();
             propIndexCommands.clear();
             relCommands.clear();
+            relGroupCommands.clear();
             relTypeCommands.clear();
         }
     }
@@ -478,39 +530,52 @@ class WriteTransaction extends XaTransaction
         {
             committed = true;
             CommandSorter sorter = new CommandSorter();
-            // property index
             java.util.Collections.sort( propIndexCommands, sorter );
+            java.util.Collections.sort( propCommands, sorter );
+            java.util.Collections.sort( relTypeCommands, sorter );
+            java.util.Collections.sort( relCommands, sorter );
+            java.util.Collections.sort( relGroupCommands, sorter );
+            java.util.Collections.sort( nodeCommands, sorter );
+            // one group per store, property index and properties together
+            // since the property store owns the index store
+            List<Command> propertyGroup = new ArrayList<Command>(
+                propIndexCommands.size() + propCommands.size() );
+            propertyGroup.addAll( propIndexCommands );
+            propertyGroup.addAll( propCommands );
+            List<List<? extends XaCommand>> groups =
+                new ArrayList<List<? extends XaCommand>>();
+            groups.add( propertyGroup );
+            groups.add( relTypeCommands );
+            groups.add( relCommands );
+            groups.add( relGroupCommands );
+            groups.add( nodeCommands );
+            applier.apply( groups );
+
             for ( Command.PropertyIndexCommand command : propIndexCommands )
             {
-                command.execute();
                 addPropertyIndexCommand( (int) command.getKey() );
             }
-            // properties
-            java.util.Collections.sort( propCommands, sorter );
             for ( Command.PropertyCommand command : propCommands )
             {
-                command.execute();
                 removePropertyFromCache( command );
             }
-            // reltypes
-            java.util.Collections.sort( relTypeCommands, sorter );
             for ( Command.RelationshipTypeCommand command : relTypeCommands )
             {
-                command.execute();
                 addRelationshipType( (int) command.getKey() );
             }
-            // relationships
-            java.util.Collections.sort( relCommands, sorter );
             for ( Command.RelationshipCommand command : relCommands )
             {
-                command.execute();
                 removeRelationshipFromCache( command.getKey() );
             }
-            // nodes
-            java.util.Collections.sort( nodeCommands, sorter );
+            for ( Command.RelationshipGroupCommand command : relGroupCommands )
+            {
+                if ( command.getOwningNode() != -1 )
+                {
+                    removeNodeFromCache( command.getOwningNode() );
+                }
+            }
             for ( Command.NodeCommand command : nodeCommands )
             {
-                command.execute();
                 removeNodeFromCache( command.getKey() );
             }
             neoStore.setRecoveredStatus( true );
@@ -532,7 +597,9 @@ class WriteTransaction extends XaTransaction
         {
             nodeRecords.clear();
             propertyRecords.clear();
+            clearPropertyChainOwners();
             relRecords.clear();
+            relGroupRecords.clear();
             relTypeRecords.clear();
             propIndexRecords.clear();
 
@@ -540,11 +607,172 @@ class WriteTransaction extends XaTransaction
             propCommands.clear();
             propIndexCommands.clear();
             relCommands.clear();
+            relGroupCommands.clear();
             relTypeCommands.clear();
         }
     }
     
 
+    private void clearPropertyChainOwners()
+    {
+        propertyRemovedNodes.clear();
+        propertyRemovedRels.clear();
+        repackedNodes.clear();
+        repackedRels.clear();
+    }
+
+    private void freeCreatedValueRecords( Collection<DynamicRecord> valueRecords )
+    {
+        for ( DynamicRecord dynamicRecord : valueRecords )
+        {
+            if ( dynamicRecord.isCreated() )
+            {
+                if ( dynamicRecord.getType() == 
+                    PropertyType.STRING.intValue() )
+                {
+                    getPropertyStore().freeStringBlockId(
+                        dynamicRecord.getId() );
+                }
+                else if ( dynamicRecord.getType() == 
+                    PropertyType.ARRAY.intValue() )
+                {
+                    getPropertyStore().freeArrayBlockId(
+                        dynamicRecord.getId() );
+                }
+                else
+                {
+                    throw new InvalidRecordException( 
+                        "Unknown type on " + dynamicRecord );
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-packs the property chains of the nodes and relationships that had
+     * properties removed in this transaction and are still in use.
+     */
+    private void repackPropertyChains()
+    {
+        for ( Long nodeId : propertyRemovedNodes )
+        {
+            NodeRecord nodeRecord = getNodeRecord( nodeId );
+            if ( nodeRecord == null )
+            {
+                nodeRecord = getNodeStore().getRecord( nodeId );
+            }
+            if ( !nodeRecord.inUse() )
+            {
+                continue;
+            }
+            List<PropertyRecord> changed = repackPropertyChain(
+                nodeRecord.getNextProp() );
+            for ( PropertyRecord record : changed )
+            {
+                record.setNodeId( nodeId );
+            }
+            if ( !changed.isEmpty() )
+            {
+                repackedNodes.add( nodeId );
+            }
+        }
+        for ( Long relId : propertyRemovedRels )
+        {
+            RelationshipRecord relRecord = getRelationshipRecord( relId );
+            if ( relRecord == null )
+            {
+                relRecord = getRelationshipStore().getRecord( relId );
+            }
+            if ( !relRecord.inUse() )
+            {
+                continue;
+            }
+            List<PropertyRecord> changed = repackPropertyChain(
+                relRecord.getNextProp() );
+            for ( PropertyRecord record : changed )
+            {
+                record.setRelId( relId );
+            }
+            if ( !changed.isEmpty() )
+            {
+                repackedRels.add( relId );
+            }
+        }
+    }
+
+    /**
+     * Moves the properties in the last records of the chain starting at
+     * <CODE>firstProp</CODE> into the empty blocks of the records before
+     * them, until the chain has no more records than needed to hold its
+     * properties. The records left empty are deleted. The first record of
+     * the chain stays where it is. Moved properties get new ids, so the
+     * owner of the chain has to be evicted from the cache on commit.
+     *
+     * @return the records changed, empty if the chain was packed already
+     */
+    private List<PropertyRecord> repackPropertyChain( long firstProp )
+    {
+        List<PropertyRecord> chain = new ArrayList<PropertyRecord>();
+        int blockCount = 0;
+        long nextProp = firstProp;
+        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+        {
+            PropertyRecord record = getPropertyRecord( nextProp );
+            if ( record == null )
+            {
+                record = getPropertyStore().getLightRecord( nextProp );
+            }
+            chain.add( record );
+            blockCount += record.getBlockCount();
+            nextProp = record.getNextProp();
+        }
+        int needed = (blockCount + PropertyRecord.BLOCKS_PER_RECORD - 1) /
+            PropertyRecord.BLOCKS_PER_RECORD;
+        List<PropertyRecord> changed = new ArrayList<PropertyRecord>();
+        if ( needed >= chain.size() )
+        {
+            return changed;
+        }
+        int target = 0;
+        for ( int i = needed; i < chain.size(); i++ )
+        {
+            PropertyRecord source = chain.get( i );
+            for ( int index = 0; index < PropertyRecord.BLOCKS_PER_RECORD; index++ )
+            {
+                PropertyBlock block = source.getBlock( index );
+                if ( block == null )
+                {
+                    continue;
+                }
+                while ( chain.get( target ).getFreeBlockIndex() == -1 )
+                {
+                    target++;
+                }
+                PropertyRecord targetRecord = chain.get( target );
+                // the value records go along as they are
+                targetRecord.setBlock( targetRecord.getFreeBlockIndex(), block );
+                source.setBlock( index, null );
+                if ( !changed.contains( targetRecord ) )
+                {
+                    changed.add( targetRecord );
+                }
+            }
+            source.setInUse( false );
+            changed.add( source );
+        }
+        PropertyRecord last = chain.get( needed - 1 );
+        last.setNextProp( Record.NO_NEXT_PROPERTY.intValue() );
+        if ( !changed.contains( last ) )
+        {
+            changed.add( last );
+        }
+        for ( PropertyRecord record : changed )
+        {
+            addPropertyRecord( record );
+        }
+        return changed;
+    }
+
     private void removePropertyFromCache( PropertyCommand command )
     {
         long nodeId = command.getNodeId();
@@ -565,6 +793,11 @@ class WriteTransaction extends XaTransaction
         return neoStore.getRelationshipTypeStore();
     }
     
+    private RelationshipGroupStore getRelationshipGroupStore()
+    {
+        return neoStore.getRelationshipGroupStore();
+    }
+
     private int getRelGrabSize()
     {
         return neoStore.getRelationshipGrabSize();
@@ -617,6 +850,53 @@ class WriteTransaction extends XaTransaction
         return null;
     }
 
+    /**
+     * Like {@link ReadTransaction#nodesLoadLight(long[], boolean[])}, with
+     * the nodes in this transaction handled as in {@link #nodeLoadLight(long)}.
+     */
+    public void nodesLoadLight( long[] ids, boolean[] found )
+    {
+        getNodeStore().loadLightNodes( ids, found );
+        if ( nodeRecords.isEmpty() )
+        {
+            return;
+        }
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            if ( !found[i] && getNodeRecord( ids[i] ) != null )
+            {
+                found[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Like {@link ReadTransaction#relationshipsLoad(long[])}, with the
+     * relationships in this transaction handled as in
+     * {@link #relationshipLoad(long)}.
+     */
+    public RelationshipData[] relationshipsLoad( long[] ids )
+    {
+        RelationshipRecord[] records = new RelationshipRecord[ids.length];
+        getRelationshipStore().getLightRels( ids, records );
+        RelationshipData[] result = new RelationshipData[ids.length];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            RelationshipRecord relRecord = getRelationshipRecord( ids[i] );
+            if ( relRecord == null )
+            {
+                relRecord = records[i];
+            }
+            if ( relRecord != null )
+            {
+                result[i] = new RelationshipData( ids[i],
+                    relRecord.getFirstNode(), relRecord.getSecondNode(),
+                    relRecord.getType() );
+            }
+        }
+        return result;
+    }
+
     ArrayMap<Integer,PropertyData> nodeDelete( long nodeId )
     {
         NodeRecord nodeRecord = getNodeRecord( nodeId );
@@ -633,7 +913,19 @@ class WriteTransaction extends XaTransaction
         nodeRecord.setInUse( false );
         ArrayMap<Integer,PropertyData> propertyMap = 
             new ArrayMap<Integer,PropertyData>( 9, false, true );
-        long nextProp = nodeRecord.getNextProp();
+        deletePropertyChain( nodeRecord.getNextProp(), propertyMap );
+        return propertyMap;
+    }
+
+    /**
+     * Deletes all properties in the chain starting at <CODE>firstProp</CODE>
+     * and puts the committed ones, with their committed values, in
+     * <CODE>propertyMap</CODE>.
+     */
+    private void deletePropertyChain( long firstProp,
+        ArrayMap<Integer,PropertyData> propertyMap )
+    {
+        long nextProp = firstProp;
         while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
         {
             PropertyRecord propRecord = getPropertyRecord( nextProp );
@@ -642,37 +934,40 @@ class WriteTransaction extends XaTransaction
                 propRecord = getPropertyStore().getRecord( nextProp );
                 addPropertyRecord( propRecord );
             }
-            if ( propRecord.isLight() )
-            {
-                getPropertyStore().makeHeavy( propRecord );
-            }
-            if ( !propRecord.isCreated() )
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
             {
-                if ( !propRecord.isChanged() )
+                PropertyBlock block = propRecord.getBlock( i );
+                if ( block == null )
                 {
-                    propertyMap.put( propRecord.getKeyIndexId(), new PropertyData( 
-                        propRecord.getId(), propertyGetValueOrNull( propRecord ) ) );
+                    continue;
                 }
-                else
+                if ( block.isLight() )
+                {
+                    getPropertyStore().makeHeavy( block );
+                }
+                long propertyId = propRecord.getPropertyId( i );
+                if ( !block.isCreated() )
                 {
-                    // we have to re-read committed value since property has 
-                    // changed and old value is erased in memory
-                    PropertyRecord diskValue = getPropertyStore().getRecord( propRecord.getId() );
-                    getPropertyStore().makeHeavy( diskValue );
-                    propertyMap.put( diskValue.getKeyIndexId(), new PropertyData( 
-                            diskValue.getId(), propertyGetValueOrNull( diskValue ) ) );
+                    if ( !block.isChanged() )
+                    {
+                        propertyMap.put( block.getKeyIndexId(), new PropertyData( 
+                            propertyId, propertyGetValueOrNull( block ) ) );
+                    }
+                    else
+                    {
+                        // we have to re-read committed value since property has 
+                        // changed and old value is erased in memory
+                        PropertyBlock diskValue = getPropertyStore().getBlock( propertyId );
+                        propertyMap.put( diskValue.getKeyIndexId(), new PropertyData( 
+                                propertyId, propertyGetValueOrNull( diskValue ) ) );
+                    }
                 }
+                // TODO: update count on property index record
+                propRecord.removeBlock( i );
             }
-            
             nextProp = propRecord.getNextProp();
             propRecord.setInUse( false );
-            // TODO: update count on property index record
-            for ( DynamicRecord valueRecord : propRecord.getValueRecords() )
-            {
-                valueRecord.setInUse( false );
-            }
         }
-        return propertyMap;
     }
 
     ArrayMap<Integer,PropertyData> relDelete( long id )
@@ -690,74 +985,42 @@ class WriteTransaction extends XaTransaction
         }
         ArrayMap<Integer,PropertyData> propertyMap = 
             new ArrayMap<Integer,PropertyData>( 9, false, true );
-        long nextProp = record.getNextProp();
-        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
-        {
-            PropertyRecord propRecord = getPropertyRecord( nextProp );
-            if ( propRecord == null )
-            {
-                propRecord = getPropertyStore().getRecord( nextProp );
-                addPropertyRecord( propRecord );
-            }
-            if ( propRecord.isLight() )
-            {
-                getPropertyStore().makeHeavy( propRecord );
-            }
-            if ( !propRecord.isCreated() )
-            {
-                if ( !propRecord.isChanged() )
-                {
-                    propertyMap.put( propRecord.getKeyIndexId(), 
-                            new PropertyData( propRecord.getId(), 
-                                    propertyGetValueOrNull( propRecord ) ) ); 
-                }
-                else
-                {
-                    // we have to re-read committed value since property has 
-                    // changed and old value is erased in memory
-                    PropertyRecord diskValue = getPropertyStore().getRecord( propRecord.getId() );
-                    getPropertyStore().makeHeavy( diskValue );
-                    propertyMap.put( diskValue.getKeyIndexId(), new PropertyData( 
-                            diskValue.getId(), propertyGetValueOrNull( diskValue ) ) );
-                }
-            }
-            nextProp = propRecord.getNextProp();
-            propRecord.setInUse( false );
-            // TODO: update count on property index record
-            for ( DynamicRecord valueRecord : propRecord.getValueRecords() )
-            {
-                valueRecord.setInUse( false );
-            }
-        }
+        deletePropertyChain( record.getNextProp(), propertyMap );
         disconnectRelationship( record );
-        updateNodes( record );
         record.setInUse( false );
         return propertyMap;
     }
 
     private void disconnectRelationship( RelationshipRecord rel )
     {
-        // update first node prev
-        if ( rel.getFirstPrevRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        if ( rel.getFirstNode() == rel.getSecondNode() )
         {
-            Relationship lockableRel = new LockableRelationship( 
-                rel.getFirstPrevRel() );
-            getWriteLock( lockableRel );
-            RelationshipRecord prevRel = getRelationshipRecord( 
-                rel.getFirstPrevRel() );
-            if ( prevRel == null )
-            {
-                prevRel = getRelationshipStore().getRecord(
-                    rel.getFirstPrevRel() );
-                addRelationshipRecord( prevRel );
-            }
-            if ( prevRel.getFirstNode() == rel.getFirstNode() )
+            disconnect( rel, rel.getFirstNode(), rel.getFirstPrevRel(),
+                rel.getFirstNextRel(), RelationshipDirection.LOOP );
+        }
+        else
+        {
+            disconnect( rel, rel.getFirstNode(), rel.getFirstPrevRel(),
+                rel.getFirstNextRel(), RelationshipDirection.OUTGOING );
+            disconnect( rel, rel.getSecondNode(), rel.getSecondPrevRel(),
+                rel.getSecondNextRel(), RelationshipDirection.INCOMING );
+        }
+    }
+
+    private void disconnect( RelationshipRecord rel, long nodeId, long prev,
+        long next, RelationshipDirection direction )
+    {
+        // update prev, or the head of the chain in the group
+        if ( prev != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            RelationshipRecord prevRel = getLockedRelationshipRecord( prev );
+            if ( prevRel.getFirstNode() == nodeId )
             {
-                prevRel.setFirstNextRel( rel.getFirstNextRel() );
+                prevRel.setFirstNextRel( next );
             }
-            else if ( prevRel.getSecondNode() == rel.getFirstNode() )
+            else if ( prevRel.getSecondNode() == nodeId )
             {
-                prevRel.setSecondNextRel( rel.getFirstNextRel() );
+                prevRel.setSecondNextRel( next );
             }
             else
             {
@@ -765,90 +1028,120 @@ class WriteTransaction extends XaTransaction
                     prevRel + " don't match " + rel );
             }
         }
-        // update first node next
-        if ( rel.getFirstNextRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        else
         {
-            Relationship lockableRel = new LockableRelationship( 
-                rel.getFirstNextRel() );
-            getWriteLock( lockableRel );
-            RelationshipRecord nextRel = getRelationshipRecord( 
-                rel.getFirstNextRel() );
-            if ( nextRel == null )
+            RelationshipGroupRecord group = getRelationshipGroup( nodeId,
+                rel.getType() );
+            if ( group == null || group.getFirst( direction ) != rel.getId() )
             {
-                nextRel = getRelationshipStore().getRecord(
-                    rel.getFirstNextRel() );
-                addRelationshipRecord( nextRel );
-            }
-            if ( nextRel.getFirstNode() == rel.getFirstNode() )
-            {
-                nextRel.setFirstPrevRel( rel.getFirstPrevRel() );
-            }
-            else if ( nextRel.getSecondNode() == rel.getFirstNode() )
-            {
-                nextRel.setSecondPrevRel( rel.getFirstPrevRel() );
-            }
-            else
-            {
-                throw new InvalidRecordException( nextRel + " don't match " 
-                    + rel );
+                throw new InvalidRecordException( rel + " is not first in " +
+                    direction + " chain of " + group );
             }
+            group.setFirst( direction, next );
+            relGroupRecords.put( group.getId(), group );
         }
-        // update second node prev
-        if ( rel.getSecondPrevRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        // update next
+        if ( next != Record.NO_NEXT_RELATIONSHIP.intValue() )
         {
-            Relationship lockableRel = new LockableRelationship( 
-                rel.getSecondPrevRel() );
-            getWriteLock( lockableRel );
-            RelationshipRecord prevRel = getRelationshipRecord( 
-                rel.getSecondPrevRel() );
-            if ( prevRel == null )
-            {
-                prevRel = getRelationshipStore().getRecord(
-                    rel.getSecondPrevRel() );
-                addRelationshipRecord( prevRel );
-            }
-            if ( prevRel.getFirstNode() == rel.getSecondNode() )
+            RelationshipRecord nextRel = getLockedRelationshipRecord( next );
+            if ( nextRel.getFirstNode() == nodeId )
             {
-                prevRel.setFirstNextRel( rel.getSecondNextRel() );
+                nextRel.setFirstPrevRel( prev );
             }
-            else if ( prevRel.getSecondNode() == rel.getSecondNode() )
+            else if ( nextRel.getSecondNode() == nodeId )
             {
-                prevRel.setSecondNextRel( rel.getSecondNextRel() );
+                nextRel.setSecondPrevRel( prev );
             }
             else
             {
-                throw new InvalidRecordException( prevRel + " don't match " + 
+                throw new InvalidRecordException( nextRel + " don't match " + 
                     rel );
             }
         }
-        // update second node next
-        if ( rel.getSecondNextRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+    }
+
+    private RelationshipRecord getLockedRelationshipRecord( long relId )
+    {
+        Relationship lockableRel = new LockableRelationship( relId );
+        getWriteLock( lockableRel );
+        RelationshipRecord record = getRelationshipRecord( relId );
+        if ( record == null )
+        {
+            record = getRelationshipStore().getRecord( relId );
+            addRelationshipRecord( record );
+        }
+        return record;
+    }
+
+    /**
+     * Returns the group of <CODE>type</CODE> for <CODE>nodeId</CODE>, or
+     * <CODE>null</CODE> if there is no such group. A group read from the
+     * store isn't added to this transaction, callers add it once they
+     * modify it so unchanged groups don't get written.
+     */
+    private RelationshipGroupRecord getRelationshipGroup( long nodeId, int type )
+    {
+        NodeRecord nodeRecord = getNodeRecord( nodeId );
+        if ( nodeRecord == null )
+        {
+            nodeRecord = getNodeStore().getRecord( nodeId );
+        }
+        long nextGroup = nodeRecord.getNextGroup();
+        while ( nextGroup != Record.NO_NEXT_GROUP.intValue() )
         {
-            Relationship lockableRel = new LockableRelationship( 
-                rel.getSecondNextRel() );
-            getWriteLock( lockableRel );
-            RelationshipRecord nextRel = getRelationshipRecord( 
-                rel.getSecondNextRel() );
-            if ( nextRel == null )
+            RelationshipGroupRecord group = relGroupRecords.get( nextGroup );
+            if ( group == null )
             {
-                nextRel = getRelationshipStore().getRecord(
-                    rel.getSecondNextRel() );
-                addRelationshipRecord( nextRel );
+                group = getRelationshipGroupStore().getRecord( nextGroup );
             }
-            if ( nextRel.getFirstNode() == rel.getSecondNode() )
+            if ( group.getType() == type )
             {
-                nextRel.setFirstPrevRel( rel.getSecondPrevRel() );
+                return group;
             }
-            else if ( nextRel.getSecondNode() == rel.getSecondNode() )
+            nextGroup = group.getNext();
+        }
+        return null;
+    }
+
+    private RelationshipGroupRecord getOrCreateRelationshipGroup(
+        NodeRecord nodeRecord, int type )
+    {
+        RelationshipGroupRecord group = getRelationshipGroup(
+            nodeRecord.getId(), type );
+        if ( group == null )
+        {
+            group = new RelationshipGroupRecord(
+                getRelationshipGroupStore().nextId(), type );
+            group.setInUse( true );
+            group.setCreated();
+            group.setOwningNode( nodeRecord.getId() );
+            group.setNext( nodeRecord.getNextGroup() );
+            nodeRecord.setNextGroup( group.getId() );
+            relGroupRecords.put( group.getId(), group );
+        }
+        return group;
+    }
+
+    private void deleteGroups( NodeRecord nodeRecord )
+    {
+        long nextGroup = nodeRecord.getNextGroup();
+        while ( nextGroup != Record.NO_NEXT_GROUP.intValue() )
+        {
+            RelationshipGroupRecord group = relGroupRecords.get( nextGroup );
+            if ( group == null )
             {
-                nextRel.setSecondPrevRel( rel.getSecondPrevRel() );
+                group = getRelationshipGroupStore().getRecord( nextGroup );
+                relGroupRecords.put( group.getId(), group );
             }
-            else
+            if ( !group.isEmpty() )
             {
-                throw new InvalidRecordException( nextRel + " don't match " + 
-                    rel );
+                throw new InvalidRecordException( "Node record " + nodeRecord
+                    + " still has relationships" );
             }
+            group.setInUse( false );
+            nextGroup = group.getNext();
         }
+        nodeRecord.setNextGroup( Record.NO_NEXT_GROUP.intValue() );
     }
 
     private void getWriteLock( Relationship lockableRel )
@@ -862,81 +1155,18 @@ class WriteTransaction extends XaTransaction
         NodeRecord nodeRecord = getNodeRecord( nodeId );
         if ( nodeRecord != null && nodeRecord.isCreated() )
         {
-            return new RelationshipChainPosition( 
-                  Record.NO_NEXT_RELATIONSHIP.intValue() );
+            return new RelationshipChainPosition();
         }
         nodeRecord = getNodeStore().getRecord( nodeId );
-        long nextRel = nodeRecord.getNextRel();
-        return new RelationshipChainPosition( nextRel );
+        return ReadTransaction.getRelationshipChainPosition( nodeRecord,
+            getRelationshipGroupStore() );
     }
     
     public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-        RelationshipChainPosition position )
+        RelationshipChainPosition position, int[] typeIds, Direction direction )
     {
-        long nextRel = position.getNextRecord();
-        List<RelationshipData> rels = new ArrayList<RelationshipData>();
-        for ( int i = 0; i < getRelGrabSize() && 
-            nextRel != Record.NO_NEXT_RELATIONSHIP.intValue(); i++ )
-        {
-            RelationshipRecord relRecord = getRelationshipStore().getChainRecord( nextRel );
-            if ( relRecord == null )
-            {
-                // return what we got so far
-                position.setNextRecord( Record.NO_NEXT_RELATIONSHIP.intValue() );
-                return rels;
-            }
-            long firstNode = relRecord.getFirstNode();
-            long secondNode = relRecord.getSecondNode();
-            if ( relRecord.inUse() ) // && !relRecord.isCreated() )
-            {
-                rels.add( new RelationshipData( relRecord.getId(), firstNode, 
-                    secondNode, relRecord.getType() ) );
-            }
-            else
-            {
-                i--;
-            }
-            if ( firstNode == nodeId )
-            {
-                nextRel = relRecord.getFirstNextRel();
-            }
-            else if ( secondNode == nodeId )
-            {
-                nextRel = relRecord.getSecondNextRel();
-            }
-            else
-            {
-                throw new InvalidRecordException( "Node[" + nodeId + 
-                        "] is neither firstNode[" + firstNode + 
-                        "] nor secondNode[" + secondNode + "] for Relationship[" + relRecord.getId() + "]" );
-            }
-        }
-        position.setNextRecord( nextRel );
-        return rels;
-    }
-    
-    private void updateNodes( RelationshipRecord rel )
-    {
-        if ( rel.getFirstPrevRel() == Record.NO_PREV_RELATIONSHIP.intValue() )
-        {
-            NodeRecord firstNode = getNodeRecord( rel.getFirstNode() );
-            if ( firstNode == null )
-            {
-                firstNode = getNodeStore().getRecord( rel.getFirstNode() );
-                addNodeRecord( firstNode );
-            }
-            firstNode.setNextRel( rel.getFirstNextRel() );
-        }
-        if ( rel.getSecondPrevRel() == Record.NO_PREV_RELATIONSHIP.intValue() )
-        {
-            NodeRecord secondNode = getNodeRecord( rel.getSecondNode() );
-            if ( secondNode == null )
-            {
-                secondNode = getNodeStore().getRecord( rel.getSecondNode() );
-                addNodeRecord( secondNode );
-            }
-            secondNode.setNextRel( rel.getSecondNextRel() );
-        }
+        return ReadTransaction.getMoreRelationships( nodeId, position, typeIds,
+            direction, getRelationshipStore(), getRelGrabSize() );
     }
 
     void relRemoveProperty( long relId, long propertyId )
@@ -951,62 +1181,15 @@ class WriteTransaction extends XaTransaction
             throw new IllegalStateException( "Property remove on relationship[" +
                 relId + "] illegal since it has been deleted." );
         }
-        PropertyRecord propRecord = getPropertyRecord( propertyId );
-        if ( propRecord == null )
-        {
-            propRecord = getPropertyStore().getRecord( propertyId );
-            addPropertyRecord( propRecord );
-        }
-        if ( !propRecord.inUse() )
-        {
-            throw new IllegalStateException( "Unable to delete property[" + 
-                propertyId + "] since it is already deleted." );
-        }
+        PropertyRecord propRecord = removeProperty( propertyId );
         propRecord.setRelId( relId );
-        if ( propRecord.isLight() )
-        {
-            getPropertyStore().makeHeavy( propRecord );
-        }
-
-        propRecord.setInUse( false );
-        // TODO: update count on property index record
-        for ( DynamicRecord valueRecord : propRecord.getValueRecords() )
-        {
-            if ( valueRecord.inUse() )
-            {
-                valueRecord.setInUse( false, propRecord.getType().intValue() );
-            }
-        }
-        long prevProp = propRecord.getPrevProp();
-        long nextProp = propRecord.getNextProp();
-        if ( relRecord.getNextProp() == propertyId )
+        propertyRemovedRels.add( relId );
+        if ( !propRecord.inUse() && relRecord.getNextProp() == propRecord.getId() )
         {
-            relRecord.setNextProp( nextProp );
+            relRecord.setNextProp( propRecord.getNextProp() );
             // re-adding not a problem
             addRelationshipRecord( relRecord );
         }
-        if ( prevProp != Record.NO_PREVIOUS_PROPERTY.intValue() )
-        {
-            PropertyRecord prevPropRecord = getPropertyRecord( prevProp );
-            if ( prevPropRecord == null )
-            {
-                prevPropRecord = getPropertyStore().getLightRecord( prevProp );
-                addPropertyRecord( prevPropRecord );
-            }
-            assert prevPropRecord.inUse();
-            prevPropRecord.setNextProp( nextProp );
-        }
-        if ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
-        {
-            PropertyRecord nextPropRecord = getPropertyRecord( nextProp );
-            if ( nextPropRecord == null )
-            {
-                nextPropRecord = getPropertyStore().getLightRecord( nextProp );
-                addPropertyRecord( nextPropRecord );
-            }
-            assert nextPropRecord.inUse();
-            nextPropRecord.setPrevProp( prevProp );
-        }
     }
 
     public ArrayMap<Integer,PropertyData> relGetProperties( long relId,
@@ -1034,14 +1217,7 @@ class WriteTransaction extends XaTransaction
                 "] not in use" );
         }
         long nextProp = relRecord.getNextProp();
-        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
-        {
-            PropertyRecord propRecord = getPropertyStore().getLightRecord( nextProp );
-            propertyMap.put( propRecord.getKeyIndexId(), 
-                new PropertyData( propRecord.getId(),                      
-                    propertyGetValueOrNull( propRecord ) ) );
-            nextProp = propRecord.getNextProp();
-        }
+        putProperties( nextProp, propertyMap );
         return propertyMap;
     }
 
@@ -1070,78 +1246,75 @@ class WriteTransaction extends XaTransaction
         }
             
         long nextProp = nodeRecord.getNextProp();
-        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+        putProperties( nextProp, propertyMap );
+        return propertyMap;
+    }
+
+    private void putProperties( long firstProp,
+        ArrayMap<Integer,PropertyData> propertyMap )
+    {
+        for ( PropertyRecord propRecord :
+            getPropertyStore().getLightRecordChain( firstProp ) )
         {
-            PropertyRecord propRecord = getPropertyStore().getLightRecord( nextProp );
-            propertyMap.put( propRecord.getKeyIndexId(), 
-                new PropertyData( propRecord.getId(), 
-                    propertyGetValueOrNull( propRecord ) ) );
-            nextProp = propRecord.getNextProp();
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+            {
+                PropertyBlock block = propRecord.getBlock( i );
+                if ( block != null )
+                {
+                    propertyMap.put( block.getKeyIndexId(), 
+                        new PropertyData( propRecord.getPropertyId( i ), 
+                            propertyGetValueOrNull( block ) ) );
+                }
+            }
         }
-        return propertyMap;
     }
     
-    public Object propertyGetValueOrNull( PropertyRecord propertyRecord )
+    public Object propertyGetValueOrNull( PropertyBlock block )
     {
-        return propertyRecord.getType().getValue( propertyRecord, propertyRecord.isLight() ? null : getPropertyStore() );
+        return block.getType().getValue( block, block.isLight() ? null : getPropertyStore() );
     }
 
     public Object propertyGetValue( long id )
     {
-        PropertyRecord propertyRecord = getPropertyStore().getRecord( id );
-        if ( propertyRecord.isLight() )
-        {
-            getPropertyStore().makeHeavy( propertyRecord );
-        }
-        return propertyRecord.getType().getValue( propertyRecord, getPropertyStore() );
+        PropertyBlock block = getPropertyStore().getBlock( id );
+        return block.getType().getValue( block, getPropertyStore() );
     }
 
-    void nodeRemoveProperty( long nodeId, long propertyId )
+    /**
+     * Deletes the property <CODE>propertyId</CODE> from its record and
+     * returns the record. A record left empty is unlinked from its chain
+     * and no longer in use, the owner has to be updated if it was first.
+     */
+    private PropertyRecord removeProperty( long propertyId )
     {
-        NodeRecord nodeRecord = getNodeRecord( nodeId );
-        if ( nodeRecord == null )
-        {
-            nodeRecord = getNodeStore().getRecord( nodeId );
-        }
-        if ( !nodeRecord.inUse() )
-        {
-            throw new IllegalStateException( "Property remove on node[" +
-                nodeId + "] illegal since it has been deleted." );
-        }
-        PropertyRecord propRecord = getPropertyRecord( propertyId );
+        long recordId = PropertyRecord.recordId( propertyId );
+        int index = PropertyRecord.blockIndex( propertyId );
+        PropertyRecord propRecord = getPropertyRecord( recordId );
         if ( propRecord == null )
         {
-            propRecord = getPropertyStore().getRecord( propertyId );
+            propRecord = getPropertyStore().getLightRecord( recordId );
             addPropertyRecord( propRecord );
         }
-        if ( !propRecord.inUse() )
+        PropertyBlock block = propRecord.getBlock( index );
+        if ( !propRecord.inUse() || block == null )
         {
             throw new IllegalStateException( "Unable to delete property[" + 
                 propertyId + "] since it is already deleted." );
         }
-        propRecord.setNodeId( nodeId );
-        if ( propRecord.isLight() )
+        if ( block.isLight() )
         {
-            getPropertyStore().makeHeavy( propRecord );
+            getPropertyStore().makeHeavy( block );
         }
-
-        propRecord.setInUse( false );
         // TODO: update count on property index record
-        for ( DynamicRecord valueRecord : propRecord.getValueRecords() )
+        propRecord.removeBlock( index );
+        if ( propRecord.getBlockCount() > 0 )
         {
-            if ( valueRecord.inUse() )
-            {
-                valueRecord.setInUse( false, propRecord.getType().intValue() );
-            }
+            return propRecord;
         }
+
+        propRecord.setInUse( false );
         long prevProp = propRecord.getPrevProp();
         long nextProp = propRecord.getNextProp();
-        if ( nodeRecord.getNextProp() == propertyId )
-        {
-            nodeRecord.setNextProp( nextProp );
-            // re-adding not a problem
-            addNodeRecord( nodeRecord );
-        }
         if ( prevProp != Record.NO_PREVIOUS_PROPERTY.intValue() )
         {
             PropertyRecord prevPropRecord = getPropertyRecord( prevProp );
@@ -1164,59 +1337,88 @@ class WriteTransaction extends XaTransaction
             assert nextPropRecord.inUse();
             nextPropRecord.setPrevProp( prevProp );
         }
+        return propRecord;
     }
 
-    void relChangeProperty( long relId, long propertyId, Object value )
+    void nodeRemoveProperty( long nodeId, long propertyId )
     {
-        RelationshipRecord relRecord = getRelationshipRecord( relId );
-        if ( relRecord == null )
+        NodeRecord nodeRecord = getNodeRecord( nodeId );
+        if ( nodeRecord == null )
         {
-            relRecord = getRelationshipStore().getRecord( relId );
+            nodeRecord = getNodeStore().getRecord( nodeId );
         }
-        if ( !relRecord.inUse() )
+        if ( !nodeRecord.inUse() )
         {
-            throw new IllegalStateException( "Property change on relationship[" +
-                relId + "] illegal since it has been deleted." );
+            throw new IllegalStateException( "Property remove on node[" +
+                nodeId + "] illegal since it has been deleted." );
+        }
+        PropertyRecord propRecord = removeProperty( propertyId );
+        propRecord.setNodeId( nodeId );
+        propertyRemovedNodes.add( nodeId );
+        if ( !propRecord.inUse() && nodeRecord.getNextProp() == propRecord.getId() )
+        {
+            nodeRecord.setNextProp( propRecord.getNextProp() );
+            // re-adding not a problem
+            addNodeRecord( nodeRecord );
         }
-        PropertyRecord propertyRecord = getPropertyRecord( propertyId );
+    }
+
+    /**
+     * Gives the property <CODE>propertyId</CODE> a new value, returning the
+     * record it is in.
+     */
+    private PropertyRecord changeProperty( long propertyId, Object value )
+    {
+        long recordId = PropertyRecord.recordId( propertyId );
+        int index = PropertyRecord.blockIndex( propertyId );
+        PropertyRecord propertyRecord = getPropertyRecord( recordId );
         if ( propertyRecord == null )
         {
-            propertyRecord = getPropertyStore().getRecord( propertyId );
+            propertyRecord = getPropertyStore().getLightRecord( recordId );
             addPropertyRecord( propertyRecord );
         }
-        if ( !propertyRecord.inUse() )
+        PropertyBlock block = propertyRecord.getBlock( index );
+        if ( !propertyRecord.inUse() || block == null )
         {
             throw new IllegalStateException( "Unable to change property[" + 
                 propertyId + "] since it is deleted." );
         }
-        propertyRecord.setRelId( relId );
-        if ( propertyRecord.isLight() )
+        if ( block.isLight() )
         {
-            getPropertyStore().makeHeavy( propertyRecord );
+            getPropertyStore().makeHeavy( block );
         }
-        propertyRecord.setChanged();
-        if ( propertyRecord.getType() == PropertyType.STRING )
+        PropertyBlock newBlock = new PropertyBlock();
+        newBlock.setKeyIndexId( block.getKeyIndexId() );
+        // encoded before anything is changed since it may throw
+        getPropertyStore().encodeValue( newBlock, value );
+        if ( block.isCreated() )
         {
-            for ( DynamicRecord record : propertyRecord.getValueRecords() )
-            {
-                if ( record.inUse() )
-                {
-                    record.setInUse( false, PropertyType.STRING.intValue() );
-                }
-            }
+            newBlock.setCreated();
         }
-        else if ( propertyRecord.getType() == PropertyType.ARRAY )
+        else
         {
-            for ( DynamicRecord record : propertyRecord.getValueRecords() )
-            {
-                if ( record.inUse() )
-                {
-                    record.setInUse( false, PropertyType.ARRAY.intValue() );
-                }
-            }
+            newBlock.setChanged();
         }
-        getPropertyStore().encodeValue( propertyRecord, value );
-        addPropertyRecord( propertyRecord );
+        // the old value records are deleted with the record
+        propertyRecord.removeBlock( index );
+        propertyRecord.setBlock( index, newBlock );
+        return propertyRecord;
+    }
+
+    void relChangeProperty( long relId, long propertyId, Object value )
+    {
+        RelationshipRecord relRecord = getRelationshipRecord( relId );
+        if ( relRecord == null )
+        {
+            relRecord = getRelationshipStore().getRecord( relId );
+        }
+        if ( !relRecord.inUse() )
+        {
+            throw new IllegalStateException( "Property change on relationship[" +
+                relId + "] illegal since it has been deleted." );
+        }
+        PropertyRecord propertyRecord = changeProperty( propertyId, value );
+        propertyRecord.setRelId( relId );
     }
 
     void nodeChangeProperty( long nodeId, long propertyId, Object value )
@@ -1231,49 +1433,11 @@ class WriteTransaction extends XaTransaction
             throw new IllegalStateException( "Property change on node[" +
                 nodeId + "] illegal since it has been deleted." );
         }
-        PropertyRecord propertyRecord = getPropertyRecord( propertyId );
-        if ( propertyRecord == null )
-        {
-            propertyRecord = getPropertyStore().getRecord( propertyId );
-            addPropertyRecord( propertyRecord );
-        }
-        if ( !propertyRecord.inUse() )
-        {
-            throw new IllegalStateException( "Unable to change property[" + 
-                propertyId + "] since it is deleted." );
-        }
+        PropertyRecord propertyRecord = changeProperty( propertyId, value );
         propertyRecord.setNodeId( nodeId );
-        if ( propertyRecord.isLight() )
-        {
-            getPropertyStore().makeHeavy( propertyRecord );
-        }
-        propertyRecord.setChanged();
-        if ( propertyRecord.getType() == PropertyType.STRING )
-        {
-            for ( DynamicRecord record : propertyRecord.getValueRecords() )
-            {
-                if ( record.inUse() )
-                {
-                    record.setInUse( false, PropertyType.STRING.intValue() );
-                }
-            }
-        }
-        else if ( propertyRecord.getType() == PropertyType.ARRAY )
-        {
-            for ( DynamicRecord record : propertyRecord.getValueRecords() )
-            {
-                if ( record.inUse() )
-                {
-                    record.setInUse( false, PropertyType.ARRAY.intValue() );
-                }
-            }
-        }
-        getPropertyStore().encodeValue( propertyRecord, value );
-        addPropertyRecord( propertyRecord );
     }
 
-    void relAddProperty( long relId, long propertyId, PropertyIndex index,
-        Object value )
+    long relAddProperty( long relId, PropertyIndex index, Object value )
     {
         RelationshipRecord relRecord = getRelationshipRecord( relId );
         if ( relRecord == null )
@@ -1286,34 +1450,17 @@ class WriteTransaction extends XaTransaction
             throw new IllegalStateException( "Property add on relationship[" +
                 relId + "] illegal since it has been deleted." );
         }
-        PropertyRecord propertyRecord = new PropertyRecord( propertyId );
-        propertyRecord.setInUse( true );
-        propertyRecord.setCreated();
+        PropertyBlock block = newPropertyBlock( index, value );
+        PropertyRecord propertyRecord = getPropertyRecordWithFreeBlock( 
+            relRecord.getNextProp() );
+        int blockIndex = propertyRecord.getFreeBlockIndex();
+        propertyRecord.setBlock( blockIndex, block );
         propertyRecord.setRelId( relId );
-        if ( relRecord.getNextProp() != Record.NO_NEXT_RELATIONSHIP.intValue() )
-        {
-            PropertyRecord prevProp = getPropertyRecord( 
-                relRecord.getNextProp() );
-            if ( prevProp == null )
-            {
-                prevProp = getPropertyStore().getLightRecord(
-                    relRecord.getNextProp() );
-                addPropertyRecord( prevProp );
-            }
-            assert prevProp.getPrevProp() ==
-                Record.NO_PREVIOUS_PROPERTY.intValue();
-            prevProp.setPrevProp( propertyId );
-            propertyRecord.setNextProp( prevProp.getId() );
-        }
-        int keyIndexId = index.getKeyId();
-        propertyRecord.setKeyIndexId( keyIndexId );
-        getPropertyStore().encodeValue( propertyRecord, value );
-        relRecord.setNextProp( propertyId );
-        addPropertyRecord( propertyRecord );
+        relRecord.setNextProp( propertyRecord.getId() );
+        return propertyRecord.getPropertyId( blockIndex );
     }
 
-    void nodeAddProperty( long nodeId, long propertyId, PropertyIndex index,
-        Object value )
+    long nodeAddProperty( long nodeId, PropertyIndex index, Object value )
     {
         NodeRecord nodeRecord = getNodeRecord( nodeId );
         if ( nodeRecord == null )
@@ -1326,34 +1473,62 @@ class WriteTransaction extends XaTransaction
             throw new IllegalStateException( "Property add on node[" +
                 nodeId + "] illegal since it has been deleted." );
         }
-
-        PropertyRecord propertyRecord = new PropertyRecord( propertyId );
-        propertyRecord.setInUse( true );
-        propertyRecord.setCreated();
+        PropertyBlock block = newPropertyBlock( index, value );
+        PropertyRecord propertyRecord = getPropertyRecordWithFreeBlock( 
+            nodeRecord.getNextProp() );
+        int blockIndex = propertyRecord.getFreeBlockIndex();
+        propertyRecord.setBlock( blockIndex, block );
         propertyRecord.setNodeId( nodeId );
+        nodeRecord.setNextProp( propertyRecord.getId() );
+        return propertyRecord.getPropertyId( blockIndex );
+    }
+
+    private PropertyBlock newPropertyBlock( PropertyIndex index, Object value )
+    {
+        PropertyBlock block = new PropertyBlock();
+        block.setCreated();
+        block.setKeyIndexId( index.getKeyId() );
         // encoding has to be set here before anything is change
         // (exception is thrown in encodeValue now and tx not marked
         // rollback only
-        getPropertyStore().encodeValue( propertyRecord, value );
-        if ( nodeRecord.getNextProp() != Record.NO_NEXT_PROPERTY.intValue() )
+        getPropertyStore().encodeValue( block, value );
+        return block;
+    }
+
+    /**
+     * Returns the first record of the property chain starting at
+     * <CODE>firstProp</CODE> if it has an empty block, otherwise a new record
+     * linked in first in the chain.
+     */
+    private PropertyRecord getPropertyRecordWithFreeBlock( long firstProp )
+    {
+        PropertyRecord firstRecord = null;
+        if ( firstProp != Record.NO_NEXT_PROPERTY.intValue() )
         {
-            PropertyRecord prevProp = getPropertyRecord( 
-                nodeRecord.getNextProp() );
-            if ( prevProp == null )
+            firstRecord = getPropertyRecord( firstProp );
+            if ( firstRecord == null )
+            {
+                firstRecord = getPropertyStore().getLightRecord( firstProp );
+                addPropertyRecord( firstRecord );
+            }
+            if ( firstRecord.getFreeBlockIndex() != -1 )
             {
-                prevProp = getPropertyStore().getLightRecord(
-                    nodeRecord.getNextProp() );
-                addPropertyRecord( prevProp );
+                return firstRecord;
             }
-            assert prevProp.getPrevProp() == 
+        }
+        PropertyRecord propertyRecord = new PropertyRecord( 
+            getPropertyStore().nextId() );
+        propertyRecord.setInUse( true );
+        propertyRecord.setCreated();
+        if ( firstRecord != null )
+        {
+            assert firstRecord.getPrevProp() == 
                 Record.NO_PREVIOUS_PROPERTY.intValue();
-            prevProp.setPrevProp( propertyId );
-            propertyRecord.setNextProp( prevProp.getId() );
+            firstRecord.setPrevProp( propertyRecord.getId() );
+            propertyRecord.setNextProp( firstRecord.getId() );
         }
-        int keyIndexId = index.getKeyId();
-        propertyRecord.setKeyIndexId( keyIndexId );
-        nodeRecord.setNextProp( propertyId );
         addPropertyRecord( propertyRecord );
+        return propertyRecord;
     }
 
     void relationshipCreate( long id, long firstNodeId, long secondNodeId,
@@ -1392,66 +1567,52 @@ class WriteTransaction extends XaTransaction
     private void connectRelationship( NodeRecord firstNode, 
         NodeRecord secondNode, RelationshipRecord rel )
     {
-        assert firstNode.getNextRel() != rel.getId();
-        assert secondNode.getNextRel() != rel.getId();
-        rel.setFirstNextRel( firstNode.getNextRel() );
-        rel.setSecondNextRel( secondNode.getNextRel() );
-        if ( firstNode.getNextRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        if ( firstNode.getId() == secondNode.getId() )
         {
-            Relationship lockableRel = new LockableRelationship( 
-                firstNode.getNextRel() );
-            getWriteLock( lockableRel );
-            RelationshipRecord nextRel = getRelationshipRecord( 
-                firstNode.getNextRel() );
-            if ( nextRel == null )
-            {
-                nextRel = getRelationshipStore().getRecord(
-                    firstNode.getNextRel() );
-                addRelationshipRecord( nextRel );
-            }
-            if ( nextRel.getFirstNode() == firstNode.getId() )
-            {
-                nextRel.setFirstPrevRel( rel.getId() );
-            }
-            else if ( nextRel.getSecondNode() == firstNode.getId() )
-            {
-                nextRel.setSecondPrevRel( rel.getId() );
-            }
-            else
-            {
-                throw new InvalidRecordException( firstNode + " dont match "
-                    + nextRel );
-            }
+            connect( firstNode, rel, RelationshipDirection.LOOP );
         }
-        if ( secondNode.getNextRel() != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        else
         {
-            Relationship lockableRel = new LockableRelationship( 
-                secondNode.getNextRel() );
-            getWriteLock( lockableRel );
-            RelationshipRecord nextRel = getRelationshipRecord( 
-                secondNode.getNextRel() );
-            if ( nextRel == null )
-            {
-                nextRel = getRelationshipStore().getRecord(
-                    secondNode.getNextRel() );
-                addRelationshipRecord( nextRel );
-            }
-            if ( nextRel.getFirstNode() == secondNode.getId() )
+            connect( firstNode, rel, RelationshipDirection.OUTGOING );
+            connect( secondNode, rel, RelationshipDirection.INCOMING );
+        }
+    }
+
+    private void connect( NodeRecord node, RelationshipRecord rel,
+        RelationshipDirection direction )
+    {
+        RelationshipGroupRecord group = getOrCreateRelationshipGroup( node,
+            rel.getType() );
+        long first = group.getFirst( direction );
+        assert first != rel.getId();
+        // loops are only linked through their first node pointers
+        if ( direction == RelationshipDirection.INCOMING )
+        {
+            rel.setSecondNextRel( first );
+        }
+        else
+        {
+            rel.setFirstNextRel( first );
+        }
+        if ( first != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            RelationshipRecord nextRel = getLockedRelationshipRecord( first );
+            if ( nextRel.getFirstNode() == node.getId() )
             {
                 nextRel.setFirstPrevRel( rel.getId() );
             }
-            else if ( nextRel.getSecondNode() == secondNode.getId() )
+            else if ( nextRel.getSecondNode() == node.getId() )
             {
                 nextRel.setSecondPrevRel( rel.getId() );
             }
             else
             {
-                throw new InvalidRecordException( secondNode + " dont match "
+                throw new InvalidRecordException( node + " dont match "
                     + nextRel );
             }
         }
-        firstNode.setNextRel( rel.getId() );
-        secondNode.setNextRel( rel.getId() );
+        group.setFirst( direction, rel.getId() );
+        relGroupRecords.put( group.getId(), group );
     }
 
     void nodeCreate( long nodeId )
@@ -1583,9 +1744,9 @@ class WriteTransaction extends XaTransaction
         propertyRecords.put( record.getId(), record );
     }
 
-    PropertyRecord getPropertyRecord( long propertyId )
+    PropertyRecord getPropertyRecord( long recordId )
     {
-        return propertyRecords.get( propertyId );
+        return propertyRecords.get( recordId );
     }
 
     void addRelationshipTypeRecord( RelationshipTypeRecord record )
@@ -1737,6 +1898,61 @@ class WriteTransaction extends XaTransaction
         return false;
     }
 
+    /**
+     * Like {@link ReadTransaction#getNodeIdsInUse(long, long, long[])}, with
+     * the nodes created and deleted in this transaction accounted for.
+     */
+    public int getNodeIdsInUse( long fromId, long toId, long[] ids )
+    {
+        int count = getNodeStore().getIdsInUse( fromId, toId, ids );
+        return applyIdsInUse( nodeRecords, fromId, toId, ids, count );
+    }
+
+    /**
+     * Like {@link ReadTransaction#getRelationshipIdsInUse(long, long, long[])},
+     * with the relationships created and deleted in this transaction
+     * accounted for.
+     */
+    public int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+    {
+        int count = getRelationshipStore().getIdsInUse( fromId, toId, ids );
+        return applyIdsInUse( relRecords, fromId, toId, ids, count );
+    }
+
+    private static int applyIdsInUse( Map<Long,? extends Abstract64BitRecord> records,
+        long fromId, long toId, long[] ids, int count )
+    {
+        boolean changed = false;
+        for ( Abstract64BitRecord record : records.values() )
+        {
+            long id = record.getId();
+            if ( id < fromId || id >= toId )
+            {
+                continue;
+            }
+            if ( record.isCreated() && record.inUse() )
+            {
+                ids[count++] = id;
+                changed = true;
+            }
+            else if ( !record.inUse() )
+            {
+                int index = Arrays.binarySearch( ids, 0, count, id );
+                if ( index >= 0 )
+                {
+                    System.arraycopy( ids, index + 1, ids, index,
+                        count - index - 1 );
+                    count--;
+                }
+            }
+        }
+        if ( changed )
+        {
+            Arrays.sort( ids, 0, count );
+        }
+        return count;
+    }
+
     public boolean relCreated( long relId )
     {
         RelationshipRecord record = relRecords.get( relId );
@@ -1749,11 +1965,24 @@ class WriteTransaction extends XaTransaction
 
     public int getKeyIdForProperty( long propertyId )
     {
-        PropertyRecord propRecord = getPropertyRecord( propertyId );
+        long recordId = PropertyRecord.recordId( propertyId );
+        PropertyRecord propRecord = getPropertyRecord( recordId );
         if ( propRecord == null )
         {
-            propRecord = getPropertyStore().getLightRecord( propertyId );
+            propRecord = getPropertyStore().getLightRecord( recordId );
+        }
+        int index = PropertyRecord.blockIndex( propertyId );
+        PropertyBlock block = propRecord.getBlock( index );
+        if ( block == null )
+        {
+            // removed in this transaction
+            block = propRecord.getRemovedBlock( index );
+        }
+        if ( block == null )
+        {
+            throw new InvalidRecordException( "Property[" + propertyId + 
+                "] not in use" );
         }
-        return propRecord.getKeyIndexId();
+        return block.getKeyIndexId();
     }
 }
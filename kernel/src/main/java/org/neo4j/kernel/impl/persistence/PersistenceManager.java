@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.persistence;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,6 +30,7 @@ import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.NotInTransactionException;
 import org.neo4j.graphdb.TransactionFailureException;
 import org.neo4j.kernel.impl.core.PropertyIndex;
@@ -53,6 +55,9 @@ public class PersistenceManager
     
     private final ArrayMap<Transaction,ResourceConnection> txConnectionMap = 
         new ArrayMap<Transaction,ResourceConnection>( 5, true, true );
+    // number of connections in txConnectionMap, incremented before a
+    // connection is put there and decremented after it has been removed
+    private final AtomicInteger writeConnectionCount = new AtomicInteger();
 
     private final TxEventSyncHookFactory syncHookFactory;
 
@@ -74,6 +79,11 @@ public class PersistenceManager
         return getReadOnlyResource().nodeLoadLight( id );
     }
 
+    public void loadLightNodes( long[] ids, boolean[] found )
+    {
+        getReadOnlyResource().nodesLoadLight( ids, found );
+    }
+
     public Object loadPropertyValue( long id )
     {
         return getReadOnlyResource().loadPropertyValue( id );
@@ -95,11 +105,22 @@ public class PersistenceManager
     }
     
     public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-        RelationshipChainPosition position )
+        RelationshipChainPosition position, int[] typeIds, Direction direction )
     {
-        return getReadOnlyResource().getMoreRelationships( nodeId, position );
+        return getReadOnlyResource().getMoreRelationships( nodeId, position,
+            typeIds, direction );
     }
     
+    public int getNodeIdsInUse( long fromId, long toId, long[] ids )
+    {
+        return getReadOnlyResource().getNodeIdsInUse( fromId, toId, ids );
+    }
+
+    public int getRelationshipIdsInUse( long fromId, long toId, long[] ids )
+    {
+        return getReadOnlyResource().getRelationshipIdsInUse( fromId, toId, ids );
+    }
+
     public ArrayMap<Integer,PropertyData> loadNodeProperties( long nodeId,
             boolean light )
     {
@@ -117,6 +138,11 @@ public class PersistenceManager
         return getReadOnlyResource().relLoadLight( id );
     }
 
+    public RelationshipData[] loadLightRelationships( long[] ids )
+    {
+        return getReadOnlyResource().relsLoadLight( ids );
+    }
+
     public RelationshipTypeData[] loadAllRelationshipTypes()
     {
         return getReadOnlyResource().loadRelationshipTypes();
@@ -185,18 +211,29 @@ public class PersistenceManager
 
     private ResourceConnection getReadOnlyResource()
     {
+        // No transaction has write state so there is nothing to see but the
+        // store, no need to look up the transaction of the current thread
+        if ( writeConnectionCount.get() == 0 )
+        {
+            return getReadOnlyResourceConnection();
+        }
         Transaction tx = this.getCurrentTransaction();
-        ResourceConnection con = txConnectionMap.get( tx );
+        ResourceConnection con = tx != null ? txConnectionMap.get( tx ) : null;
         if ( con == null )
         {
             // con is put in map on write operation, see getResoure()
-            // createReadOnlyResourceConnection just return a single final 
-            // resource and does not create a new object
-            return ((NioNeoDbPersistenceSource) 
-                persistenceSource ).createReadOnlyResourceConnection();
+            return getReadOnlyResourceConnection();
         }
         return con;
     }
+
+    private ResourceConnection getReadOnlyResourceConnection()
+    {
+        // createReadOnlyResourceConnection just return a single final 
+        // resource and does not create a new object
+        return ((NioNeoDbPersistenceSource) 
+            persistenceSource ).createReadOnlyResourceConnection();
+    }
     
     private ResourceConnection getResource()
     {
@@ -222,6 +259,7 @@ public class PersistenceManager
                 
                 tx.registerSynchronization( new TxCommitHook( tx ) );
                 registerTransactionEventHookIfNeeded();
+                writeConnectionCount.incrementAndGet();
                 txConnectionMap.put( tx, con );
             }
             catch ( javax.transaction.RollbackException re )
@@ -341,6 +379,7 @@ public class PersistenceManager
         ResourceConnection con = txConnectionMap.remove( tx );
         if ( con != null )
         {
+            writeConnectionCount.decrementAndGet();
             con.destroy();
         }
     }
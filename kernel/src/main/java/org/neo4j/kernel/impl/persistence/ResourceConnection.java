@@ -21,6 +21,7 @@ package org.neo4j.kernel.impl.persistence;
 
 import javax.transaction.xa.XAResource;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.kernel.impl.core.PropertyIndex;
 import org.neo4j.kernel.impl.nioneo.store.PropertyData;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexData;
@@ -70,6 +71,8 @@ public interface ResourceConnection
 
     public boolean nodeLoadLight( long id );
 
+    public void nodesLoadLight( long[] ids, boolean[] found );
+
     public Object loadPropertyValue( long id );
 
     public String loadIndex( int id );
@@ -84,6 +87,8 @@ public interface ResourceConnection
 
     public RelationshipData relLoadLight( long id );
 
+    public RelationshipData[] relsLoadLight( long[] ids );
+
     public RelationshipTypeData[] loadRelationshipTypes();
 
     public void createPropertyIndex( String key, int id );
@@ -93,7 +98,7 @@ public interface ResourceConnection
     public RelationshipChainPosition getRelationshipChainPosition( long nodeId );
 
     public Iterable<RelationshipData> getMoreRelationships( long nodeId,
-        RelationshipChainPosition position );
+        RelationshipChainPosition position, int[] typeIds, Direction direction );
 
     public RelIdArray getCreatedNodes();
 
@@ -101,5 +106,9 @@ public interface ResourceConnection
 
     public boolean isRelationshipCreated( long relId );
 
+    public int getNodeIdsInUse( long fromId, long toId, long[] ids );
+
+    public int getRelationshipIdsInUse( long fromId, long toId, long[] ids );
+
     public int getKeyIdForProperty( long propertyId );
 }
\ No newline at end of file
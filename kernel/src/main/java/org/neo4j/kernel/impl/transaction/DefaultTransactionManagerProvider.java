@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel.impl.transaction;
 
+import java.util.Map;
+
 import org.neo4j.helpers.Service;
 import org.neo4j.kernel.impl.core.KernelPanicEventGenerator;
 
@@ -36,4 +38,11 @@ public final class DefaultTransactionManagerProvider extends TransactionManagerP
     {
         return new TxManager( txLogDir, kpe, rollbackHook );
     }
+
+    @Override
+    protected AbstractTransactionManager loadTransactionManager( String txLogDir,
+            KernelPanicEventGenerator kpe, TxFinishHook rollbackHook, Map<?,?> config )
+    {
+        return new TxManager( txLogDir, kpe, rollbackHook, config );
+    }
 }
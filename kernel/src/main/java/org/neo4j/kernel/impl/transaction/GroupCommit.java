@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.neo4j.kernel.Config;
+
+/**
+ * Lets concurrent committers share one disk force. Each committer appends its
+ * record (while holding the log monitor) and registers it with
+ * {@link #append()}, then releases the monitor and calls
+ * {@link #awaitForced(long, Forceable)}. The first waiting thread becomes the
+ * leader, optionally waits for more records to arrive and then forces the log
+ * once on behalf of everyone appended so far. A committer never returns before
+ * a force that started after its record was appended has completed, so the
+ * durability guarantee is the same as forcing after every record.
+ */
+class GroupCommit
+{
+    static final int DEFAULT_MAX_BATCH_SIZE = 32;
+    static final long DEFAULT_MAX_WAIT_TIME = 0;
+
+    interface Forceable
+    {
+        void force() throws IOException;
+    }
+
+    private final int maxBatchSize;
+    private final long maxWaitTime;
+
+    private long appended = 0;
+    private long forced = 0;
+    private boolean forcing = false;
+    private long forceCount = 0;
+
+    /**
+     * @param maxBatchSize the leader forces as soon as this many records are
+     * waiting, even if {@code maxWaitTime} hasn't passed.
+     * @param maxWaitTime the maximum time in milliseconds the leader waits for
+     * more records before forcing, 0 means force right away.
+     */
+    GroupCommit( int maxBatchSize, long maxWaitTime )
+    {
+        if ( maxBatchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Illegal max batch size " +
+                maxBatchSize );
+        }
+        if ( maxWaitTime < 0 )
+        {
+            throw new IllegalArgumentException( "Illegal max wait time " +
+                maxWaitTime );
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitTime = maxWaitTime;
+    }
+
+    /**
+     * Returns a group commit if enabled with {@link Config#GROUP_COMMIT} in
+     * <CODE>config</CODE>, otherwise <CODE>null</CODE>.
+     */
+    static GroupCommit fromConfig( Map<?,?> config )
+    {
+        if ( config == null ||
+            !Boolean.parseBoolean( (String) config.get( Config.GROUP_COMMIT ) ) )
+        {
+            return null;
+        }
+        int batchSize = Integer.parseInt( (String) Config.getFromConfig( config,
+            Config.GROUP_COMMIT_MAX_BATCH_SIZE, "" + DEFAULT_MAX_BATCH_SIZE ) );
+        long waitTime = Long.parseLong( (String) Config.getFromConfig( config,
+            Config.GROUP_COMMIT_MAX_WAIT_TIME, "" + DEFAULT_MAX_WAIT_TIME ) );
+        return new GroupCommit( batchSize, waitTime );
+    }
+
+    /**
+     * Registers a record that has been written but not yet forced. Must be
+     * called while holding the same monitor as the write so that ticket order
+     * matches write order.
+     *
+     * @return the ticket to pass in to {@link #awaitForced(long, Forceable)}.
+     */
+    synchronized long append()
+    {
+        appended++;
+        if ( forcing || appended - forced >= maxBatchSize )
+        {
+            notifyAll();
+        }
+        return appended;
+    }
+
+    /**
+     * Marks everything appended so far as forced, used when the log has been
+     * forced by other means (for example when switching log file).
+     */
+    synchronized void markAllForced()
+    {
+        forced = appended;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until the record with the given ticket is forced, forcing
+     * <CODE>log</CODE> if no other thread is currently doing so.
+     */
+    void awaitForced( long ticket, Forceable log ) throws IOException
+    {
+        long target;
+        synchronized ( this )
+        {
+            while ( forced < ticket && forcing )
+            {
+                waitUninterruptibly( 0 );
+            }
+            if ( forced >= ticket )
+            {
+                return;
+            }
+            forcing = true;
+            if ( maxWaitTime > 0 )
+            {
+                long deadline = System.currentTimeMillis() + maxWaitTime;
+                long timeLeft = maxWaitTime;
+                while ( appended - forced < maxBatchSize && timeLeft > 0 )
+                {
+                    waitUninterruptibly( timeLeft );
+                    timeLeft = deadline - System.currentTimeMillis();
+                }
+            }
+            target = appended;
+        }
+        boolean success = false;
+        try
+        {
+            log.force();
+            success = true;
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                forcing = false;
+                if ( success )
+                {
+                    forceCount++;
+                    if ( target > forced )
+                    {
+                        forced = target;
+                    }
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void waitUninterruptibly( long millis )
+    {
+        try
+        {
+            wait( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Returns the number of forces performed by this group commit.
+     */
+    synchronized long getForceCount()
+    {
+        return forceCount;
+    }
+
+    /**
+     * Returns the number of records that has been registered with
+     * {@link #append()}.
+     */
+    synchronized long getAppendCount()
+    {
+        return appended;
+    }
+}
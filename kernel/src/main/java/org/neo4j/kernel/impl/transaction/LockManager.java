@@ -19,9 +19,9 @@
  */
 package org.neo4j.kernel.impl.transaction;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
@@ -44,14 +44,24 @@ import org.neo4j.kernel.DeadlockDetectedException;
  * <p>
  * LockManager just maps locks to resources and they do all the hard work
  * together with a resource allocation graph.
+ * <p>
+ * The lock table is striped by resource hash and looking up a lock doesn't
+ * block, so transactions locking different resources never synchronize on
+ * anything shared. Deadlock detection only happens when a transaction has to
+ * wait for a lock.
  */
 public class LockManager
 {
-    private final Map<Object,RWLock> resourceLockMap =
-        new HashMap<Object,RWLock>();
+    private static final int LOCK_TABLE_STRIPES =
+        Runtime.getRuntime().availableProcessors() * 4;
+
+    private final ConcurrentMap<Object,RWLock> resourceLockMap =
+        new ConcurrentHashMap<Object,RWLock>( 1024, 0.75f, LOCK_TABLE_STRIPES );
 
     private final RagManager ragManager;
 
+    private final LockWaitStatistics waitStatistics = new LockWaitStatistics();
+
     public LockManager( TransactionManager tm )
     {
         ragManager = new RagManager( tm );
@@ -62,6 +72,68 @@ public class LockManager
         return ragManager.getDeadlockCount();
     }
 
+    /**
+     * Returns the number of times a transaction has had to wait for a lock
+     * held by some other transaction.
+     */
+    public long getLockWaitCount()
+    {
+        return waitStatistics.getWaitCount();
+    }
+
+    /**
+     * Returns the total time, in milliseconds, transactions have waited for
+     * locks.
+     */
+    public long getTotalLockWaitTime()
+    {
+        return waitStatistics.getTotalWaitTime();
+    }
+
+    /**
+     * Returns the longest time, in milliseconds, a transaction has waited for
+     * a lock.
+     */
+    public long getMaxLockWaitTime()
+    {
+        return waitStatistics.getMaxWaitTime();
+    }
+
+    /**
+     * Returns the number of lock waits shorter than each of
+     * {@link #getLockWaitTimeHistogramBounds()}, with the waits longer than
+     * all the bounds last. Each wait is counted once, in the bucket of the
+     * lowest bound it is shorter than.
+     */
+    public long[] getLockWaitTimeHistogram()
+    {
+        return waitStatistics.getHistogram();
+    }
+
+    /**
+     * Returns the upper bounds, in milliseconds, of the buckets in
+     * {@link #getLockWaitTimeHistogram()}.
+     */
+    public long[] getLockWaitTimeHistogramBounds()
+    {
+        return LockWaitStatistics.HISTOGRAM_BOUNDS_MILLIS.clone();
+    }
+
+    private RWLock getLockFor( Object resource )
+    {
+        RWLock lock = resourceLockMap.get( resource );
+        if ( lock == null )
+        {
+            RWLock newLock = new RWLock( resource, ragManager, waitStatistics );
+            lock = resourceLockMap.putIfAbsent( resource, newLock );
+            if ( lock == null )
+            {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
     /**
      * Tries to acquire read lock on <CODE>resource</CODE> for the current
      * transaction. If read lock can't be acquired the transaction will wait for
@@ -82,18 +154,13 @@ public class LockManager
             throw new IllegalResourceException( "Null parameter" );
         }
 
-        RWLock lock = null;
-        synchronized ( resourceLockMap )
+        RWLock lock = getLockFor( resource );
+        while ( !lock.acquireReadLock() )
         {
-            lock = resourceLockMap.get( resource );
-            if ( lock == null )
-            {
-                lock = new RWLock( resource, ragManager );
-                resourceLockMap.put( resource, lock );
-            }
-            lock.mark();
+            // lock was released and removed since we looked it up
+            resourceLockMap.remove( resource, lock );
+            lock = getLockFor( resource );
         }
-        lock.acquireReadLock();
     }
 
     /**
@@ -116,18 +183,13 @@ public class LockManager
             throw new IllegalResourceException( "Null parameter" );
         }
 
-        RWLock lock = null;
-        synchronized ( resourceLockMap )
+        RWLock lock = getLockFor( resource );
+        while ( !lock.acquireWriteLock() )
         {
-            lock = resourceLockMap.get( resource );
-            if ( lock == null )
-            {
-                lock = new RWLock( resource, ragManager );
-                resourceLockMap.put( resource, lock );
-            }
-            lock.mark();
+            // lock was released and removed since we looked it up
+            resourceLockMap.remove( resource, lock );
+            lock = getLockFor( resource );
         }
-        lock.acquireWriteLock();
     }
 
     /**
@@ -148,22 +210,15 @@ public class LockManager
             throw new IllegalResourceException( "Null parameter" );
         }
 
-        RWLock lock = null;
-        synchronized ( resourceLockMap )
+        RWLock lock = resourceLockMap.get( resource );
+        if ( lock == null )
         {
-            lock = resourceLockMap.get( resource );
-            if ( lock == null )
-            {
-                throw new LockNotFoundException( "Lock not found for: "
-                    + resource );
-            }
-            if ( !lock.isMarked() && lock.getReadCount() == 1 &&
-                lock.getWriteCount() == 0 &&
-                lock.getWaitingThreadsCount() == 0 )
-            {
-                resourceLockMap.remove( resource );
-            }
-            lock.releaseReadLock(tx);
+            throw new LockNotFoundException( "Lock not found for: "
+                + resource );
+        }
+        if ( lock.releaseReadLock( tx ) )
+        {
+            resourceLockMap.remove( resource, lock );
         }
     }
 
@@ -185,24 +240,16 @@ public class LockManager
             throw new IllegalResourceException( "Null parameter" );
         }
 
-        RWLock lock = null;
-        synchronized ( resourceLockMap )
+        RWLock lock = resourceLockMap.get( resource );
+        if ( lock == null )
         {
-            lock = resourceLockMap.get( resource );
-            if ( lock == null )
-            {
-                throw new LockNotFoundException( "Lock not found for: "
-                    + resource );
-            }
-            if ( !lock.isMarked() && lock.getReadCount() == 0 &&
-                lock.getWriteCount() == 1 &&
-                lock.getWaitingThreadsCount() == 0 )
-            {
-                resourceLockMap.remove( resource );
-            }
-            lock.releaseWriteLock(tx);
+            throw new LockNotFoundException( "Lock not found for: "
+                + resource );
+        }
+        if ( lock.releaseWriteLock( tx ) )
+        {
+            resourceLockMap.remove( resource, lock );
         }
-
     }
 
     /**
@@ -213,15 +260,11 @@ public class LockManager
      */
     public void dumpLocksOnResource( Object resource )
     {
-        RWLock lock = null;
-        synchronized ( resourceLockMap )
+        RWLock lock = resourceLockMap.get( resource );
+        if ( lock == null )
         {
-            if ( !resourceLockMap.containsKey( resource ) )
-            {
-                System.out.println( "No locks on " + resource );
-                return;
-            }
-            lock = resourceLockMap.get( resource );
+            System.out.println( "No locks on " + resource );
+            return;
         }
         lock.dumpStack();
     }
@@ -240,35 +283,32 @@ public class LockManager
      */
     public void dumpAllLocks()
     {
-        synchronized ( resourceLockMap )
+        Iterator<RWLock> itr = resourceLockMap.values().iterator();
+        int emptyLockCount = 0;
+        while ( itr.hasNext() )
         {
-            Iterator<RWLock> itr = resourceLockMap.values().iterator();
-            int emptyLockCount = 0;
-            while ( itr.hasNext() )
-            {
-                RWLock lock = itr.next();
-                if ( lock.getWriteCount() > 0 || lock.getReadCount() > 0 )
-                {
-                    lock.dumpStack();
-                }
-                else
-                {
-                    if ( lock.getWaitingThreadsCount() > 0 )
-                    {
-                        lock.dumpStack();
-                    }
-                    emptyLockCount++;
-                }
-            }
-            if ( emptyLockCount > 0 )
+            RWLock lock = itr.next();
+            if ( lock.getWriteCount() > 0 || lock.getReadCount() > 0 )
             {
-                System.out.println( "There are " + emptyLockCount
-                    + " empty locks" );
+                lock.dumpStack();
             }
             else
             {
-                System.out.println( "There are no empty locks" );
+                if ( lock.getWaitingThreadsCount() > 0 )
+                {
+                    lock.dumpStack();
+                }
+                emptyLockCount++;
             }
         }
+        if ( emptyLockCount > 0 )
+        {
+            System.out.println( "There are " + emptyLockCount
+                + " empty locks" );
+        }
+        else
+        {
+            System.out.println( "There are no empty locks" );
+        }
     }
 }
\ No newline at end of file
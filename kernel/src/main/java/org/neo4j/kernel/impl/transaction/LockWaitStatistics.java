@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps track of how often and for how long transactions have had to wait
+ * for locks held by other transactions. Only acquires that actually waited
+ * are recorded so the uncontended lock path doesn't touch any of this.
+ * <p>
+ * Wait times are also counted in a histogram where bucket <CODE>i</CODE>
+ * holds waits shorter than <CODE>HISTOGRAM_BOUNDS_MILLIS[i]</CODE> (and not
+ * shorter than the bound before it). The last bucket holds all waits longer
+ * than the highest bound.
+ */
+class LockWaitStatistics
+{
+    static final long[] HISTOGRAM_BOUNDS_MILLIS = { 1, 10, 100, 1000 };
+
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLongArray histogram =
+        new AtomicLongArray( HISTOGRAM_BOUNDS_MILLIS.length + 1 );
+
+    void waited( long nanos )
+    {
+        waitCount.incrementAndGet();
+        totalWaitNanos.addAndGet( nanos );
+        long max = maxWaitNanos.get();
+        while ( nanos > max && !maxWaitNanos.compareAndSet( max, nanos ) )
+        {
+            max = maxWaitNanos.get();
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis( nanos );
+        int bucket = 0;
+        while ( bucket < HISTOGRAM_BOUNDS_MILLIS.length &&
+            millis >= HISTOGRAM_BOUNDS_MILLIS[bucket] )
+        {
+            bucket++;
+        }
+        histogram.incrementAndGet( bucket );
+    }
+
+    long getWaitCount()
+    {
+        return waitCount.get();
+    }
+
+    long getTotalWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( totalWaitNanos.get() );
+    }
+
+    long getMaxWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( maxWaitNanos.get() );
+    }
+
+    long[] getHistogram()
+    {
+        long[] result = new long[histogram.length()];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = histogram.get( i );
+        }
+        return result;
+    }
+}
@@ -53,12 +53,18 @@ import org.neo4j.kernel.impl.util.ArrayMap;
  * the queue is checked for waiting txs. This implementation tries to avoid lock
  * starvation and increase performance since only waiting txs that can acquire
  * the lock are notified.
+ * <p>
+ * Once a lock has been released by all transactions and no one is about to
+ * acquire it, it is flagged as removed and {@link LockManager} drops it from
+ * its lock table. A removed lock can't be acquired, the acquire methods
+ * return <CODE>false</CODE> to tell the caller to look the lock up again.
  */
 class RWLock
 {
     private int writeCount = 0; // total writeCount
     private int readCount = 0; // total readCount
-    private int marked = 0; // synch helper in LockManager
+    private int marked = 0; // number of txs acquiring or waiting for this lock
+    private boolean removed = false; // removed from lock table in LockManager
 
     private final Object resource; // the resource for this RWLock
 
@@ -68,12 +74,21 @@ class RWLock
     private final ArrayMap<Transaction,TxLockElement> txLockElementMap = 
         new ArrayMap<Transaction,TxLockElement>( 5, false, true );
 
+    // txs having a read or write lock, read without synchronization when
+    // checking for deadlocks so it is replaced rather than modified
+    private volatile Transaction[] lockingTxs = NO_TRANSACTIONS;
+
+    private static final Transaction[] NO_TRANSACTIONS = new Transaction[0];
+
     private final RagManager ragManager;
+    private final LockWaitStatistics waitStatistics;
 
-    RWLock( Object resource, RagManager ragManager )
+    RWLock( Object resource, RagManager ragManager,
+        LockWaitStatistics waitStatistics )
     {
         this.resource = resource;
         this.ragManager = ragManager;
+        this.waitStatistics = waitStatistics;
     }
 
     // keeps track of a transactions read and write lock count on this RWLock
@@ -104,14 +119,57 @@ class RWLock
         }
     }
 
-    synchronized void mark()
+    Object getResource()
+    {
+        return resource;
+    }
+
+    /**
+     * Returns the transactions currently having a read or write lock on this
+     * lock. Doesn't synchronize on this lock so it may be invoked while
+     * holding the monitor of another lock.
+     */
+    Transaction[] getLockingTransactions()
+    {
+        return lockingTxs;
+    }
+
+    private void addLockingTransaction( Transaction tx )
+    {
+        Transaction[] oldTxs = lockingTxs;
+        Transaction[] newTxs = new Transaction[oldTxs.length + 1];
+        System.arraycopy( oldTxs, 0, newTxs, 0, oldTxs.length );
+        newTxs[oldTxs.length] = tx;
+        lockingTxs = newTxs;
+    }
+
+    private void removeLockingTransaction( Transaction tx )
     {
-        this.marked++;
+        Transaction[] oldTxs = lockingTxs;
+        for ( int i = 0; i < oldTxs.length; i++ )
+        {
+            if ( oldTxs[i].equals( tx ) )
+            {
+                Transaction[] newTxs = new Transaction[oldTxs.length - 1];
+                System.arraycopy( oldTxs, 0, newTxs, 0, i );
+                System.arraycopy( oldTxs, i + 1, newTxs, i,
+                    newTxs.length - i );
+                lockingTxs = newTxs;
+                return;
+            }
+        }
+        throw new LockException( tx + " not found in locking tx list" );
     }
 
-    synchronized boolean isMarked()
+    // flags this lock as removed if no tx has or is about to acquire it
+    private boolean removeIfUnused()
     {
-        return marked > 0;
+        if ( marked == 0 && readCount == 0 && writeCount == 0 &&
+            waitingThreadList.isEmpty() )
+        {
+            removed = true;
+        }
+        return removed;
     }
 
     /**
@@ -123,11 +181,18 @@ class RWLock
      * If the lock can be acquires the lock count is updated on <CODE>this</CODE>
      * and the transaction lock element (tle).
      * 
+     * @return <CODE>false</CODE> if this lock has been removed and must be
+     *         looked up again, otherwise <CODE>true</CODE>
      * @throws DeadlockDetectedException
      *             if a deadlock is detected
      */
-    synchronized void acquireReadLock() throws DeadlockDetectedException
+    synchronized boolean acquireReadLock() throws DeadlockDetectedException
     {
+        if ( removed )
+        {
+            return false;
+        }
+        marked++;
         Transaction tx = ragManager.getCurrentTransaction();
         if ( tx == null )
         {
@@ -139,11 +204,16 @@ class RWLock
             tle = new TxLockElement( tx );
         }
 
+        long waitStart = 0;
         try
         {
             while ( writeCount > tle.writeCount )
             {
                 ragManager.checkWaitOn( this, tx );
+                if ( waitStart == 0 )
+                {
+                    waitStart = System.nanoTime();
+                }
                 waitingThreadList.addFirst( new WaitElement( tle,
                     LockType.READ, Thread.currentThread() ) );
                 try
@@ -157,14 +227,19 @@ class RWLock
                 ragManager.stopWaitOn( this, tx );
             }
 
+            if ( waitStart != 0 )
+            {
+                waitStatistics.waited( System.nanoTime() - waitStart );
+            }
             if ( tle.readCount == 0 && tle.writeCount == 0 )
             {
-                ragManager.lockAcquired( this, tx );
+                addLockingTransaction( tx );
             }
             readCount++;
             tle.readCount++;
             // TODO: this put could be optimized?
             txLockElementMap.put( tx, tle );
+            return true;
         }
         finally
         {
@@ -181,8 +256,11 @@ class RWLock
 	 * not necessarily available through the tm. If there are waiting
 	 * transactions in the queue they will be interrupted if they can acquire
 	 * the lock.
+	 * 
+	 * @return <CODE>true</CODE> if this lock is no longer used and has been
+	 *         flagged as removed
 	 */
-    synchronized void releaseReadLock(Transaction tx) throws LockNotFoundException
+    synchronized boolean releaseReadLock(Transaction tx) throws LockNotFoundException
     {
         if ( tx == null && (tx = ragManager.getCurrentTransaction()) == null )
         {
@@ -204,11 +282,11 @@ class RWLock
         tle.readCount--;
         if ( tle.readCount == 0 && tle.writeCount == 0 )
         {
-            if ( !this.isMarked() )
+            if ( marked == 0 )
             {
                 txLockElementMap.remove( tx );
             }
-            ragManager.lockReleased( this, tx );
+            removeLockingTransaction( tx );
         }
         if ( waitingThreadList.size() > 0 )
         {
@@ -268,6 +346,7 @@ class RWLock
                 }
             }
         }
+        return removeIfUnused();
     }
 
     /**
@@ -280,11 +359,18 @@ class RWLock
      * If the lock can be acquires the lock count is updated on <CODE>this</CODE>
      * and the transaction lock element (tle).
      * 
+     * @return <CODE>false</CODE> if this lock has been removed and must be
+     *         looked up again, otherwise <CODE>true</CODE>
      * @throws DeadlockDetectedException
      *             if a deadlock is detected
      */
-    synchronized void acquireWriteLock() throws DeadlockDetectedException
+    synchronized boolean acquireWriteLock() throws DeadlockDetectedException
     {
+        if ( removed )
+        {
+            return false;
+        }
+        marked++;
         Transaction tx = ragManager.getCurrentTransaction();
         if ( tx == null )
         {
@@ -296,11 +382,16 @@ class RWLock
             tle = new TxLockElement( tx );
         }
 
+        long waitStart = 0;
         try
         {
             while ( writeCount > tle.writeCount || readCount > tle.readCount )
             {
                 ragManager.checkWaitOn( this, tx );
+                if ( waitStart == 0 )
+                {
+                    waitStart = System.nanoTime();
+                }
                 waitingThreadList.addFirst( new WaitElement( tle,
                     LockType.WRITE, Thread.currentThread() ) );
                 try
@@ -314,14 +405,19 @@ class RWLock
                 ragManager.stopWaitOn( this, tx );
             }
 
+            if ( waitStart != 0 )
+            {
+                waitStatistics.waited( System.nanoTime() - waitStart );
+            }
             if ( tle.readCount == 0 && tle.writeCount == 0 )
             {
-                ragManager.lockAcquired( this, tx );
+                addLockingTransaction( tx );
             }
             writeCount++;
             tle.writeCount++;
             // TODO optimize this put?
             txLockElementMap.put( tx, tle );
+            return true;
         }
         finally
         {
@@ -338,8 +434,11 @@ class RWLock
 	 * necessarily available. If write count is zero and there are waiting
 	 * transactions in the queue they will be interrupted if they can acquire
 	 * the lock.
+	 * 
+	 * @return <CODE>true</CODE> if this lock is no longer used and has been
+	 *         flagged as removed
 	 */
-    synchronized void releaseWriteLock(Transaction tx) throws LockNotFoundException
+    synchronized boolean releaseWriteLock(Transaction tx) throws LockNotFoundException
     {
         if ( tx == null && (tx = ragManager.getCurrentTransaction()) == null )
         {
@@ -361,11 +460,11 @@ class RWLock
         tle.writeCount--;
         if ( tle.readCount == 0 && tle.writeCount == 0 )
         {
-            if ( !this.isMarked() )
+            if ( marked == 0 )
             {
                 txLockElementMap.remove( tx );
             }
-            ragManager.lockReleased( this, tx );
+            removeLockingTransaction( tx );
         }
 
         // the threads in the waitingList cannot be currentThread
@@ -388,6 +487,7 @@ class RWLock
             }
             while ( waitingThreadList.size() > 0 );
         }
+        return removeIfUnused();
     }
 
     int getWriteCount()
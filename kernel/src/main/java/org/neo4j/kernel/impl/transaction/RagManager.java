@@ -19,12 +19,12 @@
  */
 package org.neo4j.kernel.impl.transaction;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.transaction.SystemException;
@@ -33,15 +33,14 @@ import javax.transaction.TransactionManager;
 
 import org.neo4j.graphdb.TransactionFailureException;
 import org.neo4j.kernel.DeadlockDetectedException;
-import org.neo4j.kernel.impl.util.ArrayMap;
 
 /**
  * The Resource Allocation Graph manager is used for deadlock detection. It
- * keeps track of all locked resources and transactions waiting for resources.
- * When a {@link RWLock} cannot give the lock to a transaction the tx has to
- * wait and that may lead to a deadlock. So before the tx is put into wait mode
- * the {@link RagManager#checkWaitOn} method is invoked to check if a wait of
- * this transaction will lead to a deadlock.
+ * keeps track of all transactions waiting for resources. When a
+ * {@link RWLock} cannot give the lock to a transaction the tx has to wait and
+ * that may lead to a deadlock. So before the tx is put into wait mode the
+ * {@link RagManager#checkWaitOn} method is invoked to check if a wait of this
+ * transaction will lead to a deadlock.
  * <p>
  * The <CODE>checkWaitOn</CODE> throws a {@link DeadlockDetectedException} if
  * a deadlock would occur when the transaction would wait for the resource. That
@@ -56,6 +55,14 @@ import org.neo4j.kernel.impl.util.ArrayMap;
  * traverse node nodespace starting on the resource and see if we can get back
  * to the tx ( T1 wants to wait on R1 and R1->T2->R2->T3->R8->T1 <==>
  * deadlock!).
+ * <p>
+ * The R->T relationships are kept by each {@link RWLock} itself (see
+ * {@link RWLock#getLockingTransactions()}) so acquiring and releasing locks
+ * never touches the RagManager. Only the T->R relationships are kept here,
+ * which means the graph is only looked at when a transaction actually has to
+ * wait. Deadlock checks are serialized with each other, so of two
+ * transactions closing a cycle at the same time the last one to check will
+ * see the wait of the other.
  */
 class RagManager
 {
@@ -63,21 +70,18 @@ class RagManager
     // RWLock class hasn't kept the contract to the RagManager
     // The contract is:
     // o When a transaction gets a lock on a resource and both the readCount and
-    // writeCount for that transaction on the resource was 0
-    // RagManager.lockAcquired( resource ) must be invoked
+    // writeCount for that transaction on the resource was 0 the transaction
+    // must be added to the locking transactions of the RWLock
     // o When a tx releases a lock on a resource and both the readCount and
-    // writeCount for that transaction on the resource goes down to zero
-    // RagManager.lockReleased( resource ) must be invoked
-    // o After invoke to the checkWaitOn( resource ) method that didn't result
+    // writeCount for that transaction on the resource goes down to zero the
+    // transaction must be removed from the locking transactions of the RWLock
+    // o After invoke to the checkWaitOn( lock ) method that didn't result
     // in a DeadlockDetectedException the transaction must wait
     // o When the transaction wakes up from waiting on a resource the
-    // stopWaitOn( resource ) method must be invoked
-
-    private final Map<Object,List<Transaction>> resourceMap =
-        new HashMap<Object,List<Transaction>>();
+    // stopWaitOn( lock ) method must be invoked
 
-    private final ArrayMap<Transaction,Object> waitingTxMap =
-        new ArrayMap<Transaction,Object>( 5, false, true );
+    private final Map<Transaction,RWLock> waitingTxMap =
+        new ConcurrentHashMap<Transaction,RWLock>();
 
     private final TransactionManager tm;
 
@@ -93,72 +97,29 @@ class RagManager
         return deadlockCount.longValue();
     }
 
-    synchronized void lockAcquired( Object resource, Transaction tx )
-    {
-        List<Transaction> lockingTxList = resourceMap.get( resource );
-        if ( lockingTxList != null )
-        {
-            assert !lockingTxList.contains( tx );
-            lockingTxList.add( tx );
-        }
-        else
-        {
-            lockingTxList = new LinkedList<Transaction>();
-            lockingTxList.add( tx );
-            resourceMap.put( resource, lockingTxList );
-        }
-    }
-
-    synchronized void lockReleased( Object resource, Transaction tx )
-    {
-        List<Transaction> lockingTxList = resourceMap.get( resource );
-        if ( lockingTxList == null )
-        {
-            throw new LockException( resource + " not found in resource map" );
-        }
-
-        if ( !lockingTxList.remove( tx ) )
-        {
-            throw new LockException( tx + "not found in locking tx list" );
-        }
-        if ( lockingTxList.size() == 0 )
-        {
-            resourceMap.remove( resource );
-        }
-    }
-
-    synchronized void stopWaitOn( Object resource, Transaction tx )
+    void stopWaitOn( RWLock lock, Transaction tx )
     {
         if ( waitingTxMap.remove( tx ) == null )
         {
-            throw new LockException( tx + " not waiting on " + resource );
+            throw new LockException( tx + " not waiting on " + lock );
         }
     }
 
     // after invoke the transaction must wait on the resource
-    synchronized void checkWaitOn( Object resource, Transaction tx )
+    synchronized void checkWaitOn( RWLock lock, Transaction tx )
         throws DeadlockDetectedException
     {
-        List<Transaction> lockingTxList = resourceMap.get( resource );
-        if ( lockingTxList == null )
-        {
-            throw new LockException( "Illegal resource[" + resource
-                + "], not found in map" );
-        }
-
         if ( waitingTxMap.get( tx ) != null )
         {
             throw new LockException( tx + " already waiting for resource" );
         }
 
-        Iterator<Transaction> itr = lockingTxList.iterator();
         List<Transaction> checkedTransactions = new LinkedList<Transaction>();
         Stack<Object> graphStack = new Stack<Object>();
         // has resource,transaction interleaved
-        graphStack.push( resource );
-        while ( itr.hasNext() )
+        graphStack.push( lock.getResource() );
+        for ( Transaction lockingTx : lock.getLockingTransactions() )
         {
-            Transaction lockingTx = itr.next();
             // the if statement bellow is valid because:
             // t1 -> r1 -> t1 (can happened with RW locks) is ok but,
             // t1 -> r1 -> t1&t2 where t2 -> r1 is a deadlock
@@ -189,10 +150,10 @@ class RagManager
         }
 
         // ok no deadlock, we can wait on resource
-        waitingTxMap.put( tx, resource );
+        waitingTxMap.put( tx, lock );
     }
 
-    private synchronized void checkWaitOnRecursive( Transaction lockingTx,
+    private void checkWaitOnRecursive( Transaction lockingTx,
         Transaction waitingTx, List<Transaction> checkedTransactions,
         Stack<Object> graphStack ) throws DeadlockDetectedException
     {
@@ -220,34 +181,27 @@ class RagManager
                 " can't wait on resource " + resource + " since => " + circle );
         }
         checkedTransactions.add( lockingTx );
-        Object resource = waitingTxMap.get( lockingTx );
-        if ( resource != null )
+        RWLock lock = waitingTxMap.get( lockingTx );
+        if ( lock != null )
         {
-            graphStack.push( resource );
-            // if the resource doesn't exist in resorceMap that means all the
+            graphStack.push( lock.getResource() );
+            // if the lock has no locking transactions that means all the
             // locks on the resource has been released
             // it is possible when this tx was in RWLock.acquire and
             // saw it had to wait for the lock the scheduler changes to some
-            // other tx that will release the locks on the resource and
-            // remove it from the map
+            // other tx that will release the locks on the resource
             // this is ok since current tx or any other tx will wake
             // in the synchronized block and will be forced to do the deadlock
             // check once more if lock cannot be acquired
-            List<Transaction> lockingTxList = resourceMap.get( resource );
-            if ( lockingTxList != null )
+            for ( Transaction tx : lock.getLockingTransactions() )
             {
-                Iterator<Transaction> itr = lockingTxList.iterator();
-                while ( itr.hasNext() )
+                // so we don't
+                if ( !checkedTransactions.contains( tx ) )
                 {
-                    lockingTx = itr.next();
-                    // so we don't
-                    if ( !checkedTransactions.contains( lockingTx ) )
-                    {
-                        graphStack.push( lockingTx );
-                        checkWaitOnRecursive( lockingTx, waitingTx,
-                            checkedTransactions, graphStack );
-                        graphStack.pop();
-                    }
+                    graphStack.push( tx );
+                    checkWaitOnRecursive( tx, waitingTx,
+                        checkedTransactions, graphStack );
+                    graphStack.pop();
                 }
             }
             graphStack.pop();
@@ -257,8 +211,9 @@ class RagManager
     synchronized void dumpStack()
     {
         System.out.print( "Waiting list: " );
-        Iterator<Transaction> transactions = waitingTxMap.keySet().iterator();
-        if ( !transactions.hasNext() )
+        Iterator<Map.Entry<Transaction,RWLock>> entries =
+            waitingTxMap.entrySet().iterator();
+        if ( !entries.hasNext() )
         {
             System.out.println( "No transactions waiting on resources" );
         }
@@ -266,34 +221,21 @@ class RagManager
         {
             System.out.println();
         }
-        while ( transactions.hasNext() )
-        {
-            Transaction tx = transactions.next();
-            System.out.println( "" + tx + "->" + waitingTxMap.get( tx ) );
-        }
-        System.out.print( "Resource lock list: " );
-        Iterator<?> resources = resourceMap.keySet().iterator();
-        if ( !resources.hasNext() )
-        {
-            System.out.println( "No locked resources found" );
-        }
-        else
-        {
-            System.out.println();
-        }
-        while ( resources.hasNext() )
+        while ( entries.hasNext() )
         {
-            Object resource = resources.next();
-            System.out.print( "" + resource + "->" );
-            Iterator<Transaction> itr = resourceMap.get( resource ).iterator();
-            if ( !itr.hasNext() )
+            Map.Entry<Transaction,RWLock> entry = entries.next();
+            RWLock lock = entry.getValue();
+            System.out.print( "" + entry.getKey() + "->" + lock.getResource()
+                + "->" );
+            Transaction[] lockingTxs = lock.getLockingTransactions();
+            if ( lockingTxs.length == 0 )
             {
-                System.out.println( " Error empty list found" );
+                System.out.println( " No locking transactions" );
             }
-            while ( itr.hasNext() )
+            for ( int i = 0; i < lockingTxs.length; i++ )
             {
-                System.out.print( "" + itr.next() );
-                if ( itr.hasNext() )
+                System.out.print( "" + lockingTxs[i] );
+                if ( i < lockingTxs.length - 1 )
                 {
                     System.out.print( "," );
                 }
@@ -18,6 +18,8 @@
  * along with this program. If not, see <http://www.gnu.org/licenses/>.
  */
 package org.neo4j.kernel.impl.transaction;
+import java.util.Map;
+
 import org.neo4j.helpers.Service;
 import org.neo4j.kernel.impl.core.KernelPanicEventGenerator;
 
@@ -41,4 +43,15 @@ public abstract class TransactionManagerProvider extends Service
 
     protected abstract AbstractTransactionManager loadTransactionManager( String txLogDir,
             KernelPanicEventGenerator kpe, TxFinishHook rollbackHook );
+
+    /**
+     * Loads the transaction manager given the configuration of the database.
+     * Providers that can be configured override this method, the default
+     * implementation ignores the configuration.
+     */
+    protected AbstractTransactionManager loadTransactionManager( String txLogDir,
+            KernelPanicEventGenerator kpe, TxFinishHook rollbackHook, Map<?,?> config )
+    {
+        return loadTransactionManager( txLogDir, kpe, rollbackHook );
+    }
 }
@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.transaction;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -38,7 +39,6 @@ import org.neo4j.helpers.UTF8;
 
 // TODO: fixed sized logs (pre-initialize them)
 // keep dangling records in memory for log switch
-// batch disk forces
 /**
  * This class is made public for testing purposes only, do not use.
  * <p>
@@ -52,6 +52,14 @@ public class TxLog
     private FileChannel fileChannel = null;
     private ByteBuffer buffer = null;
     private int recordCount = 0;
+    private final GroupCommit groupCommit;
+    private final GroupCommit.Forceable forceable = new GroupCommit.Forceable()
+    {
+        public void force() throws IOException
+        {
+            forceCommitted();
+        }
+    };
 
     public static final byte TX_START = 1;
     public static final byte BRANCH_ADD = 2;
@@ -70,6 +78,25 @@ public class TxLog
      */
     public TxLog( String fileName ) throws IOException
     {
+        this( fileName, null );
+    }
+
+    /**
+     * Initializes a transaction log using <CODE>filename</CODE> where
+     * {@link #markAsCommitting(byte[])} forces are shared between concurrent
+     * committers using <CODE>groupCommit</CODE>.
+     * 
+     * @param fileName
+     *            Filename of file to use
+     * @param groupCommit
+     *            The group commit to use or <CODE>null</CODE> to force every
+     *            <CODE>MARK_COMMIT</CODE> record on its own
+     * @throws IOException
+     *             If unable to open file
+     */
+    TxLog( String fileName, GroupCommit groupCommit ) throws IOException
+    {
+        this.groupCommit = groupCommit;
         if ( fileName == null )
         {
             throw new IllegalArgumentException( "Null filename" );
@@ -178,7 +205,9 @@ public class TxLog
 
     /**
      * Writes a <CODE>MARK_COMMIT</CODE> record to the file and forces the
-     * file to disk.
+     * file to disk. If this log was created with a {@link GroupCommit} the
+     * force may be shared with other concurrent committers, but this method
+     * will not return before the record has been forced.
      * 
      * @param globalId
      *            The global id of the transaction
@@ -187,7 +216,27 @@ public class TxLog
      */
     // mark_committing(byte)|gid_length(byte)|globalId
     // forces
-    public synchronized void markAsCommitting( byte globalId[] )
+    public void markAsCommitting( byte globalId[] ) throws IOException
+    {
+        if ( groupCommit == null )
+        {
+            synchronized ( this )
+            {
+                writeMarkAsCommitting( globalId );
+                fileChannel.force( false );
+            }
+            return;
+        }
+        long ticket;
+        synchronized ( this )
+        {
+            writeMarkAsCommitting( globalId );
+            ticket = groupCommit.append();
+        }
+        groupCommit.awaitForced( ticket, forceable );
+    }
+
+    private synchronized void writeMarkAsCommitting( byte globalId[] )
         throws IOException
     {
         if ( globalId == null )
@@ -198,10 +247,35 @@ public class TxLog
         buffer.put( MARK_COMMIT ).put( (byte) globalId.length ).put( globalId );
         buffer.flip();
         fileChannel.write( buffer );
-        fileChannel.force( false );
         recordCount++;
     }
 
+    // called by the group commit leader without holding the monitor so that
+    // other records can be appended while the force is in progress
+    private void forceCommitted() throws IOException
+    {
+        FileChannel channel;
+        synchronized ( this )
+        {
+            channel = fileChannel;
+        }
+        try
+        {
+            channel.force( false );
+        }
+        catch ( ClosedChannelException e )
+        {
+            synchronized ( this )
+            {
+                // switchToLogFile forces the old log before closing it
+                if ( channel == fileChannel )
+                {
+                    throw e;
+                }
+            }
+        }
+    }
+
     /**
      * Writes a <CODE>TX_DONE</CODE> record to the file.
      * 
@@ -288,7 +362,8 @@ public class TxLog
         }
         else if ( record.getType() == MARK_COMMIT )
         {
-            markAsCommitting( record.getGlobalId() );
+            // the whole log is forced once all records are written
+            writeMarkAsCommitting( record.getGlobalId() );
         }
         else
         {
@@ -452,6 +527,10 @@ public class TxLog
         }
         // copy all dangling records from current log to new log
         force();
+        if ( groupCommit != null )
+        {
+            groupCommit.markAllForced();
+        }
         Iterator<List<Record>> itr = getDanglingRecords();
         close();
         List<Record> records = new ArrayList<Record>();
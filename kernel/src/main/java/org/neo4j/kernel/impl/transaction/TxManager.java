@@ -88,8 +88,17 @@ public class TxManager extends AbstractTransactionManager
 
     final TxFinishHook finishHook;
 
+    private final GroupCommit groupCommit;
+
     TxManager( String txLogDir, KernelPanicEventGenerator kpe, TxFinishHook finishHook )
     {
+        this( txLogDir, kpe, finishHook, null );
+    }
+
+    TxManager( String txLogDir, KernelPanicEventGenerator kpe,
+        TxFinishHook finishHook, Map<?,?> config )
+    {
+        this.groupCommit = GroupCommit.fromConfig( config );
         this.txLogDir = txLogDir;
         this.msgLog = StringLogger.getLogger( txLogDir );
         this.kpe = kpe;
@@ -144,7 +153,7 @@ public class TxManager extends AbstractTransactionManager
                         "Unable to start TM, " + "active tx log file[" + 
                         currentTxLog + "] not found." );
                 }
-                txLog = new TxLog( currentTxLog );
+                txLog = new TxLog( currentTxLog, groupCommit );
                 msgLog.logMessage( "TM opening log: " + currentTxLog, true );
             }
             else
@@ -165,7 +174,8 @@ public class TxManager extends AbstractTransactionManager
                 FileChannel fc = new RandomAccessFile( logSwitcherFileName,
                     "rw" ).getChannel();
                 fc.write( buf );
-                txLog = new TxLog( txLogDir + separator + txLog1FileName );
+                txLog = new TxLog( txLogDir + separator + txLog1FileName,
+                    groupCommit );
                 msgLog.logMessage( "TM new log: " + txLog1FileName, true );
                 fc.force( true );
                 fc.close();
@@ -49,6 +49,12 @@ public class TxModule
     private final KernelPanicEventGenerator kpe;
 
     public TxModule( String txLogDir, KernelPanicEventGenerator kpe, TxFinishHook rollbackHook, String serviceName )
+    {
+        this( txLogDir, kpe, rollbackHook, serviceName, null );
+    }
+
+    public TxModule( String txLogDir, KernelPanicEventGenerator kpe, TxFinishHook rollbackHook, String serviceName,
+            Map<?,?> config )
     {
         this.txLogDir = txLogDir;
         this.kpe = kpe;
@@ -65,7 +71,7 @@ public class TxModule
                                                  + serviceName );
             }
         }
-        txManager = provider.loadTransactionManager( txLogDir, kpe, rollbackHook );
+        txManager = provider.loadTransactionManager( txLogDir, kpe, rollbackHook, config );
         this.xaDsManager = new XaDataSourceManager();
     }
 
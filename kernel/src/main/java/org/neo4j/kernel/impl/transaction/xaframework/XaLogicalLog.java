@@ -68,6 +68,9 @@ public class XaLogicalLog
     private static final char LOG1 = '1';
     private static final char LOG2 = '2';
 
+    // milliseconds between progress messages during recovery
+    private static final long RECOVERY_PROGRESS_INTERVAL = 10000;
+
     private FileChannel fileChannel = null;
     private final ByteBuffer buffer;
     private LogBuffer writeBuffer = null;
@@ -757,18 +760,37 @@ public class XaLogicalLog
                 " with committed tx=" + lastCommittedTx, true );
         long logEntriesFound = 0;
         long lastEntryPos = fileChannel.position();
+        long logSize = fileChannel.size();
+        long startTime = System.currentTimeMillis();
+        long nextProgressTime = startTime + RECOVERY_PROGRESS_INTERVAL;
         LogEntry entry;
         while ( (entry = readEntry()) != null )
         {
             applyEntry( entry );
             logEntriesFound++;
             lastEntryPos = fileChannel.position();
+            if ( logEntriesFound % 1000 == 0 &&
+                System.currentTimeMillis() >= nextProgressTime )
+            {
+                String progress = "[" + logFileName + "] recovery at " +
+                    (lastEntryPos * 100 / Math.max( 1, logSize )) + "%, " +
+                    logEntriesFound + " entries, " +
+                    entriesPerSecond( logEntriesFound, startTime ) +
+                    " entries/s";
+                log.info( progress );
+                msgLog.logMessage( progress, true );
+                nextProgressTime = System.currentTimeMillis() +
+                    RECOVERY_PROGRESS_INTERVAL;
+            }
         }
         // make sure we overwrite any broken records
         fileChannel.position( lastEntryPos );
 
         msgLog.logMessage( "[" + logFileName + "] entries found=" + logEntriesFound +
-                " lastEntryPos=" + lastEntryPos, true  );
+                " lastEntryPos=" + lastEntryPos + " in " +
+                (System.currentTimeMillis() - startTime) + "ms (" +
+                entriesPerSecond( logEntriesFound, startTime ) + " entries/s)",
+                true );
 
         // zero out the slow way since windows don't support truncate very well
         buffer.clear();
@@ -814,6 +836,12 @@ public class XaLogicalLog
         recoveredTxMap.clear();
     }
 
+    private static long entriesPerSecond( long entries, long startTime )
+    {
+        return entries * 1000 /
+            Math.max( 1, System.currentTimeMillis() - startTime );
+    }
+
     // for testing, do not use!
     void reset()
     {
@@ -19,46 +19,46 @@
  */
 package org.neo4j.kernel.impl.traversal;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipExpander;
 import org.neo4j.graphdb.traversal.Evaluation;
 import org.neo4j.graphdb.traversal.TraversalBranch;
+import org.neo4j.kernel.Traversal;
 import org.neo4j.kernel.impl.traversal.TraverserImpl.TraverserIterator;
 
-class TraversalBranchImpl implements TraversalBranch//, Path
+/**
+ * A branch is also the {@link Path} to its node, so that evaluating and
+ * returning it doesn't need another object. The nodes and relationships of
+ * the path are only gathered from the parents when asked for.
+ */
+class TraversalBranchImpl implements TraversalBranch, Path
 {
-    private final TraversalBranch parent;
-    private final Node source;
+    private TraversalBranch parent;
+    private Node source;
     private Iterator<Relationship> relationships;
-    private final Relationship howIGotHere;
-    private final int depth;
+    private Relationship howIGotHere;
+    private int depth;
     final TraverserIterator traverser;
-    private Path path;
     private int expandedCount;
     private Evaluation evaluation;
+    private List<Node> pathNodes;
+    private List<Relationship> pathRelationships;
 
     /*
-     * For expansion sources for all nodes except the start node
+     * For expansion sources for all nodes except the start node, see
+     * {@link #reset(TraversalBranch, int, Node, Relationship)}
      */
-    TraversalBranchImpl( TraverserIterator traverser, TraversalBranch parent, int depth,
-            Node source, RelationshipExpander expander, Relationship toHere )
+    TraversalBranchImpl( TraverserIterator traverser )
     {
         this.traverser = traverser;
-        this.parent = parent;
-        this.source = source;
-        this.howIGotHere = toHere;
-        this.depth = depth;
-    }
-
-    @Override
-    public String toString()
-    {
-        return "TraversalBranch[source=" + source + ",howIGotHere=" + howIGotHere + ",depth=" + depth + "]";
     }
 
     /*
@@ -75,6 +75,20 @@ class TraversalBranchImpl implements TraversalBranch//, Path
         this.evaluation = traverser.description.evaluator.evaluate( position() );
     }
 
+    /*
+     * Points a branch which hasn't been initialized yet, f.ex. one which
+     * the uniqueness filter turned down, at another node.
+     */
+    void reset( TraversalBranch parent, int depth, Node source, Relationship toHere )
+    {
+        this.parent = parent;
+        this.depth = depth;
+        this.source = source;
+        this.howIGotHere = toHere;
+        this.pathNodes = null;
+        this.pathRelationships = null;
+    }
+
     protected void expandRelationships( boolean doChecks )
     {
         boolean okToExpand = !doChecks || evaluation.continues();
@@ -105,10 +119,11 @@ class TraversalBranchImpl implements TraversalBranch//, Path
             }
             expandedCount++;
             Node node = relationship.getOtherNode( source );
-            TraversalBranch next = new TraversalBranchImpl( traverser, this, depth + 1, node,
-                    traverser.description.expander, relationship );
+            TraversalBranchImpl next = traverser.spareBranch();
+            next.reset( this, depth + 1, node, relationship );
             if ( traverser.okToProceed( next ) )
             {
+                traverser.spareBranchUsed();
                 next.initialize();
                 return next;
             }
@@ -118,16 +133,7 @@ class TraversalBranchImpl implements TraversalBranch//, Path
 
     public Path position()
     {
-        return ensurePathInstantiated();
-    }
-
-    private Path ensurePathInstantiated()
-    {
-        if ( this.path == null )
-        {
-            this.path = new TraversalPath( this );
-        }
-        return this.path;
+        return this;
     }
 
     public int depth()
@@ -160,38 +166,158 @@ class TraversalBranchImpl implements TraversalBranch//, Path
         return evaluation;
     }
 
-//    public Node startNode()
-//    {
-//        return ensurePathInstantiated().startNode();
-//    }
-//
-//    public Node endNode()
-//    {
-//        return source;
-//    }
-//
-//    public Relationship lastRelationship()
-//    {
-//        return howIGotHere;
-//    }
-//
-//    public Iterable<Relationship> relationships()
-//    {
-//        return ensurePathInstantiated().relationships();
-//    }
-//
-//    public Iterable<Node> nodes()
-//    {
-//        return ensurePathInstantiated().nodes();
-//    }
-//
-//    public int length()
-//    {
-//        return depth;
-//    }
-//
-//    public Iterator<PropertyContainer> iterator()
-//    {
-//        return ensurePathInstantiated().iterator();
-//    }
+    private void ensureEntitiesAreGathered()
+    {
+        if ( pathNodes == null )
+        {
+            // We don't synchronize on nodes/relationship... and that's fine
+            // because even if there would be a situation where two (or more)
+            // threads comes here at the same time everything would still
+            // work as expected (in here as well as outside).
+            Node[] nodes = new Node[depth + 1];
+            Relationship[] relationships = new Relationship[depth];
+            TraversalBranch stepper = this;
+            for ( int i = depth; i >= 0; i-- )
+            {
+                nodes[i] = stepper.node();
+                if ( i > 0 )
+                {
+                    relationships[i - 1] = stepper.relationship();
+                }
+                stepper = stepper.parent();
+            }
+            pathRelationships = Arrays.asList( relationships );
+            pathNodes = Arrays.asList( nodes );
+        }
+    }
+
+    public Node startNode()
+    {
+        TraversalBranch stepper = this;
+        while ( stepper.parent() != null )
+        {
+            stepper = stepper.parent();
+        }
+        return stepper.node();
+    }
+
+    public Node endNode()
+    {
+        return source;
+    }
+
+    public Relationship lastRelationship()
+    {
+        return howIGotHere;
+    }
+
+    public Iterable<Node> nodes()
+    {
+        ensureEntitiesAreGathered();
+        return pathNodes;
+    }
+
+    public Iterable<Relationship> relationships()
+    {
+        ensureEntitiesAreGathered();
+        return pathRelationships;
+    }
+
+    public Iterator<PropertyContainer> iterator()
+    {
+        ensureEntitiesAreGathered();
+        return new Iterator<PropertyContainer>()
+        {
+            Iterator<? extends PropertyContainer> current = nodes().iterator();
+            Iterator<? extends PropertyContainer> next = relationships().iterator();
+
+            public boolean hasNext()
+            {
+                return current.hasNext();
+            }
+
+            public PropertyContainer next()
+            {
+                try
+                {
+                    return current.next();
+                }
+                finally
+                {
+                    Iterator<? extends PropertyContainer> temp = current;
+                    current = next;
+                    next = temp;
+                }
+            }
+
+            public void remove()
+            {
+                next.remove();
+            }
+        };
+    }
+
+    public int length()
+    {
+        return depth;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Traversal.defaultPathToString( this );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        ensureEntitiesAreGathered();
+        if ( pathRelationships.isEmpty() )
+        {
+            return startNode().hashCode();
+        }
+        else
+        {
+            return pathRelationships.hashCode();
+        }
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        ensureEntitiesAreGathered();
+        if ( this == obj )
+        {
+            return true;
+        }
+        else if ( obj instanceof TraversalBranchImpl )
+        {
+            TraversalBranchImpl other = (TraversalBranchImpl) obj;
+            other.ensureEntitiesAreGathered();
+            return startNode().equals( other.startNode() )
+                   && pathRelationships.equals( other.pathRelationships );
+        }
+        else if ( obj instanceof Path )
+        {
+            Path other = (Path) obj;
+            if ( startNode().equals( other.startNode() ) )
+            {
+                Iterator<Relationship> these = relationships().iterator();
+                Iterator<Relationship> those = other.relationships().iterator();
+                while ( these.hasNext() && those.hasNext() )
+                {
+                    if ( !these.next().equals( those.next() ) )
+                    {
+                        return false;
+                    }
+                }
+                if ( these.hasNext() || those.hasNext() )
+                {
+                    return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -97,6 +97,7 @@ class TraverserImpl implements Traverser
         private final BranchSelector sourceSelector;
         final TraversalDescriptionImpl description;
         final Node startNode;
+        private TraversalBranchImpl spareBranch;
 
         TraverserIterator()
         {
@@ -118,6 +119,25 @@ class TraverserImpl implements Traverser
             return this.uniquness.check( source, true );
         }
 
+        /*
+         * Most relationships in a dense neighbourhood are turned down by
+         * the uniqueness filter, so the branch for them is kept and reused
+         * for the next relationship until one is let through.
+         */
+        TraversalBranchImpl spareBranch()
+        {
+            if ( spareBranch == null )
+            {
+                spareBranch = new TraversalBranchImpl( this );
+            }
+            return spareBranch;
+        }
+
+        void spareBranchUsed()
+        {
+            spareBranch = null;
+        }
+
         @Override
         protected Path fetchNextOrNull()
         {
@@ -33,10 +33,12 @@ import javax.transaction.xa.Xid;
 
 import org.neo4j.kernel.impl.nioneo.store.DynamicRecord;
 import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
+import org.neo4j.kernel.impl.nioneo.store.PropertyBlock;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyType;
 import org.neo4j.kernel.impl.nioneo.store.Record;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipGroupRecord;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
 import org.neo4j.kernel.impl.nioneo.store.RelationshipTypeRecord;
 import org.neo4j.kernel.impl.transaction.xaframework.LogBuffer;
@@ -192,6 +194,7 @@ public class DumpLogicalLog
     private static final byte REL_COMMAND = (byte) 3;
     private static final byte REL_TYPE_COMMAND = (byte) 4;
     private static final byte PROP_INDEX_COMMAND = (byte) 5;
+    private static final byte REL_GROUP_COMMAND = (byte) 6;
 
     static XaCommand readNodeCommand( ReadableByteChannel byteChannel, ByteBuffer buffer )
         throws IOException
@@ -225,7 +228,7 @@ public class DumpLogicalLog
                 return null;
             }
             buffer.flip();
-            record.setNextRel( buffer.getLong() );
+            record.setNextGroup( buffer.getLong() );
             record.setNextProp( buffer.getLong() );
         }
         return new Command( record );
@@ -324,16 +327,17 @@ public class DumpLogicalLog
     static XaCommand readPropertyCommand( ReadableByteChannel byteChannel, ByteBuffer buffer )
         throws IOException
     {
-        // id+in_use(byte)+type(int)+key_indexId(int)+prop_blockId(long)+
-        // prev_prop_id(long)+next_prop_id(long)+nr_value_records(int)
+        // id+in_use(byte)+node_rel_id(long)+prev_prop_id(long)+
+        // next_prop_id(long)+nr_blocks(byte)+blocks+
+        // nr_deleted_value_records(int)+deleted_value_records
         buffer.clear();
-        buffer.limit( 9 );
+        buffer.limit( 17 );
         if ( byteChannel.read( buffer ) != buffer.limit() )
         {
             return null;
         }
         buffer.flip();
-        int id = buffer.getInt();
+        long id = buffer.getLong();
         byte inUseFlag = buffer.get();
         boolean inUse = false;
         if ( (inUseFlag & Record.IN_USE.byteValue()) == Record.IN_USE
@@ -347,7 +351,7 @@ public class DumpLogicalLog
         {
             nodeProperty = false;
         }
-        int primitiveId = buffer.getInt();
+        long primitiveId = buffer.getLong();
         PropertyRecord record = new PropertyRecord( id );
         if ( primitiveId != -1 && nodeProperty )
         {
@@ -360,23 +364,50 @@ public class DumpLogicalLog
         if ( inUse )
         {
             buffer.clear();
-            buffer.limit( 32 );
+            buffer.limit( 17 );
             if ( byteChannel.read( buffer ) != buffer.limit() )
             {
                 return null;
             }
             buffer.flip();
-            PropertyType type = getType( buffer.getInt() );
-            if ( type == null )
-            {
-                return null;
-            }
-            record.setType( type );
             record.setInUse( inUse );
-            record.setKeyIndexId( buffer.getInt() );
-            record.setPropBlock( buffer.getLong() );
             record.setPrevProp( buffer.getLong() );
             record.setNextProp( buffer.getLong() );
+            int nrBlocks = buffer.get();
+            for ( int i = 0; i < nrBlocks; i++ )
+            {
+                // index(byte)+type(int)+key_indexId(int)+prop_block(long)+
+                // nr_value_records(int)
+                buffer.clear();
+                buffer.limit( 21 );
+                if ( byteChannel.read( buffer ) != buffer.limit() )
+                {
+                    return null;
+                }
+                buffer.flip();
+                int index = buffer.get();
+                PropertyType type = getType( buffer.getInt() );
+                if ( type == null || index < 0 ||
+                    index >= PropertyRecord.BLOCKS_PER_RECORD )
+                {
+                    return null;
+                }
+                PropertyBlock block = new PropertyBlock();
+                block.setType( type );
+                block.setKeyIndexId( buffer.getInt() );
+                block.setPropBlock( buffer.getLong() );
+                int nrValueRecords = buffer.getInt();
+                for ( int j = 0; j < nrValueRecords; j++ )
+                {
+                    DynamicRecord dr = readDynamicRecord( byteChannel, buffer );
+                    if ( dr == null )
+                    {
+                        return null;
+                    }
+                    block.addValueRecord( dr );
+                }
+                record.setBlock( index, block );
+            }
         }
         buffer.clear();
         buffer.limit( 4 );
@@ -385,15 +416,15 @@ public class DumpLogicalLog
             return null;
         }
         buffer.flip();
-        int nrValueRecords = buffer.getInt();
-        for ( int i = 0; i < nrValueRecords; i++ )
+        int nrDeletedRecords = buffer.getInt();
+        for ( int i = 0; i < nrDeletedRecords; i++ )
         {
             DynamicRecord dr = readDynamicRecord( byteChannel, buffer );
             if ( dr == null )
             {
                 return null;
             }
-            record.addValueRecord( dr );
+            record.addDeletedValueRecord( dr );
         }
         return new Command( record );
     }
@@ -442,6 +473,53 @@ public class DumpLogicalLog
         return new Command( record );
     }
 
+    static XaCommand readRelationshipGroupCommand( ReadableByteChannel byteChannel,
+        ByteBuffer buffer ) throws IOException
+    {
+        buffer.clear();
+        buffer.limit( 9 );
+        if ( byteChannel.read( buffer ) != buffer.limit() )
+        {
+            return null;
+        }
+        buffer.flip();
+        long id = buffer.getLong();
+        byte inUseFlag = buffer.get();
+        boolean inUse = false;
+        if ( inUseFlag == Record.IN_USE.byteValue() )
+        {
+            inUse = true;
+        }
+        else if ( inUseFlag != Record.NOT_IN_USE.byteValue() )
+        {
+            throw new IOException( "Illegal in use flag: " + inUseFlag );
+        }
+        RelationshipGroupRecord record;
+        if ( inUse )
+        {
+            buffer.clear();
+            buffer.limit( 44 );
+            if ( byteChannel.read( buffer ) != buffer.limit() )
+            {
+                return null;
+            }
+            buffer.flip();
+            record = new RelationshipGroupRecord( id, buffer.getInt() );
+            record.setInUse( true );
+            record.setNext( buffer.getLong() );
+            record.setFirstOut( buffer.getLong() );
+            record.setFirstIn( buffer.getLong() );
+            record.setFirstLoop( buffer.getLong() );
+            record.setOwningNode( buffer.getLong() );
+        }
+        else
+        {
+            record = new RelationshipGroupRecord( id, -1 );
+            record.setInUse( false );
+        }
+        return new Command( record );
+    }
+
     static XaCommand readCommand( ReadableByteChannel byteChannel,
         ByteBuffer buffer ) throws IOException
     {
@@ -465,6 +543,8 @@ public class DumpLogicalLog
                 return readRelationshipCommand( byteChannel, buffer );
             case REL_TYPE_COMMAND:
                 return readRelationshipTypeCommand( byteChannel, buffer );
+            case REL_GROUP_COMMAND:
+                return readRelationshipGroupCommand( byteChannel, buffer );
             case NONE: return null;
             default:
                 throw new IOException( "Unknown command type[" + commandType
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive <CODE>long</CODE> keys to non-negative <CODE>int</CODE>
+ * values using open addressing with linear probing, f.ex. for numbering the
+ * nodes seen in a search so that data about them can be kept in arrays.
+ * Entries can't be removed one by one, only all at once with
+ * {@link #clear()}.
+ * <p>
+ * Not thread safe.
+ */
+public class PrimitiveLongIntMap
+{
+    private static final int NO_VALUE = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public PrimitiveLongIntMap()
+    {
+        this( 16 );
+    }
+
+    /**
+     * @param expectedSize the number of entries this map is expected to
+     * hold, it will not have to grow until that size is reached.
+     */
+    public PrimitiveLongIntMap( int expectedSize )
+    {
+        int length = PrimitiveLongSet.tableSizeFor( expectedSize );
+        keys = new long[length];
+        values = new int[length];
+        Arrays.fill( values, NO_VALUE );
+    }
+
+    private int slotFor( long key )
+    {
+        int mask = keys.length - 1;
+        int slot = PrimitiveLongSet.hash( key ) & mask;
+        while ( values[slot] != NO_VALUE && keys[slot] != key )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the value for <CODE>key</CODE>, or -1 if there is none.
+     */
+    public int get( long key )
+    {
+        return values[slotFor( key )];
+    }
+
+    public boolean containsKey( long key )
+    {
+        return values[slotFor( key )] != NO_VALUE;
+    }
+
+    /**
+     * @return the previous value for <CODE>key</CODE>, or -1 if there was
+     * none.
+     */
+    public int put( long key, int value )
+    {
+        if ( value < 0 )
+        {
+            throw new IllegalArgumentException( "Negative value " + value
+                    + " for key " + key );
+        }
+        int slot = slotFor( key );
+        int previous = values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if ( previous == NO_VALUE && ++size * 3 > keys.length * 2 )
+        {
+            rehash( keys.length << 1 );
+        }
+        return previous;
+    }
+
+    private void rehash( int newLength )
+    {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[newLength];
+        values = new int[newLength];
+        Arrays.fill( values, NO_VALUE );
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldValues[i] != NO_VALUE )
+            {
+                int slot = slotFor( oldKeys[i] );
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries, keeping the room made for them.
+     */
+    public void clear()
+    {
+        Arrays.fill( values, NO_VALUE );
+        size = 0;
+    }
+}
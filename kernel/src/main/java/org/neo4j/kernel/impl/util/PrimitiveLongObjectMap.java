@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive <CODE>long</CODE> keys to objects using open addressing
+ * with linear probing, so that no <CODE>Long</CODE> keys or map entries are
+ * created. <CODE>null</CODE> values aren't allowed.
+ * <p>
+ * Not thread safe.
+ */
+public class PrimitiveLongObjectMap<V>
+{
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public PrimitiveLongObjectMap()
+    {
+        this( 16 );
+    }
+
+    /**
+     * @param expectedSize the number of entries this map is expected to
+     * hold, it will not have to grow until that size is reached.
+     */
+    public PrimitiveLongObjectMap( int expectedSize )
+    {
+        int length = PrimitiveLongSet.tableSizeFor( expectedSize );
+        keys = new long[length];
+        values = new Object[length];
+    }
+
+    private int slotFor( long key )
+    {
+        int mask = keys.length - 1;
+        int slot = PrimitiveLongSet.hash( key ) & mask;
+        while ( values[slot] != null && keys[slot] != key )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public V get( long key )
+    {
+        return (V) values[slotFor( key )];
+    }
+
+    public boolean containsKey( long key )
+    {
+        return values[slotFor( key )] != null;
+    }
+
+    /**
+     * @return the previous value for <CODE>key</CODE>, or <CODE>null</CODE>
+     * if there was none.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V put( long key, V value )
+    {
+        if ( value == null )
+        {
+            throw new IllegalArgumentException( "Null value for key " + key );
+        }
+        int slot = slotFor( key );
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if ( previous == null && ++size * 3 > keys.length * 2 )
+        {
+            rehash( keys.length << 1 );
+        }
+        return previous;
+    }
+
+    /**
+     * @return the removed value, or <CODE>null</CODE> if there was no value
+     * for <CODE>key</CODE>.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V remove( long key )
+    {
+        int slot = slotFor( key );
+        V previous = (V) values[slot];
+        if ( previous == null )
+        {
+            return null;
+        }
+        // move back later entries of the same probe sequence
+        int mask = keys.length - 1;
+        int free = slot;
+        int current = slot;
+        while ( true )
+        {
+            current = ( current + 1 ) & mask;
+            if ( values[current] == null )
+            {
+                break;
+            }
+            int home = PrimitiveLongSet.hash( keys[current] ) & mask;
+            boolean homeBetween = free <= current ?
+                free < home && home <= current :
+                free < home || home <= current;
+            if ( !homeBetween )
+            {
+                keys[free] = keys[current];
+                values[free] = values[current];
+                free = current;
+            }
+        }
+        values[free] = null;
+        size--;
+        return previous;
+    }
+
+    private void rehash( int newLength )
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[newLength];
+        values = new Object[newLength];
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldValues[i] != null )
+            {
+                int slot = slotFor( oldKeys[i] );
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( values, null );
+        size = 0;
+    }
+}
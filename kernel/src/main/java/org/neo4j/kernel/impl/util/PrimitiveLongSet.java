@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive <CODE>long</CODE>s using open addressing with linear
+ * probing, for keeping track of large amounts of ids (f.ex. visited nodes in
+ * a traversal) without creating a <CODE>Long</CODE> and a map entry per id.
+ * <p>
+ * Not thread safe.
+ */
+public class PrimitiveLongSet
+{
+    // marks a free slot, whether or not 0 itself is in the set is kept in
+    // containsFree
+    private static final long FREE = 0;
+
+    private long[] table;
+    private int size;
+    private boolean containsFree;
+
+    public PrimitiveLongSet()
+    {
+        this( 16 );
+    }
+
+    /**
+     * @param expectedSize the number of elements this set is expected to
+     * hold, it will not have to grow until that size is reached.
+     */
+    public PrimitiveLongSet( int expectedSize )
+    {
+        table = new long[tableSizeFor( expectedSize )];
+    }
+
+    static int tableSizeFor( int expectedSize )
+    {
+        int size = 4;
+        while ( size * 2 < expectedSize * 3 )
+        {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    static int hash( long value )
+    {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) ( h ^ ( h >>> 32 ) );
+    }
+
+    /**
+     * @return <CODE>true</CODE> if the value wasn't already in this set.
+     */
+    public boolean add( long value )
+    {
+        if ( value == FREE )
+        {
+            if ( containsFree )
+            {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int slot = hash( value ) & mask;
+        long current;
+        while ( ( current = table[slot] ) != FREE )
+        {
+            if ( current == value )
+            {
+                return false;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        table[slot] = value;
+        if ( ++size * 3 > table.length * 2 )
+        {
+            rehash( table.length << 1 );
+        }
+        return true;
+    }
+
+    public boolean contains( long value )
+    {
+        if ( value == FREE )
+        {
+            return containsFree;
+        }
+        int mask = table.length - 1;
+        int slot = hash( value ) & mask;
+        long current;
+        while ( ( current = table[slot] ) != FREE )
+        {
+            if ( current == value )
+            {
+                return true;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return <CODE>true</CODE> if the value was in this set.
+     */
+    public boolean remove( long value )
+    {
+        if ( value == FREE )
+        {
+            if ( !containsFree )
+            {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int mask = table.length - 1;
+        int slot = hash( value ) & mask;
+        long current;
+        while ( ( current = table[slot] ) != FREE )
+        {
+            if ( current == value )
+            {
+                removeSlot( slot, mask );
+                size--;
+                return true;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Empties a slot, moving back later values of the same probe sequence
+     * so that lookups never have to skip over removed values.
+     */
+    private void removeSlot( int slot, int mask )
+    {
+        int free = slot;
+        int current = slot;
+        while ( true )
+        {
+            current = ( current + 1 ) & mask;
+            long value = table[current];
+            if ( value == FREE )
+            {
+                break;
+            }
+            int home = hash( value ) & mask;
+            boolean homeBetween = free <= current ?
+                free < home && home <= current :
+                free < home || home <= current;
+            if ( !homeBetween )
+            {
+                table[free] = value;
+                free = current;
+            }
+        }
+        table[free] = FREE;
+    }
+
+    private void rehash( int newLength )
+    {
+        long[] oldTable = table;
+        table = new long[newLength];
+        int mask = newLength - 1;
+        for ( long value : oldTable )
+        {
+            if ( value != FREE )
+            {
+                int slot = hash( value ) & mask;
+                while ( table[slot] != FREE )
+                {
+                    slot = ( slot + 1 ) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( table, FREE );
+        containsFree = false;
+        size = 0;
+    }
+}
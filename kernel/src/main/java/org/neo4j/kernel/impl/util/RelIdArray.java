@@ -20,10 +20,8 @@
 package org.neo4j.kernel.impl.util;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 public class RelIdArray
 {
@@ -92,6 +90,21 @@ public class RelIdArray
         return blocks.isEmpty();
     }
 
+    /**
+     * @return an estimate of the number of bytes this array occupies on
+     * the heap
+     */
+    public int size()
+    {
+        // this object, the block list and its backing array
+        int size = 16 + 24 + 16 + 4 * blocks.size();
+        for ( int i = 0; i < blocks.size(); i++ )
+        {
+            size += blocks.get( i ).size();
+        }
+        return size;
+    }
+
     private void addBlock( long highBits )
     {
         lastBlock = new IdBlock( highBits );
@@ -129,6 +142,11 @@ public class RelIdArray
             return length;
         }
         
+        int size()
+        {
+            return 32 + 16 + 4 * ids.length;
+        }
+        
         // Assume id has same high bits
         void add( int id )
         {
@@ -169,11 +187,12 @@ public class RelIdArray
         private IdBlock currentBlock = isEmpty() ? EMPTY_BLOCK : blocks.get( 0 );
         private int relativePosition;
         private int absolutePosition;
-        private Long nextElement;
+        private long nextElement;
+        private boolean nextElementFetched;
         
         public boolean hasNext()
         {
-            if ( nextElement != null )
+            if ( nextElementFetched )
             {
                 return true;
             }
@@ -184,6 +203,7 @@ public class RelIdArray
                 if ( relativePosition < blockLength )
                 {
                     nextElement = currentBlock.get( relativePosition++ );
+                    nextElementFetched = true;
                     return true;
                 }
                 else
@@ -207,9 +227,8 @@ public class RelIdArray
             {
                 throw new NoSuchElementException();
             }
-            long result = nextElement;
-            nextElement = null;
-            return result;
+            nextElementFetched = false;
+            return nextElement;
         }
         
         public void fastForwardTo( int position )
@@ -260,7 +279,7 @@ public class RelIdArray
             }
             RelIdArray newArray = new RelIdArray();
             newArray.addAll( src );
-            Set<Long> removedSet = remove.asSet();
+            SortedLongArray removedSet = remove.asSortedArray();
             evictExcluded( newArray, removedSet );
             if ( add != null )
             {
@@ -277,7 +296,7 @@ public class RelIdArray
         }
     }
 
-    private static void evictExcluded( RelIdArray ids, Set<Long> excluded )
+    private static void evictExcluded( RelIdArray ids, SortedLongArray excluded )
     {
         for ( RelIdIterator iterator = ids.iterator(); iterator.hasNext(); )
         {
@@ -305,13 +324,13 @@ public class RelIdArray
         }
     }
     
-    private Set<Long> asSet()
+    private SortedLongArray asSortedArray()
     {
-        Set<Long> set = new HashSet<Long>( length() + 1, 1.0f );
+        SortedLongArray array = new SortedLongArray( length() );
         for ( RelIdIterator iterator = iterator(); iterator.hasNext(); )
         {
-            set.add( iterator.next() );
+            array.add( iterator.next() );
         }
-        return set;
+        return array;
     }
 }
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.Arrays;
+
+/**
+ * Compact array of primitive <CODE>long</CODE>s which is kept sorted so that
+ * lookups can be done with binary search. Values are appended with
+ * {@link #add(long)} and the array is sorted lazily the first time it's
+ * read after being modified, which makes it cheap to build from unsorted
+ * input. Duplicates are allowed.
+ * <p>
+ * Not thread safe.
+ */
+public class SortedLongArray
+{
+    private long[] values;
+    private int length;
+    private boolean sorted = true;
+
+    public SortedLongArray( int initialCapacity )
+    {
+        values = new long[Math.max( 1, initialCapacity )];
+    }
+
+    public void add( long value )
+    {
+        if ( length == values.length )
+        {
+            values = Arrays.copyOf( values, length * 2 );
+        }
+        if ( length > 0 && values[length - 1] > value )
+        {
+            sorted = false;
+        }
+        values[length++] = value;
+    }
+
+    private void ensureSorted()
+    {
+        if ( !sorted )
+        {
+            Arrays.sort( values, 0, length );
+            sorted = true;
+        }
+    }
+
+    public boolean contains( long value )
+    {
+        ensureSorted();
+        return Arrays.binarySearch( values, 0, length, value ) >= 0;
+    }
+
+    /**
+     * Returns the value at <CODE>index</CODE> in ascending order.
+     */
+    public long get( int index )
+    {
+        if ( index < 0 || index >= length )
+        {
+            throw new IndexOutOfBoundsException( "index=" + index +
+                ", length=" + length );
+        }
+        ensureSorted();
+        return values[index];
+    }
+
+    public int length()
+    {
+        return length;
+    }
+
+    public boolean isEmpty()
+    {
+        return length == 0;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestClockCache
+{
+    @Test
+    public void testCreate()
+    {
+        try
+        {
+            new ClockCache<Object>( "TestCache", 0 );
+            fail( "Illegal maxSize should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+        ClockCache<Object> cache = new ClockCache<Object>( "TestCache", 70 );
+        try
+        {
+            cache.put( null, new Object() );
+            fail( "Null key should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+        try
+        {
+            cache.put( 1l, null );
+            fail( "Null element should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+        cache.put( 1l, new Object() );
+        assertEquals( 1, cache.size() );
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertNull( cache.get( 1l ) );
+    }
+
+    @Test
+    public void testBehavesLikeAMapWhenNotFull()
+    {
+        ClockCache<Long> cache = new ClockCache<Long>( "TestCache", 100000 );
+        Map<Long,Long> expected = new HashMap<Long,Long>();
+        Random random = new Random( 1234 );
+        for ( int i = 0; i < 200000; i++ )
+        {
+            // small key space gives long probe sequences and many removes
+            long key = random.nextInt( 5000 ) - 2500;
+            switch ( random.nextInt( 3 ) )
+            {
+            case 0:
+                cache.put( key, key * 2 );
+                expected.put( key, key * 2 );
+                break;
+            case 1:
+                assertEquals( expected.remove( key ), cache.remove( key ) );
+                break;
+            default:
+                assertEquals( expected.get( key ), cache.get( key ) );
+            }
+        }
+        assertEquals( expected.size(), cache.size() );
+        for ( Map.Entry<Long,Long> entry : expected.entrySet() )
+        {
+            assertEquals( entry.getValue(), cache.get( entry.getKey() ) );
+        }
+    }
+
+    @Test
+    public void testEvictsWhenFull()
+    {
+        final Map<Long,Long> cleaned = new HashMap<Long,Long>();
+        ClockCache<Long> cache = new ClockCache<Long>( "TestCache", 160 )
+        {
+            @Override
+            public void elementCleaned( Long element )
+            {
+                cleaned.put( element, element );
+            }
+        };
+        for ( long i = 0; i < 10000; i++ )
+        {
+            cache.put( i, i );
+            assertEquals( i, (long) cache.get( i ) );
+        }
+        assertTrue( cache.size() <= cache.maxSize() );
+        assertEquals( 10000, cache.size() + cleaned.size() );
+        for ( long i = 0; i < 10000; i++ )
+        {
+            assertTrue( cache.get( i ) == null ^ !cleaned.containsKey( i ) );
+        }
+    }
+
+    @Test
+    public void testReferencedElementsSurviveEviction()
+    {
+        ClockCache<Long> cache = new ClockCache<Long>( "TestCache", 1600 );
+        cache.put( 0l, 0l );
+        for ( long i = 1; i < 100000; i++ )
+        {
+            assertEquals( 0l, (long) cache.get( 0l ) );
+            cache.put( i, i );
+        }
+        assertTrue( cache.size() <= 1600 );
+    }
+
+    @Test
+    public void testResize()
+    {
+        ClockCache<Long> cache = new ClockCache<Long>( "TestCache", 1600 );
+        for ( long i = 0; i < 160; i++ )
+        {
+            cache.put( i, i );
+        }
+        cache.resize( 16000 );
+        assertEquals( 16000, cache.maxSize() );
+        for ( long i = 0; i < 160; i++ )
+        {
+            assertEquals( i, (long) cache.get( i ) );
+        }
+        for ( long i = 160; i < 16000; i++ )
+        {
+            cache.put( i, i );
+        }
+        cache.resize( 1600 );
+        assertTrue( cache.size() <= 1600 );
+        try
+        {
+            cache.resize( 0 );
+            fail( "Illegal maxSize should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+    }
+}
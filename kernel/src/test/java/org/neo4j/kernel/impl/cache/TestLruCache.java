@@ -20,6 +20,8 @@
 package org.neo4j.kernel.impl.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -169,4 +171,174 @@ public class TestLruCache
         assertEquals( 3, cache.maxSize() );
         assertEquals( 3, cache.size() );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCounts()
+    {
+        LruCache<Integer,String> cache = new LruCache<Integer,String>(
+            "TestCache", 2, null );
+        cache.put( 1, "1" );
+        cache.put( 2, "2" );
+        cache.get( 1 );
+        cache.get( 3 );
+        cache.put( 3, "3" );
+        assertEquals( 1, cache.hitCount() );
+        assertEquals( 1, cache.missCount() );
+        assertEquals( 1, cache.evictionCount() );
+        assertNull( cache.get( 2 ) );
+        assertEquals( 2, cache.missCount() );
+    }
+
+    @Test
+    public void testResizeChangingSegmentCount()
+    {
+        LruCacheTest<Integer,String> cache = new LruCacheTest<Integer,String>(
+            "TestCache", 100 );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( i, "" + i );
+        }
+        cache.resize( 10000 );
+        assertEquals( 100, cache.size() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( "" + i, cache.get( i ) );
+        }
+        // well below the share of each segment
+        for ( int i = 100; i < 5000; i++ )
+        {
+            cache.put( i, "" + i );
+        }
+        assertEquals( 5000, cache.size() );
+        assertEquals( null, cache.getLastCleanedElement() );
+        cache.resize( 100 );
+        assertEquals( 100, cache.size() );
+        // a single segment again, so eviction is in exact lru order
+        for ( int i = 20000; i < 20100; i++ )
+        {
+            cache.put( i, "" + i );
+        }
+        assertEquals( 100, cache.size() );
+        cache.resize( 50 );
+        assertEquals( "20049", cache.getLastCleanedElement() );
+        for ( int i = 20050; i < 20100; i++ )
+        {
+            assertEquals( "" + i, cache.get( i ) );
+        }
+    }
+
+    private static class Sized implements EntityWithSize
+    {
+        private final String name;
+        private int size;
+        private boolean changed = true;
+        private int measureCount;
+
+        Sized( String name, int size )
+        {
+            this.name = name;
+            this.size = size;
+        }
+
+        void grow( int newSize )
+        {
+            size = newSize;
+            changed = true;
+        }
+
+        public int size()
+        {
+            measureCount++;
+            return size;
+        }
+
+        public boolean clearSizeChanged()
+        {
+            boolean result = changed;
+            changed = false;
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    @Test
+    public void testMaxSizeInBytes()
+    {
+        LruCacheTest<Integer,Sized> cache = new LruCacheTest<Integer,Sized>(
+            "TestCache", 100 );
+        assertEquals( 0, cache.maxSizeInBytes() );
+        cache.put( 1, new Sized( "1", 100 ) );
+        cache.put( 2, new Sized( "2", 100 ) );
+        cache.put( 3, new Sized( "3", 100 ) );
+        // not measured without a budget
+        assertEquals( 0, cache.sizeInBytes() );
+        cache.setMaxSizeInBytes( 250 );
+        assertEquals( 250, cache.maxSizeInBytes() );
+        assertEquals( 3, cache.size() );
+        cache.get( 1 );
+        cache.get( 2 );
+        cache.get( 3 );
+        assertEquals( 300, cache.sizeInBytes() );
+        cache.put( 4, new Sized( "4", 100 ) );
+        assertEquals( 2, cache.size() );
+        assertEquals( 200, cache.sizeInBytes() );
+        assertNull( cache.get( 1 ) );
+        assertNull( cache.get( 2 ) );
+        assertEquals( "2", cache.getLastCleanedElement().toString() );
+        assertEquals( 2, cache.evictionCount() );
+
+        // an element is only measured again when looked up after it changed
+        Sized grown = cache.get( 3 );
+        int measureCount = grown.measureCount;
+        cache.get( 3 );
+        assertEquals( measureCount, grown.measureCount );
+        grown.grow( 200 );
+        cache.get( 3 );
+        assertEquals( measureCount + 1, grown.measureCount );
+        assertEquals( 300, cache.sizeInBytes() );
+        cache.get( 3 );
+        assertEquals( measureCount + 1, grown.measureCount );
+        cache.put( 5, new Sized( "5", 10 ) );
+        assertNull( cache.get( 4 ) );
+        assertEquals( 210, cache.sizeInBytes() );
+
+        // the most recently used element is kept even if over budget
+        cache.put( 6, new Sized( "6", 1000 ) );
+        assertEquals( 1, cache.size() );
+        assertEquals( 1000, cache.sizeInBytes() );
+
+        cache.setMaxSizeInBytes( 0 );
+        cache.put( 7, new Sized( "7", 1000 ) );
+        assertEquals( 2, cache.size() );
+        try
+        {
+            cache.setMaxSizeInBytes( -1 );
+            fail( "Negative budget should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+    }
+
+    @Test
+    public void testMaxSizeInBytesWithManySegments()
+    {
+        LruCache<Integer,Sized> cache = new LruCache<Integer,Sized>(
+            "TestCache", 10000, null );
+        cache.setMaxSizeInBytes( 100000 );
+        for ( int i = 0; i < 5000; i++ )
+        {
+            cache.put( i, new Sized( "" + i, 100 ) );
+        }
+        assertTrue( cache.sizeInBytes() <= 100000 );
+        assertTrue( cache.size() > 900 );
+        assertEquals( cache.size() * 100, cache.sizeInBytes() );
+        cache.clear();
+        assertEquals( 0, cache.sizeInBytes() );
+    }
+}
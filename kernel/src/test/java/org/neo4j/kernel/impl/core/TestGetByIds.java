@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
+import org.neo4j.kernel.impl.MyRelTypes;
+
+public class TestGetByIds extends AbstractNeo4jTestCase
+{
+    @Test
+    public void getNodesInGivenOrderAndPutThemInCache()
+    {
+        Node[] created = new Node[5];
+        for ( int i = 0; i < created.length; i++ )
+        {
+            created[i] = getGraphDb().createNode();
+            created[i].setProperty( "name", "node" + i );
+        }
+        newTransaction();
+        getNodeManager().clearCache();
+
+        long[] ids = { created[3].getId(), created[0].getId(),
+            created[4].getId(), created[0].getId() };
+        Node[] nodes = getEmbeddedGraphDb().getNodesById( ids, "name" );
+        assertEquals( ids.length, nodes.length );
+        assertEquals( created[3], nodes[0] );
+        assertEquals( created[0], nodes[1] );
+        assertEquals( created[4], nodes[2] );
+        assertEquals( created[0], nodes[3] );
+        assertEquals( 3, getNodeManager().getNodeCacheSize() );
+        assertEquals( "node3", nodes[0].getProperty( "name" ) );
+        assertEquals( "node0", nodes[3].getProperty( "name" ) );
+
+        for ( Node node : created )
+        {
+            node.delete();
+        }
+    }
+
+    @Test
+    public void getNodesSeesTransactionChanges()
+    {
+        Node node1 = getGraphDb().createNode();
+        Node node2 = getGraphDb().createNode();
+        Node[] nodes = getEmbeddedGraphDb().getNodesById( new long[] {
+            node2.getId(), node1.getId() } );
+        assertEquals( node2, nodes[0] );
+        assertEquals( node1, nodes[1] );
+        node1.delete();
+        node2.delete();
+    }
+
+    @Test
+    public void getMissingNodeThrowsNotFound()
+    {
+        Node node = getGraphDb().createNode();
+        newTransaction();
+        long id = node.getId();
+        node.delete();
+        newTransaction();
+        try
+        {
+            getEmbeddedGraphDb().getNodesById( new long[] {
+                getGraphDb().getReferenceNode().getId(), id } );
+            fail( "Node[" + id + "] is deleted" );
+        }
+        catch ( NotFoundException e )
+        { // good
+        }
+        try
+        {
+            getEmbeddedGraphDb().getNodesById( new long[] { -1 } );
+            fail( "Negative id" );
+        }
+        catch ( NotFoundException e )
+        { // good
+        }
+    }
+
+    @Test
+    public void getRelationshipsWithProperties()
+    {
+        Node node1 = getGraphDb().createNode();
+        Node node2 = getGraphDb().createNode();
+        Relationship rel1 = node1.createRelationshipTo( node2, MyRelTypes.TEST );
+        Relationship rel2 = node2.createRelationshipTo( node1, MyRelTypes.TEST2 );
+        rel1.setProperty( "weight", 1 );
+        rel2.setProperty( "weight", 2 );
+        newTransaction();
+        getNodeManager().clearCache();
+
+        Relationship[] rels = getEmbeddedGraphDb().getRelationshipsById(
+            new long[] { rel2.getId(), rel1.getId() }, "weight" );
+        assertEquals( rel2, rels[0] );
+        assertEquals( rel1, rels[1] );
+        assertEquals( 2, getNodeManager().getRelationshipCacheSize() );
+        assertEquals( MyRelTypes.TEST2.name(), rels[0].getType().name() );
+        assertEquals( node2, rels[0].getStartNode() );
+        assertEquals( 2, rels[0].getProperty( "weight" ) );
+        assertEquals( 1, rels[1].getProperty( "weight" ) );
+
+        rel1.delete();
+        rel2.delete();
+        newTransaction();
+        try
+        {
+            getEmbeddedGraphDb().getRelationshipsById(
+                new long[] { rel1.getId() } );
+            fail( "Relationship[" + rel1.getId() + "] is deleted" );
+        }
+        catch ( NotFoundException e )
+        { // good
+        }
+        node1.delete();
+        node2.delete();
+    }
+}
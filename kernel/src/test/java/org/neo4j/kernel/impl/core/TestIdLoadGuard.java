@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestIdLoadGuard
+{
+    @Test
+    public void claimOfUnclaimedIdDoesntWait()
+    {
+        IdLoadGuard guard = new IdLoadGuard();
+        assertTrue( guard.claim( 1 ) );
+        assertTrue( guard.claim( 2 ) );
+        guard.done( 1 );
+        guard.done( 2 );
+        assertTrue( guard.claim( 1 ) );
+        guard.done( 1 );
+        assertEquals( 3, guard.getNumberOfLoads() );
+        assertEquals( 0, guard.getNumberOfLoadWaits() );
+    }
+
+    @Test
+    public void claimWaitsForOtherThreadLoadingSameId() throws Exception
+    {
+        final IdLoadGuard guard = new IdLoadGuard();
+        assertTrue( guard.claim( 1 ) );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<Boolean> claimed = executor.submit( new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    return guard.claim( 1 );
+                }
+            } );
+            while ( guard.getNumberOfLoadWaits() == 0 )
+            {
+                Thread.sleep( 10 );
+            }
+            assertFalse( claimed.isDone() );
+            guard.done( 1 );
+            assertFalse( claimed.get( 10, TimeUnit.SECONDS ) );
+            assertEquals( 1, guard.getNumberOfLoads() );
+            assertEquals( 1, guard.getNumberOfLoadWaits() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void tryClaimSkipsClaimedIds()
+    {
+        IdLoadGuard guard = new IdLoadGuard();
+        assertTrue( guard.claim( 2 ) );
+        long[] claimed = guard.tryClaim( new long[] { 1, 2, 3 } );
+        assertArrayEquals( new long[] { 1, 3 }, claimed );
+        guard.done( claimed );
+        guard.done( 2 );
+        assertEquals( 0, guard.getNumberOfLoadWaits() );
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.Config;
+import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.kernel.impl.nioneo.store.PropertyScan;
+import org.neo4j.kernel.impl.nioneo.store.PropertyValueVisitor;
+import org.neo4j.kernel.impl.nioneo.xa.NeoStoreXaDataSource;
+
+public class TestPropertyScan extends AbstractNeo4jTestCase
+{
+    @Override
+    protected boolean restartGraphDbBetweenTests()
+    {
+        return true;
+    }
+
+    private NeoStoreXaDataSource dataSource()
+    {
+        return (NeoStoreXaDataSource) getEmbeddedGraphDb().getConfig()
+            .getTxModule().getXaDataSourceManager().getXaDataSource(
+                Config.DEFAULT_DATA_SOURCE_NAME );
+    }
+
+    private int keyId( String key )
+    {
+        return getNodeManager().index( key ).iterator().next().getKeyId();
+    }
+
+    private static class CollectingVisitor implements PropertyValueVisitor
+    {
+        final Map<Long,Object> values = new HashMap<Long,Object>();
+        long longSum;
+
+        public void visitInt( long entityId, int value )
+        {
+            values.put( entityId, value );
+        }
+
+        public void visitLong( long entityId, long value )
+        {
+            values.put( entityId, value );
+            longSum += value;
+        }
+
+        public void visitDouble( long entityId, double value )
+        {
+            values.put( entityId, value );
+        }
+
+        public void visitBoolean( long entityId, boolean value )
+        {
+            values.put( entityId, value );
+        }
+
+        public void visitOther( long entityId, Object value )
+        {
+            values.put( entityId, value );
+        }
+    }
+
+    @Test
+    public void scanVisitsValuesOfAllTypes()
+    {
+        Object[] values = { 1, 2L, 3.5d, true, 4.5f, (short) 5, (byte) 6, 'c',
+            "short", "a string long enough to go to the dynamic store",
+            new int[] { 1, 2, 3 } };
+        Node[] nodes = new Node[values.length];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            nodes[i] = getGraphDb().createNode();
+            nodes[i].setProperty( "before", i );
+            nodes[i].setProperty( "value", values[i] );
+            nodes[i].setProperty( "after", i );
+        }
+        Node without = getGraphDb().createNode();
+        without.setProperty( "before", -1 );
+        commit();
+        getNodeManager().clearCache();
+
+        CollectingVisitor visitor = new CollectingVisitor();
+        dataSource().getNodePropertyScan( keyId( "value" ) ).accept( visitor );
+        assertEquals( values.length, visitor.values.size() );
+        for ( int i = 0; i < values.length - 1; i++ )
+        {
+            assertEquals( values[i], visitor.values.get( nodes[i].getId() ) );
+        }
+        assertArrayEquals( (int[]) values[values.length - 1],
+            (int[]) visitor.values.get( nodes[values.length - 1].getId() ) );
+        assertEquals( 0, getNodeManager().getNodeCacheSize() );
+    }
+
+    @Test
+    public void scanRelationshipProperty()
+    {
+        Node node = getGraphDb().createNode();
+        long sum = 0;
+        for ( int i = 0; i < 100; i++ )
+        {
+            Relationship rel = node.createRelationshipTo(
+                getGraphDb().createNode(), MyRelTypes.TEST );
+            if ( i % 3 != 0 )
+            {
+                rel.setProperty( "amount", (long) i );
+                sum += i;
+            }
+        }
+        commit();
+
+        CollectingVisitor visitor = new CollectingVisitor();
+        dataSource().getRelationshipPropertyScan( keyId( "amount" ) ).accept(
+            visitor );
+        assertEquals( 66, visitor.values.size() );
+        assertEquals( sum, visitor.longSum );
+    }
+
+    @Test
+    public void scanSkipsPropertiesDeletedWhileItRuns() throws Exception
+    {
+        final List<Node> nodes = new ArrayList<Node>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            Node node = getGraphDb().createNode();
+            node.setProperty( "before", i );
+            node.setProperty( "value", "a string long enough to go to the dynamic store " + i );
+            node.setProperty( "after", i );
+            nodes.add( node );
+        }
+        // one of them with just the property, so its whole chain goes
+        nodes.get( 50 ).removeProperty( "before" );
+        nodes.get( 50 ).removeProperty( "after" );
+        commit();
+        getNodeManager().clearCache();
+
+        // the chains are read before the first value is visited, which is
+        // when the others get deleted, with no window held
+        CollectingVisitor visitor = new CollectingVisitor()
+        {
+            @Override
+            public void visitOther( long entityId, Object value )
+            {
+                super.visitOther( entityId, value );
+                if ( values.size() == 1 )
+                {
+                    deleteInOtherThread( nodes.subList( 1, nodes.size() ) );
+                }
+            }
+        };
+        dataSource().getNodePropertyScan( keyId( "value" ) ).accept( visitor );
+        assertEquals( 1, visitor.values.size() );
+        assertEquals( "a string long enough to go to the dynamic store 0",
+            visitor.values.get( nodes.get( 0 ).getId() ) );
+    }
+
+    private void deleteInOtherThread( final List<Node> nodes )
+    {
+        Thread deleter = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                Transaction tx = getGraphDb().beginTx();
+                try
+                {
+                    for ( int i = 0; i < nodes.size(); i++ )
+                    {
+                        // every other node keeps the chain, but not the value
+                        if ( i % 2 == 0 )
+                        {
+                            nodes.get( i ).delete();
+                        }
+                        else
+                        {
+                            nodes.get( i ).removeProperty( "value" );
+                        }
+                    }
+                    tx.success();
+                }
+                finally
+                {
+                    tx.finish();
+                }
+            }
+        };
+        deleter.start();
+        try
+        {
+            deleter.join();
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @Test
+    public void splitScanVisitsAllValuesOnce() throws Exception
+    {
+        int count = 3000;
+        long sum = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            getGraphDb().createNode().setProperty( "amount", (long) i );
+            sum += i;
+        }
+        commit();
+
+        PropertyScan scan = dataSource().getNodePropertyScan( keyId( "amount" ) );
+        List<PropertyScan> parts = scan.split( 3 );
+        assertTrue( parts.size() > 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( parts.size() );
+        try
+        {
+            List<Future<CollectingVisitor>> futures =
+                new ArrayList<Future<CollectingVisitor>>();
+            for ( final PropertyScan part : parts )
+            {
+                futures.add( executor.submit( new Callable<CollectingVisitor>()
+                {
+                    public CollectingVisitor call()
+                    {
+                        CollectingVisitor visitor = new CollectingVisitor();
+                        part.accept( visitor );
+                        return visitor;
+                    }
+                } ) );
+            }
+            int visited = 0;
+            long partSum = 0;
+            for ( Future<CollectingVisitor> future : futures )
+            {
+                visited += future.get().values.size();
+                partSum += future.get().longSum;
+            }
+            assertEquals( count, visited );
+            assertEquals( sum, partSum );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
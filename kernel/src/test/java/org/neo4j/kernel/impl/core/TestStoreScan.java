@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.kernel.StoreScan;
+import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
+import org.neo4j.kernel.impl.MyRelTypes;
+
+public class TestStoreScan extends AbstractNeo4jTestCase
+{
+    @Override
+    protected boolean restartGraphDbBetweenTests()
+    {
+        return true;
+    }
+
+    @Test
+    public void scanSeesCommittedAndTransactionChanges()
+    {
+        Set<Node> nodes = new HashSet<Node>( IteratorUtil.asCollection(
+            getEmbeddedGraphDb().getAllNodes() ) );
+        Node node1 = getGraphDb().createNode();
+        Node node2 = getGraphDb().createNode();
+        Relationship rel = node1.createRelationshipTo( node2, MyRelTypes.TEST );
+        nodes.add( node1 );
+        nodes.add( node2 );
+        assertEquals( nodes, asSet( getEmbeddedGraphDb().getAllNodes() ) );
+        assertTrue( asSet( getEmbeddedGraphDb().getAllRelationships() ).contains( rel ) );
+        newTransaction();
+        assertEquals( nodes, asSet( getEmbeddedGraphDb().getAllNodes() ) );
+
+        rel.delete();
+        node2.delete();
+        nodes.remove( node2 );
+        assertEquals( nodes, asSet( getEmbeddedGraphDb().getAllNodes() ) );
+        assertFalse( asSet( getEmbeddedGraphDb().getAllRelationships() ).contains( rel ) );
+        newTransaction();
+        assertEquals( nodes, asSet( getEmbeddedGraphDb().getAllNodes() ) );
+    }
+
+    @Test
+    public void scanDoesNotLoadNodesIntoCache()
+    {
+        for ( int i = 0; i < 10; i++ )
+        {
+            getGraphDb().createNode();
+        }
+        newTransaction();
+        getNodeManager().clearCache();
+        int count = IteratorUtil.count( getEmbeddedGraphDb().getAllNodes() );
+        assertTrue( count >= 10 );
+        assertEquals( 0, getNodeManager().getNodeCacheSize() );
+    }
+
+    @Test
+    public void splitScanCoversAllIdsOnce() throws Exception
+    {
+        int batch = EntityStoreScan.IDS_PER_BATCH;
+        List<Node> deleted = new ArrayList<Node>();
+        for ( int i = 0; i < batch * 3 + 10; i++ )
+        {
+            Node node = getGraphDb().createNode();
+            if ( i % 7 == 0 )
+            {
+                deleted.add( node );
+            }
+        }
+        newTransaction();
+        for ( Node node : deleted )
+        {
+            node.delete();
+        }
+        newTransaction();
+
+        StoreScan<Node> scan = getEmbeddedGraphDb().getAllNodes();
+        Set<Node> expected = asSet( scan );
+        List<StoreScan<Node>> parts = scan.split( 4 );
+        assertEquals( 4, parts.size() );
+        assertEquals( 0, parts.get( 0 ).getFromId() );
+        for ( int i = 1; i < parts.size(); i++ )
+        {
+            assertEquals( parts.get( i - 1 ).getToId(), parts.get( i ).getFromId() );
+            assertEquals( 0, parts.get( i ).getFromId() % batch );
+        }
+        assertEquals( Long.MAX_VALUE, parts.get( parts.size() - 1 ).getToId() );
+
+        ExecutorService executor = Executors.newFixedThreadPool( parts.size() );
+        try
+        {
+            List<Future<List<Node>>> results = new ArrayList<Future<List<Node>>>();
+            for ( final StoreScan<Node> part : parts )
+            {
+                results.add( executor.submit( new Callable<List<Node>>()
+                {
+                    public List<Node> call()
+                    {
+                        return new ArrayList<Node>( IteratorUtil.asCollection( part ) );
+                    }
+                } ) );
+            }
+            Set<Node> found = new HashSet<Node>();
+            int count = 0;
+            for ( Future<List<Node>> result : results )
+            {
+                List<Node> partNodes = result.get();
+                count += partNodes.size();
+                found.addAll( partNodes );
+            }
+            assertEquals( expected, found );
+            assertEquals( expected.size(), count );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void smallScanSplitsIntoFewerParts()
+    {
+        StoreScan<Node> scan = getEmbeddedGraphDb().getAllNodes();
+        List<StoreScan<Node>> parts = scan.split( 8 );
+        assertEquals( 1, parts.size() );
+        assertEquals( asSet( scan ), asSet( parts.get( 0 ) ) );
+    }
+
+    private static <T> Set<T> asSet( Iterable<T> iterable )
+    {
+        return new HashSet<T>( IteratorUtil.asCollection( iterable ) );
+    }
+}
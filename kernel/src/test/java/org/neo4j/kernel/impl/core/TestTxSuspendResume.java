@@ -19,13 +19,18 @@
  */
 package org.neo4j.kernel.impl.core;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
 
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 
 import org.junit.Test;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.kernel.Config;
 import org.neo4j.kernel.EmbeddedGraphDatabase;
 import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
 
@@ -55,6 +60,49 @@ public class TestTxSuspendResume extends AbstractNeo4jTestCase
         neo2.shutdown();
     }
 
+    @Test
+    public void resumedTxReadsItsOwnWritesFromStore() throws Exception
+    {
+        String storePath = getStorePath( "test-neo3" );
+        deleteFileOrDirectory( storePath );
+        // no cache, so all reads go to the persistence layer
+        final EmbeddedGraphDatabase neo2 = new EmbeddedGraphDatabase( storePath,
+                stringMap( Config.CACHE_TYPE, "none" ) );
+        final TransactionManager tm = neo2.getConfig().getTxModule().getTxManager();
+        tm.begin();
+        final long nodeId = neo2.createNode().getId();
+        final Transaction tx = tm.suspend();
+        try
+        {
+            neo2.getNodeById( nodeId );
+            fail( "Node created in a suspended transaction visible" );
+        }
+        catch ( NotFoundException e )
+        {   // Good
+        }
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    tm.resume( tx );
+                    neo2.getNodeById( nodeId ).setProperty( "name", "resumed" );
+                    tm.commit();
+                }
+                catch ( Exception e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals( "resumed", neo2.getNodeById( nodeId ).getProperty( "name" ) );
+        neo2.shutdown();
+    }
+
     private static class CommitThread extends Thread
     {
         private final TransactionManager tm;
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+import static org.neo4j.kernel.Config.BACKGROUND_FLUSH;
+import static org.neo4j.kernel.Config.BACKGROUND_FLUSH_INTERVAL;
+import static org.neo4j.kernel.Config.BACKGROUND_FLUSH_MAX_RATE;
+import static org.neo4j.kernel.impl.AbstractNeo4jTestCase.deleteFileOrDirectory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.Config;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.kernel.impl.nioneo.xa.NeoStoreXaDataSource;
+
+public class TestBackgroundFlusher
+{
+    private static final String PATH = "target/var/backgroundflush";
+
+    private EmbeddedGraphDatabase graphDb;
+
+    @Before
+    public void doBefore()
+    {
+        deleteFileOrDirectory( PATH );
+        graphDb = new EmbeddedGraphDatabase( PATH, stringMap(
+            BACKGROUND_FLUSH, "true", BACKGROUND_FLUSH_INTERVAL, "10",
+            BACKGROUND_FLUSH_MAX_RATE, "1M" ) );
+    }
+
+    @After
+    public void doAfter()
+    {
+        graphDb.shutdown();
+    }
+
+    private NeoStoreXaDataSource dataSource()
+    {
+        return (NeoStoreXaDataSource) graphDb.getConfig().getTxModule()
+            .getXaDataSourceManager().getXaDataSource(
+                Config.DEFAULT_DATA_SOURCE_NAME );
+    }
+
+    @Test
+    public void checkpointCatchesUpWithCommittedTransactions() throws Exception
+    {
+        for ( int i = 0; i < 10; i++ )
+        {
+            Transaction tx = graphDb.beginTx();
+            try
+            {
+                Node node = graphDb.createNode();
+                node.setProperty( "name", "node" + i );
+                graphDb.getReferenceNode().createRelationshipTo( node,
+                    MyRelTypes.TEST );
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+        NeoStoreXaDataSource dataSource = dataSource();
+        long lastCommittedTx = dataSource.getLastCommittedTxId();
+        long endTime = System.currentTimeMillis() + 10000;
+        while ( dataSource.getCheckpointTxId() < lastCommittedTx &&
+            System.currentTimeMillis() < endTime )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( lastCommittedTx, dataSource.getCheckpointTxId() );
+        assertTrue( dataSource.getBackgroundFlushedBytes() > 0 );
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javax.transaction.xa.XAException;
@@ -37,6 +38,7 @@ import javax.transaction.xa.Xid;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
@@ -226,6 +228,10 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         file.delete();
         file = new File( file( "neo.relationshipstore.db.id" ) );
         file.delete();
+        file = new File( file( "neo.relationshipgroupstore.db" ) );
+        file.delete();
+        file = new File( file( "neo.relationshipgroupstore.db.id" ) );
+        file.delete();
         file = new File( file( "neo.relationshiptypestore.db" ) );
         file.delete();
         file = new File( file( "neo.relationshiptypestore.db.id" ) );
@@ -267,22 +273,16 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         nStore.createNode( node1 );
         long node2 = ds.nextId( Node.class );
         nStore.createNode( node2 );
-        long n1prop1 = pStore.nextId();
-        long n1prop2 = pStore.nextId();
-        long n1prop3 = pStore.nextId();
-        nStore.addProperty( node1, n1prop1, index( "prop1" ), "string1" );
-        nStore.addProperty( node1, n1prop2, index( "prop2" ), new Integer(
+        long n1prop1 = nStore.addProperty( node1, index( "prop1" ), "string1" );
+        long n1prop2 = nStore.addProperty( node1, index( "prop2" ), new Integer(
             1 ) );
-        nStore.addProperty( node1, n1prop3, index( "prop3" ), new Boolean(
+        long n1prop3 = nStore.addProperty( node1, index( "prop3" ), new Boolean(
             true ) );
 
-        long n2prop1 = pStore.nextId();
-        long n2prop2 = pStore.nextId();
-        long n2prop3 = pStore.nextId();
-        nStore.addProperty( node2, n2prop1, index( "prop1" ), "string2" );
-        nStore.addProperty( node2, n2prop2, index( "prop2" ), new Integer(
+        long n2prop1 = nStore.addProperty( node2, index( "prop1" ), "string2" );
+        long n2prop2 = nStore.addProperty( node2, index( "prop2" ), new Integer(
             2 ) );
-        nStore.addProperty( node2, n2prop3, index( "prop3" ), new Boolean(
+        long n2prop3 = nStore.addProperty( node2, index( "prop3" ), new Boolean(
             false ) );
 
         int relType1 = (int) ds.nextId( RelationshipType.class );
@@ -293,21 +293,15 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         rStore.createRelationship( rel1, node1, node2, relType1 );
         long rel2 = ds.nextId( Relationship.class );
         rStore.createRelationship( rel2, node2, node1, relType2 );
-        long r1prop1 = pStore.nextId();
-        long r1prop2 = pStore.nextId();
-        long r1prop3 = pStore.nextId();
-        rStore.addProperty( rel1, r1prop1, index( "prop1" ), "string1" );
-        rStore.addProperty( rel1, r1prop2, index( "prop2" ),
+        long r1prop1 = rStore.addProperty( rel1, index( "prop1" ), "string1" );
+        long r1prop2 = rStore.addProperty( rel1, index( "prop2" ),
             new Integer( 1 ) );
-        rStore.addProperty( rel1, r1prop3, index( "prop3" ), new Boolean(
+        long r1prop3 = rStore.addProperty( rel1, index( "prop3" ), new Boolean(
             true ) );
-        long r2prop1 = pStore.nextId();
-        long r2prop2 = pStore.nextId();
-        long r2prop3 = pStore.nextId();
-        rStore.addProperty( rel2, r2prop1, index( "prop1" ), "string2" );
-        rStore.addProperty( rel2, r2prop2, index( "prop2" ),
+        long r2prop1 = rStore.addProperty( rel2, index( "prop1" ), "string2" );
+        long r2prop2 = rStore.addProperty( rel2, index( "prop2" ),
             new Integer( 2 ) );
-        rStore.addProperty( rel2, r2prop3, index( "prop3" ), new Boolean(
+        long r2prop3 = rStore.addProperty( rel2, index( "prop3" ), new Boolean(
             false ) );
         commitTx();
         ds.close();
@@ -355,8 +349,7 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         {
             nodeIds[i] = ds.nextId( Node.class );
             nStore.createNode( nodeIds[i] );
-            nStore.addProperty( nodeIds[i], pStore.nextId(),
-                index( "nisse" ), new Integer( 10 - i ) );
+            nStore.addProperty( nodeIds[i], index( "nisse" ), new Integer( 10 - i ) );
         }
         for ( int i = 0; i < 2; i++ )
         {
@@ -370,7 +363,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
             RelationshipChainPosition pos = 
                 rStore.getRelationshipChainPosition( nodeIds[i] );
             for ( RelationshipData rel : 
-                rStore.getMoreRelationships( nodeIds[i], pos ) )
+                rStore.getMoreRelationships( nodeIds[i], pos,
+                null, Direction.BOTH ) )
             {
                 rStore.deleteRelationship( rel.getId() );
             }
@@ -380,11 +374,11 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         ds.close();
     }
 
-    private Object getValue( PropertyRecord propertyRecord ) throws IOException
+    private Object getValue( PropertyBlock block ) throws IOException
     {
         try
         {
-            return propertyRecord.getType().getValue( propertyRecord, pStore );
+            return block.getType().getValue( block, pStore );
         }
         catch ( InvalidRecordException ex )
         {
@@ -402,8 +396,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor( 
@@ -436,7 +430,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         RelationshipChainPosition pos = rStore.getRelationshipChainPosition( node );
         while ( true )
         {
-            Iterable<RelationshipData> relData = rStore.getMoreRelationships( node, pos );
+            Iterable<RelationshipData> relData = rStore.getMoreRelationships( node, pos,
+                null, Direction.BOTH );
             if ( !relData.iterator().hasNext() )
             {
                 break;
@@ -473,8 +468,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -508,7 +503,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         RelationshipChainPosition pos = rStore.getRelationshipChainPosition( node );
         while ( true )
         {
-            Iterable<RelationshipData> relData = rStore.getMoreRelationships( node, pos );
+            Iterable<RelationshipData> relData = rStore.getMoreRelationships( node, pos,
+                null, Direction.BOTH );
             if ( !relData.iterator().hasNext() )
             {
                 break;
@@ -544,8 +540,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -589,8 +585,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -664,8 +660,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -701,12 +697,14 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         RelationshipChainPosition firstPos = 
             rStore.getRelationshipChainPosition( firstNode );
         Iterator<RelationshipData> first = 
-            rStore.getMoreRelationships( firstNode, firstPos ).iterator();
+            rStore.getMoreRelationships( firstNode, firstPos,
+                null, Direction.BOTH ).iterator();
         first.next();
         RelationshipChainPosition secondPos = 
             rStore.getRelationshipChainPosition( secondNode );
         Iterator<RelationshipData> second = 
-            rStore.getMoreRelationships( secondNode, secondPos ).iterator();
+            rStore.getMoreRelationships( secondNode, secondPos,
+                null, Direction.BOTH ).iterator();
         second.next();
         assertTrue( first.hasNext() );
         assertTrue( second.hasNext() );
@@ -721,8 +719,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -758,11 +756,13 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         RelationshipChainPosition firstPos = 
             rStore.getRelationshipChainPosition( firstNode );
         Iterator<RelationshipData> first = 
-            rStore.getMoreRelationships( firstNode, firstPos ).iterator();
+            rStore.getMoreRelationships( firstNode, firstPos,
+                null, Direction.BOTH ).iterator();
         RelationshipChainPosition secondPos = 
             rStore.getRelationshipChainPosition( secondNode );
         Iterator<RelationshipData> second = 
-            rStore.getMoreRelationships( secondNode, secondPos ).iterator();
+            rStore.getMoreRelationships( secondNode, secondPos,
+                null, Direction.BOTH ).iterator();
         assertTrue( first.hasNext() );
         assertTrue( second.hasNext() );
     }
@@ -776,8 +776,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -808,7 +808,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         RelationshipChainPosition pos = 
             rStore.getRelationshipChainPosition( node );
         Iterator<RelationshipData> rels = 
-            rStore.getMoreRelationships( node, pos ).iterator();
+            rStore.getMoreRelationships( node, pos,
+                null, Direction.BOTH ).iterator();
         assertTrue( rels.hasNext() );
         nStore.deleteNode( node );
     }
@@ -822,8 +823,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         for ( int keyId : props.keySet() )
         {
             long id = props.get( keyId ).getId();
-            PropertyRecord record = pStore.getRecord( id );
-            PropertyData data = new PropertyData( id, getValue( record ) );
+            PropertyBlock block = pStore.getBlock( id );
+            PropertyData data = new PropertyData( id, getValue( block ) );
             if ( data.getId() == prop1 )
             {
                 assertEquals( "prop1", MyPropertyIndex.getIndexFor(
@@ -854,7 +855,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         RelationshipChainPosition pos = 
             rStore.getRelationshipChainPosition( node );
         Iterator<RelationshipData> rels = 
-            rStore.getMoreRelationships( node, pos ).iterator();
+            rStore.getMoreRelationships( node, pos,
+                null, Direction.BOTH ).iterator();
         assertTrue( rels.hasNext() );
         nStore.deleteNode( node );
     }
@@ -879,8 +881,7 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         {
             nodeIds[i] = ds.nextId( Node.class );
             nStore.createNode( nodeIds[i] );
-            nStore.addProperty( nodeIds[i], pStore.nextId(),
-                index( "nisse" ), new Integer( 10 - i ) );
+            nStore.addProperty( nodeIds[i], index( "nisse" ), new Integer( 10 - i ) );
         }
         for ( int i = 0; i < 2; i++ )
         {
@@ -894,7 +895,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
             RelationshipChainPosition pos = 
                 rStore.getRelationshipChainPosition( nodeIds[i] );
             for ( RelationshipData rel : 
-                rStore.getMoreRelationships( nodeIds[i], pos ) )
+                rStore.getMoreRelationships( nodeIds[i], pos,
+                null, Direction.BOTH ) )
             {
                 rStore.deleteRelationship( rel.getId() );
             }
@@ -915,8 +917,7 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         {
             nodeIds[i] = ds.nextId( Node.class );
             nStore.createNode( nodeIds[i] );
-            nStore.addProperty( nodeIds[i], pStore.nextId(),
-                index( "nisse" ), new Integer( 10 - i ) );
+            nStore.addProperty( nodeIds[i], index( "nisse" ), new Integer( 10 - i ) );
         }
         for ( int i = 0; i < 2; i++ )
         {
@@ -932,7 +933,8 @@ public class TestNeoStore extends AbstractNeo4jTestCase
             RelationshipChainPosition pos = 
                 rStore.getRelationshipChainPosition( nodeIds[i] );
             for ( RelationshipData rel : 
-                rStore.getMoreRelationships( nodeIds[i], pos ) )
+                rStore.getMoreRelationships( nodeIds[i], pos,
+                null, Direction.BOTH ) )
             {
                 rStore.deleteRelationship( rel.getId() );
             }
@@ -998,8 +1000,7 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         startTx();
         long nodeId = ds.nextId( Node.class );
         nStore.createNode( nodeId );
-        long propertyId = pStore.nextId();
-        nStore.addProperty( nodeId, propertyId, index( "nisse" ),
+        long propertyId = nStore.addProperty( nodeId, index( "nisse" ),
             new Integer( 10 ) );
         commitTx();
         ds.close();
@@ -1012,6 +1013,99 @@ public class TestNeoStore extends AbstractNeo4jTestCase
         ds.close();
     }
 
+    @Test
+    public void testLoadPropertyChain() throws Exception
+    {
+        initializeStores();
+        startTx();
+        long nodeId = ds.nextId( Node.class );
+        nStore.createNode( nodeId );
+        long propertyIds[] = new long[10];
+        for ( int i = 0; i < propertyIds.length; i++ )
+        {
+            propertyIds[i] = nStore.addProperty( nodeId, index( "chain" + i ),
+                new Integer( i ) );
+        }
+        commitTx();
+        ds.close();
+        initializeStores();
+        // each record holds four properties and new records are added first
+        // in the chain
+        List<PropertyRecord> chain = pStore.getLightRecordChain(
+            PropertyRecord.recordId( propertyIds[propertyIds.length - 1] ) );
+        assertEquals( 3, chain.size() );
+        for ( int i = 0; i < propertyIds.length; i++ )
+        {
+            int blocksPerRecord = PropertyRecord.BLOCKS_PER_RECORD;
+            PropertyRecord record = chain.get( chain.size() - 1 - i
+                / blocksPerRecord );
+            assertEquals( PropertyRecord.recordId( propertyIds[i] ),
+                record.getId() );
+            assertEquals( i % blocksPerRecord,
+                PropertyRecord.blockIndex( propertyIds[i] ) );
+            PropertyBlock block = record.getBlock( i % blocksPerRecord );
+            assertTrue( block.isLight() );
+            assertEquals( i, pStore.getValue( block ) );
+        }
+        startTx();
+        ArrayMap<Integer,PropertyData> props = nStore.getProperties( nodeId,
+            false );
+        assertEquals( propertyIds.length, props.size() );
+        for ( int i = 0; i < propertyIds.length; i++ )
+        {
+            PropertyData data = props.get( index( "chain" + i ).getKeyId() );
+            assertEquals( propertyIds[i], data.getId() );
+            assertEquals( i, data.getValue() );
+        }
+        commitTx();
+        ds.close();
+    }
+
+    @Test
+    public void testRepackPropertyChain() throws Exception
+    {
+        initializeStores();
+        startTx();
+        long nodeId = ds.nextId( Node.class );
+        nStore.createNode( nodeId );
+        long propertyIds[] = new long[10];
+        for ( int i = 0; i < propertyIds.length; i++ )
+        {
+            propertyIds[i] = nStore.addProperty( nodeId, index( "repack" + i ),
+                "value" + i );
+        }
+        commitTx();
+        ds.close();
+        initializeStores();
+        startTx();
+        // leaves one property in each record
+        for ( int i = 1; i < propertyIds.length - 1; i++ )
+        {
+            if ( i != 4 )
+            {
+                nStore.removeProperty( nodeId, propertyIds[i] );
+            }
+        }
+        commitTx();
+        ds.close();
+        initializeStores();
+        startTx();
+        ArrayMap<Integer,PropertyData> props = nStore.getProperties( nodeId,
+            false );
+        assertEquals( 3, props.size() );
+        // moved into the first record of the chain, which is the newest one
+        long firstRecord = PropertyRecord.recordId( propertyIds[9] );
+        for ( int i : new int[] { 0, 4, 9 } )
+        {
+            PropertyData data = props.get( index( "repack" + i ).getKeyId() );
+            assertEquals( "value" + i, data.getValue() );
+            assertEquals( firstRecord, PropertyRecord.recordId( data.getId() ) );
+        }
+        assertEquals( 1, pStore.getLightRecordChain( firstRecord ).size() );
+        commitTx();
+        ds.close();
+    }
+
     @Test
     public void testSetBlockSize() throws Exception
     {
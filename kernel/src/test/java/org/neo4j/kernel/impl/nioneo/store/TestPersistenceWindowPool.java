@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
+
+public class TestPersistenceWindowPool
+{
+    private static final int RECORD_SIZE = 9;
+    private static final int RECORD_COUNT = 10000;
+
+    private String storeFile()
+    {
+        String path = AbstractNeo4jTestCase.getStorePath( "windowpool" );
+        new File( path ).mkdirs();
+        return path + File.separator + "pool.db";
+    }
+
+    @Test
+    public void concurrentReadersAndWritersSeeTheirOwnRecords() throws Exception
+    {
+        File file = new File( storeFile() );
+        file.delete();
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        raf.setLength( RECORD_SIZE * RECORD_COUNT );
+        FileChannel channel = raf.getChannel();
+        try
+        {
+            // room for only a part of the file so both bricks and rows are used
+            final PersistenceWindowPool pool = new PersistenceWindowPool(
+                "pool.db", RECORD_SIZE, channel, RECORD_SIZE * RECORD_COUNT / 4,
+                true, false );
+            final int threadCount = 8;
+            final int rounds = 3;
+            final List<Throwable> failures = new ArrayList<Throwable>();
+            Thread threads[] = new Thread[threadCount];
+            for ( int t = 0; t < threadCount; t++ )
+            {
+                final int threadId = t;
+                threads[t] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            for ( int round = 0; round < rounds; round++ )
+                            {
+                                for ( long id = threadId; id < RECORD_COUNT; id += threadCount )
+                                {
+                                    write( pool, id, id * rounds + round );
+                                    assertEquals( id * rounds + round, read( pool, id ) );
+                                }
+                            }
+                        }
+                        catch ( Throwable e )
+                        {
+                            synchronized ( failures )
+                            {
+                                failures.add( e );
+                            }
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            assertTrue( failures.toString(), failures.isEmpty() );
+            for ( long id = 0; id < RECORD_COUNT; id++ )
+            {
+                assertEquals( id * rounds + rounds - 1, read( pool, id ) );
+            }
+            // counters aren't exact under concurrency, but both paths are used
+            WindowPoolStats stats = pool.getStats();
+            assertTrue( stats.getHitCount() > 0 );
+            assertTrue( stats.getMissCount() > 0 );
+            pool.close();
+        }
+        finally
+        {
+            channel.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void flushAllLeavesWrittenWindowsClean() throws Exception
+    {
+        File file = new File( storeFile() );
+        file.delete();
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        FileChannel channel = raf.getChannel();
+        try
+        {
+            // an empty file gets its bricks mapped as it grows
+            PersistenceWindowPool pool = new PersistenceWindowPool( "pool.db",
+                RECORD_SIZE, channel, RECORD_SIZE * RECORD_COUNT * 2, true,
+                false );
+            assertFalse( isDirty( pool, 0 ) );
+            assertFalse( isDirty( pool, RECORD_COUNT - 1 ) );
+            write( pool, 0, 42 );
+            assertTrue( isDirty( pool, 0 ) );
+            assertFalse( isDirty( pool, RECORD_COUNT - 1 ) );
+            pool.flushAll();
+            assertFalse( isDirty( pool, 0 ) );
+            assertEquals( 42, read( pool, 0 ) );
+            pool.close();
+        }
+        finally
+        {
+            channel.close();
+            file.delete();
+        }
+    }
+
+    private static boolean isDirty( PersistenceWindowPool pool, long id )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.READ );
+        try
+        {
+            assertTrue( window instanceof MappedPersistenceWindow );
+            return ((LockableWindow) window).isDirty();
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+
+    private static void write( PersistenceWindowPool pool, long id, long value )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.WRITE );
+        try
+        {
+            window.getOffsettedBuffer( id ).put( (byte) 1 ).putLong( value );
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+
+    private static long read( PersistenceWindowPool pool, long id )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.READ );
+        try
+        {
+            Buffer buffer = window.getOffsettedBuffer( id );
+            buffer.get();
+            return buffer.getLong();
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+}
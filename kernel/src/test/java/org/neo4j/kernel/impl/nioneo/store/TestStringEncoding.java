@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestStringEncoding
+{
+    @Test
+    public void canEncodeEmptyString() throws Exception
+    {
+        assertEncodes( "", StringEncoding.LATIN1, 1 );
+    }
+
+    @Test
+    public void asciiAndLatin1StringsUseOneBytePerChar() throws Exception
+    {
+        assertEncodes( "Hello world, this is a string", StringEncoding.LATIN1, 30 );
+        assertEncodes( "Sm\u00f6rg\u00e5sbord \u00e0 la carte", StringEncoding.LATIN1, 23 );
+    }
+
+    @Test
+    public void mostlyAsciiStringsUseUtf8() throws Exception
+    {
+        assertEncodes( "Price: 100\u20ac", StringEncoding.UTF8, 1 + 10 + 3 );
+        assertEncodes( "Greek \u03b1\u03b2\u03b3", StringEncoding.UTF8, 1 + 6 + 6 );
+    }
+
+    @Test
+    public void stringsWithMostlyWideCharsUseUtf16() throws Exception
+    {
+        assertEncodes( "\u65e5\u672c\u8a9e\u306e\u6587", StringEncoding.UTF16, 1 + 10 );
+    }
+
+    @Test
+    public void canEncodeSupplementaryChars() throws Exception
+    {
+        // one code point as a surrogate pair, four bytes in UTF-8
+        assertEncodes( "emoji \uD83D\uDE00 here", StringEncoding.UTF8, 1 + 11 + 4 );
+    }
+
+    @Test
+    public void unpairedSurrogatesAreKeptAsUtf16() throws Exception
+    {
+        assertEncodes( "broken \uD83D pair", StringEncoding.UTF16, 1 + 13 * 2 );
+        assertEncodes( "\uDE00 low first", StringEncoding.UTF16, 1 + 11 * 2 );
+    }
+
+    @Test
+    public void canDecodeFromOffset() throws Exception
+    {
+        byte[] encoded = StringEncoding.encode( "\u00e5\u00e4\u00f6" );
+        byte[] data = new byte[encoded.length + 4];
+        System.arraycopy( encoded, 0, data, 2, encoded.length );
+        assertEquals( "\u00e5\u00e4\u00f6", StringEncoding.decode( data, 2, encoded.length ) );
+    }
+
+    @Test( expected = InvalidRecordException.class )
+    public void unknownHeaderFailsToDecode() throws Exception
+    {
+        StringEncoding.decode( new byte[] { 42, 'a' }, 0, 2 );
+    }
+
+    private void assertEncodes( String string, StringEncoding encoding, int length )
+    {
+        byte[] data = StringEncoding.encode( string );
+        assertEquals( encoding.ordinal() + 1, data[0] );
+        assertEquals( length, data.length );
+        assertEquals( string, StringEncoding.decode( data, 0, data.length ) );
+    }
+}
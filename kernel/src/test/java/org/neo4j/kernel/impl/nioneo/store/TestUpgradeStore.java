@@ -19,9 +19,12 @@
  */
 package org.neo4j.kernel.impl.nioneo.store;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
 import static org.neo4j.helpers.collection.MapUtil.stringMap;
 import static org.neo4j.kernel.Config.ALLOW_STORE_UPGRADE;
 import static org.neo4j.kernel.Config.ARRAY_BLOCK_SIZE;
@@ -34,13 +37,22 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.TransactionFailureException;
 import org.neo4j.helpers.UTF8;
 import org.neo4j.helpers.collection.MapUtil;
@@ -49,6 +61,8 @@ import org.neo4j.kernel.EmbeddedGraphDatabase;
 import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
 import org.neo4j.kernel.impl.batchinsert.BatchInserterImpl;
+import org.neo4j.kernel.impl.transaction.xaframework.LogIoUtils;
+import org.neo4j.kernel.impl.util.StringLogger;
 
 public class TestUpgradeStore
 {
@@ -234,6 +248,284 @@ public class TestUpgradeStore
         }
     }
     
+    @Test
+    public void makeSureRelationshipChainsAreSplitUpWhenUpgrading() throws Exception
+    {
+        String path = path( 15 );
+        long[] nodes = createStoreWithJoinedRelationshipChains( path );
+        GraphDatabaseService db = new EmbeddedGraphDatabase( path, stringMap( ALLOW_STORE_UPGRADE, "true" ) );
+        try
+        {
+            assertRelationshipsSplitUp( db, nodes );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        assertFalse( new File( path, RelationshipGroupMigration.UPGRADE_DIRECTORY ).exists() );
+    }
+    
+    @Test
+    public void makeSureInterruptedSplitUpIsDoneAgain() throws Exception
+    {
+        String path = path( 18 );
+        long[] nodes = createStoreWithJoinedRelationshipChains( path );
+        // a crash while migrating leaves half written files and a neo store
+        // that wasn't shut down cleanly, the logs were already moved away
+        File upgradeDir = new File( path, RelationshipGroupMigration.UPGRADE_DIRECTORY );
+        upgradeDir.mkdir();
+        assertTrue( new File( upgradeDir, "neostore.nodestore.db" ).createNewFile() );
+        LogIoUtils.moveAllLogicalLogs( new File( path ), "1.3-logs" );
+        truncateVersion( new File( path, "neostore" ), "NeoStore v0.9.9" );
+
+        GraphDatabaseService db = new EmbeddedGraphDatabase( path, stringMap( ALLOW_STORE_UPGRADE, "true" ) );
+        try
+        {
+            assertRelationshipsSplitUp( db, nodes );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        assertFalse( upgradeDir.exists() );
+    }
+    
+    @Test
+    public void makeSureSplitUpFilesAreMovedInAfterInterruption() throws Exception
+    {
+        String path = path( 19 );
+        long[] nodes = createStoreWithJoinedRelationshipChains( path );
+        String neoStoreFileName = new File( path, "neostore" ).getAbsolutePath();
+        Map<Object, Object> config = MapUtil.<Object, Object>genericMap(
+                IdGeneratorFactory.class, new NoLimitidGeneratorFactory(),
+                FileSystemAbstraction.class, CommonFactories.defaultFileSystemAbstraction() );
+        RelationshipGroupMigration.migrateIntoUpgradeDirectory( neoStoreFileName, config,
+                StringLogger.SYSTEM );
+        // crash after the node store was moved in, but not the others
+        File upgradeDir = new File( path, RelationshipGroupMigration.UPGRADE_DIRECTORY );
+        File nodeStoreFile = new File( path, "neostore.nodestore.db" );
+        assertTrue( nodeStoreFile.delete() );
+        assertTrue( new File( upgradeDir, "neostore.nodestore.db" ).renameTo( nodeStoreFile ) );
+        LogIoUtils.moveAllLogicalLogs( new File( path ), "1.3-logs" );
+        truncateVersion( new File( path, "neostore" ), "NeoStore v0.9.9" );
+
+        // all files were written, so finishing doesn't need to be allowed
+        GraphDatabaseService db = new EmbeddedGraphDatabase( path );
+        try
+        {
+            assertRelationshipsSplitUp( db, nodes );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        assertFalse( upgradeDir.exists() );
+    }
+    
+    @Test
+    public void makeSureRelationshipChainsArentSplitUpIfNotExplicitlyToldTo() throws Exception
+    {
+        String path = path( 20 );
+        createStoreWithJoinedRelationshipChains( path );
+        Map<Object, Object> config = MapUtil.<Object, Object>genericMap(
+                IdGeneratorFactory.class, new NoLimitidGeneratorFactory(),
+                FileSystemAbstraction.class, CommonFactories.defaultFileSystemAbstraction() );
+        try
+        {
+            new NodeStore( new File( path, "neostore.nodestore.db" ).getAbsolutePath(), config );
+            fail( "Node store with one relationship chain per node shouldn't be opened" );
+        }
+        catch ( IllegalStoreVersionException e )
+        {   // Good
+        }
+        try
+        {
+            new RelationshipStore( new File( path, "neostore.relationshipstore.db" ).getAbsolutePath(), config );
+            fail( "Relationship store with one relationship chain per node shouldn't be opened" );
+        }
+        catch ( IllegalStoreVersionException e )
+        {   // Good
+        }
+        assertCannotStart( path, "Shouldn't be able to split up relationship chains if not told to" );
+    }
+    
+    /**
+     * Creates a store with three nodes and relationships of two types between
+     * them, kept in one chain per node the way v0.9.9 stores did.
+     *
+     * @return the ids of the three nodes
+     */
+    private long[] createStoreWithJoinedRelationshipChains( String path ) throws IOException
+    {
+        GraphDatabaseService db = new EmbeddedGraphDatabase( path );
+        Transaction tx = db.beginTx();
+        Node node1 = db.createNode();
+        Node node2 = db.createNode();
+        Node node3 = db.createNode();
+        node1.createRelationshipTo( node2, Types.KNOWS );
+        node1.createRelationshipTo( node2, Types.KNOWS );
+        node2.createRelationshipTo( node1, Types.KNOWS );
+        node1.createRelationshipTo( node3, Types.LIKES );
+        node3.createRelationshipTo( node2, Types.LIKES );
+        tx.success();
+        tx.finish();
+        db.shutdown();
+
+        joinRelationshipChains( path );
+        setOlderNeoStoreVersion( path, "NeoStore v0.9.9" );
+        return new long[] { node1.getId(), node2.getId(), node3.getId() };
+    }
+    
+    private void assertRelationshipsSplitUp( GraphDatabaseService db, long[] nodes )
+    {
+        Node node1 = db.getNodeById( nodes[0] );
+        Node node2 = db.getNodeById( nodes[1] );
+        Node node3 = db.getNodeById( nodes[2] );
+        assertEquals( 4, count( node1.getRelationships() ) );
+        assertEquals( 2, count( node1.getRelationships( Types.KNOWS, OUTGOING ) ) );
+        assertEquals( 1, count( node1.getRelationships( Types.KNOWS, INCOMING ) ) );
+        assertEquals( 1, count( node1.getRelationships( Types.LIKES, OUTGOING ) ) );
+        assertEquals( 0, count( node1.getRelationships( Types.LIKES, INCOMING ) ) );
+        assertEquals( 4, count( node2.getRelationships() ) );
+        assertEquals( 1, count( node2.getRelationships( Types.KNOWS, OUTGOING ) ) );
+        assertEquals( 1, count( node2.getRelationships( Types.LIKES, INCOMING ) ) );
+        assertEquals( 2, count( node3.getRelationships( Types.LIKES ) ) );
+
+        // the split up chains must be writable as well
+        Transaction tx = db.beginTx();
+        for ( Relationship rel : node1.getRelationships( Types.KNOWS ) )
+        {
+            rel.delete();
+        }
+        node2.createRelationshipTo( node3, Types.KNOWS );
+        tx.success();
+        tx.finish();
+        assertEquals( 1, count( node1.getRelationships() ) );
+        assertEquals( 2, count( node2.getRelationships() ) );
+        assertEquals( 1, count( node3.getRelationships( Types.KNOWS, INCOMING ) ) );
+    }
+    
+    @Test
+    public void makeSureStringsInTheOldEncodingCanBeReadAfterUpgrade() throws Exception
+    {
+        String path = path( 16 );
+        String value = "A string that is too long to be a short string";
+        GraphDatabaseService db = new EmbeddedGraphDatabase( path );
+        Transaction tx = db.beginTx();
+        Node node = db.createNode();
+        node.setProperty( "name", value );
+        tx.success();
+        tx.finish();
+        db.shutdown();
+
+        assertEquals( 1, rewriteAsUtf16Strings( path ) );
+        setOlderNeoStoreVersion( path, "NeoStore v0.9.9" );
+        db = new EmbeddedGraphDatabase( path, stringMap( ALLOW_STORE_UPGRADE, "true" ) );
+        try
+        {
+            node = db.getNodeById( node.getId() );
+            assertEquals( value, node.getProperty( "name" ) );
+            tx = db.beginTx();
+            node.setProperty( "other", value + " \u00e5\u00e4\u00f6" );
+            node.setProperty( "array", new String[] { value, "\u65e5\u672c" } );
+            tx.success();
+            tx.finish();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        db = new EmbeddedGraphDatabase( path );
+        try
+        {
+            node = db.getNodeById( node.getId() );
+            assertEquals( value, node.getProperty( "name" ) );
+            assertEquals( value + " \u00e5\u00e4\u00f6", node.getProperty( "other" ) );
+            assertTrue( Arrays.equals( new String[] { value, "\u65e5\u672c" },
+                    (String[]) node.getProperty( "array" ) ) );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void makeSurePropertiesArePackedWhenUpgrading() throws Exception
+    {
+        String path = path( 21 );
+        String longString = "A string that is too long to be a short string";
+        GraphDatabaseService db = new EmbeddedGraphDatabase( path );
+        Transaction tx = db.beginTx();
+        Node node1 = db.createNode();
+        Node node2 = db.createNode();
+        for ( int i = 0; i < 6; i++ )
+        {
+            node1.setProperty( "key" + i, i );
+        }
+        node1.setProperty( "long", longString );
+        Relationship rel = node1.createRelationshipTo( node2, Types.KNOWS );
+        rel.setProperty( "since", 1999 );
+        rel.setProperty( "names", new String[] { "a", longString } );
+        tx.success();
+        tx.finish();
+        db.shutdown();
+
+        assertEquals( 9, unpackPropertyRecords( path ) );
+        joinRelationshipChains( path );
+        setOlderNeoStoreVersion( path, "NeoStore v0.9.9" );
+        new EmbeddedGraphDatabase( path, stringMap( ALLOW_STORE_UPGRADE, "true" ) ).shutdown();
+        // seven node properties in two records and two relationship ones in one
+        assertEquals( 3, propertyStoreHighId( path ) );
+
+        db = new EmbeddedGraphDatabase( path );
+        try
+        {
+            node1 = db.getNodeById( node1.getId() );
+            for ( int i = 0; i < 6; i++ )
+            {
+                assertEquals( i, node1.getProperty( "key" + i ) );
+            }
+            assertEquals( longString, node1.getProperty( "long" ) );
+            rel = db.getRelationshipById( rel.getId() );
+            assertEquals( 1999, rel.getProperty( "since" ) );
+            assertTrue( Arrays.equals( new String[] { "a", longString },
+                    (String[]) rel.getProperty( "names" ) ) );
+
+            // the packed chains must be writable as well
+            tx = db.beginTx();
+            node1.removeProperty( "key2" );
+            node1.setProperty( "key3", "three" );
+            node1.removeProperty( "long" );
+            rel.removeProperty( "since" );
+            db.getNodeById( node2.getId() ).setProperty( "new", true );
+            tx.success();
+            tx.finish();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        db = new EmbeddedGraphDatabase( path );
+        try
+        {
+            node1 = db.getNodeById( node1.getId() );
+            assertFalse( node1.hasProperty( "key2" ) );
+            assertFalse( node1.hasProperty( "long" ) );
+            assertEquals( "three", node1.getProperty( "key3" ) );
+            assertEquals( 5, node1.getProperty( "key5" ) );
+            rel = db.getRelationshipById( rel.getId() );
+            assertFalse( rel.hasProperty( "since" ) );
+            assertTrue( Arrays.equals( new String[] { "a", longString },
+                    (String[]) rel.getProperty( "names" ) ) );
+            assertEquals( true, db.getNodeById( node2.getId() ).getProperty( "new" ) );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
     private void assertCannotStart( String path, String failMessage )
     {
         GraphDatabaseService db = null;
@@ -277,13 +569,33 @@ public class TestUpgradeStore
     
     private void setOlderNeoStoreVersion( String path ) throws IOException
     {
-        String oldVersion = "NeoStore v0.9.6";
-        FileChannel channel = new RandomAccessFile( new File( path, "neostore" ), "rw" ).getChannel();
+        setOlderNeoStoreVersion( path, "NeoStore v0.9.6" );
+    }
+    
+    private void setOlderNeoStoreVersion( String path, String oldVersion ) throws IOException
+    {
+        setOlderVersion( new File( path, "neostore" ), oldVersion );
+    }
+    
+    private void setOlderVersion( File file, String oldVersion ) throws IOException
+    {
+        FileChannel channel = new RandomAccessFile( file, "rw" ).getChannel();
         channel.position( channel.size() - UTF8.encode( oldVersion ).length );
         ByteBuffer buffer = ByteBuffer.wrap( UTF8.encode( oldVersion ) );
         channel.write( buffer );
         channel.close();
     }
+    
+    /**
+     * Removes the version at the end of <CODE>file</CODE>, the way it is
+     * while a store is open.
+     */
+    private void truncateVersion( File file, String version ) throws IOException
+    {
+        FileChannel channel = new RandomAccessFile( file, "rw" ).getChannel();
+        channel.truncate( channel.size() - UTF8.encode( version ).length );
+        channel.close();
+    }
 
     private void setBlockSize( File file, int blockSize, String oldVersionToSet ) throws IOException
     {
@@ -302,6 +614,246 @@ public class TestUpgradeStore
         channel.close();
     }
 
+    private static int count( Iterable<Relationship> relationships )
+    {
+        int count = 0;
+        for ( Relationship rel : relationships )
+        {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Links all relationships of each node into one chain, the way stores
+     * older than v0.A.0 kept them, and removes the relationship group store.
+     */
+    private void joinRelationshipChains( String path ) throws IOException
+    {
+        Map<Object, Object> config = MapUtil.<Object, Object>genericMap(
+                IdGeneratorFactory.class, new NoLimitidGeneratorFactory(),
+                FileSystemAbstraction.class, CommonFactories.defaultFileSystemAbstraction() );
+        NodeStore nodeStore = new NodeStore( new File( path, "neostore.nodestore.db" ).getAbsolutePath(), config );
+        RelationshipStore relStore = new RelationshipStore(
+                new File( path, "neostore.relationshipstore.db" ).getAbsolutePath(), config );
+        File groupFile = new File( path, "neostore.relationshipgroupstore.db" );
+        RelationshipGroupStore groupStore = new RelationshipGroupStore( groupFile.getAbsolutePath(), config );
+        for ( long nodeId = 0; nodeId < nodeStore.getHighId(); nodeId++ )
+        {
+            if ( !nodeStore.loadLightNode( nodeId ) )
+            {
+                continue;
+            }
+            NodeRecord node = nodeStore.getRecord( nodeId );
+            List<Long> relIds = new ArrayList<Long>();
+            for ( long groupId = node.getNextGroup(); groupId != Record.NO_NEXT_GROUP.intValue(); )
+            {
+                RelationshipGroupRecord group = groupStore.getRecord( groupId );
+                for ( RelationshipDirection direction : RelationshipDirection.values() )
+                {
+                    long relId = group.getFirst( direction );
+                    while ( relId != Record.NO_NEXT_RELATIONSHIP.intValue() )
+                    {
+                        relIds.add( relId );
+                        RelationshipRecord rel = relStore.getRecord( relId );
+                        relId = rel.getFirstNode() == nodeId ? rel.getFirstNextRel() : rel.getSecondNextRel();
+                    }
+                }
+                groupId = group.getNext();
+            }
+            for ( int i = 0; i < relIds.size(); i++ )
+            {
+                RelationshipRecord rel = relStore.getRecord( relIds.get( i ) );
+                long prev = i == 0 ? Record.NO_PREV_RELATIONSHIP.intValue() : relIds.get( i - 1 );
+                long next = i == relIds.size() - 1 ? Record.NO_NEXT_RELATIONSHIP.intValue() : relIds.get( i + 1 );
+                if ( rel.getFirstNode() == nodeId )
+                {
+                    rel.setFirstPrevRel( prev );
+                    rel.setFirstNextRel( next );
+                }
+                if ( rel.getSecondNode() == nodeId )
+                {
+                    rel.setSecondPrevRel( prev );
+                    rel.setSecondNextRel( next );
+                }
+                relStore.updateRecord( rel );
+            }
+            node.setNextGroup( relIds.isEmpty() ? Record.NO_NEXT_RELATIONSHIP.intValue() : relIds.get( 0 ) );
+            nodeStore.updateRecord( node );
+        }
+        nodeStore.close();
+        relStore.close();
+        groupStore.close();
+        assertTrue( groupFile.delete() );
+        assertTrue( new File( path, "neostore.relationshipgroupstore.db.id" ).delete() );
+        setOlderVersion( new File( path, "neostore.nodestore.db" ), "NodeStore v0.9.9" );
+        setOlderVersion( new File( path, "neostore.relationshipstore.db" ), "RelationshipStore v0.9.9" );
+    }
+
+    /**
+     * Rewrites all dynamic string property values as plain UTF-16, the way
+     * stores older than v0.A.0 kept them.
+     *
+     * @return the number of values rewritten
+     */
+    private int rewriteAsUtf16Strings( String path )
+    {
+        Map<Object, Object> config = MapUtil.<Object, Object>genericMap(
+                IdGeneratorFactory.class, new NoLimitidGeneratorFactory(),
+                FileSystemAbstraction.class, CommonFactories.defaultFileSystemAbstraction() );
+        PropertyStore store = new PropertyStore(
+                new File( path, "neostore.propertystore.db" ).getAbsolutePath(), config );
+        DynamicStringStore stringStore = store.getStringStore();
+        int count = 0;
+        for ( long id = 0; id < store.getHighId(); id++ )
+        {
+            PropertyRecord record;
+            try
+            {
+                record = store.getLightRecord( id );
+            }
+            catch ( InvalidRecordException e )
+            {
+                continue; // not in use
+            }
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+            {
+                PropertyBlock block = record.getBlock( i );
+                if ( block == null || block.getType() != PropertyType.ENCODED_STRING )
+                {
+                    continue;
+                }
+                store.makeHeavy( block );
+                String value = (String) store.getStringFor( block );
+                for ( DynamicRecord valueRecord : block.getValueRecords() )
+                {
+                    valueRecord.setInUse( false, PropertyType.STRING.intValue() );
+                }
+                long blockId = stringStore.nextBlockId();
+                for ( DynamicRecord valueRecord : stringStore.allocateRecords(
+                        blockId, value.toCharArray() ) )
+                {
+                    valueRecord.setType( PropertyType.STRING.intValue() );
+                    block.addValueRecord( valueRecord );
+                }
+                block.setPropBlock( blockId );
+                block.setType( PropertyType.STRING );
+                count++;
+            }
+            store.updateRecord( record );
+        }
+        store.close();
+        return count;
+    }
+
+    /**
+     * Rewrites the property store with one property per record, the way
+     * stores older than v0.A.0 kept them. Values in the dynamic stores are
+     * left as they are.
+     *
+     * @return the number of properties written
+     */
+    private int unpackPropertyRecords( String path ) throws IOException
+    {
+        Map<Object, Object> config = MapUtil.<Object, Object>genericMap(
+                IdGeneratorFactory.class, new NoLimitidGeneratorFactory(),
+                FileSystemAbstraction.class, CommonFactories.defaultFileSystemAbstraction() );
+        File propertyStoreFile = new File( path, "neostore.propertystore.db" );
+        NodeStore nodeStore = new NodeStore( new File( path, "neostore.nodestore.db" ).getAbsolutePath(), config );
+        RelationshipStore relStore = new RelationshipStore(
+                new File( path, "neostore.relationshipstore.db" ).getAbsolutePath(), config );
+        PropertyStore propStore = new PropertyStore( propertyStoreFile.getAbsolutePath(), config );
+        List<PropertyBlock> blocks = new ArrayList<PropertyBlock>();
+        Set<Integer> chainStarts = new HashSet<Integer>();
+        for ( long nodeId = 0; nodeId < nodeStore.getHighId(); nodeId++ )
+        {
+            if ( !nodeStore.loadLightNode( nodeId ) )
+            {
+                continue;
+            }
+            NodeRecord node = nodeStore.getRecord( nodeId );
+            node.setNextProp( unpackChain( propStore, node.getNextProp(), blocks, chainStarts ) );
+            nodeStore.updateRecord( node );
+        }
+        for ( long relId = 0; relId < relStore.getHighId(); relId++ )
+        {
+            RelationshipRecord rel = relStore.getLightRel( relId );
+            if ( rel != null )
+            {
+                rel.setNextProp( unpackChain( propStore, rel.getNextProp(), blocks, chainStarts ) );
+                relStore.updateRecord( rel );
+            }
+        }
+        nodeStore.close();
+        relStore.close();
+        propStore.close();
+
+        // in_use(byte)+type(int)+key_indexId(int)+prop_blockId(long)+
+        // prev_prop_id(int)+next_prop_id(int)
+        FileChannel channel = new RandomAccessFile( propertyStoreFile, "rw" ).getChannel();
+        channel.truncate( 0 );
+        ByteBuffer buffer = ByteBuffer.allocate( 25 );
+        for ( int id = 0; id < blocks.size(); id++ )
+        {
+            PropertyBlock block = blocks.get( id );
+            boolean first = chainStarts.contains( id );
+            boolean last = id + 1 == blocks.size() || chainStarts.contains( id + 1 );
+            buffer.clear();
+            buffer.put( Record.IN_USE.byteValue() ).putInt( block.getType().intValue() )
+                    .putInt( block.getKeyIndexId() ).putLong( block.getPropBlock() )
+                    .putInt( first ? -1 : id - 1 ).putInt( last ? -1 : id + 1 );
+            buffer.flip();
+            channel.write( buffer );
+        }
+        channel.write( ByteBuffer.wrap( UTF8.encode( "PropertyStore v0.9.9" ) ) );
+        channel.close();
+        return blocks.size();
+    }
+
+    /**
+     * Adds the properties of the chain starting at <CODE>firstProp</CODE> to
+     * <CODE>blocks</CODE>, where their index is their old record id, and
+     * returns the id of the first one.
+     */
+    private long unpackChain( PropertyStore propStore, long firstProp, List<PropertyBlock> blocks,
+            Set<Integer> chainStarts )
+    {
+        if ( firstProp == Record.NO_NEXT_PROPERTY.intValue() )
+        {
+            return firstProp;
+        }
+        int first = blocks.size();
+        chainStarts.add( first );
+        for ( PropertyRecord record : propStore.getLightRecordChain( firstProp ) )
+        {
+            for ( int i = 0; i < PropertyRecord.BLOCKS_PER_RECORD; i++ )
+            {
+                if ( record.getBlock( i ) != null )
+                {
+                    blocks.add( record.getBlock( i ) );
+                }
+            }
+        }
+        return first;
+    }
+
+    private long propertyStoreHighId( String path )
+    {
+        Map<Object, Object> config = MapUtil.<Object, Object>genericMap(
+                IdGeneratorFactory.class, new NoLimitidGeneratorFactory(),
+                FileSystemAbstraction.class, CommonFactories.defaultFileSystemAbstraction() );
+        PropertyStore store = new PropertyStore(
+                new File( path, "neostore.propertystore.db" ).getAbsolutePath(), config );
+        try
+        {
+            return store.getHighId();
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
     private void createManyRelationshipTypes( String path, int numberOfTypes )
     {
         String fileName = new File( path, "neostore.relationshiptypestore.db" ).getAbsolutePath();
@@ -361,6 +913,12 @@ public class TestUpgradeStore
         }
     }
     
+    private static enum Types implements RelationshipType
+    {
+        KNOWS,
+        LIKES
+    }
+    
     private static class NoLimitidGeneratorFactory implements IdGeneratorFactory
     {
         private final Map<IdType, IdGenerator> generators = new HashMap<IdType, IdGenerator>();
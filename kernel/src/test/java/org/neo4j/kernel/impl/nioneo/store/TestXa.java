@@ -254,6 +254,16 @@ public class TestXa extends AbstractNeo4jTestCase
         {
             assertTrue( file.delete() );
         }
+        file = new File( file( "neo.relationshipgroupstore.db" ) );
+        if ( file.exists() )
+        {
+            assertTrue( file.delete() );
+        }
+        file = new File( file( "neo.relationshipgroupstore.db.id" ) );
+        if ( file.exists() )
+        {
+            assertTrue( file.delete() );
+        }
         file = new File( file( "neo.relationshiptypestore.db" ) );
         if ( file.exists() )
         {
@@ -406,9 +416,7 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().getProperties( node1, false );
         int relType1 = (int) ds.nextId( RelationshipType.class );
         xaCon.getRelationshipTypeConsumer().addRelationshipType( relType1,
@@ -416,9 +424,7 @@ public class TestXa extends AbstractNeo4jTestCase
         long rel1 = ds.nextId( Relationship.class );
         xaCon.getRelationshipConsumer().createRelationship( rel1, node1,
             node2, relType1 );
-        long r1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getRelationshipConsumer().addProperty( rel1, r1prop1,
-            index( "prop1" ), "string1" );
+        long r1prop1 = xaCon.getRelationshipConsumer().addProperty( rel1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().changeProperty( node1, n1prop1, "string2" );
         xaCon.getRelationshipConsumer().changeProperty( rel1, r1prop1,
             "string2" );
@@ -443,6 +449,64 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.clearAllTransactions();
     }
     
+    @Test
+    public void testRecoverBigTransaction() throws Exception
+    {
+        // enough commands to be applied on several threads
+        Xid xid = new XidImpl( new byte[2], new byte[2] );
+        XAResource xaRes = xaCon.getXaResource();
+        xaRes.start( xid, XAResource.TMNOFLAGS );
+        int relType = (int) ds.nextId( RelationshipType.class );
+        xaCon.getRelationshipTypeConsumer().addRelationshipType( relType,
+            "bigtype" );
+        long[] nodes = new long[300];
+        long[] rels = new long[nodes.length - 1];
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            nodes[i] = ds.nextId( Node.class );
+            xaCon.getNodeConsumer().createNode( nodes[i] );
+            xaCon.getNodeConsumer().addProperty( nodes[i], index( "big" ), i );
+            if ( i > 0 )
+            {
+                rels[i - 1] = ds.nextId( Relationship.class );
+                xaCon.getRelationshipConsumer().createRelationship( rels[i - 1],
+                    nodes[i - 1], nodes[i], relType );
+                xaCon.getRelationshipConsumer().addProperty( rels[i - 1], index( "big" ), -i );
+            }
+        }
+        xaRes.end( xid, XAResource.TMSUCCESS );
+        xaRes.commit( xid, true );
+        copyLogicalLog( path() );
+        xaCon.clearAllTransactions();
+        ds.close();
+        deleteLogicalLogIfExist();
+        renameCopiedLogicalLog( path() );
+        ds = newNeoStore();
+        xaCon = (NeoStoreXaConnection) ds.getXaConnection();
+        xaRes = xaCon.getXaResource();
+        assertEquals( 0, xaRes.recover( XAResource.TMNOFLAGS ).length );
+
+        xid = new XidImpl( new byte[3], new byte[3] );
+        xaRes.start( xid, XAResource.TMNOFLAGS );
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            assertTrue( xaCon.getNodeConsumer().loadLightNode( nodes[i] ) );
+            assertEquals( i, xaCon.getNodeConsumer().getProperties( nodes[i],
+                false ).values().iterator().next().getValue() );
+        }
+        for ( int i = 0; i < rels.length; i++ )
+        {
+            assertEquals( nodes[i], xaCon.getRelationshipConsumer()
+                .getRelationship( rels[i] ).firstNode() );
+            assertEquals( -(i + 1), xaCon.getRelationshipConsumer()
+                .getProperties( rels[i], false ).values().iterator().next()
+                .getValue() );
+        }
+        xaRes.end( xid, XAResource.TMSUCCESS );
+        xaRes.commit( xid, true );
+        xaCon.clearAllTransactions();
+    }
+
     private NeoStoreXaDataSource newNeoStore() throws InstantiationException,
             IOException
     {
@@ -471,18 +535,14 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string1" );
         int relType1 = (int) ds.nextId( RelationshipType.class );
         xaCon.getRelationshipTypeConsumer().addRelationshipType( relType1,
             "relationshiptype1" );
         long rel1 = ds.nextId( Relationship.class );
         xaCon.getRelationshipConsumer().createRelationship( rel1, node1,
             node2, relType1 );
-        long r1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getRelationshipConsumer().addProperty( rel1, r1prop1,
-            index( "prop1" ), "string1" );
+        long r1prop1 = xaCon.getRelationshipConsumer().addProperty( rel1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().changeProperty( node1, n1prop1, "string2" );
         xaCon.getRelationshipConsumer().changeProperty( rel1, r1prop1,
             "string2" );
@@ -514,18 +574,14 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string1" );
         int relType1 = (int) ds.nextId( RelationshipType.class );
         xaCon.getRelationshipTypeConsumer().addRelationshipType( relType1,
             "relationshiptype1" );
         long rel1 = ds.nextId( Relationship.class );
         xaCon.getRelationshipConsumer().createRelationship( rel1, node1,
             node2, relType1 );
-        long r1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getRelationshipConsumer().addProperty( rel1, r1prop1,
-            index( "prop1" ), "string1" );
+        long r1prop1 = xaCon.getRelationshipConsumer().addProperty( rel1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().changeProperty( node1, n1prop1, "string2" );
         xaCon.getRelationshipConsumer().changeProperty( rel1, r1prop1,
             "string2" );
@@ -605,9 +661,7 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string value 1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string value 1" );
         xaRes.end( xid, XAResource.TMSUCCESS );
         xaRes.prepare( xid );
         copyLogicalLog( path() );
@@ -635,9 +689,7 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string value 1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string value 1" );
         xaRes.end( xid, XAResource.TMSUCCESS );
         xaRes.prepare( xid );
         xaRes.commit( xid, false );
@@ -678,9 +730,7 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().getProperties( node1, false );
         int relType1 = (int) ds.nextId( RelationshipType.class );
         xaCon.getRelationshipTypeConsumer().addRelationshipType( relType1,
@@ -688,9 +738,7 @@ public class TestXa extends AbstractNeo4jTestCase
         long rel1 = ds.nextId( Relationship.class );
         xaCon.getRelationshipConsumer().createRelationship( rel1, node1,
             node2, relType1 );
-        long r1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getRelationshipConsumer().addProperty( rel1, r1prop1,
-            index( "prop1" ), "string1" );
+        long r1prop1 = xaCon.getRelationshipConsumer().addProperty( rel1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().changeProperty( node1, n1prop1, "string2" );
         xaCon.getRelationshipConsumer().changeProperty( rel1, r1prop1,
             "string2" );
@@ -733,9 +781,7 @@ public class TestXa extends AbstractNeo4jTestCase
         xaCon.getNodeConsumer().createNode( node1 );
         long node2 = ds.nextId( Node.class );
         xaCon.getNodeConsumer().createNode( node2 );
-        long n1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getNodeConsumer().addProperty( node1, n1prop1,
-            index( "prop1" ), "string1" );
+        long n1prop1 = xaCon.getNodeConsumer().addProperty( node1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().getProperties( node1, false );
         int relType1 = (int) ds.nextId( RelationshipType.class );
         xaCon.getRelationshipTypeConsumer().addRelationshipType( relType1,
@@ -743,9 +789,7 @@ public class TestXa extends AbstractNeo4jTestCase
         long rel1 = ds.nextId( Relationship.class );
         xaCon.getRelationshipConsumer().createRelationship( rel1, node1,
             node2, relType1 );
-        long r1prop1 = ds.nextId( PropertyStore.class );
-        xaCon.getRelationshipConsumer().addProperty( rel1, r1prop1,
-            index( "prop1" ), "string1" );
+        long r1prop1 = xaCon.getRelationshipConsumer().addProperty( rel1, index( "prop1" ), "string1" );
         xaCon.getNodeConsumer().changeProperty( node1, n1prop1, "string2" );
         xaCon.getRelationshipConsumer().changeProperty( rel1, r1prop1,
             "string2" );
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.xa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.kernel.impl.transaction.xaframework.LogBuffer;
+import org.neo4j.kernel.impl.transaction.xaframework.XaCommand;
+
+public class TestCommandApplier
+{
+    private final CommandApplier applier = new CommandApplier( 4 );
+
+    @After
+    public void closeApplier()
+    {
+        applier.close();
+    }
+
+    private static class RecordingCommand extends XaCommand
+    {
+        private final List<Integer> executed;
+        private final int number;
+        private final Set<Thread> threads;
+
+        RecordingCommand( List<Integer> executed, int number,
+            Set<Thread> threads )
+        {
+            this.executed = executed;
+            this.number = number;
+            this.threads = threads;
+        }
+
+        @Override
+        public void execute()
+        {
+            executed.add( number );
+            threads.add( Thread.currentThread() );
+        }
+
+        @Override
+        public void writeToFile( LogBuffer buffer ) throws IOException
+        {
+        }
+    }
+
+    private List<List<? extends XaCommand>> groups( int groupCount,
+        int commandsPerGroup, List<List<Integer>> executed,
+        Set<Thread> threads )
+    {
+        List<List<? extends XaCommand>> groups =
+            new ArrayList<List<? extends XaCommand>>();
+        for ( int i = 0; i < groupCount; i++ )
+        {
+            List<Integer> groupExecuted = new ArrayList<Integer>();
+            executed.add( groupExecuted );
+            List<XaCommand> group = new ArrayList<XaCommand>();
+            for ( int j = 0; j < commandsPerGroup; j++ )
+            {
+                group.add( new RecordingCommand( groupExecuted, j, threads ) );
+            }
+            groups.add( group );
+        }
+        return groups;
+    }
+
+    private static void assertExecutedInOrder( List<List<Integer>> executed,
+        int commandsPerGroup )
+    {
+        for ( List<Integer> groupExecuted : executed )
+        {
+            assertEquals( commandsPerGroup, groupExecuted.size() );
+            for ( int i = 0; i < commandsPerGroup; i++ )
+            {
+                assertEquals( i, groupExecuted.get( i ).intValue() );
+            }
+        }
+    }
+
+    @Test
+    public void smallTransactionIsExecutedOnCallingThread()
+    {
+        List<List<Integer>> executed = new ArrayList<List<Integer>>();
+        Set<Thread> threads = Collections.synchronizedSet( new HashSet<Thread>() );
+        applier.apply( groups( 5, 10, executed, threads ) );
+        assertExecutedInOrder( executed, 10 );
+        assertEquals( 1, threads.size() );
+        assertSame( Thread.currentThread(), threads.iterator().next() );
+        assertEquals( 0, applier.getParallelCount() );
+    }
+
+    @Test
+    public void bigTransactionIsExecutedInOrderPerGroup()
+    {
+        int perGroup = CommandApplier.MIN_PARALLEL_COMMANDS;
+        List<List<Integer>> executed = new ArrayList<List<Integer>>();
+        Set<Thread> threads = Collections.synchronizedSet( new HashSet<Thread>() );
+        applier.apply( groups( 5, perGroup, executed, threads ) );
+        assertExecutedInOrder( executed, perGroup );
+        assertTrue( threads.size() > 1 );
+        assertEquals( 1, applier.getParallelCount() );
+    }
+
+    @Test
+    public void failureIsThrownAfterAllGroupsAreExecuted()
+    {
+        int perGroup = CommandApplier.MIN_PARALLEL_COMMANDS;
+        List<List<Integer>> executed = new ArrayList<List<Integer>>();
+        Set<Thread> threads = Collections.synchronizedSet( new HashSet<Thread>() );
+        List<List<? extends XaCommand>> groups = groups( 3, perGroup, executed,
+            threads );
+        final RuntimeException failure = new RuntimeException( "failing" );
+        List<XaCommand> failing = new ArrayList<XaCommand>();
+        failing.add( new XaCommand()
+        {
+            @Override
+            public void execute()
+            {
+                throw failure;
+            }
+
+            @Override
+            public void writeToFile( LogBuffer buffer ) throws IOException
+            {
+            }
+        } );
+        groups.add( 1, failing );
+        try
+        {
+            applier.apply( groups );
+            fail( "Should have thrown the failure" );
+        }
+        catch ( RuntimeException e )
+        {
+            assertSame( failure, e );
+        }
+        assertExecutedInOrder( executed, perGroup );
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.transaction;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -555,4 +556,91 @@ public class TestRWLock
         }
         go = true;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLockWaitsAreCounted() throws Exception
+    {
+        HelperThread t1 = new HelperThread( "T1" );
+        HelperThread t2 = new HelperThread( "T2" );
+        ResourceObject r1 = new ResourceObject( "R1" );
+        long waitCount = lm.getLockWaitCount();
+        try
+        {
+            t1.start();
+            t2.start();
+
+            t1.getWriteLock( r1 );
+            t1.waitForCompletionOfTask();
+            t2.getWriteLock( r1 );
+            Thread.sleep( 50 );
+            assertTrue( !t2.isTaskCompleted() );
+            t1.releaseWriteLock( r1 );
+            t1.waitForCompletionOfTask();
+            t2.waitForCompletionOfTask();
+            t2.releaseWriteLock( r1 );
+            t2.waitForCompletionOfTask();
+        }
+        finally
+        {
+            t1.quit();
+            t2.quit();
+        }
+        assertEquals( waitCount + 1, lm.getLockWaitCount() );
+        assertTrue( lm.getMaxLockWaitTime() > 0 );
+        long histogramCount = 0;
+        for ( long count : lm.getLockWaitTimeHistogram() )
+        {
+            histogramCount += count;
+        }
+        assertEquals( lm.getLockWaitCount(), histogramCount );
+        assertEquals( lm.getLockWaitTimeHistogramBounds().length + 1,
+            lm.getLockWaitTimeHistogram().length );
+    }
+
+    private int lockedCounter = 0;
+
+    @Test
+    public void testWriteLockIsExclusiveWhileLocksComeAndGo()
+        throws Exception
+    {
+        // the lock for the resource is dropped from the lock table every time
+        // it is released by the last thread, make sure no two threads ever
+        // get write lock on different lock instances for the same resource
+        final ResourceObject r1 = new ResourceObject( "R1" );
+        final int iterations = 10000;
+        Thread threads[] = new Thread[4];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int j = 0; j < iterations; j++ )
+                    {
+                        lm.getWriteLock( r1 );
+                        try
+                        {
+                            lockedCounter++;
+                        }
+                        finally
+                        {
+                            lm.releaseWriteLock( r1, null );
+                        }
+                    }
+                }
+            };
+        }
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        lm.getWriteLock( r1 );
+        assertEquals( threads.length * iterations, lockedCounter );
+        lm.releaseWriteLock( r1, null );
+    }
+}
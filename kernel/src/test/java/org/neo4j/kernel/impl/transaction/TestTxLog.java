@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.transaction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -27,6 +28,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
@@ -184,6 +187,203 @@ public class TestTxLog
         }
     }
 
+    @Test
+    public void testGroupCommitMarkAsCommitting() throws Exception
+    {
+        File file = new File( txFile() );
+        if ( file.exists() )
+        {
+            file.delete();
+        }
+        try
+        {
+            GroupCommit groupCommit = new GroupCommit( 8, 5 );
+            final TxLog txLog = new TxLog( txFile(), groupCommit );
+            int threadCount = 10;
+            final int txPerThread = 20;
+            Thread threads[] = new Thread[threadCount];
+            final List<Exception> failures = new ArrayList<Exception>();
+            for ( int i = 0; i < threadCount; i++ )
+            {
+                final byte threadId = (byte) i;
+                threads[i] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            for ( int j = 0; j < txPerThread; j++ )
+                            {
+                                byte globalId[] = new byte[] { threadId, (byte) j };
+                                txLog.txStart( globalId );
+                                txLog.markAsCommitting( globalId );
+                            }
+                        }
+                        catch ( Exception e )
+                        {
+                            synchronized ( failures )
+                            {
+                                failures.add( e );
+                            }
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            assertTrue( failures.toString(), failures.isEmpty() );
+            int txCount = threadCount * txPerThread;
+            assertEquals( txCount, groupCommit.getAppendCount() );
+            txLog.close();
+            TxLog reopened = new TxLog( txFile() );
+            List<?> lists[] = getRecordLists( reopened.getDanglingRecords() );
+            assertEquals( txCount, lists.length );
+            for ( List<?> records : lists )
+            {
+                assertEquals( 2, records.size() );
+                assertEquals( TxLog.MARK_COMMIT,
+                    ((TxLog.Record) records.get( 1 )).getType() );
+            }
+            reopened.close();
+        }
+        finally
+        {
+            file = new File( txFile() );
+            if ( file.exists() )
+            {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testGroupCommitBatchesWaitingCommitters() throws Exception
+    {
+        GroupCommit groupCommit = new GroupCommit( 100, 0 );
+        BlockingForceable log = new BlockingForceable();
+        // the leader's force blocks while the followers append and queue up
+        ForcingThread leader = new ForcingThread( groupCommit, log );
+        leader.start();
+        log.awaitForceStarted();
+        int followerCount = 10;
+        ForcingThread followers[] = new ForcingThread[followerCount];
+        for ( int i = 0; i < followerCount; i++ )
+        {
+            followers[i] = new ForcingThread( groupCommit, log );
+            followers[i].start();
+        }
+        while ( groupCommit.getAppendCount() < followerCount + 1 )
+        {
+            Thread.sleep( 1 );
+        }
+        // release the leader's force and then the one force for all followers
+        log.allowForce();
+        log.awaitForceStarted();
+        log.allowForce();
+        leader.join();
+        for ( ForcingThread follower : followers )
+        {
+            follower.join();
+            assertTrue( follower.forced );
+        }
+        assertTrue( leader.forced );
+        assertEquals( 2, groupCommit.getForceCount() );
+        assertEquals( 2, log.forceCount );
+        assertTrue( groupCommit.getForceCount() < followerCount + 1 );
+    }
+
+    @Test
+    public void testAwaitForcedWaitsForForceCoveringTicket() throws Exception
+    {
+        GroupCommit groupCommit = new GroupCommit( 100, 0 );
+        BlockingForceable log = new BlockingForceable();
+        ForcingThread first = new ForcingThread( groupCommit, log );
+        first.start();
+        log.awaitForceStarted();
+        // appended after the running force started, so that force doesn't
+        // cover it
+        ForcingThread second = new ForcingThread( groupCommit, log );
+        second.start();
+        while ( groupCommit.getAppendCount() < 2 )
+        {
+            Thread.sleep( 1 );
+        }
+        first.join( 100 );
+        second.join( 100 );
+        assertTrue( first.isAlive() );
+        assertTrue( second.isAlive() );
+
+        log.allowForce();
+        first.join();
+        assertTrue( first.forced );
+        log.awaitForceStarted();
+        second.join( 100 );
+        assertTrue( second.isAlive() );
+        assertFalse( second.forced );
+
+        log.allowForce();
+        second.join();
+        assertTrue( second.forced );
+        assertEquals( 2, log.forceCount );
+    }
+
+    private static class BlockingForceable implements GroupCommit.Forceable
+    {
+        private final Semaphore started = new Semaphore( 0 );
+        private final Semaphore allowed = new Semaphore( 0 );
+        private volatile int forceCount;
+
+        public void force()
+        {
+            started.release();
+            allowed.acquireUninterruptibly();
+            forceCount++;
+        }
+
+        void awaitForceStarted() throws InterruptedException
+        {
+            assertTrue( "No force started",
+                started.tryAcquire( 10, TimeUnit.SECONDS ) );
+        }
+
+        void allowForce()
+        {
+            allowed.release();
+        }
+    }
+
+    private static class ForcingThread extends Thread
+    {
+        private final GroupCommit groupCommit;
+        private final GroupCommit.Forceable log;
+        private volatile boolean forced;
+
+        ForcingThread( GroupCommit groupCommit, GroupCommit.Forceable log )
+        {
+            this.groupCommit = groupCommit;
+            this.log = log;
+        }
+
+        @Override
+        public void run()
+        {
+            long ticket = groupCommit.append();
+            try
+            {
+                groupCommit.awaitForced( ticket, log );
+                forced = true;
+            }
+            catch ( IOException e )
+            {
+                throw new RuntimeException( e );
+            }
+        }
+    }
+
     @Test
     public void testTxRecovery()
     {
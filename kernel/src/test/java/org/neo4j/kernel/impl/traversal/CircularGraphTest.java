@@ -22,13 +22,16 @@ package org.neo4j.kernel.impl.traversal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.DynamicRelationshipType;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.ReturnableEvaluator;
@@ -37,6 +40,9 @@ import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.TraversalPosition;
 import org.neo4j.graphdb.Traverser;
 import org.neo4j.graphdb.Traverser.Order;
+import org.neo4j.graphdb.traversal.TraversalDescription;
+import org.neo4j.kernel.Traversal;
+import org.neo4j.kernel.Uniqueness;
 
 public class CircularGraphTest extends AbstractTestBase
 {
@@ -87,4 +93,31 @@ public class CircularGraphTest extends AbstractTestBase
         assertEquals( "3", nodes.next().getProperty( "name" ) );
         assertFalse( nodes.hasNext() );
     }
+    
+    @Test
+    public void testPathsStayIntactWhenBranchesAreTurnedDown()
+    {
+        // From 2 and 3 the relationship between them leads to a node
+        // which has already been visited
+        Node one = getNodeWithName( "1" );
+        TraversalDescription description = Traversal.description().breadthFirst()
+                .relationships( DynamicRelationshipType.withName( "TO" ), Direction.BOTH )
+                .uniqueness( Uniqueness.NODE_GLOBAL );
+        List<Path> paths = new ArrayList<Path>();
+        for ( Path path : description.traverse( one ) )
+        {
+            paths.add( path );
+        }
+        expect( paths, new NodePathRepresentation( NAME_PROPERTY_REPRESENTATION ),
+                "1", "1,2", "1,3" );
+        
+        Iterator<Path> again = description.traverse( one ).iterator();
+        for ( Path path : paths )
+        {
+            Path other = again.next();
+            assertEquals( path, other );
+            assertEquals( path.hashCode(), other.hashCode() );
+        }
+        assertFalse( again.hasNext() );
+    }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestPrimitiveCollections
+{
+    @Test
+    public void testLongSet()
+    {
+        PrimitiveLongSet set = new PrimitiveLongSet( 2 );
+        Set<Long> expected = new HashSet<Long>();
+        Random random = new Random( 4321 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            // includes 0 and negative values on purpose
+            long value = random.nextInt( 2000 ) - 1000;
+            switch ( random.nextInt( 3 ) )
+            {
+            case 0:
+                assertEquals( expected.add( value ), set.add( value ) );
+                break;
+            case 1:
+                assertEquals( expected.remove( value ), set.remove( value ) );
+                break;
+            default:
+                assertEquals( expected.contains( value ), set.contains( value ) );
+            }
+            assertEquals( expected.size(), set.size() );
+        }
+        set.clear();
+        assertTrue( set.isEmpty() );
+        assertFalse( set.contains( 0 ) );
+    }
+
+    @Test
+    public void testLongObjectMap()
+    {
+        PrimitiveLongObjectMap<String> map = new PrimitiveLongObjectMap<String>( 2 );
+        Map<Long,String> expected = new HashMap<Long,String>();
+        Random random = new Random( 1234 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            long key = random.nextInt( 2000 ) - 1000;
+            switch ( random.nextInt( 3 ) )
+            {
+            case 0:
+                String value = "v" + i;
+                assertEquals( expected.put( key, value ), map.put( key, value ) );
+                break;
+            case 1:
+                assertEquals( expected.remove( key ), map.remove( key ) );
+                break;
+            default:
+                assertEquals( expected.get( key ), map.get( key ) );
+                assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        map.clear();
+        assertTrue( map.isEmpty() );
+        assertNull( map.get( 0 ) );
+    }
+
+    @Test
+    public void testLongIntMap()
+    {
+        PrimitiveLongIntMap map = new PrimitiveLongIntMap( 2 );
+        Map<Long,Integer> expected = new HashMap<Long,Integer>();
+        Random random = new Random( 2345 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            long key = random.nextInt( 20000 ) - 10000;
+            if ( random.nextBoolean() )
+            {
+                Integer previous = expected.put( key, i );
+                assertEquals( previous != null ? previous : -1, map.put( key, i ) );
+            }
+            else
+            {
+                Integer value = expected.get( key );
+                assertEquals( value != null ? value : -1, map.get( key ) );
+                assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        map.clear();
+        assertTrue( map.isEmpty() );
+        assertEquals( -1, map.get( 0 ) );
+    }
+
+    @Test
+    public void testSortedLongArray()
+    {
+        SortedLongArray array = new SortedLongArray( 1 );
+        long[] values = { 5, -3, 10, 0, 7, 5 };
+        for ( long value : values )
+        {
+            array.add( value );
+        }
+        assertEquals( values.length, array.length() );
+        for ( long value : values )
+        {
+            assertTrue( array.contains( value ) );
+        }
+        assertFalse( array.contains( 6 ) );
+        assertEquals( -3, array.get( 0 ) );
+        assertEquals( 10, array.get( values.length - 1 ) );
+        array.add( -10 );
+        assertEquals( -10, array.get( 0 ) );
+    }
+
+    @Test
+    public void testRelIdArrayFromWithRemovals()
+    {
+        RelIdArray src = new RelIdArray();
+        RelIdArray add = new RelIdArray();
+        RelIdArray remove = new RelIdArray();
+        for ( long id = 0; id < 100; id++ )
+        {
+            src.add( id );
+            add.add( id + 1000 );
+            if ( id % 3 == 0 )
+            {
+                remove.add( id );
+                remove.add( id + 1000 );
+            }
+        }
+        Set<Long> result = new HashSet<Long>();
+        RelIdArray combined = RelIdArray.from( src, add, remove );
+        for ( RelIdArray.RelIdIterator iterator = combined.iterator(); iterator.hasNext(); )
+        {
+            assertTrue( result.add( iterator.next() ) );
+        }
+        for ( long id = 0; id < 100; id++ )
+        {
+            assertEquals( id % 3 != 0, result.contains( id ) );
+            assertEquals( id % 3 != 0, result.contains( id + 1000 ) );
+        }
+        assertEquals( combined.length(), result.size() );
+    }
+}
@@ -39,6 +39,58 @@ public interface Cache
     @Description( "The number of Relationships currently in cache" )
     int getRelationshipCacheSize();
 
+    @Description( "The number of Node lookups that found the Node in cache, "
+                  + "or -1 if the cache type doesn't count them" )
+    long getNodeCacheHits();
+
+    @Description( "The number of Node lookups that didn't find the Node in cache, "
+                  + "or -1 if the cache type doesn't count them" )
+    long getNodeCacheMisses();
+
+    @Description( "The number of Nodes evicted from cache to keep it within its maximum size, "
+                  + "or -1 if the cache type doesn't count them" )
+    long getNodeCacheEvictions();
+
+    @Description( "The number of Relationship lookups that found the Relationship in cache, "
+                  + "or -1 if the cache type doesn't count them" )
+    long getRelationshipCacheHits();
+
+    @Description( "The number of Relationship lookups that didn't find the Relationship "
+                  + "in cache, or -1 if the cache type doesn't count them" )
+    long getRelationshipCacheMisses();
+
+    @Description( "The number of Relationships evicted from cache to keep it within its "
+                  + "maximum size, or -1 if the cache type doesn't count them" )
+    long getRelationshipCacheEvictions();
+
+    @Description( "The estimated number of bytes held by the Node cache, "
+                  + "or -1 if the cache type doesn't support a memory budget" )
+    long getNodeCacheSizeInBytes();
+
+    @Description( "The memory budget of the Node cache in bytes, 0 if it has none, "
+                  + "or -1 if the cache type doesn't support a memory budget" )
+    long getNodeCacheMaxSizeInBytes();
+
+    @Description( "The estimated number of bytes held by the Relationship cache, "
+                  + "or -1 if the cache type doesn't support a memory budget" )
+    long getRelationshipCacheSizeInBytes();
+
+    @Description( "The memory budget of the Relationship cache in bytes, 0 if it has none, "
+                  + "or -1 if the cache type doesn't support a memory budget" )
+    long getRelationshipCacheMaxSizeInBytes();
+
+    @Description( "The number of Nodes and Relationships that have been loaded from the store "
+                  + "on a cache miss" )
+    long getNumberOfLoads();
+
+    @Description( "The number of times a thread has waited for another thread loading the "
+                  + "same Node or Relationship" )
+    long getNumberOfLoadWaits();
+
+    @Description( "The total time, in milliseconds, threads have spent waiting for other "
+                  + "threads loading the same Node or Relationship" )
+    long getTotalLoadWaitTime();
+
     @Description( value = "Clears the Neo4j caches", impact = MBeanOperationInfo.ACTION )
     void clear();
 }
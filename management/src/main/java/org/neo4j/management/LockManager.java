@@ -31,4 +31,21 @@ public interface LockManager
     @Description( "The number of lock sequences that would have lead to a deadlock situation that "
                   + "Neo4j has detected and adverted (by throwing DeadlockDetectedException)." )
     long getNumberOfAdvertedDeadlocks();
+
+    @Description( "The number of times a transaction has had to wait for a lock held by "
+                  + "another transaction" )
+    long getNumberOfLockWaits();
+
+    @Description( "The total time, in milliseconds, transactions have spent waiting for locks" )
+    long getTotalLockWaitTime();
+
+    @Description( "The longest time, in milliseconds, a transaction has waited for a lock" )
+    long getMaxLockWaitTime();
+
+    @Description( "The number of lock waits by how long they were, one count per bucket in "
+                  + "LockWaitTimeHistogramBounds and a last count for the longer waits" )
+    long[] getLockWaitTimeHistogram();
+
+    @Description( "The upper bounds, in milliseconds, of the buckets in LockWaitTimeHistogram" )
+    long[] getLockWaitTimeHistogramBounds();
 }
@@ -31,4 +31,12 @@ public interface MemoryMapping
     @Description( "Get information about each pool of memory mapped regions from store files with "
                   + "memory mapping enabled" )
     WindowPoolInfo[] getMemoryPools();
+
+    @Description( "The id of the last transaction known to have all its changes forced "
+                  + "to the store files, -1 if the stores haven't been flushed yet" )
+    long getCheckpointTxId();
+
+    @Description( "The number of bytes of memory mapped regions forced to disk by the "
+                  + "background flusher" )
+    long getBackgroundFlushedBytes();
 }
@@ -40,6 +40,10 @@ public interface StoreFile
     @Description( "The amount of disk space used to store relationships, in bytes." )
     long getRelationshipStoreSize();
 
+    @Description( "The amount of disk space used to store the relationship groups "
+                  + "of the nodes, in bytes." )
+    long getRelationshipGroupStoreSize();
+
     @Description( "The amount of disk space used to store properties "
                   + "(excluding string values and array values), in bytes." )
     long getPropertyStoreSize();
@@ -33,13 +33,16 @@ public final class WindowPoolInfo implements Serializable
     private final int hitCount;
     private final int missCount;
     private final int oomCount;
+    private final int switchCount;
+    private final int refreshCount;
 
     @ConstructorProperties( { "windowPoolName", "availableMemory",
             "usedMemory", "numberOfWindows", "windowSize", "windowHitCount",
-            "windowMissCount", "numberOfOutOfMemory" } )
+            "windowMissCount", "numberOfOutOfMemory", "windowSwitchCount",
+            "windowRefreshCount" } )
     public WindowPoolInfo( String name, long memAvail, long memUsed,
             int windowCount, int windowSize, int hitCount, int missCount,
-            int oomCount )
+            int oomCount, int switchCount, int refreshCount )
     {
         this.name = name;
         this.memAvail = memAvail;
@@ -49,6 +52,8 @@ public final class WindowPoolInfo implements Serializable
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.oomCount = oomCount;
+        this.switchCount = switchCount;
+        this.refreshCount = refreshCount;
     }
 
     public String getWindowPoolName()
@@ -90,4 +95,14 @@ public final class WindowPoolInfo implements Serializable
     {
         return oomCount;
     }
+
+    public int getWindowSwitchCount()
+    {
+        return switchCount;
+    }
+
+    public int getWindowRefreshCount()
+    {
+        return refreshCount;
+    }
 }
@@ -67,6 +67,71 @@ public class CacheBean extends ManagementBeanProvider
             return nodeManager.getRelationshipCacheSize();
         }
 
+        public long getNodeCacheHits()
+        {
+            return nodeManager.getNodeCacheHits();
+        }
+
+        public long getNodeCacheMisses()
+        {
+            return nodeManager.getNodeCacheMisses();
+        }
+
+        public long getNodeCacheEvictions()
+        {
+            return nodeManager.getNodeCacheEvictions();
+        }
+
+        public long getRelationshipCacheHits()
+        {
+            return nodeManager.getRelationshipCacheHits();
+        }
+
+        public long getRelationshipCacheMisses()
+        {
+            return nodeManager.getRelationshipCacheMisses();
+        }
+
+        public long getRelationshipCacheEvictions()
+        {
+            return nodeManager.getRelationshipCacheEvictions();
+        }
+
+        public long getNodeCacheSizeInBytes()
+        {
+            return nodeManager.getNodeCacheSizeInBytes();
+        }
+
+        public long getNodeCacheMaxSizeInBytes()
+        {
+            return nodeManager.getNodeCacheMaxSizeInBytes();
+        }
+
+        public long getRelationshipCacheSizeInBytes()
+        {
+            return nodeManager.getRelationshipCacheSizeInBytes();
+        }
+
+        public long getRelationshipCacheMaxSizeInBytes()
+        {
+            return nodeManager.getRelationshipCacheMaxSizeInBytes();
+        }
+
+        public long getNumberOfLoads()
+        {
+            return nodeManager.getNumberOfLoads();
+        }
+
+        public long getNumberOfLoadWaits()
+        {
+            return nodeManager.getNumberOfLoadWaits();
+        }
+
+        public long getTotalLoadWaitTime()
+        {
+            return nodeManager.getTotalLoadWaitTime();
+        }
+
         public void clear()
         {
             nodeManager.clearCache();
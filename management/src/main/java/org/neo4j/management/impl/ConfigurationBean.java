@@ -80,6 +80,8 @@ public final class ConfigurationBean extends ManagementBeanProvider
     public static final String STRING_PROPERTY_STORE_MMAP_SIZE = Config.STRING_PROPERTY_STORE_MMAP_SIZE;
     @Description( "The size to allocate for memory mapping the relationship store" )
     public static final String RELATIONSHIP_STORE_MMAP_SIZE = Config.RELATIONSHIP_STORE_MMAP_SIZE;
+    @Description( "The size to allocate for memory mapping the relationship group store" )
+    public static final String RELATIONSHIP_GROUP_STORE_MMAP_SIZE = Config.RELATIONSHIP_GROUP_STORE_MMAP_SIZE;
     @Description( "Relative path for where the Neo4j logical log is located" )
     public static final String LOGICAL_LOG = Config.LOGICAL_LOG;
     @Description( "Relative path for where the Neo4j storage information file is located" )
@@ -55,5 +55,30 @@ public final class LockManagerBean extends ManagementBeanProvider
         {
             return lockManager.getDetectedDeadlockCount();
         }
+
+        public long getNumberOfLockWaits()
+        {
+            return lockManager.getLockWaitCount();
+        }
+
+        public long getTotalLockWaitTime()
+        {
+            return lockManager.getTotalLockWaitTime();
+        }
+
+        public long getMaxLockWaitTime()
+        {
+            return lockManager.getMaxLockWaitTime();
+        }
+
+        public long[] getLockWaitTimeHistogram()
+        {
+            return lockManager.getLockWaitTimeHistogram();
+        }
+
+        public long[] getLockWaitTimeHistogramBounds()
+        {
+            return lockManager.getLockWaitTimeHistogramBounds();
+        }
     }
 }
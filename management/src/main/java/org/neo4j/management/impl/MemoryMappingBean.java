@@ -75,6 +75,16 @@ public final class MemoryMappingBean extends ManagementBeanProvider
             return getMemoryPoolsImpl( datasource );
         }
 
+        public long getCheckpointTxId()
+        {
+            return datasource.getCheckpointTxId();
+        }
+
+        public long getBackgroundFlushedBytes()
+        {
+            return datasource.getBackgroundFlushedBytes();
+        }
+
         public static WindowPoolInfo[] getMemoryPoolsImpl( NeoStoreXaDataSource datasource )
         {
             Collection<WindowPoolStats> stats = datasource.getWindowPoolStats();
@@ -91,7 +101,8 @@ public final class MemoryMappingBean extends ManagementBeanProvider
         {
             return new WindowPoolInfo( stats.getName(), stats.getMemAvail(), stats.getMemUsed(),
                     stats.getWindowCount(), stats.getWindowSize(), stats.getHitCount(),
-                    stats.getMissCount(), stats.getOomCount() );
+                    stats.getMissCount(), stats.getOomCount(), stats.getSwitchCount(),
+                    stats.getRefreshCount() );
         }
     }
 }
@@ -50,6 +50,7 @@ public final class StoreFileBean extends ManagementBeanProvider
     {
         private static final String NODE_STORE = "neostore.nodestore.db";
         private static final String RELATIONSHIP_STORE = "neostore.relationshipstore.db";
+        private static final String RELATIONSHIP_GROUP_STORE = "neostore.relationshipgroupstore.db";
         private static final String PROPERTY_STORE = "neostore.propertystore.db";
         private static final String ARRAY_STORE = "neostore.propertystore.db.arrays";
         private static final String STRING_STORE = "neostore.propertystore.db.strings";
@@ -131,6 +132,11 @@ public final class StoreFileBean extends ManagementBeanProvider
             return sizeOf( RELATIONSHIP_STORE );
         }
 
+        public long getRelationshipGroupStoreSize()
+        {
+            return sizeOf( RELATIONSHIP_GROUP_STORE );
+        }
+
         public long getStringStoreSize()
         {
             return sizeOf( STRING_STORE );
@@ -19,6 +19,7 @@
  */
 package org.neo4j.management;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -89,12 +90,54 @@ public class ManagementBeansTest
         assertNotNull( getManager().getCacheBean() );
     }
 
+    @Test
+    public void canAccessCacheLoadCounts() throws Exception
+    {
+        Cache cache = getManager().getCacheBean();
+        cache.clear();
+        long loads = cache.getNumberOfLoads();
+        graphDb.getReferenceNode();
+        assertEquals( loads + 1, cache.getNumberOfLoads() );
+        assertTrue( cache.getNumberOfLoadWaits() >= 0 );
+        assertTrue( cache.getTotalLoadWaitTime() >= 0 );
+    }
+
+    @Test
+    public void canAccessCacheHitCounts() throws Exception
+    {
+        Cache cache = getManager().getCacheBean();
+        assertTrue( cache.getNodeCacheHits() >= -1 );
+        assertTrue( cache.getNodeCacheMisses() >= -1 );
+        assertTrue( cache.getNodeCacheEvictions() >= -1 );
+        assertTrue( cache.getRelationshipCacheHits() >= -1 );
+        assertTrue( cache.getRelationshipCacheMisses() >= -1 );
+        assertTrue( cache.getRelationshipCacheEvictions() >= -1 );
+    }
+
+    @Test
+    public void canAccessCacheMemoryUsage() throws Exception
+    {
+        Cache cache = getManager().getCacheBean();
+        assertTrue( cache.getNodeCacheSizeInBytes() >= -1 );
+        assertTrue( cache.getNodeCacheMaxSizeInBytes() >= -1 );
+        assertTrue( cache.getRelationshipCacheSizeInBytes() >= -1 );
+        assertTrue( cache.getRelationshipCacheMaxSizeInBytes() >= -1 );
+    }
+
     @Test
     public void canGetLockManagerBean() throws Exception
     {
         assertNotNull( getManager().getLockManagerBean() );
     }
 
+    @Test
+    public void canAccessLockWaitHistogram() throws Exception
+    {
+        LockManager lockManager = getManager().getLockManagerBean();
+        assertEquals( lockManager.getLockWaitTimeHistogramBounds().length + 1,
+                lockManager.getLockWaitTimeHistogram().length );
+    }
+
     @Test
     public void canGetMemoryMappingBean() throws Exception
     {
@@ -131,6 +174,14 @@ public class ManagementBeansTest
         assertNotNull( "MemoryPools is null", getManager().getMemoryMappingBean().getMemoryPools() );
     }
 
+    @Test
+    public void canAccessCheckpointPosition() throws Exception
+    {
+        MemoryMapping memoryMapping = getManager().getMemoryMappingBean();
+        assertTrue( memoryMapping.getCheckpointTxId() >= -1 );
+        assertTrue( memoryMapping.getBackgroundFlushedBytes() >= 0 );
+    }
+
     @Test
     public void canAccessXaManagerCompositData() throws Exception
     {